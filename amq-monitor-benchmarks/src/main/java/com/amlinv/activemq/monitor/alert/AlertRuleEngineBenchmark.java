@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackageFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of the alert rules against one broker poll, with one exact-name rule per queue plus prefix and
+ * all-queue rules, none of which fire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertRuleEngineBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int queueCount;
+
+    private AlertRuleEngine engine;
+    private BrokerStatsPackage brokerStatsPackage;
+
+    @Setup
+    public void setup() {
+        this.brokerStatsPackage = BrokerStatsPackageFixture.create("bench-broker", this.queueCount);
+
+        List<AlertRule> rules = new ArrayList<>();
+        for ( int cur = 0; cur < this.queueCount; cur++ ) {
+            rules.add(new AlertRule("backlog-" + cur, "bench.queue." + cur, "queueSize > 100000 for 5m", false));
+        }
+        for ( int cur = 0; cur < 10; cur++ ) {
+            rules.add(new AlertRule("prefix-" + cur, "bench.queue." + cur + "*", "rate(queueSize) > 1000", false));
+        }
+        rules.add(new AlertRule("memory", "*", "memoryPercentUsage > 90", false));
+
+        this.engine = new AlertRuleEngine();
+        this.engine.setRules(rules);
+
+        // Resolve the matching rules of each queue, as happens on the first poll.
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+    }
+
+    @Benchmark
+    public void evaluatePoll() {
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+    }
+}
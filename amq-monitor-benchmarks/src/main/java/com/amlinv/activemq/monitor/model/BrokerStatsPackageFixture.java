@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Poll results of a broker with the given number of queues, populated with representative values, for the benchmarks.
+ */
+public class BrokerStatsPackageFixture {
+
+    public static BrokerStatsPackage create(String brokerName, int queueCount) {
+        ActiveMQBrokerStats brokerStats = new ActiveMQBrokerStats(brokerName);
+        brokerStats.setAverageMessageSize(1024);
+        brokerStats.setUptime("3 days 4 hours");
+        brokerStats.setUptimeMillis(273600000L);
+        brokerStats.setMemoryLimit(1073741824L);
+        brokerStats.setMemoryPercentUsage(12);
+        brokerStats.setStorePercentUsage(7);
+        brokerStats.setCurrentConnectionsCount(40);
+        brokerStats.setTotalConsumerCount(queueCount * 2);
+        brokerStats.setTotalMessageCount(queueCount * 100L);
+        brokerStats.setTotalEnqueueCount(queueCount * 100000L);
+        brokerStats.setTotalDequeueCount(queueCount * 99900L);
+
+        Map<String, ActiveMQQueueJmxStats> queueStats = new TreeMap<>();
+        for ( int cur = 0; cur < queueCount; cur++ ) {
+            String queueName = "bench.queue." + cur;
+
+            ActiveMQQueueJmxStats stats = new ActiveMQQueueJmxStats(brokerName, queueName);
+            stats.setQueueSize(100);
+            stats.setEnqueueCount(100000L + cur);
+            stats.setDequeueCount(99900L + cur);
+            stats.setNumConsumers(2);
+            stats.setNumProducers(1);
+            stats.setCursorPercentUsage(5);
+            stats.setMemoryPercentUsage(3);
+            stats.setInflightCount(10);
+
+            queueStats.put(queueName, stats);
+        }
+
+        return new BrokerStatsPackage(brokerStats, queueStats);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.amlinv.activemq.monitor.model.BrokerStatsPackageFixture;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary encoding of a "brokerStats" frame, either parsed back from the frame's JSON text or encoded directly from the
+ * JSON tree the feed serialized the text from.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorWebsocketBinaryEncoderBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int queueCount;
+
+    private JsonElement brokerStatsTree;
+    private String brokerStatsJson;
+
+    @Setup
+    public void setup() {
+        // Configured as in MonitorWebsocketBrokerStatsFeed
+        Gson gson = new GsonBuilder().create();
+        this.brokerStatsTree = gson.toJsonTree(BrokerStatsPackageFixture.create("bench-broker", this.queueCount));
+        this.brokerStatsJson = gson.toJson(this.brokerStatsTree);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeParsedText() {
+        return new MonitorWebsocketFrame("brokerStats", this.brokerStatsJson).getBinary();
+    }
+
+    @Benchmark
+    public ByteBuffer encodeTree() {
+        return new MonitorWebsocketFrame("brokerStats", this.brokerStatsJson, this.brokerStatsTree).getBinary();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.amlinv.activemq.monitor.model.BrokerStatsPackageFixture;
+import com.amlinv.javasched.Scheduler;
+import com.amlinv.javasched.Step;
+import com.amlinv.javasched.process.StepListSchedulerProcess;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcast of one statistics event to all of the connected websocket clients: building the frame, queueing it on
+ * each client's send queue, and the send step writing it to the client.  Send steps are run as soon as they are
+ * added, rather than by the scheduler, and the client sessions discard the text, so the cost measured is that of the
+ * monitor alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorWebsocketFanOutBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int clientCount;
+
+    @Param({"10", "1000"})
+    public int queueCount;
+
+    private MonitorWebsocketBrokerStatsFeed feed;
+    private String content;
+
+    @Setup
+    public void setup() {
+        MonitorWebsocketRegistry websocketRegistry = new MonitorWebsocketRegistry();
+
+        MonitorWebsocket.setRegistry(websocketRegistry);
+        MonitorWebsocket.setScheduler(createProxy(Scheduler.class, new NullInvocationHandler()));
+
+        for ( int cur = 0; cur < this.clientCount; cur++ ) {
+            MonitorWebsocket websocket = new MonitorWebsocket();
+            websocket.setSendProcess(new InlineSendProcess());
+            websocket.onOpen(createProxy(Session.class, new DiscardingSessionHandler("bench-session-" + cur)));
+        }
+
+        this.feed = new MonitorWebsocketBrokerStatsFeed();
+        this.feed.setWebsocketRegistry(websocketRegistry);
+
+        this.content =
+                new GsonBuilder().create().toJson(BrokerStatsPackageFixture.create("bench-broker", this.queueCount));
+    }
+
+    @Benchmark
+    public void fireMonitorEvent() {
+        this.feed.fireMonitorEventNB("brokerStats", "bench-broker", this.content);
+    }
+
+    private static <T> T createProxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    /**
+     * Send process which runs each step as it is added, in place of the scheduler.
+     */
+    private static class InlineSendProcess extends StepListSchedulerProcess {
+        @Override
+        public void addStep(Step step) {
+            step.execute();
+        }
+    }
+
+    private static class NullInvocationHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return null;
+        }
+    }
+
+    /**
+     * Websocket session of a client which receives, and discards, all the text sent to it.
+     */
+    private static class DiscardingSessionHandler implements InvocationHandler {
+        private final String sessionId;
+        private final RemoteEndpoint.Async asyncRemote =
+                createProxy(RemoteEndpoint.Async.class, new NullInvocationHandler());
+        private final RemoteEndpoint.Basic basicRemote =
+                createProxy(RemoteEndpoint.Basic.class, new NullInvocationHandler());
+
+        public DiscardingSessionHandler(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch ( method.getName() ) {
+                case "getId":
+                    return this.sessionId;
+
+                case "getAsyncRemote":
+                    return this.asyncRemote;
+
+                case "getBasicRemote":
+                    return this.basicRemote;
+
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording of one sample into the moving averages of a queue's message rates.  Samples are a poll interval apart so
+ * the averages roll over into new slots as they do in production.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueMessageRateCollectorBenchmark {
+
+    public static final long SAMPLE_INTERVAL = 3000L;
+
+    private QueueMessageRateCollector collector;
+    private long timestamp;
+
+    @Setup
+    public void setup() {
+        this.collector = new QueueMessageRateCollector();
+        this.timestamp = 0;
+    }
+
+    @Benchmark
+    public QueueMessageRateCollector onTimestampSample() {
+        this.timestamp += SAMPLE_INTERVAL;
+        this.collector.onTimestampSample(this.timestamp, 9, 10);
+
+        return this.collector;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation of one queue's statistics as each broker's poll results arrive.  Every operation is an update from the
+ * next broker in turn with advanced counts, as in steady-state polling.  Run with "-prof gc" to check the update path
+ * remains allocation-free; gc.alloc.rate.norm should stay near zero bytes per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueStatisticsCollectionBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    public int brokerCount;
+
+    private QueueStatisticsCollection collection;
+    private ActiveMQQueueJmxStats[] brokerStats;
+    private int nextBroker;
+
+    @Setup
+    public void setup() {
+        this.collection = new QueueStatisticsCollection("bench-queue");
+        this.brokerStats = new ActiveMQQueueJmxStats[this.brokerCount];
+
+        for ( int cur = 0; cur < this.brokerCount; cur++ ) {
+            ActiveMQQueueJmxStats stats = new ActiveMQQueueJmxStats("bench-broker-" + cur, "bench-queue");
+            stats.setQueueSize(100);
+            stats.setNumConsumers(2);
+            stats.setNumProducers(1);
+            stats.setCursorPercentUsage(5);
+            stats.setMemoryPercentUsage(3);
+
+            this.brokerStats[cur] = stats;
+            this.collection.onUpdatedStats(stats);
+        }
+    }
+
+    @Benchmark
+    public QueueStatisticsCollection onUpdatedStats() {
+        ActiveMQQueueJmxStats stats = this.brokerStats[this.nextBroker];
+        this.nextBroker = ( this.nextBroker + 1 ) % this.brokerCount;
+
+        stats.setEnqueueCount(stats.getEnqueueCount() + 10);
+        stats.setDequeueCount(stats.getDequeueCount() + 9);
+        stats.setQueueSize(stats.getEnqueueCount() - stats.getDequeueCount());
+
+        this.collection.onUpdatedStats(stats);
+
+        return this.collection;
+    }
+
+    @Benchmark
+    public ActiveMQQueueStats getQueueTotalStats() {
+        return this.collection.getQueueTotalStats();
+    }
+}
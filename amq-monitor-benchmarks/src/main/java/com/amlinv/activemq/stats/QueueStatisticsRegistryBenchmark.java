@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full read of the aggregated statistics of every queue, as done for each REST request and, without delta mode, for
+ * each broadcast of the queue statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueStatisticsRegistryBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int queueCount;
+
+    private QueueStatisticsRegistry registry;
+
+    @Setup
+    public void setup() {
+        this.registry = new QueueStatisticsRegistry();
+
+        for ( int cur = 0; cur < this.queueCount; cur++ ) {
+            ActiveMQQueueJmxStats stats = new ActiveMQQueueJmxStats("bench-broker", "bench-queue-" + cur);
+            stats.setQueueSize(cur);
+            stats.setEnqueueCount(cur * 2);
+            stats.setDequeueCount(cur);
+
+            this.registry.onUpdatedStats(stats);
+        }
+    }
+
+    @Benchmark
+    public Map<String, ActiveMQQueueStats> getQueueStats() {
+        return this.registry.getQueueStats();
+    }
+}
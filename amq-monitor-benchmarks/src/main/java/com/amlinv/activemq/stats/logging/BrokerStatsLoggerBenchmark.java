@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats.logging;
+
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackageFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of the statistics log lines of one broker's poll results.  logStats writes the lines to a no-op logger
+ * so the appender is not measured; formatLogLines consumes the lines directly so none of the formatting can be
+ * optimized away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrokerStatsLoggerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int queueCount;
+
+    private BrokerStatsLogger brokerStatsLogger;
+    private BrokerStatsPackage brokerStatsPackage;
+
+    @Setup
+    public void setup() {
+        this.brokerStatsLogger = new BrokerStatsLogger();
+        this.brokerStatsLogger.setStatsLog(NOPLogger.NOP_LOGGER);
+
+        this.brokerStatsPackage = BrokerStatsPackageFixture.create("bench-broker", this.queueCount);
+    }
+
+    @Benchmark
+    public void logStats() {
+        this.brokerStatsLogger.logStats(this.brokerStatsPackage);
+    }
+
+    @Benchmark
+    public void formatLogLines(Blackhole blackhole) {
+        blackhole.consume(this.brokerStatsLogger.formatBrokerStatsLogLine(this.brokerStatsPackage.getBrokerStats()));
+
+        for ( Map.Entry<String, ActiveMQQueueJmxStats> oneEntry : this.brokerStatsPackage.getQueueStats().entrySet() ) {
+            blackhole.consume(this.brokerStatsLogger.formatQueueStatsLogLine(oneEntry.getKey(), oneEntry.getValue()));
+        }
+    }
+}
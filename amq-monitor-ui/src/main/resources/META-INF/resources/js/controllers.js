@@ -59,6 +59,17 @@ amqMonitorApp.controller('amqMonitorCtrl', function($scope, $http) {
         queues: {}
     };
 
+    //
+    // Sequence number of the last queue stats snapshot or delta applied, when the server sends deltas.
+    //
+    $scope.queueStatsSeq = -1;
+    $scope.queueStatsResyncPending = false;
+
+    //
+    // Binary frames are smaller and cheaper for the server to produce on large fleets; opt in with ?encoding=binary.
+    //
+    $scope.binaryFrames = /[?&]encoding=binary(&|$)/.test(window.location.search);
+
 
     try {
         var scheme;
@@ -73,18 +84,32 @@ amqMonitorApp.controller('amqMonitorCtrl', function($scope, $http) {
         path = window.location.pathname.replace(/[^/]*$/, "");
 
         var source = new WebSocket(scheme + host_and_port + path + "/ws/monitor");
+        source.binaryType = "arraybuffer";
 
         source.onopen = function (event) {
+            if ( $scope.binaryFrames ) {
+                source.send(JSON.stringify({ "action": "setEncoding", "encoding": "binary" }));
+            }
+
             $scope.$apply(function() { $scope.connection_state = "monitor connected" });
         };
         source.onmessage = function (event) {
             $scope.$apply(function() {
-                var msg = JSON.parse(event.data);
+                var msg;
+                if ( typeof event.data == "string" ) {
+                    msg = JSON.parse(event.data);
+                } else {
+                    msg = decodeMonitorBinaryFrame(event.data);
+                }
 
                 if ( msg.action == "brokerStats" ) {
                     $scope.onMonitorBrokerStats(msg.data);
                 } else if ( msg.action == "queueStats" ) {
                     $scope.onMonitorQueueStats(msg.data);
+                } else if ( msg.action == "queueStatsSnapshot" ) {
+                    $scope.onMonitorQueueStatsSnapshot(msg.data);
+                } else if ( msg.action == "queueStatsDelta" ) {
+                    $scope.onMonitorQueueStatsDelta(msg.data);
                 } else if ( msg.action == "queueAdded" ) {
                     $scope.onMonitoredQueueAdded(msg.data);
                 } else if ( msg.action == "queueRemoved" ) {
@@ -92,7 +117,11 @@ amqMonitorApp.controller('amqMonitorCtrl', function($scope, $http) {
                 }
 
                 //if ( $scope.debug_log ) {
-                    $scope.debug_log = event.data;
+                    if ( typeof event.data == "string" ) {
+                        $scope.debug_log = event.data;
+                    } else {
+                        $scope.debug_log = "binary frame: action=" + msg.action + "; size=" + event.data.byteLength;
+                    }
                 //}
             });
         };
@@ -172,6 +201,63 @@ amqMonitorApp.controller('amqMonitorCtrl', function($scope, $http) {
         }
     };
 
+    $scope.onMonitorQueueStatsSnapshot = function(snapshot) {
+        if ( snapshot ) {
+            $scope.onMonitorQueueStats(snapshot.queues);
+
+            $scope.queueStatsSeq = snapshot.seq;
+            $scope.queueStatsResyncPending = false;
+        }
+    };
+
+    $scope.onMonitorQueueStatsDelta = function(delta) {
+        //
+        // Skip deltas while waiting on a snapshot, and deltas already included in the last snapshot.
+        //
+        if ( ( ! delta ) || ( $scope.queueStatsResyncPending ) || ( delta.seq <= $scope.queueStatsSeq ) ) {
+            return;
+        }
+
+        //
+        // A delta applies to the sequence number before its own, unless the server merged deltas for a slow client,
+        //  in which case it applies to baseSeq.  The merged changes are the latest values, so a delta applying to an
+        //  earlier sequence number is still correct.  A gap means a delta was missed; ask for a new snapshot.
+        //
+        var baseSeq = delta.seq - 1;
+        if ( "baseSeq" in delta ) {
+            baseSeq = delta.baseSeq;
+        }
+
+        if ( baseSeq > $scope.queueStatsSeq ) {
+            $scope.requestQueueStatsResync();
+            return;
+        }
+
+        // Deltas only contain the changed fields, which are copied over the existing values.
+        $scope.onMonitorQueueStats(delta.changed);
+
+        if ( delta.removed ) {
+            var iter = 0;
+            while ( iter < delta.removed.length ) {
+                $scope.onMonitoredQueueRemoved(delta.removed[iter]);
+                iter++;
+            }
+        }
+
+        $scope.queueStatsSeq = delta.seq;
+    };
+
+    $scope.requestQueueStatsResync = function() {
+        $scope.queueStatsResyncPending = true;
+
+        try {
+            source.send(JSON.stringify({ "action": "queueStatsResync" }));
+        } catch ( exc ) {
+            $scope.queueStatsResyncPending = false;
+            $scope.note = "websocket error";
+        }
+    };
+
     $scope.addMonitorBroker = function() {
         var spec = prompt("Please specify the broker location and broker name in the format " +
                           "broker-name/location; broker-name is optional", "broker/location");
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+'use strict';
+
+/* Decoder of the binary websocket frames of the monitor (see MonitorWebsocketBinaryEncoder) */
+
+var MONITOR_BINARY_FRAME_VERSION = 1;
+
+//
+// Decode the given binary frame into the same {action: ..., data: ...} object as the JSON text frames.
+//
+function decodeMonitorBinaryFrame(arrayBuffer) {
+    var bytes = new Uint8Array(arrayBuffer);
+    var view = new DataView(arrayBuffer);
+    var pos = 0;
+    var fieldNames = [];
+
+    var readVarint = function() {
+        var result = 0;
+        var scale = 1;
+        var oneByte;
+
+        // Arithmetic instead of bit operations, which are limited to 32 bits.
+        do {
+            oneByte = bytes[pos];
+            pos++;
+            result += ( oneByte & 0x7F ) * scale;
+            scale *= 128;
+        } while ( oneByte & 0x80 );
+
+        return result;
+    };
+
+    //
+    // Zigzag integers: the low bit is the sign.  The magnitude is accumulated already halved so integers up to
+    //  2^53 in magnitude decode exactly.
+    //
+    var readZigzag = function() {
+        var oneByte = bytes[pos];
+        pos++;
+
+        var negative = ( oneByte & 1 );
+        var half = ( oneByte & 0x7F ) >> 1;
+        var scale = 64;
+
+        while ( oneByte & 0x80 ) {
+            oneByte = bytes[pos];
+            pos++;
+            half += ( oneByte & 0x7F ) * scale;
+            scale *= 128;
+        }
+
+        if ( negative ) {
+            return - half - 1;
+        }
+        return half;
+    };
+
+    var readUtf8 = function(length) {
+        var end = pos + length;
+        var result = "";
+
+        while ( pos < end ) {
+            var code = bytes[pos];
+            pos++;
+
+            if ( code >= 0xF0 ) {
+                code = ( ( code & 0x07 ) << 18 ) | ( ( bytes[pos] & 0x3F ) << 12 ) |
+                       ( ( bytes[pos + 1] & 0x3F ) << 6 ) | ( bytes[pos + 2] & 0x3F );
+                pos += 3;
+            } else if ( code >= 0xE0 ) {
+                code = ( ( code & 0x0F ) << 12 ) | ( ( bytes[pos] & 0x3F ) << 6 ) | ( bytes[pos + 1] & 0x3F );
+                pos += 2;
+            } else if ( code >= 0xC0 ) {
+                code = ( ( code & 0x1F ) << 6 ) | ( bytes[pos] & 0x3F );
+                pos += 1;
+            }
+
+            if ( code > 0xFFFF ) {
+                code -= 0x10000;
+                result += String.fromCharCode(0xD800 + ( code >> 10 ), 0xDC00 + ( code & 0x3FF ));
+            } else {
+                result += String.fromCharCode(code);
+            }
+        }
+
+        return result;
+    };
+
+    var readFieldName = function() {
+        var ref = readVarint();
+
+        // Odd references carry a new name; even ones refer back to a name already read.
+        if ( ref % 2 == 1 ) {
+            var name = readUtf8(( ref - 1 ) / 2);
+            fieldNames.push(name);
+            return name;
+        }
+
+        return fieldNames[ref / 2];
+    };
+
+    var readValue = function() {
+        var type = bytes[pos];
+        pos++;
+
+        var count;
+        var iter;
+        var result;
+
+        switch ( type ) {
+            case 0:
+                return null;
+
+            case 1:
+                return false;
+
+            case 2:
+                return true;
+
+            case 3:
+                return readZigzag();
+
+            case 4:
+                result = view.getFloat64(pos);
+                pos += 8;
+                return result;
+
+            case 5:
+                return readUtf8(readVarint());
+
+            case 6:
+                count = readVarint();
+                result = [];
+                iter = 0;
+                while ( iter < count ) {
+                    result.push(readValue());
+                    iter++;
+                }
+                return result;
+
+            case 7:
+                count = readVarint();
+                result = {};
+                iter = 0;
+                while ( iter < count ) {
+                    var name = readFieldName();
+                    result[name] = readValue();
+                    iter++;
+                }
+                return result;
+
+            default:
+                throw "invalid value type in binary frame: " + type;
+        }
+    };
+
+    if ( bytes[pos] != MONITOR_BINARY_FRAME_VERSION ) {
+        throw "unsupported binary frame version: " + bytes[pos];
+    }
+    pos++;
+
+    return readValue();
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor;
+
+import java.util.regex.Pattern;
+
+/**
+ * Utilities for queue name patterns: queue names optionally containing "*" wildcards matching any sequence of
+ * characters, as used by alert rules and websocket subscriptions.
+ */
+public class QueueNamePatternUtil {
+
+    private QueueNamePatternUtil() {
+    }
+
+    /**
+     * Convert a queue name pattern, in which "*" matches any sequence of characters, to a regular expression.
+     *
+     * @param glob the queue name pattern.
+     * @return regular expression matching the same names as the pattern.
+     */
+    public static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+
+        int start = 0;
+        int wildcard = glob.indexOf('*');
+        while ( wildcard != -1 ) {
+            if ( wildcard > start ) {
+                regex.append(Pattern.quote(glob.substring(start, wildcard)));
+            }
+            regex.append(".*");
+
+            start = wildcard + 1;
+            wildcard = glob.indexOf('*', start);
+        }
+
+        if ( start < glob.length() ) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+
+        return Pattern.compile(regex.toString());
+    }
+}
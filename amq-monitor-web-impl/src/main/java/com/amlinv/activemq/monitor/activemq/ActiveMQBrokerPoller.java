@@ -16,6 +16,7 @@
 
 package com.amlinv.activemq.monitor.activemq;
 
+import com.amlinv.activemq.monitor.activemq.impl.DefaultBrokerPollScheduler;
 import com.amlinv.activemq.monitor.activemq.impl.DefaultBrokerStatsJmxAttributePollerFactory;
 import com.amlinv.activemq.stats.StatsClock;
 import com.amlinv.activemq.stats.SystemStatsClock;
@@ -28,11 +29,17 @@ import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
 import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
 import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
 import com.amlinv.logging.util.RepeatLogMessageSuppressor;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  *
@@ -44,9 +51,16 @@ public class ActiveMQBrokerPoller {
 
     public static final long DEFAULT_MIN_TIME_BETWEEN_STATS_LOG = 60000L;
 
+    /**
+     * Scheduler shared by all pollers which are not given one explicitly, so the number of polling threads remains
+     * fixed regardless of the number of brokers polled.  Threads are only created once polling is first scheduled.
+     */
+    private static final BrokerPollScheduler SHARED_SCHEDULER = new DefaultBrokerPollScheduler();
+
     private final String brokerName;
 
-    private Timer scheduler = new Timer();
+    private BrokerPollScheduler scheduler = SHARED_SCHEDULER;
+    private ScheduledFuture<?> pollingSchedule;
 
     private DestinationRegistry queueRegistry;
     private DestinationRegistry topicRegistry;
@@ -59,6 +73,16 @@ public class ActiveMQBrokerPoller {
 
     private Logger log = DEFAULT_LOGGER;
 
+    /**
+     * Registry of the poll metrics of this broker: the duration of each poll, the duration of each JMX round trip
+     * within a poll, and the rate of failed polls.  Private to this poller unless a shared registry is supplied.
+     */
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private Timer pollTimer;
+    private Timer jmxRoundTripTimer;
+    private Meter pollFailureMeter;
+    private Meter pollSkippedMeter;
+
     private long pollingInterval = 3000;
     private long minTimeBetweenStatsLog = DEFAULT_MIN_TIME_BETWEEN_STATS_LOG;
     private long lastStatsLogUpdateTimestamp = 0;
@@ -66,8 +90,11 @@ public class ActiveMQBrokerPoller {
 
     private final MBeanAccessConnectionFactory mBeanAccessConnectionFactory;
     private final ActiveMQBrokerPollerListener listener;
+    private BrokerStatsPackage resultStorage;
     private BrokerStatsJmxAttributePoller poller;
 
+    private BrokerCircuitBreaker circuitBreaker;
+
     private RepeatLogMessageSuppressor logThrottlePollFailure = new RepeatLogMessageSuppressor();
 
     private ConcurrencyTestHooks concurrencyTestHooks = new ConcurrencyTestHooks();
@@ -89,6 +116,9 @@ public class ActiveMQBrokerPoller {
         this.brokerName = brokerName;
         this.mBeanAccessConnectionFactory = mBeanAccessConnectionFactory;
         this.listener = listener;
+        this.circuitBreaker = new BrokerCircuitBreaker(brokerName);
+
+        this.registerMetrics();
     }
 
     public DestinationRegistry getQueueRegistry() {
@@ -115,11 +145,11 @@ public class ActiveMQBrokerPoller {
         this.brokerStatsLogger = brokerStatsLogger;
     }
 
-    public Timer getScheduler() {
+    public BrokerPollScheduler getScheduler() {
         return scheduler;
     }
 
-    public void setScheduler(Timer scheduler) {
+    public void setScheduler(BrokerPollScheduler scheduler) {
         this.scheduler = scheduler;
     }
 
@@ -139,6 +169,14 @@ public class ActiveMQBrokerPoller {
         this.jmxPollerFactory = jmxPollerFactory;
     }
 
+    public BrokerCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(BrokerCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public Logger getLog() {
         return log;
     }
@@ -147,6 +185,22 @@ public class ActiveMQBrokerPoller {
         this.log = log;
     }
 
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Set the registry of the poll metrics.  Must be set before the poller is started so the JMX round trip timer
+     * is given to the JMX attribute poller.
+     *
+     * @param metricRegistry registry in which to record the poll metrics of this broker.
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+
+        this.registerMetrics();
+    }
+
     public void setConcurrencyTestHooks(ConcurrencyTestHooks concurrencyTestHooks) {
         this.concurrencyTestHooks = concurrencyTestHooks;
     }
@@ -161,19 +215,24 @@ public class ActiveMQBrokerPoller {
 
             this.queueRegistry.addListener(this.queueRegistryListener);
             this.poller = this.prepareNewPoller();
-        }
 
-        PollerTask pollerTask = new PollerTask();
-        this.scheduler.schedule(pollerTask, 0, pollingInterval);
+            this.pollingSchedule = this.scheduler.schedulePolling(this.brokerName, new PollerTask(), pollingInterval);
+        }
     }
 
     public void stop () {
-        this.scheduler.cancel();
+        synchronized ( this ) {
+            if ( this.pollingSchedule != null ) {
+                this.pollingSchedule.cancel(false);
+            }
+        }
 
         this.queueRegistry.removeListener(this.queueRegistryListener);
 
         this.stopped = true;
 
+        this.unregisterMetrics();
+
         synchronized ( this ) {
             this.notifyAll();
         }
@@ -195,38 +254,47 @@ public class ActiveMQBrokerPoller {
         }
     }
 
+    /**
+     * Add the named queue to the set of polled queues.  The poller polls a live view of the result storage, so only
+     * the queue stats map is updated; stats already collected for the other queues are retained.
+     *
+     * @param name name of the queue to start polling.
+     */
     protected void addMonitoredQueue (String name) {
-        BrokerStatsJmxAttributePoller newPoller;
+        ConcurrentMap<String, ActiveMQQueueJmxStats> queueStatsMap = this.getQueueStatsMap();
 
-        synchronized ( this ) {
-            newPoller = this.prepareNewPoller();
+        if ( queueStatsMap != null ) {
+            queueStatsMap.putIfAbsent(name, new ActiveMQQueueJmxStats(this.brokerName, name));
         }
-
-        this.activateNewPoller(newPoller);
     }
 
+    /**
+     * Remove the named queue from the set of polled queues.
+     *
+     * @param name name of the queue to stop polling.
+     */
     protected void removeMonitoredQueue (String name) {
-        BrokerStatsJmxAttributePoller newPoller;
+        ConcurrentMap<String, ActiveMQQueueJmxStats> queueStatsMap = this.getQueueStatsMap();
 
-        synchronized ( this ) {
-            newPoller = this.prepareNewPoller();
+        if ( queueStatsMap != null ) {
+            queueStatsMap.remove(name);
         }
-
-        this.activateNewPoller(newPoller);
     }
 
     protected BrokerStatsJmxAttributePoller prepareNewPoller() {
-        BrokerStatsPackage resultStorage = this.preparePolledResultStorage();
-        List<Object> polled = this.preparePolledObjects(resultStorage);
+        this.resultStorage = this.preparePolledResultStorage();
+        List<Object> polled = this.preparePolledObjects(this.resultStorage);
 
-        BrokerStatsJmxAttributePoller newPoller = this.jmxPollerFactory.createPoller(polled, resultStorage);
+        BrokerStatsJmxAttributePoller newPoller = this.jmxPollerFactory.createPoller(polled, this.resultStorage);
         newPoller.setmBeanAccessConnectionFactory(this.mBeanAccessConnectionFactory);
+        newPoller.setRoundTripTimer(this.jmxRoundTripTimer);
 
         return  newPoller;
     }
 
     protected BrokerStatsPackage preparePolledResultStorage () {
-        Map<String, ActiveMQQueueJmxStats> queueStatsMap = new TreeMap<>();
+        // Concurrent, sorted map so queues can be added and removed while a poll is iterating over the queue stats.
+        Map<String, ActiveMQQueueJmxStats> queueStatsMap = new ConcurrentSkipListMap<>();
 
         for ( String oneQueueName : queueRegistry.keys() ) {
             ActiveMQQueueJmxStats queueStats = new ActiveMQQueueJmxStats(this.brokerName, oneQueueName);
@@ -241,33 +309,35 @@ public class ActiveMQBrokerPoller {
     }
 
     protected List<Object> preparePolledObjects (BrokerStatsPackage resultStorage) {
-        List<Object> result = new LinkedList<>();
-
-        result.add(resultStorage.getBrokerStats());
-
-        for ( ActiveMQQueueJmxStats oneQueueStats : resultStorage.getQueueStats().values() ) {
-            result.add(oneQueueStats);
-        }
-
         // TBD: addCounts Topics to monitor
 
-        return  result;
+        return  new BrokerStatsPolledObjectList(resultStorage);
     }
 
-    protected void activateNewPoller (BrokerStatsJmxAttributePoller newPoller) {
-        BrokerStatsJmxAttributePoller oldPoller;
-        synchronized (this) {
-            oldPoller = this.poller;
-            this.poller = newPoller;
-        }
+    protected ConcurrentMap<String, ActiveMQQueueJmxStats> getQueueStatsMap () {
+        synchronized ( this ) {
+            if ( this.resultStorage == null ) {
+                return null;
+            }
 
-        oldPoller.shutdown();
+            return (ConcurrentMap<String, ActiveMQQueueJmxStats>) this.resultStorage.getQueueStats();
+        }
     }
 
     protected void pollOnce () {
         this.concurrencyTestHooks.onStartPollIndividually();
 
+        //
+        // Skip the poll, without waiting on a connection attempt, while the circuit of a failing broker is open.
+        //
+        if ( ! this.circuitBreaker.allowPoll() ) {
+            this.pollSkippedMeter.mark();
+            return;
+        }
+
         BrokerStatsJmxAttributePoller pollerSnapshot = this.poller;
+        Timer.Context pollTime = this.pollTimer.time();
+        boolean pollSucceeded = false;
 
         try {
             pollActiveInd = true;
@@ -275,9 +345,22 @@ public class ActiveMQBrokerPoller {
             this.concurrencyTestHooks.beforePollProcessorStart();
 
             pollerSnapshot.poll();
+
+            pollSucceeded = true;
+            this.circuitBreaker.onPollSuccess();
         } catch ( IOException ioExc ) {
             this.logThrottlePollFailure.warn(log, "poll of broker {} failed", this.brokerName, ioExc);
         } finally {
+            //
+            // Report every failure, including unchecked exceptions, to the circuit breaker; otherwise a trial poll
+            //  which throws would leave the circuit half-open, and the broker would never be polled again.
+            //
+            if ( ! pollSucceeded ) {
+                this.pollFailureMeter.mark();
+                this.circuitBreaker.onPollFailure();
+            }
+
+            pollTime.stop();
             this.concurrencyTestHooks.afterPollProcessorFinish();
 
             synchronized ( this ) {
@@ -289,6 +372,28 @@ public class ActiveMQBrokerPoller {
         this.onPollComplete(pollerSnapshot);
     }
 
+    protected void registerMetrics () {
+        this.pollTimer = this.metricRegistry.timer(MetricRegistry.name(ActiveMQBrokerPoller.class, this.brokerName,
+                "poll"));
+        this.jmxRoundTripTimer = this.metricRegistry.timer(MetricRegistry.name(ActiveMQBrokerPoller.class,
+                this.brokerName, "jmxRoundTrip"));
+        this.pollFailureMeter = this.metricRegistry.meter(MetricRegistry.name(ActiveMQBrokerPoller.class,
+                this.brokerName, "pollFailures"));
+        this.pollSkippedMeter = this.metricRegistry.meter(MetricRegistry.name(ActiveMQBrokerPoller.class,
+                this.brokerName, "pollsSkipped"));
+    }
+
+    /**
+     * Remove the metrics of this broker from the registry so a shared registry does not report brokers which are
+     * no longer polled.
+     */
+    protected void unregisterMetrics () {
+        this.metricRegistry.remove(MetricRegistry.name(ActiveMQBrokerPoller.class, this.brokerName, "poll"));
+        this.metricRegistry.remove(MetricRegistry.name(ActiveMQBrokerPoller.class, this.brokerName, "jmxRoundTrip"));
+        this.metricRegistry.remove(MetricRegistry.name(ActiveMQBrokerPoller.class, this.brokerName, "pollFailures"));
+        this.metricRegistry.remove(MetricRegistry.name(ActiveMQBrokerPoller.class, this.brokerName, "pollsSkipped"));
+    }
+
     protected void onPollComplete (BrokerStatsJmxAttributePoller poller) {
         BrokerStatsPackage resultStorage = poller.getResultStorage();
 
@@ -319,7 +424,7 @@ public class ActiveMQBrokerPoller {
         this.brokerStatsLogger.logStats(resultStorage);
     }
 
-    protected class PollerTask extends TimerTask {
+    protected class PollerTask implements Runnable {
         @Override
         public void run() {
             pollOnce();
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Circuit breaker guarding the polling of a single broker, so a broker which is down does not tie up a polling thread
+ * and a connection attempt on every polling interval.
+ *
+ * The circuit starts closed.  After failureThreshold consecutive failed polls it opens, and polls are skipped until
+ * the backoff, randomly adjusted by up to jitterFactor in either direction so brokers which failed together do not
+ * retry together, has elapsed.  The next poll is then a trial with the circuit half-open: success closes the circuit,
+ * and failure re-opens it with double the backoff, up to maxBackoff.
+ */
+public class BrokerCircuitBreaker {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(BrokerCircuitBreaker.class);
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF = 5000L;
+    public static final long DEFAULT_MAX_BACKOFF = 300000L;
+    public static final double DEFAULT_JITTER_FACTOR = 0.2;
+
+    private final String brokerName;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+    private long maxBackoff = DEFAULT_MAX_BACKOFF;
+    private double jitterFactor = DEFAULT_JITTER_FACTOR;
+
+    private StatsClock statsClock = new SystemStatsClock();
+    private Random random = new Random();
+
+    private BrokerCircuitStateListener listener;
+
+    /**
+     * State of the circuit; guarded by this.
+     */
+    private BrokerCircuitState state = BrokerCircuitState.CLOSED;
+    private int consecutiveFailures = 0;
+    private long backoff = 0;
+    private long nextAttemptTime = 0;
+
+    public BrokerCircuitBreaker(String brokerName) {
+        this.brokerName = brokerName;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public double getJitterFactor() {
+        return jitterFactor;
+    }
+
+    public void setJitterFactor(double jitterFactor) {
+        this.jitterFactor = jitterFactor;
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    public BrokerCircuitStateListener getListener() {
+        return listener;
+    }
+
+    public void setListener(BrokerCircuitStateListener listener) {
+        this.listener = listener;
+    }
+
+    public BrokerCircuitState getState() {
+        synchronized ( this ) {
+            return state;
+        }
+    }
+
+    /**
+     * Determine whether a poll may be performed now.  When the retry time of an open circuit has been reached, the
+     * circuit moves to half-open and the caller must report the outcome of its trial poll.
+     *
+     * @return true => poll now; false => skip this poll.
+     */
+    public boolean allowPoll() {
+        BrokerCircuitStatus changedStatus;
+
+        synchronized ( this ) {
+            switch ( this.state ) {
+                case CLOSED:
+                    return true;
+
+                case OPEN:
+                    if ( this.statsClock.getStatsStopWatchTime() < this.nextAttemptTime ) {
+                        return false;
+                    }
+
+                    this.state = BrokerCircuitState.HALF_OPEN;
+                    changedStatus = this.prepareStatus();
+                    break;
+
+                default:
+                    // Only one trial poll at a time.
+                    return false;
+            }
+        }
+
+        this.log.info("attempting trial poll of broker {} after {} consecutive failures", this.brokerName,
+                changedStatus.getConsecutiveFailures());
+        this.notifyListener(changedStatus);
+
+        return true;
+    }
+
+    public void onPollSuccess() {
+        BrokerCircuitStatus changedStatus = null;
+
+        synchronized ( this ) {
+            this.consecutiveFailures = 0;
+
+            if ( this.state != BrokerCircuitState.CLOSED ) {
+                this.state = BrokerCircuitState.CLOSED;
+                this.backoff = 0;
+                this.nextAttemptTime = 0;
+
+                changedStatus = this.prepareStatus();
+            }
+        }
+
+        if ( changedStatus != null ) {
+            this.log.info("poll of broker {} succeeded; resuming normal polling", this.brokerName);
+            this.notifyListener(changedStatus);
+        }
+    }
+
+    public void onPollFailure() {
+        BrokerCircuitStatus changedStatus = null;
+
+        synchronized ( this ) {
+            this.consecutiveFailures++;
+
+            if ( this.state == BrokerCircuitState.HALF_OPEN ) {
+                this.open(Math.min(this.backoff * 2, this.maxBackoff));
+                changedStatus = this.prepareStatus();
+            } else if ( ( this.state == BrokerCircuitState.CLOSED ) &&
+                    ( this.consecutiveFailures >= this.failureThreshold ) ) {
+                this.open(Math.min(this.initialBackoff, this.maxBackoff));
+                changedStatus = this.prepareStatus();
+            }
+        }
+
+        if ( changedStatus != null ) {
+            this.log.warn("suspending polls of broker {} after {} consecutive failures; retry-in-ms={}",
+                    this.brokerName, changedStatus.getConsecutiveFailures(), changedStatus.getRetryDelay());
+            this.notifyListener(changedStatus);
+        }
+    }
+
+    public BrokerCircuitStatus getStatus() {
+        synchronized ( this ) {
+            return this.prepareStatus();
+        }
+    }
+
+    /**
+     * Open the circuit with the given backoff.  Must be called while holding the lock on this.
+     */
+    protected void open(long newBackoff) {
+        double jitter = this.jitterFactor * ( ( this.random.nextDouble() * 2.0 ) - 1.0 );
+
+        this.state = BrokerCircuitState.OPEN;
+        this.backoff = newBackoff;
+        this.nextAttemptTime = this.statsClock.getStatsStopWatchTime() + Math.round(newBackoff * ( 1.0 + jitter ));
+    }
+
+    /**
+     * Must be called while holding the lock on this.
+     */
+    protected BrokerCircuitStatus prepareStatus() {
+        long retryDelay = 0;
+        if ( this.state == BrokerCircuitState.OPEN ) {
+            retryDelay = Math.max(0, this.nextAttemptTime - this.statsClock.getStatsStopWatchTime());
+        }
+
+        return new BrokerCircuitStatus(this.brokerName, this.state, this.consecutiveFailures, this.backoff,
+                retryDelay);
+    }
+
+    protected void notifyListener(BrokerCircuitStatus status) {
+        BrokerCircuitStateListener listenerSnapshot = this.listener;
+
+        if ( listenerSnapshot != null ) {
+            listenerSnapshot.onBrokerCircuitStateChange(status);
+        }
+    }
+}
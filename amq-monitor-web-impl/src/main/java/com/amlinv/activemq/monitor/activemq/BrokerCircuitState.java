@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+/**
+ * State of the circuit breaker guarding the polling of a single broker.
+ */
+public enum BrokerCircuitState {
+    /**
+     * Polls are performed normally.
+     */
+    CLOSED,
+
+    /**
+     * Polls are skipped until the retry time is reached.
+     */
+    OPEN,
+
+    /**
+     * A single trial poll is in progress; its outcome closes or re-opens the circuit.
+     */
+    HALF_OPEN
+}
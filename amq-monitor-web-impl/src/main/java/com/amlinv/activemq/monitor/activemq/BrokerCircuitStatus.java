@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+/**
+ * Snapshot of the circuit breaker state of a single broker.  The retry delay is the time, in milliseconds, remaining
+ * until the next trial poll of an open circuit, and is 0 otherwise.
+ */
+public class BrokerCircuitStatus {
+    private final String brokerName;
+    private final BrokerCircuitState state;
+    private final int consecutiveFailures;
+    private final long backoff;
+    private final long retryDelay;
+
+    public BrokerCircuitStatus(String brokerName, BrokerCircuitState state, int consecutiveFailures, long backoff,
+                               long retryDelay) {
+        this.brokerName = brokerName;
+        this.state = state;
+        this.consecutiveFailures = consecutiveFailures;
+        this.backoff = backoff;
+        this.retryDelay = retryDelay;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    public BrokerCircuitState getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getBackoff() {
+        return backoff;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Scheduler of periodic broker polls, shared by all of the broker pollers so the number of polling threads does not
+ * grow with the number of monitored brokers.
+ */
+public interface BrokerPollScheduler {
+    /**
+     * Schedule the given poll task to run repeatedly at the given interval.
+     *
+     * @param brokerName name of the broker polled by the task; used to report timing statistics.
+     * @param pollTask task which performs one poll of the broker.
+     * @param pollingInterval time, in milliseconds, between the start of consecutive polls.
+     * @return future used to cancel the polling.
+     */
+    ScheduledFuture<?> schedulePolling(String brokerName, Runnable pollTask, long pollingInterval);
+
+    /**
+     * Retrieve a snapshot of the polling timing statistics for each scheduled broker.
+     *
+     * @return list of timing statistics, one per broker polling schedule.
+     */
+    List<BrokerPollTimingStats> getPollTimingStats();
+
+    /**
+     * Stop all polling and release the threads used by the scheduler.
+     */
+    void shutdown();
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+/**
+ * Timing statistics for the polling schedule of a single broker.  Drift is the difference between the time a poll was
+ * scheduled to start and the time it actually started; a growing drift indicates polls are taking longer than the
+ * polling interval, or the polling threads are saturated.
+ */
+public class BrokerPollTimingStats {
+    private final String brokerName;
+    private final long pollingInterval;
+
+    private long pollCount;
+    private long skippedPollCount;
+    private long lastDrift;
+    private long maxDrift;
+    private long lastPollDuration;
+
+    public BrokerPollTimingStats(String brokerName, long pollingInterval) {
+        this.brokerName = brokerName;
+        this.pollingInterval = pollingInterval;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    public long getPollingInterval() {
+        return pollingInterval;
+    }
+
+    public long getPollCount() {
+        return pollCount;
+    }
+
+    public void setPollCount(long pollCount) {
+        this.pollCount = pollCount;
+    }
+
+    public long getSkippedPollCount() {
+        return skippedPollCount;
+    }
+
+    public void setSkippedPollCount(long skippedPollCount) {
+        this.skippedPollCount = skippedPollCount;
+    }
+
+    public long getLastDrift() {
+        return lastDrift;
+    }
+
+    public void setLastDrift(long lastDrift) {
+        this.lastDrift = lastDrift;
+    }
+
+    public long getMaxDrift() {
+        return maxDrift;
+    }
+
+    public void setMaxDrift(long maxDrift) {
+        this.maxDrift = maxDrift;
+    }
+
+    public long getLastPollDuration() {
+        return lastPollDuration;
+    }
+
+    public void setLastPollDuration(long lastPollDuration) {
+        this.lastPollDuration = lastPollDuration;
+    }
+
+    /**
+     * Return a duplicate of these timing statistics.
+     *
+     * @return new timing statistics with the same values.
+     */
+    public BrokerPollTimingStats dup() {
+        BrokerPollTimingStats result = new BrokerPollTimingStats(this.brokerName, this.pollingInterval);
+        result.setPollCount(this.pollCount);
+        result.setSkippedPollCount(this.skippedPollCount);
+        result.setLastDrift(this.lastDrift);
+        result.setMaxDrift(this.maxDrift);
+        result.setLastPollDuration(this.lastPollDuration);
+
+        return result;
+    }
+}
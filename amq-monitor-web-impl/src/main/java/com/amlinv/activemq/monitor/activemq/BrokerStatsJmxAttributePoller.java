@@ -18,6 +18,7 @@ package com.amlinv.activemq.monitor.activemq;
 
 import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
 import com.amlinv.jmxutil.polling.JmxAttributePoller;
+import com.codahale.metrics.Timer;
 
 import java.util.List;
 
@@ -27,6 +28,11 @@ import java.util.List;
 public class BrokerStatsJmxAttributePoller extends JmxAttributePoller {
     private BrokerStatsPackage resultStorage;
 
+    /**
+     * Timer of each request to the remote JMX agent; unregistered unless the broker poller supplies its own.
+     */
+    private Timer roundTripTimer = new Timer();
+
     public BrokerStatsJmxAttributePoller(List<Object> polledObjects, BrokerStatsPackage resultStorage) {
         super(polledObjects);
 
@@ -36,4 +42,12 @@ public class BrokerStatsJmxAttributePoller extends JmxAttributePoller {
     public BrokerStatsPackage getResultStorage() {
         return resultStorage;
     }
+
+    public Timer getRoundTripTimer() {
+        return roundTripTimer;
+    }
+
+    public void setRoundTripTimer(Timer roundTripTimer) {
+        this.roundTripTimer = roundTripTimer;
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Live, read-only view of the objects polled for a broker: the broker stats followed by the stats of each queue in
+ * the result storage.  Queues added to, or removed from, the result storage are picked up by the next iteration
+ * without rebuilding the poller.
+ *
+ * Iteration is the intended access path and is weakly consistent when the queue stats map is a concurrent map.
+ * Indexed access walks the queue stats and is only provided to satisfy the List contract.
+ */
+public class BrokerStatsPolledObjectList extends AbstractList<Object> {
+    private final BrokerStatsPackage resultStorage;
+
+    public BrokerStatsPolledObjectList(BrokerStatsPackage resultStorage) {
+        this.resultStorage = resultStorage;
+    }
+
+    @Override
+    public Object get(int index) {
+        if ( index < 0 ) {
+            throw new IndexOutOfBoundsException("index=" + index);
+        }
+
+        int cur = 0;
+        for ( Object onePolledObject : this ) {
+            if ( cur == index ) {
+                return onePolledObject;
+            }
+            cur++;
+        }
+
+        throw new IndexOutOfBoundsException("index=" + index + "; size=" + cur);
+    }
+
+    @Override
+    public int size() {
+        return 1 + this.resultStorage.getQueueStats().size();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return new PolledObjectIterator();
+    }
+
+    protected class PolledObjectIterator implements Iterator<Object> {
+        private final Iterator<?> queueStatsIterator = resultStorage.getQueueStats().values().iterator();
+        private boolean brokerStatsReturned = false;
+
+        @Override
+        public boolean hasNext() {
+            return ( ! this.brokerStatsReturned ) || this.queueStatsIterator.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if ( ! this.brokerStatsReturned ) {
+                this.brokerStatsReturned = true;
+                return resultStorage.getBrokerStats();
+            }
+
+            if ( ! this.queueStatsIterator.hasNext() ) {
+                throw new NoSuchElementException();
+            }
+
+            return this.queueStatsIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("polled object list is read-only");
+        }
+    }
+}
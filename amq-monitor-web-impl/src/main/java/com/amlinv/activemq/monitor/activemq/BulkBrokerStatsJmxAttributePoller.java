@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.monitor.activemq.impl.MBeanAttributeSetterIndex;
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Broker stats poller which reads all of the queue MBeans of the broker in bulk: a single wildcard query locates the
+ * queue MBeans, and each MBean's attributes are then read with a single getAttributes() call.  The values are fanned
+ * out to the matching queue stats in the result storage; queues on the broker which are not monitored are skipped.
+ *
+ * The connection is kept open between polls and only replaced after a communication failure.
+ */
+public class BulkBrokerStatsJmxAttributePoller extends BrokerStatsJmxAttributePoller {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(BulkBrokerStatsJmxAttributePoller.class);
+
+    public static final String BROKER_ONAME_PREFIX = "org.apache.activemq:type=Broker,brokerName=";
+
+    private static final MBeanAttributeSetterIndex BROKER_STATS_SETTERS =
+            new MBeanAttributeSetterIndex(ActiveMQBrokerStats.class);
+    private static final MBeanAttributeSetterIndex QUEUE_STATS_SETTERS =
+            new MBeanAttributeSetterIndex(ActiveMQQueueJmxStats.class);
+
+    /**
+     * Number of key properties on a queue MBean name; names with more properties are child MBeans of the queue, such
+     * as consumer and producer endpoints, and are ignored.
+     */
+    private static final int QUEUE_ONAME_KEY_COUNT = 4;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private MBeanAccessConnectionFactory connectionFactory;
+    private MBeanAccessConnection connection;
+
+    public BulkBrokerStatsJmxAttributePoller(List<Object> polledObjects, BrokerStatsPackage resultStorage) {
+        super(polledObjects, resultStorage);
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    @Override
+    public void setmBeanAccessConnectionFactory(MBeanAccessConnectionFactory mBeanAccessConnectionFactory) {
+        super.setmBeanAccessConnectionFactory(mBeanAccessConnectionFactory);
+
+        synchronized ( this ) {
+            this.connectionFactory = mBeanAccessConnectionFactory;
+        }
+    }
+
+    @Override
+    public void poll() throws IOException {
+        BrokerStatsPackage resultStorage = this.getResultStorage();
+        String brokerName = resultStorage.getBrokerStats().getBrokerName();
+
+        MBeanAccessConnection pollConnection = this.getOrCreateConnection();
+
+        try {
+            this.pollBrokerStats(pollConnection, brokerName, resultStorage.getBrokerStats());
+            this.pollQueueStats(pollConnection, brokerName, resultStorage.getQueueStats());
+        } catch ( IOException ioExc ) {
+            this.closeConnection();
+            throw ioExc;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+
+        this.closeConnection();
+    }
+
+    protected void pollBrokerStats(MBeanAccessConnection pollConnection, String brokerName,
+                                   ActiveMQBrokerStats brokerStats) throws IOException {
+
+        ObjectName brokerOName = this.createObjectName(BROKER_ONAME_PREFIX + brokerName);
+
+        this.readAttributes(pollConnection, brokerOName, BROKER_STATS_SETTERS, brokerStats);
+    }
+
+    protected void pollQueueStats(MBeanAccessConnection pollConnection, String brokerName,
+                                  Map<String, ActiveMQQueueJmxStats> queueStatsMap) throws IOException {
+
+        if ( queueStatsMap.isEmpty() ) {
+            return;
+        }
+
+        ObjectName queuePattern =
+                this.createObjectName(BROKER_ONAME_PREFIX + brokerName + ",destinationType=Queue,*");
+
+        Set<ObjectName> queueONames;
+        Timer.Context roundTrip = this.getRoundTripTimer().time();
+        try {
+            queueONames = pollConnection.queryNames(queuePattern, null);
+        } finally {
+            roundTrip.stop();
+        }
+
+        for ( ObjectName oneQueueOName : queueONames ) {
+            if ( oneQueueOName.getKeyPropertyList().size() != QUEUE_ONAME_KEY_COUNT ) {
+                continue;
+            }
+
+            String queueName = oneQueueOName.getKeyProperty("destinationName");
+            ActiveMQQueueJmxStats queueStats = null;
+            if ( queueName != null ) {
+                queueStats = queueStatsMap.get(queueName);
+            }
+
+            if ( queueStats != null ) {
+                this.readAttributes(pollConnection, oneQueueOName, QUEUE_STATS_SETTERS, queueStats);
+            }
+        }
+    }
+
+    protected void readAttributes(MBeanAccessConnection pollConnection, ObjectName oname,
+                                  MBeanAttributeSetterIndex setterIndex, Object target) throws IOException {
+        AttributeList attributes;
+        Timer.Context roundTrip = this.getRoundTripTimer().time();
+        try {
+            attributes = pollConnection.getAttributes(oname, setterIndex.getAttributeNames());
+        } catch ( InstanceNotFoundException infExc ) {
+            // Normal when a destination is removed between the query and the read.
+            this.log.debug("mbean no longer exists: oname={}", oname);
+            return;
+        } catch ( ReflectionException reflectionExc ) {
+            this.log.debug("failed to read mbean attributes: oname={}", oname, reflectionExc);
+            return;
+        } finally {
+            roundTrip.stop();
+        }
+
+        for ( Object oneAttribute : attributes ) {
+            Attribute attribute = (Attribute) oneAttribute;
+            setterIndex.applyAttribute(target, attribute.getName(), attribute.getValue());
+        }
+    }
+
+    protected ObjectName createObjectName(String oname) throws IOException {
+        try {
+            return new ObjectName(oname);
+        } catch ( MalformedObjectNameException monExc ) {
+            throw new IOException("invalid mbean object name: " + oname, monExc);
+        }
+    }
+
+    protected MBeanAccessConnection getOrCreateConnection() throws IOException {
+        synchronized ( this ) {
+            if ( this.connection == null ) {
+                if ( this.connectionFactory == null ) {
+                    throw new IOException("no mbean access connection factory configured");
+                }
+
+                this.connection = this.connectionFactory.createConnection();
+            }
+
+            return this.connection;
+        }
+    }
+
+    protected void closeConnection() {
+        MBeanAccessConnection oldConnection;
+        synchronized ( this ) {
+            oldConnection = this.connection;
+            this.connection = null;
+        }
+
+        if ( oldConnection != null ) {
+            try {
+                oldConnection.close();
+            } catch ( IOException ioExc ) {
+                this.log.debug("failed to close mbean access connection", ioExc);
+            }
+        }
+    }
+}
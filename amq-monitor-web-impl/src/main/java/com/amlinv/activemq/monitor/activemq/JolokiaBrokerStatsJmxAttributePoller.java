@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.monitor.activemq.impl.MBeanAttributeSetterIndex;
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.codahale.metrics.Timer;
+import org.jolokia.client.J4pClient;
+import org.jolokia.client.exception.J4pBulkRemoteException;
+import org.jolokia.client.exception.J4pException;
+import org.jolokia.client.exception.J4pRemoteException;
+import org.jolokia.client.request.J4pReadRequest;
+import org.jolokia.client.request.J4pReadResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Broker stats poller which reads the broker and all of its monitored queues through a Jolokia agent with a single
+ * bulk HTTP request per poll: one read of the broker MBean, and one pattern read covering every queue MBean of the
+ * broker.  The JMX connection factory is not used.
+ */
+public class JolokiaBrokerStatsJmxAttributePoller extends BrokerStatsJmxAttributePoller {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(JolokiaBrokerStatsJmxAttributePoller.class);
+
+    public static final String BROKER_ONAME_PREFIX = "org.apache.activemq:type=Broker,brokerName=";
+
+    /**
+     * Status of a read which found no MBeans, as returned for the queue pattern read of a broker with no queues.
+     */
+    public static final int STATUS_NOT_FOUND = 404;
+
+    private static final MBeanAttributeSetterIndex BROKER_STATS_SETTERS =
+            new MBeanAttributeSetterIndex(ActiveMQBrokerStats.class);
+    private static final MBeanAttributeSetterIndex QUEUE_STATS_SETTERS =
+            new MBeanAttributeSetterIndex(ActiveMQQueueJmxStats.class);
+
+    private final J4pClient client;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    public JolokiaBrokerStatsJmxAttributePoller(List<Object> polledObjects, BrokerStatsPackage resultStorage,
+                                                J4pClient client) {
+        super(polledObjects, resultStorage);
+
+        this.client = client;
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public J4pClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void poll() throws IOException {
+        BrokerStatsPackage resultStorage = this.getResultStorage();
+        String brokerName = resultStorage.getBrokerStats().getBrokerName();
+        Map<String, ActiveMQQueueJmxStats> queueStatsMap = resultStorage.getQueueStats();
+
+        List<J4pReadRequest> requests = new ArrayList<>(2);
+        try {
+            requests.add(new J4pReadRequest(BROKER_ONAME_PREFIX + brokerName,
+                    BROKER_STATS_SETTERS.getAttributeNames()));
+
+            if ( ! queueStatsMap.isEmpty() ) {
+                requests.add(new J4pReadRequest(BROKER_ONAME_PREFIX + brokerName +
+                        ",destinationType=Queue,destinationName=*", QUEUE_STATS_SETTERS.getAttributeNames()));
+            }
+        } catch ( MalformedObjectNameException monExc ) {
+            throw new IOException("invalid broker name for jolokia read: " + brokerName, monExc);
+        }
+
+        List<?> results = this.executeBulkRead(requests);
+
+        //
+        // Bulk results are returned in request order; failed requests are returned as exceptions.  A failed broker
+        //  read fails the poll, so it counts against the broker's circuit.  Of the failures of the queue pattern read,
+        //  only finding no queues is expected.
+        //
+        for ( int cur = 0; cur < results.size(); cur++ ) {
+            Object oneResult = results.get(cur);
+
+            if ( oneResult instanceof J4pReadResponse ) {
+                if ( cur == 0 ) {
+                    this.applyBrokerResponse((J4pReadResponse) oneResult, resultStorage.getBrokerStats());
+                } else {
+                    this.applyQueueResponse((J4pReadResponse) oneResult, queueStatsMap);
+                }
+            } else if ( ( cur > 0 ) && ( oneResult instanceof J4pRemoteException ) &&
+                        ( ( (J4pRemoteException) oneResult ).getStatus() == STATUS_NOT_FOUND ) ) {
+
+                this.log.debug("jolokia queue read found no queues: broker={}", brokerName);
+            } else if ( oneResult instanceof J4pRemoteException ) {
+                J4pRemoteException remoteExc = (J4pRemoteException) oneResult;
+                throw new IOException("jolokia read failed: broker=" + brokerName + "; status=" +
+                        remoteExc.getStatus() + "; error-type=" + remoteExc.getErrorType(), remoteExc);
+            } else {
+                throw new IOException("unexpected jolokia read result: broker=" + brokerName + "; result=" +
+                        oneResult);
+            }
+        }
+    }
+
+    protected List<?> executeBulkRead(List<J4pReadRequest> requests) throws IOException {
+        Timer.Context roundTrip = this.getRoundTripTimer().time();
+        try {
+            List<J4pReadResponse> responses = this.client.execute(requests);
+
+            return responses;
+        } catch ( J4pBulkRemoteException bulkExc ) {
+            return bulkExc.getResults();
+        } catch ( J4pException j4pExc ) {
+            throw new IOException("jolokia bulk read failed: " + this.client.getUri(), j4pExc);
+        } finally {
+            roundTrip.stop();
+        }
+    }
+
+    protected void applyBrokerResponse(J4pReadResponse response, ActiveMQBrokerStats brokerStats) {
+        for ( String oneAttribute : response.getAttributes() ) {
+            BROKER_STATS_SETTERS.applyAttribute(brokerStats, oneAttribute, response.getValue(oneAttribute));
+        }
+    }
+
+    protected void applyQueueResponse(J4pReadResponse response, Map<String, ActiveMQQueueJmxStats> queueStatsMap)
+            throws IOException {
+
+        try {
+            for ( ObjectName oneQueueOName : response.getObjectNames() ) {
+                String queueName = oneQueueOName.getKeyProperty("destinationName");
+                ActiveMQQueueJmxStats queueStats = null;
+                if ( queueName != null ) {
+                    queueStats = queueStatsMap.get(queueName);
+                }
+
+                if ( queueStats != null ) {
+                    for ( String oneAttribute : response.getAttributes(oneQueueOName) ) {
+                        QUEUE_STATS_SETTERS.applyAttribute(queueStats, oneAttribute,
+                                response.getValue(oneQueueOName, oneAttribute));
+                    }
+                }
+            }
+        } catch ( MalformedObjectNameException monExc ) {
+            throw new IOException("invalid mbean name in jolokia response", monExc);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.topo.discovery.MBeanDestinationDiscoverer;
+import com.amlinv.activemq.topo.registry.DestinationRegistry;
+import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.MalformedObjectNameException;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue discoverer driven by the MBean registration and unregistration notifications of the broker's MBean server, so
+ * queues are added to, and removed from, the queue registry as they are created and destroyed on the broker instead
+ * of on the next full listing of the broker's queues.
+ *
+ * Notifications are lost while the connection is down, so a full reconciliation, using the given polling discoverer,
+ * runs periodically; each reconciliation first checks the notification subscription, and re-subscribes on a new
+ * connection when the old one has failed.
+ *
+ * The notification filter is a JDK class, as remote filters are evaluated by the broker.  It can only enable exact
+ * MBean names, not patterns, and queues are not known before they are created, so it enables all names and only
+ * limits the notifications to registrations and unregistrations; the match against the broker's queue names is made
+ * on receipt.
+ *
+ * The queue registry is shared by all brokers and keyed by queue name only, so the brokers hosting each queue are
+ * tracked in a QueueHostTracker shared by the discoverers of all brokers; a destroyed queue is only removed from the
+ * registry once no other broker hosts it.  Each reconciliation refreshes the queues hosted by this broker.  Queues of
+ * brokers without notification discovery are not tracked; a queue removed while such a broker still hosts it is
+ * registered again by that broker's next discovery poll.
+ */
+public class NotificationQueueDiscoverer implements NotificationListener {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(NotificationQueueDiscoverer.class);
+
+    public static final long DEFAULT_RECONCILIATION_INTERVAL = 300000L;
+
+    private final String brokerName;
+    private final MBeanAccessConnectionFactory mBeanAccessConnectionFactory;
+    private final DestinationRegistry queueRegistry;
+    private final ObjectName queuePattern;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private MBeanDestinationDiscoverer reconciliationDiscoverer;
+    private ScheduledExecutorService executor;
+    private long reconciliationInterval = DEFAULT_RECONCILIATION_INTERVAL;
+    private QueueHostTracker queueHostTracker = new QueueHostTracker();
+
+    private MBeanAccessConnection connection;
+    private ScheduledFuture<?> reconciliationSchedule;
+    private boolean stopped = false;
+
+    public NotificationQueueDiscoverer(String brokerName, MBeanAccessConnectionFactory mBeanAccessConnectionFactory,
+                                       DestinationRegistry queueRegistry) throws MalformedObjectNameException {
+
+        this.brokerName = brokerName;
+        this.mBeanAccessConnectionFactory = mBeanAccessConnectionFactory;
+        this.queueRegistry = queueRegistry;
+
+        // No trailing wildcard: the consumer and producer MBeans below each queue carry additional keys.
+        this.queuePattern = new ObjectName("org.apache.activemq:type=Broker,brokerName=" + brokerName +
+                ",destinationType=Queue,destinationName=*");
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    public MBeanDestinationDiscoverer getReconciliationDiscoverer() {
+        return reconciliationDiscoverer;
+    }
+
+    /**
+     * Set the polling discoverer used to periodically list all of the broker's queues; when not set, reconciliation
+     * only restores the notification subscription.
+     */
+    public void setReconciliationDiscoverer(MBeanDestinationDiscoverer reconciliationDiscoverer) {
+        this.reconciliationDiscoverer = reconciliationDiscoverer;
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public long getReconciliationInterval() {
+        return reconciliationInterval;
+    }
+
+    public void setReconciliationInterval(long reconciliationInterval) {
+        this.reconciliationInterval = reconciliationInterval;
+    }
+
+    public QueueHostTracker getQueueHostTracker() {
+        return queueHostTracker;
+    }
+
+    /**
+     * Set the tracker of the brokers hosting each queue, shared with the discoverers of the other brokers; by
+     * default, only this broker is tracked.
+     */
+    public void setQueueHostTracker(QueueHostTracker queueHostTracker) {
+        this.queueHostTracker = queueHostTracker;
+    }
+
+    /**
+     * Subscribe and run the first full reconciliation immediately, on the executor, then reconcile at the configured
+     * interval.
+     */
+    public void start() {
+        synchronized ( this ) {
+            if ( this.stopped || this.reconciliationSchedule != null ) {
+                return;
+            }
+
+            this.reconciliationSchedule = this.executor.scheduleWithFixedDelay(new ReconciliationTask(), 0,
+                    this.reconciliationInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        synchronized ( this ) {
+            this.stopped = true;
+
+            if ( this.reconciliationSchedule != null ) {
+                this.reconciliationSchedule.cancel(false);
+            }
+
+            if ( this.connection != null ) {
+                try {
+                    this.connection.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this);
+                } catch ( InstanceNotFoundException | ListenerNotFoundException | IOException exc ) {
+                    this.log.debug("failed to remove mbean registration listener: broker={}", this.brokerName, exc);
+                }
+
+                this.closeConnection();
+            }
+        }
+
+        this.queueHostTracker.removeBroker(this.brokerName);
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if ( ! ( notification instanceof MBeanServerNotification ) ) {
+            return;
+        }
+
+        ObjectName oname = ( (MBeanServerNotification) notification ).getMBeanName();
+        if ( ( oname == null ) || ( ! this.queuePattern.apply(oname) ) ) {
+            return;
+        }
+
+        String queueName = oname.getKeyProperty("destinationName");
+
+        if ( MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType()) ) {
+            this.onQueueRegistered(queueName);
+        } else if ( MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType()) ) {
+            this.onQueueUnregistered(queueName);
+        }
+    }
+
+    /**
+     * Check the notification subscription, re-subscribing on a new connection if needed, and then list all of the
+     * broker's queues to pick up any changes missed while not subscribed.
+     */
+    protected void reconcile() {
+        try {
+            this.ensureSubscribed();
+        } catch ( IOException | InstanceNotFoundException exc ) {
+            this.log.warn("failed to subscribe to mbean registration notifications: broker={}", this.brokerName,
+                    exc);
+        }
+
+        this.refreshHostedQueues();
+
+        if ( this.reconciliationDiscoverer != null ) {
+            try {
+                this.reconciliationDiscoverer.pollOnce();
+            } catch ( Exception exc ) {
+                this.log.warn("queue reconciliation failed: broker={}", this.brokerName, exc);
+            }
+        }
+    }
+
+    /**
+     * List the queues of the broker on the subscribed connection and record them as the queues hosted by the broker.
+     */
+    protected void refreshHostedQueues() {
+        MBeanAccessConnection listConnection;
+        synchronized ( this ) {
+            if ( this.stopped ) {
+                return;
+            }
+
+            listConnection = this.connection;
+        }
+
+        if ( listConnection == null ) {
+            return;
+        }
+
+        try {
+            Set<String> queueNames = new HashSet<>();
+            for ( ObjectName oneQueueName : listConnection.queryNames(this.queuePattern, null) ) {
+                queueNames.add(oneQueueName.getKeyProperty("destinationName"));
+            }
+
+            this.queueHostTracker.setHostedQueues(this.brokerName, queueNames);
+        } catch ( IOException ioExc ) {
+            this.log.warn("failed to list the queues hosted by broker: broker={}", this.brokerName, ioExc);
+        }
+    }
+
+    protected void ensureSubscribed() throws IOException, InstanceNotFoundException {
+        synchronized ( this ) {
+            if ( this.stopped ) {
+                return;
+            }
+
+            if ( this.connection != null ) {
+                try {
+                    this.connection.queryNames(MBeanServerDelegate.DELEGATE_NAME, null);
+                    return;
+                } catch ( IOException ioExc ) {
+                    this.log.info("mbean registration subscription lost; re-subscribing: broker={}",
+                            this.brokerName);
+                    this.closeConnection();
+                }
+            }
+
+            // No pattern support in the filter; see the class comment.
+            MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+            filter.enableAllObjectNames();
+
+            MBeanAccessConnection newConnection = this.mBeanAccessConnectionFactory.createConnection();
+            try {
+                newConnection.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this, filter, null);
+            } catch ( IOException | InstanceNotFoundException exc ) {
+                this.closeQuietly(newConnection);
+                throw exc;
+            }
+
+            this.connection = newConnection;
+        }
+    }
+
+    protected void onQueueRegistered(String queueName) {
+        this.queueHostTracker.addHost(queueName, this.brokerName);
+
+        if ( this.queueRegistry.putIfAbsent(queueName, new DestinationState(queueName, this.brokerName)) == null ) {
+            this.log.debug("discovered new queue: broker={}; queue={}", this.brokerName, queueName);
+        }
+    }
+
+    /**
+     * Remove the queue from the registry unless another broker still hosts it; queues added by hand, which have no
+     * broker, remain monitored.
+     */
+    protected void onQueueUnregistered(String queueName) {
+        if ( this.queueHostTracker.removeHost(queueName, this.brokerName) ) {
+            this.log.debug("queue removed from broker, and still hosted by another: broker={}; queue={}",
+                    this.brokerName, queueName);
+            return;
+        }
+
+        DestinationState existing = this.queueRegistry.get(queueName);
+
+        if ( ( existing != null ) && ( existing.getBrokerName() != null ) ) {
+            this.queueRegistry.remove(queueName);
+            this.log.debug("queue removed from broker: broker={}; queue={}", this.brokerName, queueName);
+        }
+    }
+
+    protected void closeConnection() {
+        this.closeQuietly(this.connection);
+        this.connection = null;
+    }
+
+    protected void closeQuietly(MBeanAccessConnection closeConnection) {
+        try {
+            closeConnection.close();
+        } catch ( IOException ioExc ) {
+            this.log.debug("failed to close mbean access connection", ioExc);
+        }
+    }
+
+    protected class ReconciliationTask implements Runnable {
+        @Override
+        public void run() {
+            reconcile();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brokers known to host each queue, shared by the notification queue discoverers of all of the brokers.  The queue
+ * registry is keyed by queue name only, so a queue destroyed on one broker stays registered while another broker
+ * still hosts it.
+ */
+public class QueueHostTracker {
+    private final Map<String, Set<String>> brokersByQueue = new HashMap<>();
+    private final Map<String, Set<String>> queuesByBroker = new HashMap<>();
+
+    public synchronized void addHost(String queueName, String brokerName) {
+        this.getOrCreate(this.brokersByQueue, queueName).add(brokerName);
+        this.getOrCreate(this.queuesByBroker, brokerName).add(queueName);
+    }
+
+    /**
+     * Record that the given broker no longer hosts the queue.
+     *
+     * @return true if another broker still hosts the queue; false otherwise.
+     */
+    public synchronized boolean removeHost(String queueName, String brokerName) {
+        this.removeFrom(this.queuesByBroker, brokerName, queueName);
+        this.removeFrom(this.brokersByQueue, queueName, brokerName);
+
+        return this.brokersByQueue.containsKey(queueName);
+    }
+
+    /**
+     * Replace the queues hosted by the given broker with the result of a full listing of its queues.
+     */
+    public synchronized void setHostedQueues(String brokerName, Set<String> queueNames) {
+        this.removeBroker(brokerName);
+
+        for ( String oneQueueName : queueNames ) {
+            this.addHost(oneQueueName, brokerName);
+        }
+    }
+
+    public synchronized void removeBroker(String brokerName) {
+        Set<String> queueNames = this.queuesByBroker.remove(brokerName);
+
+        if ( queueNames != null ) {
+            for ( String oneQueueName : queueNames ) {
+                this.removeFrom(this.brokersByQueue, oneQueueName, brokerName);
+            }
+        }
+    }
+
+    public synchronized boolean isHosted(String queueName, String brokerName) {
+        Set<String> brokerNames = this.brokersByQueue.get(queueName);
+
+        return ( brokerNames != null ) && ( brokerNames.contains(brokerName) );
+    }
+
+    protected Set<String> getOrCreate(Map<String, Set<String>> map, String key) {
+        Set<String> result = map.get(key);
+        if ( result == null ) {
+            result = new HashSet<>();
+            map.put(key, result);
+        }
+
+        return result;
+    }
+
+    protected void removeFrom(Map<String, Set<String>> map, String key, String value) {
+        Set<String> values = map.get(key);
+        if ( values != null ) {
+            values.remove(value);
+
+            if ( values.isEmpty() ) {
+                map.remove(key);
+            }
+        }
+    }
+}
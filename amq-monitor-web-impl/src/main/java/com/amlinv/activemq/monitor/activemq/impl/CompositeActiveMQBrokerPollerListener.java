@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Broker poller listener which passes each poll result on to a list of listeners, in order.  A failure of one
+ * listener does not prevent the remaining listeners from receiving the result.
+ */
+public class CompositeActiveMQBrokerPollerListener implements ActiveMQBrokerPollerListener {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(CompositeActiveMQBrokerPollerListener.class);
+
+    private final List<ActiveMQBrokerPollerListener> listeners;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    public CompositeActiveMQBrokerPollerListener(List<ActiveMQBrokerPollerListener> listeners) {
+        this.listeners = new ArrayList<>(listeners);
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public List<ActiveMQBrokerPollerListener> getListeners() {
+        return new ArrayList<>(this.listeners);
+    }
+
+    @Override
+    public void onBrokerPollComplete(BrokerStatsPackage brokerStatsPackage) {
+        for ( ActiveMQBrokerPollerListener oneListener : this.listeners ) {
+            try {
+                oneListener.onBrokerPollComplete(brokerStatsPackage);
+            } catch ( RuntimeException rtExc ) {
+                this.log.warn("broker poller listener failed: listener={}", oneListener, rtExc);
+            }
+        }
+    }
+}
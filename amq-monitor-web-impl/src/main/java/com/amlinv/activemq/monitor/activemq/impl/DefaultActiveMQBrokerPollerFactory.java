@@ -19,17 +19,40 @@ package com.amlinv.activemq.monitor.activemq.impl;
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller;
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerFactory;
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.activemq.BrokerStatsJmxAttributePollerFactory;
 import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
 
 /**
  * Created by art on 9/2/15.
  */
 public class DefaultActiveMQBrokerPollerFactory implements ActiveMQBrokerPollerFactory {
+    private BrokerStatsJmxAttributePollerFactory jmxPollerFactory;
+
+    public BrokerStatsJmxAttributePollerFactory getJmxPollerFactory() {
+        return jmxPollerFactory;
+    }
+
+    /**
+     * Set the factory of JMX attribute pollers given to each broker poller created.  When not set, the broker pollers
+     * use their own default.
+     *
+     * @param jmxPollerFactory factory of JMX attribute pollers; may be null.
+     */
+    public void setJmxPollerFactory(BrokerStatsJmxAttributePollerFactory jmxPollerFactory) {
+        this.jmxPollerFactory = jmxPollerFactory;
+    }
+
     @Override
     public ActiveMQBrokerPoller createPoller(String brokerName,
                                              MBeanAccessConnectionFactory mBeanAccessConnectionFactory,
                                              ActiveMQBrokerPollerListener listener) {
 
-        return new ActiveMQBrokerPoller(brokerName, mBeanAccessConnectionFactory, listener);
+        ActiveMQBrokerPoller result = new ActiveMQBrokerPoller(brokerName, mBeanAccessConnectionFactory, listener);
+
+        if ( this.jmxPollerFactory != null ) {
+            result.setJmxPollerFactory(this.jmxPollerFactory);
+        }
+
+        return result;
     }
 }
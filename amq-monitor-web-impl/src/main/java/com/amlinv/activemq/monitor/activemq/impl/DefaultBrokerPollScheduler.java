@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.activemq.BrokerPollScheduler;
+import com.amlinv.activemq.monitor.activemq.BrokerPollTimingStats;
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
+import com.amlinv.thread.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broker poll scheduler backed by a single, bounded, scheduled thread pool.  The pool size caps the number of polls
+ * in-flight at any one time, and defaults to the number of available processors.  The first poll of each broker is
+ * staggered across the polling interval so brokers are spread evenly across the polling threads instead of all firing
+ * at once.
+ *
+ * When a poll starts a full interval or more behind schedule, that poll is skipped and counted instead of executing
+ * back-to-back catch-up polls against the broker.
+ */
+public class DefaultBrokerPollScheduler implements BrokerPollScheduler {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(DefaultBrokerPollScheduler.class);
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private int maxConcurrentPolls = Runtime.getRuntime().availableProcessors();
+    private StatsClock statsClock = new SystemStatsClock();
+
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong scheduleCount = new AtomicLong(0);
+    private final Map<TimedPollTask, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public int getMaxConcurrentPolls() {
+        return maxConcurrentPolls;
+    }
+
+    /**
+     * Set the maximum number of polls that may be in-flight at one time.  Only takes effect if set before the first
+     * poll is scheduled.
+     *
+     * @param maxConcurrentPolls maximum number of polling threads.
+     */
+    public void setMaxConcurrentPolls(int maxConcurrentPolls) {
+        this.maxConcurrentPolls = maxConcurrentPolls;
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedulePolling(String brokerName, Runnable pollTask, long pollingInterval) {
+        long initialDelay = this.calculateInitialDelay(pollingInterval);
+
+        TimedPollTask timedPollTask = new TimedPollTask(brokerName, pollTask, pollingInterval,
+                this.statsClock.getStatsStopWatchTime() + initialDelay);
+
+        ScheduledFuture<?> future = this.getOrCreateExecutor()
+                .scheduleAtFixedRate(timedPollTask, initialDelay, pollingInterval, TimeUnit.MILLISECONDS);
+
+        this.scheduledTasks.put(timedPollTask, future);
+
+        this.log.debug("scheduled broker polling: broker={}; interval={}; initial-delay={}", brokerName,
+                pollingInterval, initialDelay);
+
+        return future;
+    }
+
+    @Override
+    public List<BrokerPollTimingStats> getPollTimingStats() {
+        List<BrokerPollTimingStats> result = new LinkedList<>();
+
+        Iterator<Map.Entry<TimedPollTask, ScheduledFuture<?>>> iterator = this.scheduledTasks.entrySet().iterator();
+        while ( iterator.hasNext() ) {
+            Map.Entry<TimedPollTask, ScheduledFuture<?>> oneEntry = iterator.next();
+
+            //
+            // Drop schedules that were cancelled since the last check.
+            //
+            if ( oneEntry.getValue().isDone() ) {
+                iterator.remove();
+            } else {
+                result.add(oneEntry.getKey().snapshotStats());
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void shutdown() {
+        ScheduledExecutorService shutdownExecutor;
+        synchronized ( this ) {
+            shutdownExecutor = this.executor;
+        }
+
+        if ( shutdownExecutor != null ) {
+            shutdownExecutor.shutdown();
+        }
+
+        this.scheduledTasks.clear();
+    }
+
+    /**
+     * Calculate the delay before the first poll of a newly-scheduled broker, staggering successive brokers evenly
+     * across the polling interval, one slot per polling thread.
+     *
+     * @param pollingInterval time, in milliseconds, between polls of the broker.
+     * @return delay, in milliseconds, before the first poll.
+     */
+    protected long calculateInitialDelay(long pollingInterval) {
+        int slotCount = Math.max(1, this.maxConcurrentPolls);
+        long slot = this.scheduleCount.getAndIncrement() % slotCount;
+
+        return ( slot * pollingInterval ) / slotCount;
+    }
+
+    protected ScheduledExecutorService getOrCreateExecutor() {
+        synchronized ( this ) {
+            if ( this.executor == null ) {
+                ScheduledThreadPoolExecutor newExecutor = new ScheduledThreadPoolExecutor(
+                        Math.max(1, this.maxConcurrentPolls), new DaemonThreadFactory("broker-polling-thread-"));
+                newExecutor.setRemoveOnCancelPolicy(true);
+
+                this.executor = newExecutor;
+            }
+
+            return this.executor;
+        }
+    }
+
+    /**
+     * Wrapper around a broker's poll task which measures schedule drift and poll duration.
+     */
+    protected class TimedPollTask implements Runnable {
+        private final Runnable pollTask;
+        private final long pollingInterval;
+        private final BrokerPollTimingStats stats;
+
+        private long nextExpectedStart;
+
+        public TimedPollTask(String brokerName, Runnable pollTask, long pollingInterval, long firstExpectedStart) {
+            this.pollTask = pollTask;
+            this.pollingInterval = pollingInterval;
+            this.nextExpectedStart = firstExpectedStart;
+            this.stats = new BrokerPollTimingStats(brokerName, pollingInterval);
+        }
+
+        @Override
+        public void run() {
+            long startTime = statsClock.getStatsStopWatchTime();
+            long drift = startTime - this.nextExpectedStart;
+
+            this.nextExpectedStart += this.pollingInterval;
+
+            if ( drift >= this.pollingInterval ) {
+                synchronized ( this.stats ) {
+                    this.stats.setSkippedPollCount(this.stats.getSkippedPollCount() + 1);
+                }
+
+                log.debug("skipping late poll: broker={}; drift={}", this.stats.getBrokerName(), drift);
+                return;
+            }
+
+            try {
+                this.pollTask.run();
+            } catch ( RuntimeException rtExc ) {
+                // Never allow the exception to propagate; doing so would silently cancel all future polls.
+                log.warn("broker poll failed with unexpected exception: broker={}", this.stats.getBrokerName(), rtExc);
+            } finally {
+                long duration = statsClock.getStatsStopWatchTime() - startTime;
+
+                synchronized ( this.stats ) {
+                    this.stats.setPollCount(this.stats.getPollCount() + 1);
+                    this.stats.setLastDrift(drift);
+                    this.stats.setLastPollDuration(duration);
+
+                    if ( drift > this.stats.getMaxDrift() ) {
+                        this.stats.setMaxDrift(drift);
+                    }
+                }
+            }
+        }
+
+        public BrokerPollTimingStats snapshotStats() {
+            synchronized ( this.stats ) {
+                return this.stats.dup();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.activemq.BrokerStatsJmxAttributePoller;
+import com.amlinv.activemq.monitor.activemq.BrokerStatsJmxAttributePollerFactory;
+import com.amlinv.activemq.monitor.activemq.JolokiaBrokerStatsJmxAttributePoller;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import org.jolokia.client.J4pClient;
+
+import java.util.List;
+
+/**
+ * Factory of broker stats pollers which read through the Jolokia agent at a single URL.  All of the pollers created
+ * share one Jolokia client, which is only created when the first poller is created.
+ */
+public class JolokiaBrokerStatsJmxAttributePollerFactory implements BrokerStatsJmxAttributePollerFactory {
+    private final String jolokiaUrl;
+
+    private J4pClient client;
+
+    public JolokiaBrokerStatsJmxAttributePollerFactory(String jolokiaUrl) {
+        this.jolokiaUrl = jolokiaUrl;
+    }
+
+    public String getJolokiaUrl() {
+        return jolokiaUrl;
+    }
+
+    public J4pClient getClient() {
+        synchronized ( this ) {
+            if ( this.client == null ) {
+                this.client = new J4pClient(this.jolokiaUrl);
+            }
+
+            return this.client;
+        }
+    }
+
+    public void setClient(J4pClient client) {
+        synchronized ( this ) {
+            this.client = client;
+        }
+    }
+
+    @Override
+    public BrokerStatsJmxAttributePoller createPoller(List<Object> polledObjects, BrokerStatsPackage resultStorage) {
+        return new JolokiaBrokerStatsJmxAttributePoller(polledObjects, resultStorage, this.getClient());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.jmxutil.annotation.MBeanAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the setters annotated with @MBeanAttribute on a stats class, keyed by MBean attribute name.  Built once per
+ * class so bulk attribute reads can be fanned out to the stats objects without repeating the reflection per poll.
+ */
+public class MBeanAttributeSetterIndex {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(MBeanAttributeSetterIndex.class);
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private final Map<String, Method> settersByAttributeName;
+    private final String[] attributeNames;
+
+    public MBeanAttributeSetterIndex(Class<?> statsClass) {
+        Map<String, Method> setters = new HashMap<>();
+
+        for ( Method oneMethod : statsClass.getMethods() ) {
+            MBeanAttribute annotation = oneMethod.getAnnotation(MBeanAttribute.class);
+            if ( ( annotation != null ) && ( oneMethod.getParameterTypes().length == 1 ) ) {
+                setters.put(annotation.name(), oneMethod);
+            }
+        }
+
+        this.settersByAttributeName = setters;
+        this.attributeNames = setters.keySet().toArray(new String[setters.size()]);
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    /**
+     * Return the names of all of the MBean attributes with setters in the indexed class.
+     *
+     * @return array of attribute names; callers must not modify the array.
+     */
+    public String[] getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * Set the given attribute value on the target stats object.  Numeric values are narrowed or widened to the type of
+     * the setter, so brokers reporting an attribute as Integer in one version and Long in another are both handled.
+     *
+     * @param target stats object to update.
+     * @param attributeName name of the MBean attribute.
+     * @param value value of the attribute.
+     * @return true => the value was applied; false => no setter exists, or the value could not be converted.
+     */
+    public boolean applyAttribute(Object target, String attributeName, Object value) {
+        Method setter = this.settersByAttributeName.get(attributeName);
+        if ( ( setter == null ) || ( value == null ) ) {
+            return false;
+        }
+
+        Object converted = this.convertValue(setter.getParameterTypes()[0], value);
+        if ( converted == null ) {
+            this.log.debug("unable to convert attribute value: attribute={}; value-type={}; setter={}", attributeName,
+                    value.getClass().getName(), setter);
+            return false;
+        }
+
+        try {
+            setter.invoke(target, converted);
+            return true;
+        } catch ( IllegalAccessException | InvocationTargetException exc ) {
+            this.log.debug("failed to apply attribute value: attribute={}; setter={}", attributeName, setter, exc);
+        }
+
+        return false;
+    }
+
+    protected Object convertValue(Class<?> targetType, Object value) {
+        if ( value instanceof Number ) {
+            Number number = (Number) value;
+
+            if ( ( targetType == long.class ) || ( targetType == Long.class ) ) {
+                return number.longValue();
+            } else if ( ( targetType == int.class ) || ( targetType == Integer.class ) ) {
+                return number.intValue();
+            } else if ( ( targetType == double.class ) || ( targetType == Double.class ) ) {
+                return number.doubleValue();
+            }
+        }
+
+        if ( targetType == String.class ) {
+            return value.toString();
+        }
+
+        if ( targetType.isInstance(value) ) {
+            return value;
+        }
+
+        return null;
+    }
+}
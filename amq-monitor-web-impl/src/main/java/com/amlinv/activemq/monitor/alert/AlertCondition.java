@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+/**
+ * One comparison of an alert expression, such as "queueSize > 1000".  A rate-of-change condition, such as
+ * "rate(queueSize) > 10", compares the change in the field per second since the prior evaluation instead of the value
+ * itself.
+ */
+public class AlertCondition {
+    private final AlertField field;
+    private final AlertOperator operator;
+    private final double threshold;
+    private final boolean rateOfChange;
+
+    public AlertCondition(AlertField field, AlertOperator operator, double threshold, boolean rateOfChange) {
+        this.field = field;
+        this.operator = operator;
+        this.threshold = threshold;
+        this.rateOfChange = rateOfChange;
+    }
+
+    public AlertField getField() {
+        return field;
+    }
+
+    public AlertOperator getOperator() {
+        return operator;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public boolean isRateOfChange() {
+        return rateOfChange;
+    }
+
+    /**
+     * Name of the value tested by this condition, as reported in alert events.
+     */
+    public String getValueName() {
+        if ( this.rateOfChange ) {
+            return "rate(" + this.field.getPropertyName() + ")";
+        }
+
+        return this.field.getPropertyName();
+    }
+}
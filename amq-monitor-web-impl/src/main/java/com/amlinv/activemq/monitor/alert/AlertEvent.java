@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import java.util.Map;
+
+/**
+ * Change in the state of an alert for one queue.  The broker name is null for aggregate rules.  The values are those
+ * tested by the rule's conditions at the time of the change, keyed by the name of the value (e.g. "queueSize" or
+ * "rate(queueSize)").
+ */
+public class AlertEvent {
+    private final AlertEventType type;
+    private final String ruleName;
+    private final String expression;
+    private final String brokerName;
+    private final String queueName;
+    private final Map<String, Double> values;
+    private final long timestamp;
+
+    public AlertEvent(AlertEventType type, String ruleName, String expression, String brokerName, String queueName,
+                      Map<String, Double> values, long timestamp) {
+        this.type = type;
+        this.ruleName = ruleName;
+        this.expression = expression;
+        this.brokerName = brokerName;
+        this.queueName = queueName;
+        this.values = values;
+        this.timestamp = timestamp;
+    }
+
+    public AlertEventType getType() {
+        return type;
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public Map<String, Double> getValues() {
+        return values;
+    }
+
+    /**
+     * Time of the change, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
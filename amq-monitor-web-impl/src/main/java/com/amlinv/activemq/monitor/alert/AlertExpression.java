@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed alert expression: one or more conditions, all of which must hold, optionally for a minimum duration before
+ * the alert fires.  For example:
+ *
+ *     queueSize > 10000 for 5m
+ *     dequeueRate1Minute == 0 and numConsumers > 0
+ *     rate(queueSize) > 50 for 30s
+ *
+ * Durations are given in ms, s, m or h.
+ */
+public class AlertExpression {
+    private static final Pattern CONDITION_PATTERN = Pattern.compile(
+            "(?:rate\\(\\s*(\\w+)\\s*\\)|(\\w+))\\s*(>=|<=|==|!=|>|<)\\s*(-?[0-9]+(?:\\.[0-9]+)?)");
+    private static final Pattern DURATION_PATTERN = Pattern.compile("([0-9]+)\\s*(ms|s|m|h)");
+    private static final Pattern AND_PATTERN = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FOR_PATTERN = Pattern.compile("\\s+for\\s+", Pattern.CASE_INSENSITIVE);
+
+    private final String text;
+    private final List<AlertCondition> conditions;
+    private final long duration;
+
+    public AlertExpression(String text, List<AlertCondition> conditions, long duration) {
+        this.text = text;
+        this.conditions = Collections.unmodifiableList(new ArrayList<>(conditions));
+        this.duration = duration;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<AlertCondition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Time, in milliseconds, for which all of the conditions must continuously hold before the alert fires.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Parse the given expression text.
+     *
+     * @param text text of the expression.
+     * @return the parsed expression.
+     * @throws IllegalArgumentException if the text is not a valid expression.
+     */
+    public static AlertExpression parse(String text) {
+        if ( text == null ) {
+            throw new IllegalArgumentException("missing alert expression");
+        }
+
+        String conditionsText = text.trim();
+        long duration = 0;
+
+        String[] forParts = FOR_PATTERN.split(conditionsText);
+        if ( forParts.length > 2 ) {
+            throw new IllegalArgumentException("invalid alert expression: " + text);
+        } else if ( forParts.length == 2 ) {
+            conditionsText = forParts[0];
+            duration = parseDuration(forParts[1], text);
+        }
+
+        List<AlertCondition> conditions = new ArrayList<>();
+        for ( String oneConditionText : AND_PATTERN.split(conditionsText) ) {
+            conditions.add(parseCondition(oneConditionText, text));
+        }
+
+        return new AlertExpression(text, conditions, duration);
+    }
+
+    protected static AlertCondition parseCondition(String conditionText, String text) {
+        Matcher matcher = CONDITION_PATTERN.matcher(conditionText.trim());
+        if ( ! matcher.matches() ) {
+            throw new IllegalArgumentException("invalid alert condition: condition=" + conditionText +
+                    "; expression=" + text);
+        }
+
+        boolean rateOfChange = ( matcher.group(1) != null );
+        String fieldName;
+        if ( rateOfChange ) {
+            fieldName = matcher.group(1);
+        } else {
+            fieldName = matcher.group(2);
+        }
+
+        AlertField field = AlertField.fromPropertyName(fieldName);
+        if ( field == null ) {
+            throw new IllegalArgumentException("unknown alert field: field=" + fieldName + "; expression=" + text);
+        }
+
+        return new AlertCondition(field, AlertOperator.fromSymbol(matcher.group(3)),
+                Double.parseDouble(matcher.group(4)), rateOfChange);
+    }
+
+    protected static long parseDuration(String durationText, String text) {
+        Matcher matcher = DURATION_PATTERN.matcher(durationText.trim());
+        if ( ! matcher.matches() ) {
+            throw new IllegalArgumentException("invalid alert duration: duration=" + durationText +
+                    "; expression=" + text);
+        }
+
+        long amount = Long.parseLong(matcher.group(1));
+        switch ( matcher.group(2) ) {
+            case "ms":
+                return amount;
+            case "s":
+                return amount * 1000L;
+            case "m":
+                return amount * 60000L;
+            default:
+                return amount * 3600000L;
+        }
+    }
+}
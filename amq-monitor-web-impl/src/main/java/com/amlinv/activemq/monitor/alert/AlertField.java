@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistic which may be tested by an alert condition, named as the property of the statistics.  Queue fields are
+ * tested by queue rules, and broker fields by broker-level rules; memoryPercentUsage is both.  The message rates are
+ * only available in the queue statistics aggregated across brokers.
+ */
+public enum AlertField {
+    QUEUE_SIZE("queueSize", false, true, false),
+    ENQUEUE_COUNT("enqueueCount", false, true, false),
+    DEQUEUE_COUNT("dequeueCount", false, true, false),
+    NUM_CONSUMERS("numConsumers", false, true, false),
+    NUM_PRODUCERS("numProducers", false, true, false),
+    CURSOR_PERCENT_USAGE("cursorPercentUsage", false, true, false),
+    MEMORY_PERCENT_USAGE("memoryPercentUsage", false, true, true),
+    INFLIGHT_COUNT("inflightCount", false, true, false),
+    ENQUEUE_RATE_1_MINUTE("enqueueRate1Minute", true, true, false),
+    ENQUEUE_RATE_1_HOUR("enqueueRate1Hour", true, true, false),
+    ENQUEUE_RATE_1_DAY("enqueueRate1Day", true, true, false),
+    DEQUEUE_RATE_1_MINUTE("dequeueRate1Minute", true, true, false),
+    DEQUEUE_RATE_1_HOUR("dequeueRate1Hour", true, true, false),
+    DEQUEUE_RATE_1_DAY("dequeueRate1Day", true, true, false),
+    STORE_PERCENT_USAGE("storePercentUsage", false, false, true),
+    MEMORY_LIMIT("memoryLimit", false, false, true),
+    AVERAGE_MESSAGE_SIZE("averageMessageSize", false, false, true),
+    CURRENT_CONNECTIONS_COUNT("currentConnectionsCount", false, false, true),
+    TOTAL_CONSUMER_COUNT("totalConsumerCount", false, false, true),
+    TOTAL_MESSAGE_COUNT("totalMessageCount", false, false, true),
+    TOTAL_ENQUEUE_COUNT("totalEnqueueCount", false, false, true),
+    TOTAL_DEQUEUE_COUNT("totalDequeueCount", false, false, true);
+
+    private static final Map<String, AlertField> BY_PROPERTY_NAME = new HashMap<>();
+
+    static {
+        for ( AlertField oneField : values() ) {
+            BY_PROPERTY_NAME.put(oneField.propertyName, oneField);
+        }
+    }
+
+    private final String propertyName;
+    private final boolean aggregateOnly;
+    private final boolean queueField;
+    private final boolean brokerField;
+
+    AlertField(String propertyName, boolean aggregateOnly, boolean queueField, boolean brokerField) {
+        this.propertyName = propertyName;
+        this.aggregateOnly = aggregateOnly;
+        this.queueField = queueField;
+        this.brokerField = brokerField;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public boolean isAggregateOnly() {
+        return aggregateOnly;
+    }
+
+    public boolean isQueueField() {
+        return queueField;
+    }
+
+    public boolean isBrokerField() {
+        return brokerField;
+    }
+
+    /**
+     * Lookup the field with the given property name.
+     *
+     * @param propertyName name of the statistics property.
+     * @return the field; null if there is no field with the given name.
+     */
+    public static AlertField fromPropertyName(String propertyName) {
+        return BY_PROPERTY_NAME.get(propertyName);
+    }
+
+    /**
+     * Extract the value of this queue field from the given statistics.  Aggregate-only fields must be given
+     * aggregated statistics.
+     *
+     * @param stats statistics from which to extract the value.
+     * @return value of the field.
+     */
+    public double getValue(ActiveMQQueueJmxStats stats) {
+        switch ( this ) {
+            case QUEUE_SIZE:
+                return stats.getQueueSize();
+            case ENQUEUE_COUNT:
+                return stats.getEnqueueCount();
+            case DEQUEUE_COUNT:
+                return stats.getDequeueCount();
+            case NUM_CONSUMERS:
+                return stats.getNumConsumers();
+            case NUM_PRODUCERS:
+                return stats.getNumProducers();
+            case CURSOR_PERCENT_USAGE:
+                return stats.getCursorPercentUsage();
+            case MEMORY_PERCENT_USAGE:
+                return stats.getMemoryPercentUsage();
+            case INFLIGHT_COUNT:
+                return stats.getInflightCount();
+            case ENQUEUE_RATE_1_MINUTE:
+                return ((ActiveMQQueueStats) stats).getEnqueueRate1Minute();
+            case ENQUEUE_RATE_1_HOUR:
+                return ((ActiveMQQueueStats) stats).getEnqueueRate1Hour();
+            case ENQUEUE_RATE_1_DAY:
+                return ((ActiveMQQueueStats) stats).getEnqueueRate1Day();
+            case DEQUEUE_RATE_1_MINUTE:
+                return ((ActiveMQQueueStats) stats).getDequeueRate1Minute();
+            case DEQUEUE_RATE_1_HOUR:
+                return ((ActiveMQQueueStats) stats).getDequeueRate1Hour();
+            case DEQUEUE_RATE_1_DAY:
+                return ((ActiveMQQueueStats) stats).getDequeueRate1Day();
+            default:
+                throw new IllegalStateException("not a queue field: field=" + this.propertyName);
+        }
+    }
+
+    /**
+     * Extract the value of this broker field from the given broker statistics.
+     *
+     * @param stats broker statistics from which to extract the value.
+     * @return value of the field.
+     */
+    public double getValue(ActiveMQBrokerStats stats) {
+        switch ( this ) {
+            case MEMORY_PERCENT_USAGE:
+                return stats.getMemoryPercentUsage();
+            case STORE_PERCENT_USAGE:
+                return stats.getStorePercentUsage();
+            case MEMORY_LIMIT:
+                return stats.getMemoryLimit();
+            case AVERAGE_MESSAGE_SIZE:
+                return stats.getAverageMessageSize();
+            case CURRENT_CONNECTIONS_COUNT:
+                return stats.getCurrentConnectionsCount();
+            case TOTAL_CONSUMER_COUNT:
+                return stats.getTotalConsumerCount();
+            case TOTAL_MESSAGE_COUNT:
+                return stats.getTotalMessageCount();
+            case TOTAL_ENQUEUE_COUNT:
+                return stats.getTotalEnqueueCount();
+            case TOTAL_DEQUEUE_COUNT:
+                return stats.getTotalDequeueCount();
+            default:
+                throw new IllegalStateException("not a broker field: field=" + this.propertyName);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+/**
+ * Comparison of a statistic against the threshold of an alert condition.
+ */
+public enum AlertOperator {
+    GT(">"),
+    GE(">="),
+    LT("<"),
+    LE("<="),
+    EQ("=="),
+    NE("!=");
+
+    private final String symbol;
+
+    AlertOperator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Lookup the operator with the given symbol.
+     *
+     * @param symbol symbol of the operator, such as ">=".
+     * @return the operator; null if there is no operator with the given symbol.
+     */
+    public static AlertOperator fromSymbol(String symbol) {
+        for ( AlertOperator oneOperator : values() ) {
+            if ( oneOperator.symbol.equals(symbol) ) {
+                return oneOperator;
+            }
+        }
+
+        return null;
+    }
+
+    public boolean test(double value, double threshold) {
+        switch ( this ) {
+            case GT:
+                return value > threshold;
+            case GE:
+                return value >= threshold;
+            case LT:
+                return value < threshold;
+            case LE:
+                return value <= threshold;
+            case EQ:
+                return value == threshold;
+            default:
+                return value != threshold;
+        }
+    }
+}
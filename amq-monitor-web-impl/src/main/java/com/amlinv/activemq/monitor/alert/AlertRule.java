@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+/**
+ * Configuration of one alert rule: an expression evaluated against the statistics of every queue whose name matches
+ * the queue pattern.  The pattern is a queue name, optionally with "*" wildcards matching any sequence of characters.
+ *
+ * By default, the rule is evaluated against the statistics of each queue on each broker as they are polled.  An
+ * aggregate rule is instead evaluated against the statistics of each queue aggregated across all brokers, which
+ * include the message rates.  A broker-level rule is evaluated against the statistics of each broker itself, such as
+ * its memory and store usage, and ignores the queue pattern.
+ */
+public class AlertRule {
+    private String name;
+    private String queuePattern = "*";
+    private String expression;
+    private boolean aggregate = false;
+    private boolean brokerLevel = false;
+
+    public AlertRule() {
+    }
+
+    public AlertRule(String name, String queuePattern, String expression, boolean aggregate) {
+        this.name = name;
+        this.queuePattern = queuePattern;
+        this.expression = expression;
+        this.aggregate = aggregate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getQueuePattern() {
+        return queuePattern;
+    }
+
+    public void setQueuePattern(String queuePattern) {
+        this.queuePattern = queuePattern;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+
+    public boolean isAggregate() {
+        return aggregate;
+    }
+
+    public void setAggregate(boolean aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    public boolean isBrokerLevel() {
+        return brokerLevel;
+    }
+
+    public void setBrokerLevel(boolean brokerLevel) {
+        this.brokerLevel = brokerLevel;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
+import com.amlinv.activemq.topo.registry.BrokerRegistryListener;
+import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
+import com.amlinv.activemq.topo.registry.model.BrokerInfo;
+import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Engine evaluating alert rules inline with the polling of the brokers, so alerting needs no polling of its own.
+ * Broker rules are evaluated against each queue's statistics as each broker poll completes, and broker-level rules
+ * against the statistics of the broker itself.  Aggregate rules are evaluated against the queue's statistics
+ * aggregated across brokers, read from the queue statistics registry, so the engine must be notified of polls after
+ * the registry is updated.
+ *
+ * Since each broker polls the same queue, aggregate rules are evaluated once per polling cycle of each queue rather
+ * than on every broker's poll: on the first poll of the queue, and then on the poll of any broker which already
+ * polled the queue since the last evaluation.  Otherwise a queue on N brokers would be evaluated N times per cycle,
+ * and rate-of-change conditions would divide by the tiny interval between the polls of different brokers.
+ *
+ * Alerts are reported to the alert listener when all of a rule's conditions have held for the rule's duration, and
+ * again when they no longer hold or the queue, or broker, is removed.
+ */
+public class AlertRuleEngine implements ActiveMQBrokerPollerListener {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(AlertRuleEngine.class);
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private List<AlertRule> rules = Collections.emptyList();
+
+    private volatile AlertRuleIndex brokerRuleIndex = new AlertRuleIndex(Collections.<CompiledAlertRule>emptyList());
+    private volatile AlertRuleIndex aggregateRuleIndex =
+            new AlertRuleIndex(Collections.<CompiledAlertRule>emptyList());
+    private volatile List<CompiledAlertRule> brokerLevelRules = Collections.emptyList();
+
+    /**
+     * Brokers which polled each queue since the aggregate rules of the queue were last evaluated; each set is guarded
+     * by itself.
+     */
+    private final ConcurrentMap<String, Set<String>> aggregateCycleBrokers = new ConcurrentHashMap<>();
+
+    private QueueStatisticsRegistry queueStatisticsRegistry;
+    private AlertListener alertListener;
+    private StatsClock statsClock = new SystemStatsClock();
+
+    private DestinationRegistryListener queueRegistryListener = new MyQueueRegistryListener();
+    private BrokerRegistryListener brokerRegistryListener = new MyBrokerRegistryListener();
+
+    /**
+     * Registry of the time taken to evaluate the rules against each poll; private to this engine unless a shared
+     * registry is supplied.
+     */
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private Timer evaluationTimer = this.metricRegistry.timer(MetricRegistry.name(AlertRuleEngine.class,
+            "evaluation"));
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public List<AlertRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Replace the alert rules.  The evaluation state of the prior rules is discarded.
+     *
+     * @param rules new alert rules.
+     * @throws IllegalArgumentException if any of the rules is invalid; the prior rules are retained.
+     */
+    public void setRules(List<AlertRule> rules) {
+        List<CompiledAlertRule> brokerRules = new ArrayList<>();
+        List<CompiledAlertRule> aggregateRules = new ArrayList<>();
+        List<CompiledAlertRule> brokerLevelRules = new ArrayList<>();
+
+        for ( AlertRule oneRule : rules ) {
+            CompiledAlertRule compiledRule = new CompiledAlertRule(oneRule);
+
+            if ( oneRule.isBrokerLevel() ) {
+                brokerLevelRules.add(compiledRule);
+            } else if ( oneRule.isAggregate() ) {
+                aggregateRules.add(compiledRule);
+            } else {
+                brokerRules.add(compiledRule);
+            }
+        }
+
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.brokerRuleIndex = new AlertRuleIndex(brokerRules);
+        this.aggregateRuleIndex = new AlertRuleIndex(aggregateRules);
+        this.brokerLevelRules = Collections.unmodifiableList(brokerLevelRules);
+    }
+
+    public QueueStatisticsRegistry getQueueStatisticsRegistry() {
+        return queueStatisticsRegistry;
+    }
+
+    public void setQueueStatisticsRegistry(QueueStatisticsRegistry queueStatisticsRegistry) {
+        this.queueStatisticsRegistry = queueStatisticsRegistry;
+    }
+
+    public AlertListener getAlertListener() {
+        return alertListener;
+    }
+
+    public void setAlertListener(AlertListener alertListener) {
+        this.alertListener = alertListener;
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
+    /**
+     * Retrieve the listener for injection into the queue registry, so the state of removed queues is dropped.
+     */
+    public DestinationRegistryListener getQueueRegistryListener() {
+        return queueRegistryListener;
+    }
+
+    /**
+     * Retrieve the listener for injection into the broker registry, so the state of removed brokers is dropped.
+     */
+    public BrokerRegistryListener getBrokerRegistryListener() {
+        return brokerRegistryListener;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.evaluationTimer = metricRegistry.timer(MetricRegistry.name(AlertRuleEngine.class, "evaluation"));
+    }
+
+    /**
+     * Retrieve the alerts which are currently firing.
+     *
+     * @return the firing event of each active alert.
+     */
+    public List<AlertEvent> getActiveAlerts() {
+        List<AlertEvent> result = new ArrayList<>();
+
+        for ( CompiledAlertRule oneRule : this.brokerRuleIndex.getRules() ) {
+            oneRule.collectActiveAlerts(result);
+        }
+        for ( CompiledAlertRule oneRule : this.aggregateRuleIndex.getRules() ) {
+            oneRule.collectActiveAlerts(result);
+        }
+        for ( CompiledAlertRule oneRule : this.brokerLevelRules ) {
+            oneRule.collectActiveAlerts(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void onBrokerPollComplete(BrokerStatsPackage brokerStatsPackage) {
+        Timer.Context evaluationTime = this.evaluationTimer.time();
+
+        try {
+            this.evaluatePoll(brokerStatsPackage);
+        } finally {
+            evaluationTime.stop();
+        }
+    }
+
+    protected void evaluatePoll(BrokerStatsPackage brokerStatsPackage) {
+        AlertRuleIndex brokerRulesSnapshot = this.brokerRuleIndex;
+        AlertRuleIndex aggregateRulesSnapshot = this.aggregateRuleIndex;
+        List<CompiledAlertRule> brokerLevelRulesSnapshot = this.brokerLevelRules;
+        boolean aggregateInd = ( ! aggregateRulesSnapshot.getRules().isEmpty() ) &&
+                ( this.queueStatisticsRegistry != null );
+
+        if ( brokerRulesSnapshot.getRules().isEmpty() && ( ! aggregateInd ) && brokerLevelRulesSnapshot.isEmpty() ) {
+            return;
+        }
+
+        long now = this.statsClock.getStatsStopWatchTime();
+        long timestamp = System.currentTimeMillis();
+        String brokerName = brokerStatsPackage.getBrokerStats().getBrokerName();
+
+        for ( CompiledAlertRule oneRule : brokerLevelRulesSnapshot ) {
+            this.fireAlert(oneRule.evaluateBroker(brokerName, brokerStatsPackage.getBrokerStats(), now, timestamp));
+        }
+
+        for ( ActiveMQQueueJmxStats oneQueueStats : brokerStatsPackage.getQueueStats().values() ) {
+            String queueName = oneQueueStats.getQueueName();
+
+            for ( CompiledAlertRule oneRule : brokerRulesSnapshot.getMatchingRules(queueName) ) {
+                this.fireAlert(oneRule.evaluate(brokerName, queueName, oneQueueStats, now, timestamp));
+            }
+
+            if ( aggregateInd ) {
+                List<CompiledAlertRule> aggregateRules = aggregateRulesSnapshot.getMatchingRules(queueName);
+
+                if ( ( ! aggregateRules.isEmpty() ) && ( this.startAggregateCycle(queueName, brokerName) ) ) {
+                    ActiveMQQueueStats aggregateStats = this.queueStatisticsRegistry.getQueueStats(queueName);
+
+                    if ( aggregateStats != null ) {
+                        for ( CompiledAlertRule oneRule : aggregateRules ) {
+                            this.fireAlert(oneRule.evaluate(null, queueName, aggregateStats, now, timestamp));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the poll of the given queue by the given broker, and determine whether the poll starts a new polling
+     * cycle of the queue, in which case its aggregate rules are evaluated.
+     *
+     * @param queueName name of the polled queue.
+     * @param brokerName name of the broker which polled the queue.
+     * @return true if the aggregate rules of the queue are due for evaluation; false otherwise.
+     */
+    protected boolean startAggregateCycle(String queueName, String brokerName) {
+        Set<String> cycleBrokers = this.aggregateCycleBrokers.get(queueName);
+        if ( cycleBrokers == null ) {
+            Set<String> newCycleBrokers = new HashSet<>();
+            cycleBrokers = this.aggregateCycleBrokers.putIfAbsent(queueName, newCycleBrokers);
+            if ( cycleBrokers == null ) {
+                synchronized ( newCycleBrokers ) {
+                    newCycleBrokers.add(brokerName);
+                }
+
+                return true;
+            }
+        }
+
+        synchronized ( cycleBrokers ) {
+            if ( cycleBrokers.add(brokerName) ) {
+                return false;
+            }
+
+            // This broker already polled the queue since the last evaluation, so a full cycle passed.
+            cycleBrokers.clear();
+            cycleBrokers.add(brokerName);
+
+            return true;
+        }
+    }
+
+    protected void onQueueRemoved(String queueName) {
+        long timestamp = System.currentTimeMillis();
+
+        this.aggregateCycleBrokers.remove(queueName);
+
+        for ( AlertRuleIndex oneIndex : new AlertRuleIndex[] { this.brokerRuleIndex, this.aggregateRuleIndex } ) {
+            for ( CompiledAlertRule oneRule : oneIndex.getMatchingRules(queueName) ) {
+                for ( AlertEvent oneEvent : oneRule.removeQueue(queueName, timestamp) ) {
+                    this.fireAlert(oneEvent);
+                }
+            }
+
+            oneIndex.evictQueue(queueName);
+        }
+    }
+
+    protected void onBrokerRemoved(String brokerName) {
+        long timestamp = System.currentTimeMillis();
+
+        List<CompiledAlertRule> allRules = new ArrayList<>(this.brokerRuleIndex.getRules());
+        allRules.addAll(this.brokerLevelRules);
+
+        for ( CompiledAlertRule oneRule : allRules ) {
+            for ( AlertEvent oneEvent : oneRule.removeBroker(brokerName, timestamp) ) {
+                this.fireAlert(oneEvent);
+            }
+        }
+
+        for ( Set<String> cycleBrokers : this.aggregateCycleBrokers.values() ) {
+            synchronized ( cycleBrokers ) {
+                cycleBrokers.remove(brokerName);
+            }
+        }
+    }
+
+    protected void fireAlert(AlertEvent event) {
+        if ( event == null ) {
+            return;
+        }
+
+        this.log.info("alert {}: rule={}; broker={}; queue={}; values={}", event.getType(), event.getRuleName(),
+                event.getBrokerName(), event.getQueueName(), event.getValues());
+
+        AlertListener listenerSnapshot = this.alertListener;
+        if ( listenerSnapshot != null ) {
+            listenerSnapshot.onAlert(event);
+        }
+    }
+
+    protected class MyQueueRegistryListener implements DestinationRegistryListener {
+        @Override
+        public void onPutEntry(String putKey, DestinationState putValue) {
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, DestinationState removeValue) {
+            onQueueRemoved(removeKey);
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, DestinationState oldValue, DestinationState newValue) {
+        }
+    }
+
+    protected class MyBrokerRegistryListener implements BrokerRegistryListener {
+        @Override
+        public void onPutEntry(String putKey, BrokerInfo putValue) {
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, BrokerInfo removeValue) {
+            onBrokerRemoved(removeValue.getBrokerName());
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, BrokerInfo oldValue, BrokerInfo newValue) {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.QueueNamePatternUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Index of compiled alert rules by queue name pattern.  Rules are grouped by the form of their pattern: exact queue
+ * names are found with a single hash lookup, "prefix*" patterns by prefix, "*" applies to every queue, and any other
+ * wildcard patterns are matched as regular expressions.  The rules matching each queue name are resolved once and
+ * cached, so evaluation of a poll only visits the rules which apply to each polled queue regardless of the total
+ * number of rules.
+ *
+ * The index is immutable apart from its cache; a change to the rules replaces the index.
+ */
+public class AlertRuleIndex {
+    private final Map<String, List<CompiledAlertRule>> exactRules = new HashMap<>();
+    private final List<PrefixRule> prefixRules = new ArrayList<>();
+    private final List<CompiledAlertRule> allQueueRules = new ArrayList<>();
+    private final List<PatternRule> patternRules = new ArrayList<>();
+
+    private final List<CompiledAlertRule> rules;
+    private final RuleOrderComparator ruleOrderComparator;
+
+    private final ConcurrentMap<String, List<CompiledAlertRule>> matchCache = new ConcurrentHashMap<>();
+
+    public AlertRuleIndex(List<CompiledAlertRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.ruleOrderComparator = new RuleOrderComparator(this.rules);
+
+        for ( CompiledAlertRule oneRule : rules ) {
+            String queuePattern = oneRule.getRule().getQueuePattern();
+            int firstWildcard = queuePattern.indexOf('*');
+
+            if ( firstWildcard == -1 ) {
+                List<CompiledAlertRule> exactList = this.exactRules.get(queuePattern);
+                if ( exactList == null ) {
+                    exactList = new ArrayList<>();
+                    this.exactRules.put(queuePattern, exactList);
+                }
+                exactList.add(oneRule);
+            } else if ( queuePattern.equals("*") ) {
+                this.allQueueRules.add(oneRule);
+            } else if ( firstWildcard == ( queuePattern.length() - 1 ) ) {
+                this.prefixRules.add(new PrefixRule(queuePattern.substring(0, firstWildcard), oneRule));
+            } else {
+                this.patternRules.add(new PatternRule(QueueNamePatternUtil.globToRegex(queuePattern), oneRule));
+            }
+        }
+    }
+
+    public List<CompiledAlertRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Retrieve the rules which apply to the named queue.
+     *
+     * @param queueName name of the queue.
+     * @return rules with a pattern matching the queue name, in the order given to the index.
+     */
+    public List<CompiledAlertRule> getMatchingRules(String queueName) {
+        List<CompiledAlertRule> result = this.matchCache.get(queueName);
+
+        if ( result == null ) {
+            result = this.resolveMatchingRules(queueName);
+            this.matchCache.put(queueName, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Drop the cached rules of the named queue.
+     *
+     * @param queueName name of the queue which was removed.
+     */
+    public void evictQueue(String queueName) {
+        this.matchCache.remove(queueName);
+    }
+
+    protected List<CompiledAlertRule> resolveMatchingRules(String queueName) {
+        List<CompiledAlertRule> result = new ArrayList<>();
+
+        List<CompiledAlertRule> exactList = this.exactRules.get(queueName);
+        if ( exactList != null ) {
+            result.addAll(exactList);
+        }
+
+        for ( PrefixRule onePrefixRule : this.prefixRules ) {
+            if ( queueName.startsWith(onePrefixRule.prefix) ) {
+                result.add(onePrefixRule.rule);
+            }
+        }
+
+        result.addAll(this.allQueueRules);
+
+        for ( PatternRule onePatternRule : this.patternRules ) {
+            if ( onePatternRule.pattern.matcher(queueName).matches() ) {
+                result.add(onePatternRule.rule);
+            }
+        }
+
+        if ( result.size() > 1 ) {
+            // Restore the configured order of the rules.
+            Collections.sort(result, this.ruleOrderComparator);
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    protected static class PrefixRule {
+        private final String prefix;
+        private final CompiledAlertRule rule;
+
+        public PrefixRule(String prefix, CompiledAlertRule rule) {
+            this.prefix = prefix;
+            this.rule = rule;
+        }
+    }
+
+    protected static class PatternRule {
+        private final Pattern pattern;
+        private final CompiledAlertRule rule;
+
+        public PatternRule(Pattern pattern, CompiledAlertRule rule) {
+            this.pattern = pattern;
+            this.rule = rule;
+        }
+    }
+
+    protected static class RuleOrderComparator implements Comparator<CompiledAlertRule> {
+        private final Map<CompiledAlertRule, Integer> positions = new IdentityHashMap<>();
+
+        public RuleOrderComparator(List<CompiledAlertRule> rules) {
+            for ( int cur = 0; cur < rules.size(); cur++ ) {
+                this.positions.put(rules.get(cur), cur);
+            }
+        }
+
+        @Override
+        public int compare(CompiledAlertRule first, CompiledAlertRule second) {
+            return this.positions.get(first).compareTo(this.positions.get(second));
+        }
+    }
+}
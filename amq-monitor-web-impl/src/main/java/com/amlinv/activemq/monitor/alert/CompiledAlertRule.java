@@ -0,0 +1,338 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Alert rule with its parsed expression and the evaluation state of each queue, and each broker of the queue, to
+ * which the rule applies.  Broker-level rules keep the state of each broker.
+ */
+public class CompiledAlertRule {
+    /**
+     * Key of the state of aggregate rules, which is not specific to any broker.
+     */
+    private static final String AGGREGATE_KEY = "";
+
+    /**
+     * Queue key of the state of broker-level rules, which is not specific to any queue.
+     */
+    private static final String BROKER_LEVEL_KEY = "";
+
+    private final AlertRule rule;
+    private final AlertExpression expression;
+    private final AlertCondition[] conditions;
+
+    /**
+     * Evaluation state, keyed by queue name and then broker name so all of the state of a removed queue is dropped
+     * at once.  The state of broker-level rules is keyed by the broker name under BROKER_LEVEL_KEY.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, SubjectState>> states = new ConcurrentHashMap<>();
+
+    /**
+     * Compile the given rule.
+     *
+     * @param rule rule to compile.
+     * @throws IllegalArgumentException if the rule's expression is invalid, or tests a field not available to the
+     * rule.
+     */
+    public CompiledAlertRule(AlertRule rule) {
+        if ( ( rule.getName() == null ) || ( rule.getQueuePattern() == null ) ) {
+            throw new IllegalArgumentException("alert rule requires a name and queue pattern: rule=" +
+                    rule.getName());
+        }
+
+        this.rule = rule;
+        this.expression = AlertExpression.parse(rule.getExpression());
+        this.conditions = this.expression.getConditions().toArray(new AlertCondition[0]);
+
+        if ( rule.isBrokerLevel() && rule.isAggregate() ) {
+            throw new IllegalArgumentException("broker-level alert rule cannot be aggregate: rule=" + rule.getName());
+        }
+
+        for ( AlertCondition oneCondition : this.conditions ) {
+            AlertField field = oneCondition.getField();
+
+            if ( rule.isBrokerLevel() ) {
+                if ( ! field.isBrokerField() ) {
+                    throw new IllegalArgumentException("field is not available to broker-level alert rules: rule=" +
+                            rule.getName() + "; field=" + field.getPropertyName());
+                }
+            } else if ( ! field.isQueueField() ) {
+                throw new IllegalArgumentException("field is only available to broker-level alert rules: rule=" +
+                        rule.getName() + "; field=" + field.getPropertyName());
+            } else if ( ( ! rule.isAggregate() ) && ( field.isAggregateOnly() ) ) {
+                throw new IllegalArgumentException("field is only available to aggregate alert rules: rule=" +
+                        rule.getName() + "; field=" + field.getPropertyName());
+            }
+        }
+    }
+
+    public AlertRule getRule() {
+        return rule;
+    }
+
+    public AlertExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Evaluate the rule against the given statistics.
+     *
+     * @param brokerName name of the broker of the statistics; null for aggregated statistics.
+     * @param queueName name of the queue of the statistics.
+     * @param stats statistics to evaluate.
+     * @param now stop watch time, in milliseconds, of the evaluation.
+     * @param timestamp time of the evaluation, in milliseconds since the epoch, for the alert event.
+     * @return the resulting alert event, if the alert started firing or was resolved; null otherwise.
+     */
+    public AlertEvent evaluate(String brokerName, String queueName, ActiveMQQueueJmxStats stats, long now,
+                               long timestamp) {
+
+        return this.evaluateSubject(this.getSubjectState(brokerName, queueName), brokerName, queueName, stats, null,
+                now, timestamp);
+    }
+
+    /**
+     * Evaluate this broker-level rule against the given broker statistics.
+     *
+     * @param brokerName name of the broker of the statistics.
+     * @param stats statistics to evaluate.
+     * @param now stop watch time, in milliseconds, of the evaluation.
+     * @param timestamp time of the evaluation, in milliseconds since the epoch, for the alert event.
+     * @return the resulting alert event, if the alert started firing or was resolved; null otherwise.
+     */
+    public AlertEvent evaluateBroker(String brokerName, ActiveMQBrokerStats stats, long now, long timestamp) {
+        return this.evaluateSubject(this.getSubjectState(brokerName, BROKER_LEVEL_KEY), brokerName, null, null,
+                stats, now, timestamp);
+    }
+
+    /**
+     * Drop all of the state for the given broker, resolving any of its alerts which are firing.
+     *
+     * @param brokerName name of the broker removed.
+     * @param timestamp time of the removal, in milliseconds since the epoch.
+     * @return events for the resolved alerts.
+     */
+    public List<AlertEvent> removeBroker(String brokerName, long timestamp) {
+        List<AlertEvent> result = new ArrayList<>();
+
+        for ( Map.Entry<String, ConcurrentMap<String, SubjectState>> queueEntry : this.states.entrySet() ) {
+            SubjectState oneState = queueEntry.getValue().remove(brokerName);
+
+            if ( oneState != null ) {
+                synchronized ( oneState ) {
+                    if ( oneState.firingEvent != null ) {
+                        String queueName = queueEntry.getKey();
+                        if ( this.rule.isBrokerLevel() ) {
+                            queueName = null;
+                        }
+
+                        result.add(this.prepareEvent(AlertEventType.RESOLVED, brokerName, queueName,
+                                oneState.lastValues, timestamp));
+                        oneState.firingEvent = null;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Evaluate the rule against the given queue statistics, or broker statistics for broker-level rules.
+     */
+    protected AlertEvent evaluateSubject(SubjectState state, String brokerName, String queueName,
+                                         ActiveMQQueueJmxStats queueStats, ActiveMQBrokerStats brokerStats, long now,
+                                         long timestamp) {
+
+        synchronized ( state ) {
+            boolean match = true;
+
+            // Evaluate every condition, even once one fails, so rate-of-change conditions track each sample.
+            for ( int cur = 0; cur < this.conditions.length; cur++ ) {
+                AlertCondition oneCondition = this.conditions[cur];
+                double value;
+                if ( queueStats != null ) {
+                    value = oneCondition.getField().getValue(queueStats);
+                } else {
+                    value = oneCondition.getField().getValue(brokerStats);
+                }
+
+                if ( oneCondition.isRateOfChange() ) {
+                    double rawValue = value;
+
+                    if ( ( state.previousTime >= 0 ) && ( now > state.previousTime ) ) {
+                        value = ( ( rawValue - state.previousValues[cur] ) * 1000.0 ) / ( now - state.previousTime );
+                    } else {
+                        // No rate on the first sample.
+                        match = false;
+                        value = 0.0;
+                    }
+
+                    state.previousValues[cur] = rawValue;
+                }
+
+                state.lastValues[cur] = value;
+                match = match && oneCondition.getOperator().test(value, oneCondition.getThreshold());
+            }
+
+            state.previousTime = now;
+
+            if ( match ) {
+                if ( state.conditionSince < 0 ) {
+                    state.conditionSince = now;
+                }
+
+                if ( ( state.firingEvent == null ) &&
+                        ( ( now - state.conditionSince ) >= this.expression.getDuration() ) ) {
+                    state.firingEvent = this.prepareEvent(AlertEventType.FIRING, brokerName, queueName,
+                            state.lastValues, timestamp);
+
+                    return state.firingEvent;
+                }
+            } else {
+                state.conditionSince = -1;
+
+                if ( state.firingEvent != null ) {
+                    state.firingEvent = null;
+
+                    return this.prepareEvent(AlertEventType.RESOLVED, brokerName, queueName, state.lastValues,
+                            timestamp);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Add the events of all of the alerts of this rule which are currently firing to the given list.
+     *
+     * @param result list to which the firing events are added.
+     */
+    public void collectActiveAlerts(List<AlertEvent> result) {
+        for ( ConcurrentMap<String, SubjectState> queueStates : this.states.values() ) {
+            for ( SubjectState oneState : queueStates.values() ) {
+                synchronized ( oneState ) {
+                    if ( oneState.firingEvent != null ) {
+                        result.add(oneState.firingEvent);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop all of the state for the given queue, resolving any of its alerts which are firing.
+     *
+     * @param queueName name of the queue removed.
+     * @param timestamp time of the removal, in milliseconds since the epoch.
+     * @return events for the resolved alerts.
+     */
+    public List<AlertEvent> removeQueue(String queueName, long timestamp) {
+        List<AlertEvent> result = new ArrayList<>();
+
+        ConcurrentMap<String, SubjectState> queueStates = this.states.remove(queueName);
+        if ( queueStates != null ) {
+            for ( Map.Entry<String, SubjectState> oneEntry : queueStates.entrySet() ) {
+                SubjectState oneState = oneEntry.getValue();
+
+                synchronized ( oneState ) {
+                    if ( oneState.firingEvent != null ) {
+                        String brokerName = oneEntry.getKey();
+                        if ( brokerName.equals(AGGREGATE_KEY) ) {
+                            brokerName = null;
+                        }
+
+                        result.add(this.prepareEvent(AlertEventType.RESOLVED, brokerName, queueName,
+                                oneState.lastValues, timestamp));
+                        oneState.firingEvent = null;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    protected SubjectState getSubjectState(String brokerName, String queueName) {
+        ConcurrentMap<String, SubjectState> queueStates = this.states.get(queueName);
+        if ( queueStates == null ) {
+            ConcurrentMap<String, SubjectState> newQueueStates = new ConcurrentHashMap<>();
+            queueStates = this.states.putIfAbsent(queueName, newQueueStates);
+            if ( queueStates == null ) {
+                queueStates = newQueueStates;
+            }
+        }
+
+        String brokerKey = brokerName;
+        if ( brokerKey == null ) {
+            brokerKey = AGGREGATE_KEY;
+        }
+
+        SubjectState state = queueStates.get(brokerKey);
+        if ( state == null ) {
+            SubjectState newState = new SubjectState(this.conditions.length);
+            state = queueStates.putIfAbsent(brokerKey, newState);
+            if ( state == null ) {
+                state = newState;
+            }
+        }
+
+        return state;
+    }
+
+    protected AlertEvent prepareEvent(AlertEventType type, String brokerName, String queueName, double[] values,
+                                      long timestamp) {
+
+        Map<String, Double> valueMap = new LinkedHashMap<>();
+        for ( int cur = 0; cur < this.conditions.length; cur++ ) {
+            valueMap.put(this.conditions[cur].getValueName(), values[cur]);
+        }
+
+        return new AlertEvent(type, this.rule.getName(), this.expression.getText(), brokerName, queueName, valueMap,
+                timestamp);
+    }
+
+    /**
+     * Evaluation state of the rule for one queue on one broker, one queue in aggregate, or one broker for broker-level
+     * rules.  Guarded by the state itself since aggregated statistics of the same queue may be evaluated concurrently
+     * on the polls of different brokers.
+     */
+    protected static class SubjectState {
+        private long conditionSince = -1;
+        private long previousTime = -1;
+        private final double[] previousValues;
+        private final double[] lastValues;
+        private AlertEvent firingEvent;
+
+        public SubjectState(int conditionCount) {
+            this.previousValues = new double[conditionCount];
+            this.lastValues = new double[conditionCount];
+        }
+    }
+}
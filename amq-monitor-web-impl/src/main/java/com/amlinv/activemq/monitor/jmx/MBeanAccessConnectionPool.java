@@ -0,0 +1,328 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import com.amlinv.thread.util.DaemonThreadFactory;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of MBean access connections, keyed by broker location, shared by all of the components which access a broker
+ * over JMX so that polls, discovery and queries reuse established connections instead of each performing its own
+ * connection handshake.
+ *
+ * Each location is limited to a maximum number of open connections; borrowers wait, up to the borrow timeout, for a
+ * connection to be returned once the limit is reached.  Idle connections are validated before reuse once idle longer
+ * than the validation interval, and closed once idle longer than the maximum idle time.  After a failure to connect,
+ * further connection attempts to the location fail immediately until a delay, which doubles with each consecutive
+ * failure up to the maximum reconnect delay, has passed.
+ */
+public class MBeanAccessConnectionPool {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(MBeanAccessConnectionPool.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_LOCATION = 4;
+    public static final long DEFAULT_BORROW_TIMEOUT = 30000L;
+    public static final long DEFAULT_VALIDATION_INTERVAL = 30000L;
+    public static final long DEFAULT_MAX_IDLE_TIME = 300000L;
+    public static final long DEFAULT_EVICTION_INTERVAL = 60000L;
+    public static final long DEFAULT_INITIAL_RECONNECT_DELAY = 1000L;
+    public static final long DEFAULT_MAX_RECONNECT_DELAY = 60000L;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private int maxConnectionsPerLocation = DEFAULT_MAX_CONNECTIONS_PER_LOCATION;
+    private long borrowTimeout = DEFAULT_BORROW_TIMEOUT;
+    private long validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    private long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+    private long evictionInterval = DEFAULT_EVICTION_INTERVAL;
+    private long initialReconnectDelay = DEFAULT_INITIAL_RECONNECT_DELAY;
+    private long maxReconnectDelay = DEFAULT_MAX_RECONNECT_DELAY;
+
+    private StatsClock statsClock = new SystemStatsClock();
+    private ScheduledExecutorService executor;
+    private ScheduledExecutorService createdExecutor;
+    private ScheduledFuture<?> evictionSchedule;
+
+    /**
+     * Registry of the connection churn metrics; private to this pool unless a shared one is supplied.
+     */
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private Meter connectMeter;
+    private Meter connectFailureMeter;
+    private Meter validationFailureMeter;
+    private Meter evictionMeter;
+
+    private final ConcurrentMap<String, PooledMBeanAccessConnectionFactory> locationPools = new ConcurrentHashMap<>();
+
+    public MBeanAccessConnectionPool() {
+        this.prepareMetrics();
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public int getMaxConnectionsPerLocation() {
+        return maxConnectionsPerLocation;
+    }
+
+    public void setMaxConnectionsPerLocation(int maxConnectionsPerLocation) {
+        this.maxConnectionsPerLocation = maxConnectionsPerLocation;
+    }
+
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    /**
+     * @param borrowTimeout maximum time, in milliseconds, to wait for a connection once a location is at its limit.
+     */
+    public void setBorrowTimeout(long borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    /**
+     * @param validationInterval idle time, in milliseconds, after which a connection is validated before reuse.
+     */
+    public void setValidationInterval(long validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @param maxIdleTime idle time, in milliseconds, after which a connection is closed by the eviction task.
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public long getInitialReconnectDelay() {
+        return initialReconnectDelay;
+    }
+
+    public void setInitialReconnectDelay(long initialReconnectDelay) {
+        this.initialReconnectDelay = initialReconnectDelay;
+    }
+
+    public long getMaxReconnectDelay() {
+        return maxReconnectDelay;
+    }
+
+    public void setMaxReconnectDelay(long maxReconnectDelay) {
+        this.maxReconnectDelay = maxReconnectDelay;
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor on which idle connections are evicted; when not set, one is created on start.
+     */
+    public void setExecutor(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Set the registry in which to record the rates of connections established, failed connection attempts, failed
+     * validations and evictions.
+     *
+     * @param metricRegistry registry of the connection metrics.
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.prepareMetrics();
+    }
+
+    public Meter getConnectMeter() {
+        return connectMeter;
+    }
+
+    public Meter getConnectFailureMeter() {
+        return connectFailureMeter;
+    }
+
+    public Meter getValidationFailureMeter() {
+        return validationFailureMeter;
+    }
+
+    public Meter getEvictionMeter() {
+        return evictionMeter;
+    }
+
+    /**
+     * Start the periodic eviction of idle connections.
+     */
+    public void start() {
+        synchronized ( this ) {
+            if ( this.evictionSchedule != null ) {
+                return;
+            }
+
+            if ( this.executor == null ) {
+                this.executor = new ScheduledThreadPoolExecutor(1,
+                        new DaemonThreadFactory("jmx-connection-eviction-thread-"));
+                this.createdExecutor = this.executor;
+            }
+
+            this.evictionSchedule = this.executor.scheduleWithFixedDelay(new EvictionTask(), this.evictionInterval,
+                    this.evictionInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop the eviction of idle connections and close all of the idle connections; connections in use are closed as
+     * they are returned.  The executor is shut down if the pool created it on start.
+     */
+    public void shutdown() {
+        ScheduledExecutorService shutdownExecutor = null;
+        synchronized ( this ) {
+            if ( this.evictionSchedule != null ) {
+                this.evictionSchedule.cancel(false);
+                this.evictionSchedule = null;
+            }
+
+            if ( ( this.createdExecutor != null ) && ( this.createdExecutor == this.executor ) ) {
+                shutdownExecutor = this.createdExecutor;
+                this.executor = null;
+            }
+            this.createdExecutor = null;
+        }
+
+        if ( shutdownExecutor != null ) {
+            shutdownExecutor.shutdown();
+        }
+
+        for ( PooledMBeanAccessConnectionFactory onePool : this.locationPools.values() ) {
+            onePool.shutdown();
+        }
+    }
+
+    /**
+     * Retrieve the pooled connection factory for the given location, if one exists.
+     *
+     * @param location address of the broker location.
+     * @return pooled connection factory for the location; null if none was created.
+     */
+    public PooledMBeanAccessConnectionFactory getConnectionFactory(String location) {
+        return this.locationPools.get(location);
+    }
+
+    /**
+     * Retrieve the pooled connection factory for the given location, creating it, with the given factory of actual
+     * connections, if it does not already exist.
+     *
+     * @param location address of the broker location.
+     * @param delegate factory of actual connections to the location.
+     * @return pooled connection factory for the location.
+     */
+    public PooledMBeanAccessConnectionFactory getOrCreateConnectionFactory(String location,
+                                                                          MBeanAccessConnectionFactory delegate) {
+
+        PooledMBeanAccessConnectionFactory result = this.locationPools.get(location);
+
+        if ( result == null ) {
+            PooledMBeanAccessConnectionFactory newPool = new PooledMBeanAccessConnectionFactory(location, delegate,
+                    this);
+
+            result = this.locationPools.putIfAbsent(location, newPool);
+            if ( result == null ) {
+                this.log.debug("created jmx connection pool: location={}", location);
+                result = newPool;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Close the connections of every location which have been idle longer than the maximum idle time.
+     */
+    public void evictIdleConnections() {
+        long idleSince = this.statsClock.getStatsStopWatchTime() - this.maxIdleTime;
+
+        for ( PooledMBeanAccessConnectionFactory onePool : this.locationPools.values() ) {
+            onePool.evictIdle(idleSince);
+        }
+    }
+
+    protected void prepareMetrics() {
+        this.connectMeter = this.metricRegistry.meter(MetricRegistry.name(MBeanAccessConnectionPool.class,
+                "connect"));
+        this.connectFailureMeter = this.metricRegistry.meter(MetricRegistry.name(MBeanAccessConnectionPool.class,
+                "connectFailure"));
+        this.validationFailureMeter = this.metricRegistry.meter(MetricRegistry.name(MBeanAccessConnectionPool.class,
+                "validationFailure"));
+        this.evictionMeter = this.metricRegistry.meter(MetricRegistry.name(MBeanAccessConnectionPool.class,
+                "eviction"));
+    }
+
+    protected class EvictionTask implements Runnable {
+        @Override
+        public void run() {
+            try {
+                evictIdleConnections();
+            } catch ( RuntimeException rtExc ) {
+                log.warn("eviction of idle jmx connections failed", rtExc);
+            }
+        }
+    }
+}
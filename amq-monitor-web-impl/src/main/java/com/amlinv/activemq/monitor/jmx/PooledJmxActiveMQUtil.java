@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.activemq.topo.jmxutil.polling.JmxActiveMQUtil2;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+
+import javax.management.ObjectName;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ActiveMQ JMX utility which obtains all of its connections from a shared connection pool, and hands out the pooled
+ * connection factory of each location, so the broker pollers, the queue discoverers and the broker and queue queries
+ * all share the same connections to each location.
+ */
+public class PooledJmxActiveMQUtil extends JmxActiveMQUtil2 {
+    public static final String BROKER_ONAME_PREFIX = "org.apache.activemq:type=Broker,brokerName=";
+
+    private final MBeanAccessConnectionPool connectionPool;
+
+    public PooledJmxActiveMQUtil(MBeanAccessConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public MBeanAccessConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    @Override
+    public MBeanAccessConnectionFactory getLocationConnectionFactory(String location) throws Exception {
+        MBeanAccessConnectionFactory result = this.connectionPool.getConnectionFactory(location);
+
+        if ( result == null ) {
+            result = this.connectionPool.getOrCreateConnectionFactory(location,
+                    this.createLocationConnectionFactory(location));
+        }
+
+        return result;
+    }
+
+    @Override
+    public String[] queryBrokerNames(String location) throws Exception {
+        return this.queryKeyValues(location, new ObjectName(BROKER_ONAME_PREFIX + "*"), "brokerName");
+    }
+
+    @Override
+    public String[] queryQueueNames(String location, String brokerName, String queueNamePattern) throws Exception {
+        ObjectName pattern = new ObjectName(BROKER_ONAME_PREFIX + brokerName +
+                ",destinationType=Queue,destinationName=" + queueNamePattern);
+
+        return this.queryKeyValues(location, pattern, "destinationName");
+    }
+
+    /**
+     * Create the factory of actual connections to the location; the first use of each location only.
+     */
+    protected MBeanAccessConnectionFactory createLocationConnectionFactory(String location) throws Exception {
+        return super.getLocationConnectionFactory(location);
+    }
+
+    protected String[] queryKeyValues(String location, ObjectName pattern, String key) throws Exception {
+        Set<String> result = new TreeSet<>();
+
+        MBeanAccessConnection connection = this.getLocationConnectionFactory(location).createConnection();
+        try {
+            for ( ObjectName oneOName : connection.queryNames(pattern, null) ) {
+                result.add(oneOName.getKeyProperty(key));
+            }
+        } finally {
+            connection.close();
+        }
+
+        return result.toArray(new String[result.size()]);
+    }
+}
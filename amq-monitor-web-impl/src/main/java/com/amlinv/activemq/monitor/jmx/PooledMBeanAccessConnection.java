@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.InstanceNotFoundException;
+import javax.management.IntrospectionException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection lent out by a pooled connection factory.  Closing the connection returns the actual connection to the
+ * pool, unless a call failed with an I/O error, in which case the actual connection is closed.
+ */
+public class PooledMBeanAccessConnection implements MBeanAccessConnection {
+    private final MBeanAccessConnection delegate;
+    private final PooledMBeanAccessConnectionFactory pool;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean failed = false;
+
+    public PooledMBeanAccessConnection(MBeanAccessConnection delegate, PooledMBeanAccessConnectionFactory pool) {
+        this.delegate = delegate;
+        this.pool = pool;
+    }
+
+    public MBeanAccessConnection getDelegate() {
+        return delegate;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Pooled connections are connected when first created.
+     */
+    @Override
+    public void connect() throws IOException {
+        this.checkOpen();
+    }
+
+    @Override
+    public Object getAttribute(ObjectName name, String att)
+            throws MBeanException, AttributeNotFoundException, InstanceNotFoundException, ReflectionException,
+            IOException {
+
+        this.checkOpen();
+        try {
+            return this.delegate.getAttribute(name, att);
+        } catch ( IOException ioExc ) {
+            this.failed = true;
+            throw ioExc;
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(ObjectName name, String[] atts)
+            throws InstanceNotFoundException, ReflectionException, IOException {
+
+        this.checkOpen();
+        try {
+            return this.delegate.getAttributes(name, atts);
+        } catch ( IOException ioExc ) {
+            this.failed = true;
+            throw ioExc;
+        }
+    }
+
+    @Override
+    public Set<ObjectName> queryNames(ObjectName pattern, QueryExp query) throws IOException {
+        this.checkOpen();
+        try {
+            return this.delegate.queryNames(pattern, query);
+        } catch ( IOException ioExc ) {
+            this.failed = true;
+            throw ioExc;
+        }
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo(ObjectName name)
+            throws IOException, IntrospectionException, InstanceNotFoundException, ReflectionException {
+
+        this.checkOpen();
+        try {
+            return this.delegate.getMBeanInfo(name);
+        } catch ( IOException ioExc ) {
+            this.failed = true;
+            throw ioExc;
+        }
+    }
+
+    @Override
+    public void addNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter,
+                                        Object handback) throws InstanceNotFoundException, IOException {
+
+        this.checkOpen();
+        try {
+            this.delegate.addNotificationListener(name, listener, filter, handback);
+        } catch ( IOException ioExc ) {
+            this.failed = true;
+            throw ioExc;
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, NotificationListener listener)
+            throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+
+        this.checkOpen();
+        try {
+            this.delegate.removeNotificationListener(name, listener);
+        } catch ( IOException ioExc ) {
+            this.failed = true;
+            throw ioExc;
+        }
+    }
+
+    /**
+     * Return the connection to the pool; only the first close has any effect.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( this.closed.compareAndSet(false, true) ) {
+            this.pool.release(this.delegate, this.failed);
+        }
+    }
+
+    protected void checkOpen() throws IOException {
+        if ( this.closed.get() ) {
+            throw new IOException("pooled jmx connection was already returned to the pool");
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServerDelegate;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection factory for one broker location which lends out pooled connections; closing a connection obtained from
+ * this factory returns it to the pool.  A connection on which a call failed with an I/O error is closed instead of
+ * returned.  The limits and timings are those of the owning pool.
+ */
+public class PooledMBeanAccessConnectionFactory implements MBeanAccessConnectionFactory {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(PooledMBeanAccessConnectionFactory.class);
+
+    /**
+     * Limit on the doubling of the reconnect delay, well beyond any practical maximum delay.
+     */
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private final String location;
+    private final MBeanAccessConnectionFactory delegate;
+    private final MBeanAccessConnectionPool pool;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    /**
+     * Idle connections, most recently returned first, so the least recently used are evicted first.
+     */
+    private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+    private int openCount = 0;
+    private int consecutiveConnectFailures = 0;
+    private long nextConnectAttemptTime = 0;
+    private boolean shutdown = false;
+
+    public PooledMBeanAccessConnectionFactory(String location, MBeanAccessConnectionFactory delegate,
+                                              MBeanAccessConnectionPool pool) {
+
+        this.location = location;
+        this.delegate = delegate;
+        this.pool = pool;
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public MBeanAccessConnectionFactory getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return number of open connections, both idle and in use.
+     */
+    public int getOpenCount() {
+        synchronized ( this ) {
+            return openCount;
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized ( this ) {
+            return idleConnections.size();
+        }
+    }
+
+    @Override
+    public String getTargetDescription() {
+        return this.delegate.getTargetDescription();
+    }
+
+    /**
+     * Borrow a connection from the pool: an idle connection if one is available, otherwise a new connection if the
+     * location is below its limit; otherwise wait for a connection to be returned.
+     *
+     * @return pooled connection, returned to the pool on close.
+     * @throws IOException on failure to connect, while connection attempts are suspended after a failure, or on
+     * timeout waiting for a connection.
+     */
+    @Override
+    public MBeanAccessConnection createConnection() throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.pool.getBorrowTimeout());
+
+        while ( true ) {
+            IdleConnection idleConnection;
+
+            synchronized ( this ) {
+                if ( this.shutdown ) {
+                    throw new IOException("jmx connection pool is shut down: location=" + this.location);
+                }
+
+                idleConnection = this.idleConnections.pollFirst();
+
+                if ( idleConnection == null ) {
+                    if ( this.openCount < this.pool.getMaxConnectionsPerLocation() ) {
+                        this.checkConnectAllowed();
+                        this.openCount++;
+                    } else {
+                        this.waitForReturn(deadline);
+                        continue;
+                    }
+                }
+            }
+
+            if ( idleConnection == null ) {
+                return new PooledMBeanAccessConnection(this.connectNew(), this);
+            }
+
+            if ( this.validateIfStale(idleConnection) ) {
+                return new PooledMBeanAccessConnection(idleConnection.connection, this);
+            }
+
+            this.discard(idleConnection.connection);
+        }
+    }
+
+    /**
+     * Return a connection to the pool, or close it if it failed or the pool is shut down.
+     *
+     * @param connection the actual connection.
+     * @param failed true if a call on the connection failed with an I/O error.
+     */
+    protected void release(MBeanAccessConnection connection, boolean failed) {
+        synchronized ( this ) {
+            if ( ( ! failed ) && ( ! this.shutdown ) ) {
+                this.idleConnections.addFirst(new IdleConnection(connection,
+                        this.pool.getStatsClock().getStatsStopWatchTime()));
+                this.notifyAll();
+
+                return;
+            }
+        }
+
+        this.discard(connection);
+    }
+
+    /**
+     * Close the idle connections which were returned before the given time.
+     *
+     * @param idleSince time, by the pool's stats clock, before which idle connections are closed.
+     */
+    protected void evictIdle(long idleSince) {
+        List<MBeanAccessConnection> evicted = new LinkedList<>();
+
+        synchronized ( this ) {
+            Iterator<IdleConnection> iterator = this.idleConnections.descendingIterator();
+            while ( iterator.hasNext() ) {
+                IdleConnection oneIdle = iterator.next();
+
+                if ( oneIdle.idleSince < idleSince ) {
+                    iterator.remove();
+                    evicted.add(oneIdle.connection);
+                } else {
+                    // Remaining connections were returned more recently.
+                    break;
+                }
+            }
+        }
+
+        for ( MBeanAccessConnection oneConnection : evicted ) {
+            this.pool.getEvictionMeter().mark();
+            this.discard(oneConnection);
+        }
+
+        if ( ! evicted.isEmpty() ) {
+            this.log.debug("evicted idle jmx connections: location={}; count={}", this.location, evicted.size());
+        }
+    }
+
+    protected void shutdown() {
+        List<MBeanAccessConnection> idle = new LinkedList<>();
+
+        synchronized ( this ) {
+            this.shutdown = true;
+
+            for ( IdleConnection oneIdle : this.idleConnections ) {
+                idle.add(oneIdle.connection);
+            }
+            this.idleConnections.clear();
+
+            this.notifyAll();
+        }
+
+        for ( MBeanAccessConnection oneConnection : idle ) {
+            this.discard(oneConnection);
+        }
+    }
+
+    /**
+     * Fail fast while connection attempts to the location are suspended after a failure.  Called with the lock held.
+     */
+    protected void checkConnectAllowed() throws IOException {
+        long remaining = this.nextConnectAttemptTime - this.pool.getStatsClock().getStatsStopWatchTime();
+
+        if ( remaining > 0 ) {
+            throw new IOException("jmx connection attempts suspended after failure: location=" + this.location +
+                    "; retry-in-ms=" + remaining);
+        }
+    }
+
+    /**
+     * Wait for a connection to be returned to the pool.  Called with the lock held.
+     */
+    protected void waitForReturn(long deadline) throws IOException {
+        long remainingNanos = deadline - System.nanoTime();
+        if ( remainingNanos <= 0 ) {
+            throw new IOException("timed out waiting for a pooled jmx connection: location=" + this.location +
+                    "; open-count=" + this.openCount);
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        } catch ( InterruptedException intExc ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for a pooled jmx connection: location=" +
+                    this.location);
+        }
+    }
+
+    /**
+     * Establish a new connection, for which a slot was already reserved, and apply the reconnect delay on failure.
+     */
+    protected MBeanAccessConnection connectNew() throws IOException {
+        boolean success = false;
+
+        try {
+            MBeanAccessConnection result = this.delegate.createConnection();
+            success = true;
+
+            return result;
+        } finally {
+            this.onConnectComplete(success);
+        }
+    }
+
+    protected void onConnectComplete(boolean success) {
+        long delay = 0;
+
+        synchronized ( this ) {
+            if ( success ) {
+                this.consecutiveConnectFailures = 0;
+                this.nextConnectAttemptTime = 0;
+            } else {
+                this.openCount--;
+                this.consecutiveConnectFailures++;
+
+                int shift = Math.min(this.consecutiveConnectFailures - 1, MAX_BACKOFF_SHIFT);
+                delay = Math.min(this.pool.getInitialReconnectDelay() << shift, this.pool.getMaxReconnectDelay());
+                this.nextConnectAttemptTime = this.pool.getStatsClock().getStatsStopWatchTime() + delay;
+
+                this.notifyAll();
+            }
+        }
+
+        if ( success ) {
+            this.pool.getConnectMeter().mark();
+        } else {
+            this.pool.getConnectFailureMeter().mark();
+            this.log.info("jmx connection failed; suspending connection attempts: location={}; delay-ms={}",
+                    this.location, delay);
+        }
+    }
+
+    /**
+     * Validate an idle connection if it has been idle longer than the validation interval; a connection dropped by
+     * the broker, or by a firewall, while idle is only detected on use.
+     *
+     * @return true if the connection is usable; false otherwise.
+     */
+    protected boolean validateIfStale(IdleConnection idleConnection) {
+        long idleTime = this.pool.getStatsClock().getStatsStopWatchTime() - idleConnection.idleSince;
+        if ( idleTime < this.pool.getValidationInterval() ) {
+            return true;
+        }
+
+        try {
+            idleConnection.connection.queryNames(MBeanServerDelegate.DELEGATE_NAME, null);
+            return true;
+        } catch ( IOException | RuntimeException exc ) {
+            this.pool.getValidationFailureMeter().mark();
+            this.log.debug("idle jmx connection failed validation: location={}", this.location, exc);
+
+            return false;
+        }
+    }
+
+    protected void discard(MBeanAccessConnection connection) {
+        synchronized ( this ) {
+            this.openCount--;
+            this.notifyAll();
+        }
+
+        try {
+            connection.close();
+        } catch ( IOException ioExc ) {
+            this.log.debug("failed to close jmx connection: location={}", this.location, ioExc);
+        }
+    }
+
+    protected static class IdleConnection {
+        private final MBeanAccessConnection connection;
+        private final long idleSince;
+
+        public IdleConnection(MBeanAccessConnection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
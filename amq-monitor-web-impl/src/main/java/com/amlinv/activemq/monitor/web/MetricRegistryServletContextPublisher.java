@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.servlets.MetricsServlet;
+import org.springframework.web.context.ServletContextAware;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Publishes the monitor's own metric registry in the servlet context, where the metrics servlet declared in web.xml
+ * looks for it.  The Spring context is loaded by a context listener, so the registry is published before the servlet
+ * initializes.
+ */
+public class MetricRegistryServletContextPublisher implements ServletContextAware {
+    private MetricRegistry metricRegistry;
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        servletContext.setAttribute(MetricsServlet.METRICS_REGISTRY, this.metricRegistry);
+    }
+}
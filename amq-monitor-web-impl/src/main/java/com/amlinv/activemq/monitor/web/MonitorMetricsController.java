@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.monitor.web;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * Endpoint for scraping the monitored statistics in the Prometheus text exposition format.
+ */
+@Path("/metrics")
+public class MonitorMetricsController {
+    private PrometheusMetricsFeed prometheusMetricsFeed;
+
+    public PrometheusMetricsFeed getPrometheusMetricsFeed() {
+        return prometheusMetricsFeed;
+    }
+
+    public void setPrometheusMetricsFeed(PrometheusMetricsFeed prometheusMetricsFeed) {
+        this.prometheusMetricsFeed = prometheusMetricsFeed;
+    }
+
+    /**
+     * Retrieve the cached exposition of all monitored statistics.
+     *
+     * @return the exposition; not found if no metrics feed is configured.
+     */
+    @GET
+    @Produces(PrometheusMetricsFeed.CONTENT_TYPE)
+    public Response getMetrics() {
+        if ( this.prometheusMetricsFeed == null ) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        return Response.ok(this.prometheusMetricsFeed.getExposition()).build();
+    }
+}
@@ -18,7 +18,25 @@ package com.amlinv.activemq.monitor.web;
 
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller;
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerFactory;
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitBreaker;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitStatus;
+import com.amlinv.activemq.monitor.activemq.BrokerPollScheduler;
+import com.amlinv.activemq.monitor.activemq.BrokerPollTimingStats;
+import com.amlinv.activemq.monitor.activemq.NotificationQueueDiscoverer;
+import com.amlinv.activemq.monitor.activemq.QueueHostTracker;
 import com.amlinv.activemq.monitor.activemq.impl.DefaultActiveMQBrokerPollerFactory;
+import com.amlinv.activemq.monitor.activemq.impl.DefaultBrokerPollScheduler;
+import com.amlinv.activemq.monitor.activemq.impl.JolokiaBrokerStatsJmxAttributePollerFactory;
+import com.amlinv.activemq.monitor.alert.AlertEvent;
+import com.amlinv.activemq.monitor.alert.AlertRuleEngine;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.persistence.StatisticsStore;
+import com.amlinv.activemq.persistence.StoredQueueStats;
+import com.amlinv.activemq.persistence.StoredStatsRollup;
+import com.amlinv.activemq.stats.QueueStatisticsHistorySeries;
+import com.amlinv.activemq.stats.QueueRankingMetric;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
 import com.amlinv.activemq.topo.discovery.MBeanDestinationDiscoverer;
 import com.amlinv.activemq.topo.discovery.MBeanDestinationDiscovererScheduler;
 import com.amlinv.activemq.topo.jmxutil.polling.JmxActiveMQUtil2;
@@ -29,9 +47,11 @@ import com.amlinv.activemq.topo.registry.model.BrokerInfo;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
 import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
 import com.amlinv.thread.util.DaemonThreadFactory;
+import com.codahale.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -47,6 +67,13 @@ import javax.ws.rs.core.Response;
 @Path("/monitor")
 public class MonitorWebController {
     private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(MonitorWebController.class);
+
+    /**
+     * Prefix of broker addresses which are polled through a Jolokia agent instead of JMX; the remainder of the address
+     * is the URL of the agent (e.g. jolokia:http://localhost:8161/api/jolokia).
+     */
+    public static final String JOLOKIA_ADDRESS_PREFIX = "jolokia:";
+
     private Logger log = DEFAULT_LOGGER;
 
     private final MyBrokerRegistryListener myBrokerRegistryListener;
@@ -57,24 +84,39 @@ public class MonitorWebController {
 
     private Map<String, ActiveMQBrokerPoller> brokerPollerMap;
     private Map<String, MBeanDestinationDiscovererScheduler> queueDiscoverers;
+    private Map<String, NotificationQueueDiscoverer> notificationQueueDiscoverers;
+    private QueueHostTracker queueHostTracker = new QueueHostTracker();
     private AtomicBoolean started = new AtomicBoolean(false);
     private ActiveMQBrokerPollerFactory brokerPollerFactory = new DefaultActiveMQBrokerPollerFactory();
     private JmxActiveMQUtil2 jmxActiveMQUtil = new JmxActiveMQUtil2();
 
     private boolean autoStart = true;
     private boolean autoDiscoverQueues = true;
+    private boolean notificationQueueDiscovery = false;
+    private long queueReconciliationInterval = NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL;
+    private int circuitFailureThreshold = BrokerCircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+    private long circuitInitialBackoff = BrokerCircuitBreaker.DEFAULT_INITIAL_BACKOFF;
+    private long circuitMaxBackoff = BrokerCircuitBreaker.DEFAULT_MAX_BACKOFF;
 
     // TODO: convert to use JavaScheduler
     private ScheduledExecutorService discovererExecutorService =
             new ScheduledThreadPoolExecutor(5, new DaemonThreadFactory("discoverer-polling-thread-"));
 
+    private BrokerPollScheduler brokerPollScheduler = new DefaultBrokerPollScheduler();
+
     private MonitorWebsocketBrokerStatsFeed websocketBrokerStatsFeed;
+    private QueueStatisticsRegistry queueStatisticsRegistry;
+    private ActiveMQBrokerPollerListener brokerPollerListener;
+    private StatisticsStore statisticsStore;
+    private MetricRegistry metricRegistry;
+    private AlertRuleEngine alertRuleEngine;
 
     public MonitorWebController() {
         this.myBrokerRegistryListener = new MyBrokerRegistryListener();
 
         this.brokerPollerMap = new TreeMap<>();
         this.queueDiscoverers = new HashMap<>();
+        this.notificationQueueDiscoverers = new HashMap<>();
     }
 
     public Logger getLog() {
@@ -109,6 +151,52 @@ public class MonitorWebController {
         this.websocketBrokerStatsFeed = websocketBrokerStatsFeed;
     }
 
+    public QueueStatisticsRegistry getQueueStatisticsRegistry() {
+        return queueStatisticsRegistry;
+    }
+
+    public void setQueueStatisticsRegistry(QueueStatisticsRegistry queueStatisticsRegistry) {
+        this.queueStatisticsRegistry = queueStatisticsRegistry;
+    }
+
+    public ActiveMQBrokerPollerListener getBrokerPollerListener() {
+        return brokerPollerListener;
+    }
+
+    /**
+     * Set the listener for the results of broker polls; when not set, the websocket broker stats feed is used.
+     */
+    public void setBrokerPollerListener(ActiveMQBrokerPollerListener brokerPollerListener) {
+        this.brokerPollerListener = brokerPollerListener;
+    }
+
+    public StatisticsStore getStatisticsStore() {
+        return statisticsStore;
+    }
+
+    public void setStatisticsStore(StatisticsStore statisticsStore) {
+        this.statisticsStore = statisticsStore;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Set the registry in which the broker pollers record their poll metrics; when not set, each poller keeps its own.
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public AlertRuleEngine getAlertRuleEngine() {
+        return alertRuleEngine;
+    }
+
+    public void setAlertRuleEngine(AlertRuleEngine alertRuleEngine) {
+        this.alertRuleEngine = alertRuleEngine;
+    }
+
     public MyBrokerRegistryListener getBrokerRegistryListener() {
         return myBrokerRegistryListener;
     }
@@ -129,6 +217,64 @@ public class MonitorWebController {
         this.autoDiscoverQueues = autoDiscoverQueues;
     }
 
+    public boolean isNotificationQueueDiscovery() {
+        return notificationQueueDiscovery;
+    }
+
+    /**
+     * Set whether auto-discovery of queues is driven by MBean registration notifications from the brokers, with a
+     * periodic full listing as a fallback, instead of listing all of the queues of every broker on each poll.
+     */
+    public void setNotificationQueueDiscovery(boolean notificationQueueDiscovery) {
+        this.notificationQueueDiscovery = notificationQueueDiscovery;
+    }
+
+    public long getQueueReconciliationInterval() {
+        return queueReconciliationInterval;
+    }
+
+    /**
+     * Set the time, in milliseconds, between full listings of each broker's queues when discovery is driven by
+     * notifications.
+     */
+    public void setQueueReconciliationInterval(long queueReconciliationInterval) {
+        this.queueReconciliationInterval = queueReconciliationInterval;
+    }
+
+    public int getCircuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    /**
+     * Set the number of consecutive failed polls of a broker after which its polls are suspended.
+     */
+    public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+        this.circuitFailureThreshold = circuitFailureThreshold;
+    }
+
+    public long getCircuitInitialBackoff() {
+        return circuitInitialBackoff;
+    }
+
+    /**
+     * Set the time, in milliseconds, for which polls of a failing broker are first suspended; the time doubles after
+     * each failed retry.
+     */
+    public void setCircuitInitialBackoff(long circuitInitialBackoff) {
+        this.circuitInitialBackoff = circuitInitialBackoff;
+    }
+
+    public long getCircuitMaxBackoff() {
+        return circuitMaxBackoff;
+    }
+
+    /**
+     * Set the maximum time, in milliseconds, for which polls of a failing broker are suspended between retries.
+     */
+    public void setCircuitMaxBackoff(long circuitMaxBackoff) {
+        this.circuitMaxBackoff = circuitMaxBackoff;
+    }
+
     public ActiveMQBrokerPollerFactory getBrokerPollerFactory() {
         return brokerPollerFactory;
     }
@@ -145,6 +291,14 @@ public class MonitorWebController {
         this.jmxActiveMQUtil = jmxActiveMQUtil;
     }
 
+    public BrokerPollScheduler getBrokerPollScheduler() {
+        return brokerPollScheduler;
+    }
+
+    public void setBrokerPollScheduler(BrokerPollScheduler brokerPollScheduler) {
+        this.brokerPollScheduler = brokerPollScheduler;
+    }
+
     public void init () {
         log.info("Initializing monitor web controller");
         if ( this.autoStart ) {
@@ -161,6 +315,12 @@ public class MonitorWebController {
             }
         }
 
+        synchronized ( this.notificationQueueDiscoverers ) {
+            for ( NotificationQueueDiscoverer oneDiscoverer : this.notificationQueueDiscoverers.values() ) {
+                oneDiscoverer.stop();
+            }
+        }
+
         synchronized ( this.brokerPollerMap ) {
             for ( ActiveMQBrokerPoller onePoller : this.brokerPollerMap.values() ) {
                 onePoller.stop();
@@ -168,6 +328,7 @@ public class MonitorWebController {
         }
 
         this.discovererExecutorService.shutdown();
+        this.brokerPollScheduler.shutdown();
     }
 
     @GET
@@ -178,6 +339,39 @@ public class MonitorWebController {
         return new LinkedList<BrokerInfo>(this.brokerRegistry.values());
     }
 
+    @GET
+    @Path("/brokers/pollTiming")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public List<BrokerPollTimingStats> listBrokerPollTiming() {
+        return this.brokerPollScheduler.getPollTimingStats();
+    }
+
+    @GET
+    @Path("/brokers/circuitState")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public List<BrokerCircuitStatus> listBrokerCircuitState() {
+        List<BrokerCircuitStatus> result = new LinkedList<>();
+
+        synchronized ( this.brokerPollerMap ) {
+            for ( ActiveMQBrokerPoller onePoller : this.brokerPollerMap.values() ) {
+                result.add(onePoller.getCircuitBreaker().getStatus());
+            }
+        }
+
+        return result;
+    }
+
+    @GET
+    @Path("/alerts")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public List<AlertEvent> listActiveAlerts() {
+        if ( this.alertRuleEngine == null ) {
+            return new LinkedList<>();
+        }
+
+        return this.alertRuleEngine.getActiveAlerts();
+    }
+
     @PUT
     @Path("/broker")
     @Produces({ "application/json", "application/xml", "text/plain" })
@@ -248,6 +442,113 @@ public class MonitorWebController {
         return  response;
     }
 
+    /**
+     * Retrieve the recent history of statistics for the named queue, per broker.
+     *
+     * @param queueName name of the queue.
+     * @param since earliest sample time to include, in milliseconds since the epoch; defaults to all history.
+     * @return map of broker name to series of samples; not found if there are no statistics for the queue.
+     */
+    @GET
+    @Path("/queue/{queueName}/history")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getQueueHistory (@PathParam("queueName") String queueName,
+                                     @DefaultValue("0") @QueryParam("since") long since) {
+
+        Map<String, QueueStatisticsHistorySeries> history = null;
+        if ( this.queueStatisticsRegistry != null ) {
+            history = this.queueStatisticsRegistry.getQueueHistory(queueName, since);
+        }
+
+        if ( history == null ) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        return Response.ok(history).build();
+    }
+
+    /**
+     * Retrieve the queues with the highest value of the given metric, aggregated across brokers.
+     *
+     * @param metricName name of the ranking metric: queueSize, enqueueRate, dequeueRate, inflightCount or
+     *                   backlogGrowth.
+     * @param limit maximum number of queues to return.
+     * @return names and values of the top queues, highest first; bad request for an unknown metric or non-positive
+     * limit; not found if no statistics registry is configured.
+     */
+    @GET
+    @Path("/queues/top")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getTopQueues (@DefaultValue("queueSize") @QueryParam("metric") String metricName,
+                                  @DefaultValue("50") @QueryParam("limit") int limit) {
+
+        if ( this.queueStatisticsRegistry == null ) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        QueueRankingMetric metric = QueueRankingMetric.fromMetricName(metricName);
+        if ( ( metric == null ) || ( limit <= 0 ) ) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        return Response.ok(this.queueStatisticsRegistry.getTopQueues(metric, limit)).build();
+    }
+
+    /**
+     * Retrieve the statistics for the named queue recorded in the statistics store, across all brokers.
+     *
+     * @param queueName name of the queue.
+     * @param from start of the time range, in milliseconds since the epoch; defaults to the earliest stored.
+     * @param to end of the time range, in milliseconds since the epoch; defaults to the latest stored.
+     * @return list of stored statistics in time order; not found if no statistics store is configured.
+     */
+    @GET
+    @Path("/queue/{queueName}/stored")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getStoredQueueStats (@PathParam("queueName") String queueName,
+                                         @DefaultValue("0") @QueryParam("from") long from,
+                                         @DefaultValue("" + Long.MAX_VALUE) @QueryParam("to") long to)
+            throws IOException {
+
+        if ( this.statisticsStore == null ) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        List<StoredQueueStats> result = this.statisticsStore.scanQueueStats(queueName, from, to);
+
+        return Response.ok(result).build();
+    }
+
+    /**
+     * Retrieve the statistics for the named queue recorded in the statistics store, summarized over intervals no
+     * longer than the given resolution, across all brokers.  Long time ranges are best queried at a coarse
+     * resolution, such as one hour for 30 days.
+     *
+     * @param queueName name of the queue.
+     * @param from start of the time range, in milliseconds since the epoch; defaults to the earliest stored.
+     * @param to end of the time range, in milliseconds since the epoch; defaults to the latest stored.
+     * @param resolution longest acceptable summary interval, in milliseconds; defaults to raw samples.
+     * @return list of summarized statistics in time order; not found if no statistics store is configured.
+     */
+    @GET
+    @Path("/queue/{queueName}/rollup")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getQueueStatsRollup (@PathParam("queueName") String queueName,
+                                         @DefaultValue("0") @QueryParam("from") long from,
+                                         @DefaultValue("" + Long.MAX_VALUE) @QueryParam("to") long to,
+                                         @DefaultValue("0") @QueryParam("resolution") long resolution)
+            throws IOException {
+
+        if ( this.statisticsStore == null ) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> result =
+                this.statisticsStore.scanQueueStatsRollup(queueName, from, to, resolution);
+
+        return Response.ok(result).build();
+    }
+
     @GET
     @Path("/start")
     @Produces("text/plain")
@@ -285,6 +586,27 @@ public class MonitorWebController {
         } else {
             result = "not found";
         }
+
+        //
+        // Stop discovering the broker's queues, releasing the notification subscription, the reconciliation task, and
+        // their connections.
+        //
+        MBeanDestinationDiscovererScheduler removedDiscovererScheduler;
+        synchronized ( this.queueDiscoverers ) {
+            removedDiscovererScheduler = this.queueDiscoverers.remove(address);
+        }
+        if ( removedDiscovererScheduler != null ) {
+            removedDiscovererScheduler.stop();
+        }
+
+        NotificationQueueDiscoverer removedNotificationDiscoverer;
+        synchronized ( this.notificationQueueDiscoverers ) {
+            removedNotificationDiscoverer = this.notificationQueueDiscoverers.remove(address);
+        }
+        if ( removedNotificationDiscoverer != null ) {
+            removedNotificationDiscoverer.stop();
+        }
+
         return result;
     }
 
@@ -313,6 +635,16 @@ public class MonitorWebController {
         this.queueRegistry.putIfAbsent(queueName, new DestinationState(queueName));
     }
 
+    protected BrokerCircuitBreaker prepareCircuitBreaker(String brokerName) {
+        BrokerCircuitBreaker circuitBreaker = new BrokerCircuitBreaker(brokerName);
+        circuitBreaker.setFailureThreshold(this.circuitFailureThreshold);
+        circuitBreaker.setInitialBackoff(this.circuitInitialBackoff);
+        circuitBreaker.setMaxBackoff(this.circuitMaxBackoff);
+        circuitBreaker.setListener(this.websocketBrokerStatsFeed);
+
+        return circuitBreaker;
+    }
+
     /**
      * Prepare polling for the named broker at the given polling address.
      *
@@ -322,12 +654,20 @@ public class MonitorWebController {
      * @throws Exception
      */
     protected String prepareBrokerPoller(String brokerName, String address) throws Exception {
-        MBeanAccessConnectionFactory mBeanAccessConnectionFactory =
-                this.jmxActiveMQUtil.getLocationConnectionFactory(address);
+        boolean jolokiaInd = this.isJolokiaAddress(address);
+        MBeanAccessConnectionFactory mBeanAccessConnectionFactory = null;
+
+        if ( jolokiaInd ) {
+            if ( brokerName.equals("*") ) {
+                throw new Exception("broker name is required for jolokia address " + address);
+            }
+        } else {
+            mBeanAccessConnectionFactory = this.jmxActiveMQUtil.getLocationConnectionFactory(address);
+        }
 
         if ( brokerName.equals("*") ) {
             String[] brokersAtLocation = this.jmxActiveMQUtil.queryBrokerNames(address);
-            if ( brokersAtLocation == null ) {
+            if ( ( brokersAtLocation == null ) || ( brokersAtLocation.length == 0 ) ) {
                 throw new Exception("unable to locate broker at " + address);
             } else if ( brokersAtLocation.length != 1 ) {
                 throw new Exception("found more than one broker at " + address + "; count=" + brokersAtLocation.length);
@@ -338,12 +678,27 @@ public class MonitorWebController {
 
         this.brokerRegistry.put(address, new BrokerInfo("unknown-broker-id", brokerName, "unknown-broker-url"));
 
+        ActiveMQBrokerPollerListener pollerListener = this.brokerPollerListener;
+        if ( pollerListener == null ) {
+            pollerListener = this.websocketBrokerStatsFeed;
+        }
+
         ActiveMQBrokerPoller brokerPoller =
-                this.brokerPollerFactory.createPoller(brokerName, mBeanAccessConnectionFactory,
-                        this.websocketBrokerStatsFeed);
+                this.brokerPollerFactory.createPoller(brokerName, mBeanAccessConnectionFactory, pollerListener);
 
         brokerPoller.setQueueRegistry(this.queueRegistry);
         brokerPoller.setTopicRegistry(this.topicRegistry);
+        brokerPoller.setScheduler(this.brokerPollScheduler);
+        brokerPoller.setCircuitBreaker(this.prepareCircuitBreaker(brokerName));
+
+        if ( this.metricRegistry != null ) {
+            brokerPoller.setMetricRegistry(this.metricRegistry);
+        }
+
+        if ( jolokiaInd ) {
+            brokerPoller.setJmxPollerFactory(new JolokiaBrokerStatsJmxAttributePollerFactory(
+                    address.substring(JOLOKIA_ADDRESS_PREFIX.length())));
+        }
 
         // TBD: one automic update for brokerPollerMap and locations (is there an echo in here?)
         synchronized ( this.brokerPollerMap ) {
@@ -361,22 +716,35 @@ public class MonitorWebController {
             brokerPoller.start();
         }
 
-        // Add auto-discovery of Queues for this broker, if enabled
+        // Add auto-discovery of Queues for this broker, if enabled; discovery requires a JMX connection
         if ( this.autoDiscoverQueues ) {
-            this.prepareBrokerQueueDiscoverer(brokerName, address, mBeanAccessConnectionFactory);
+            if ( jolokiaInd ) {
+                log.info("queue auto-discovery is not supported for jolokia address {}", address);
+            } else {
+                this.prepareBrokerQueueDiscoverer(brokerName, address, mBeanAccessConnectionFactory);
+            }
         }
 
         return address + " = " + brokerName;
     }
 
+    protected boolean isJolokiaAddress (String address) {
+        return address.startsWith(JOLOKIA_ADDRESS_PREFIX);
+    }
+
     protected void prepareBrokerQueueDiscoverer (String brokerName, String address,
-                                                 MBeanAccessConnectionFactory connectionFactory) {
+                                                 MBeanAccessConnectionFactory connectionFactory) throws Exception {
 
         MBeanDestinationDiscoverer discoverer = new MBeanDestinationDiscoverer("Queue", address);
         discoverer.setmBeanAccessConnectionFactory(connectionFactory);
         discoverer.setBrokerName(brokerName);
         discoverer.setRegistry(this.queueRegistry);
 
+        if ( this.notificationQueueDiscovery ) {
+            this.prepareBrokerNotificationQueueDiscoverer(brokerName, address, connectionFactory, discoverer);
+            return;
+        }
+
         MBeanDestinationDiscovererScheduler scheduler = new MBeanDestinationDiscovererScheduler();
 
         scheduler.setExecutor(this.discovererExecutorService);
@@ -389,14 +757,35 @@ public class MonitorWebController {
         }
     }
 
-    // TBD: don't create mutliple JMX connections when performing multiple queries (JMX connector pool?)
+    protected void prepareBrokerNotificationQueueDiscoverer (String brokerName, String address,
+                                                             MBeanAccessConnectionFactory connectionFactory,
+                                                             MBeanDestinationDiscoverer reconciliationDiscoverer)
+            throws Exception {
+
+        NotificationQueueDiscoverer discoverer =
+                new NotificationQueueDiscoverer(brokerName, connectionFactory, this.queueRegistry);
+        discoverer.setReconciliationDiscoverer(reconciliationDiscoverer);
+        discoverer.setQueueHostTracker(this.queueHostTracker);
+        discoverer.setReconciliationInterval(this.queueReconciliationInterval);
+        discoverer.setExecutor(this.discovererExecutorService);
+
+        discoverer.start();
+
+        synchronized ( this.notificationQueueDiscoverers ) {
+            this.notificationQueueDiscoverers.put(address, discoverer);
+        }
+    }
+
     protected Set<String> queryQueueNames (String location, String brokerName, String queueNamePattern) throws Exception {
         Set<String> result = new TreeSet<>();
 
         if ( location.equals("*") ) {
             // TBD222: stop using address (aka location) as the registry key
             for ( String oneLocation : this.brokerRegistry.keys() ) {
-                result.addAll(this.queryQueueNames(oneLocation, brokerName, queueNamePattern)); // RECURSION
+                // Queue queries require a JMX connection
+                if ( ! this.isJolokiaAddress(oneLocation) ) {
+                    result.addAll(this.queryQueueNames(oneLocation, brokerName, queueNamePattern)); // RECURSION
+                }
             }
         } else {
             if ( brokerName.equals("*") ) {
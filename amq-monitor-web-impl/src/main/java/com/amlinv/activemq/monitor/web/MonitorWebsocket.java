@@ -22,9 +22,14 @@ package com.amlinv.activemq.monitor.web;
  * Created by art on 4/22/14.
  */
 
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
 import com.amlinv.javasched.Scheduler;
 import com.amlinv.javasched.Step;
 import com.amlinv.javasched.process.StepListSchedulerProcess;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,7 +37,11 @@ import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
 import javax.ws.rs.Path;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 // TBD: make a resuable websocket class for use here and for AmqBridgeWebsocket
 @Path("/ws/monitor")
@@ -46,16 +55,56 @@ public class MonitorWebsocket {
     private static MonitorWebsocketRegistry registry;
     private static long sendTimeout = DEFAULT_SEND_TIMEOUT;
     private static Scheduler scheduler;
+    private static MonitorWebsocketClientListener clientListener;
+    private static MetricRegistry metricRegistry;
+    private static ScheduledExecutorService throttleExecutor;
 
     private Logger log = DEFAULT_LOGGER;
 
     private Session socketSession;
     private String socketSessionId;
 
-    private LinkedList<String> backlog = new LinkedList<>();
+    private MonitorWebsocketSendQueue<MonitorWebsocketFrame> sendQueue =
+            new MonitorWebsocketSendQueue<>((int) MAX_MSG_BACKLOG, new MyFrameConflater());
 
     private StepListSchedulerProcess sendProcess = new StepListSchedulerProcess();
 
+    /**
+     * Timer of each write to the client; registered, together with a gauge of the send backlog, under the session id
+     * while the session is open if a metric registry is configured.
+     */
+    private Timer sendTimer = new Timer();
+
+    /**
+     * Filter of the events sent to this client; replaced when the client sends a new subscription.
+     */
+    private volatile MonitorWebsocketSubscription subscription = MonitorWebsocketSubscription.ALL;
+
+    /**
+     * Whether frames are sent to this client in binary form instead of as JSON text; applies to frames written after
+     * it changes, including those already pending.
+     */
+    private volatile boolean binaryEncoding = false;
+
+    /**
+     * Minimum time, in milliseconds, between sends of updates to this client; 0 for no limit.  Updates, which are
+     * events with a conflation key, arriving sooner are held, conflated per key as in the send queue (so held deltas
+     * are merged), and all of the held updates are sent together once the interval elapses.  Events without a
+     * conflation key are never held.  Only applies if a throttle executor is configured.
+     */
+    private volatile long updateInterval = 0;
+
+    private StatsClock statsClock = new SystemStatsClock();
+
+    /**
+     * Updates held until the next release time, by conflation key, with the scheduled release, if any.  Guarded by
+     * throttleLock.
+     */
+    private final Object throttleLock = new Object();
+    private final Map<String, MonitorWebsocketFrame> heldUpdates = new LinkedHashMap<>();
+    private long nextReleaseTime = 0;
+    private ScheduledFuture<?> releaseSchedule;
+
     public static MonitorWebsocketRegistry getRegistry() {
         return registry;
     }
@@ -80,6 +129,30 @@ public class MonitorWebsocket {
         MonitorWebsocket.scheduler = scheduler;
     }
 
+    public static MonitorWebsocketClientListener getClientListener() {
+        return clientListener;
+    }
+
+    public static void setClientListener(MonitorWebsocketClientListener clientListener) {
+        MonitorWebsocket.clientListener = clientListener;
+    }
+
+    public static MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    public static void setMetricRegistry(MetricRegistry metricRegistry) {
+        MonitorWebsocket.metricRegistry = metricRegistry;
+    }
+
+    public static ScheduledExecutorService getThrottleExecutor() {
+        return throttleExecutor;
+    }
+
+    public static void setThrottleExecutor(ScheduledExecutorService throttleExecutor) {
+        MonitorWebsocket.throttleExecutor = throttleExecutor;
+    }
+
     public MonitorWebsocket() {
         scheduler.startProcess(this.sendProcess);
     }
@@ -100,13 +173,69 @@ public class MonitorWebsocket {
         this.sendProcess = sendProcess;
     }
 
+    public MonitorWebsocketSendQueue<MonitorWebsocketFrame> getSendQueue() {
+        return sendQueue;
+    }
+
+    public void setSendQueue(MonitorWebsocketSendQueue<MonitorWebsocketFrame> sendQueue) {
+        this.sendQueue = sendQueue;
+    }
+
+    public Timer getSendTimer() {
+        return sendTimer;
+    }
+
+    public MonitorWebsocketSubscription getSubscription() {
+        return subscription;
+    }
+
+    public void setSubscription(MonitorWebsocketSubscription subscription) {
+        this.subscription = subscription;
+    }
+
+    public boolean isBinaryEncoding() {
+        return binaryEncoding;
+    }
+
+    public void setBinaryEncoding(boolean binaryEncoding) {
+        this.binaryEncoding = binaryEncoding;
+    }
+
+    public long getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * Set the minimum time between sends of updates to this client.  Any updates held under a prior interval are
+     * released on the next scheduled release, or immediately if throttling is disabled.
+     *
+     * @param updateInterval minimum time, in milliseconds, between updates; 0 for no limit.
+     */
+    public void setUpdateInterval(long updateInterval) {
+        this.updateInterval = updateInterval;
+
+        if ( updateInterval <= 0 ) {
+            this.releaseHeldUpdates();
+        }
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
     @OnClose
     public void onClose(Session sess, CloseReason reason) {
         log.info("Closed websocket session: sessionId={}; reason='{}'", sess.getId(), reason.toString());
 
         registry.remove(sess.getId());
+        this.unregisterMetrics(sess.getId());
 
-        this.backlog.clear();
+        this.discardHeldUpdates();
+        this.sendQueue.clear();
         this.sendProcess.shutdown();
     }
 
@@ -125,47 +254,203 @@ public class MonitorWebsocket {
         this.socketSessionId = sess.getId();
         this.socketSession.getAsyncRemote().setSendTimeout(sendTimeout);
 
+        this.registerMetrics(sess.getId());
         registry.put(sess.getId(), this);
+
+        MonitorWebsocketClientListener listener = clientListener;
+        if ( listener != null ) {
+            listener.onClientOpen(this);
+        }
     }
 
     @OnMessage
     public void onMessage (String msg, Session sess) {
         log.debug("message from client {}", msg);
+
+        MonitorWebsocketClientListener listener = clientListener;
+        if ( listener != null ) {
+            listener.onClientMessage(this, msg);
+        }
     }
 
     public void fireMonitorEventNB(final String action, final String content) throws IOException {
+        this.fireMonitorEventNB(action, null, content);
+    }
+
+    /**
+     * Send the given event to the websocket, replacing any event with the same action and conflation key which is
+     * still waiting to be sent.  Use for events which carry the full latest state, such as statistics updates.
+     *
+     * @param action name of the event.
+     * @param conflationKey key, together with the action, identifying events which supersede each other; null for
+     *                      events which must all be delivered, in order.
+     * @param content JSON content of the event.
+     */
+    public void fireMonitorEventNB(final String action, final String conflationKey, final String content)
+            throws IOException {
+
+        this.fireMonitorFrameNB(new MonitorWebsocketFrame(action, content), conflationKey);
+    }
+
+    /**
+     * Send the given, already-built, frame to the websocket.  Broadcasters build the frame once and pass the same
+     * frame to every websocket.
+     *
+     * @param frame frame to send.
+     * @param conflationKey key, together with the frame's action, for conflation of the frame; null for none.
+     */
+    public void fireMonitorFrameNB(final MonitorWebsocketFrame frame, final String conflationKey) {
         if (this.socketSession == null) {
             log.info("ignoring event; socket session is undefined: sessionId={}", this.socketSessionId);
             return;
         }
 
-        String  msg = "{\"action\": \"" + action + "\", \"data\": " + content + "}";
+        if ( conflationKey == null ) {
+            queueSendToWebsocketNB(null, frame);
+        } else if ( ( this.updateInterval > 0 ) && ( throttleExecutor != null ) ) {
+            throttleUpdateNB(frame.getAction() + ":" + conflationKey, frame);
+        } else {
+            queueSendToWebsocketNB(frame.getAction() + ":" + conflationKey, frame);
+        }
+    }
+
+    /**
+     * Send the given update now if the update interval elapsed since the last release and nothing is held; otherwise
+     * hold it, conflated with any held update with the same key, until the next release.
+     *
+     * @param conflationKey key for conflation of the update.
+     * @param frame update to send.
+     */
+    protected void throttleUpdateNB(String conflationKey, MonitorWebsocketFrame frame) {
+        synchronized ( this.throttleLock ) {
+            long now = this.statsClock.getStatsStopWatchTime();
+
+            if ( ( this.heldUpdates.isEmpty() ) && ( now >= this.nextReleaseTime ) ) {
+                this.nextReleaseTime = now + this.updateInterval;
+                queueSendToWebsocketNB(conflationKey, frame);
+                return;
+            }
 
-        queueSendToWebsocketNB(msg);
+            MonitorWebsocketFrame held = this.heldUpdates.get(conflationKey);
+            if ( held == null ) {
+                this.heldUpdates.put(conflationKey, frame);
+            } else {
+                this.heldUpdates.put(conflationKey, held.conflate(frame));
+            }
+
+            if ( this.releaseSchedule == null ) {
+                this.releaseSchedule = throttleExecutor.schedule(new MyReleaseTask(),
+                        Math.max(0, this.nextReleaseTime - now), TimeUnit.MILLISECONDS);
+            }
+        }
     }
 
     /**
-     * Send the given message to the
-     * @param msg
+     * Queue all of the held updates to send, and start the next update interval.
      */
-    protected void queueSendToWebsocketNB(String msg) {
-        if (this.sendProcess.getPendingStepCount() < MAX_MSG_BACKLOG) {
-            MySendStep sendStep = new MySendStep(msg);
-            this.sendProcess.addStep(sendStep);
-        } else {
-            log.info("websocket backlog is full; aborting connection: sessionId={}", this.socketSessionId);
+    protected void releaseHeldUpdates() {
+        synchronized ( this.throttleLock ) {
+            // No-op when called from the scheduled release itself.
+            if ( this.releaseSchedule != null ) {
+                this.releaseSchedule.cancel(false);
+                this.releaseSchedule = null;
+            }
+
+            if ( this.heldUpdates.isEmpty() ) {
+                return;
+            }
+
+            this.nextReleaseTime = this.statsClock.getStatsStopWatchTime() + this.updateInterval;
+
+            for ( Map.Entry<String, MonitorWebsocketFrame> oneUpdate : this.heldUpdates.entrySet() ) {
+                queueSendToWebsocketNB(oneUpdate.getKey(), oneUpdate.getValue());
+            }
+            this.heldUpdates.clear();
+        }
+    }
+
+    protected void discardHeldUpdates() {
+        synchronized ( this.throttleLock ) {
+            if ( this.releaseSchedule != null ) {
+                this.releaseSchedule.cancel(false);
+                this.releaseSchedule = null;
+            }
+
+            this.heldUpdates.clear();
+        }
+    }
+
+    /**
+     * Queue the given message to send to the websocket.  Only the backlog of messages that cannot be conflated is
+     * limited; once it is full, the client is too far behind to recover and the connection is closed.
+     *
+     * @param conflationKey key for conflation of the message with pending messages, or null.
+     * @param frame frame to send.
+     */
+    protected void queueSendToWebsocketNB(String conflationKey, MonitorWebsocketFrame frame) {
+        switch ( this.sendQueue.offer(conflationKey, frame) ) {
+            case QUEUED:
+                this.sendProcess.addStep(new MySendStep());
+                break;
+
+            case CONFLATED:
+                // The pending send step will pick up the latest message.
+                break;
+
+            default:
+                log.info("websocket backlog is full; aborting connection: sessionId={}", this.socketSessionId);
+
+                this.safeClose();
+        }
+    }
 
-            this.safeClose();
+    /**
+     * Write the given frame to the websocket now, in the encoding currently selected by the client.
+     *
+     * @param frame frame to send to the websocket.
+     */
+    private void writeToWebsocket(MonitorWebsocketFrame frame) throws IOException {
+        Timer.Context sendTime = this.sendTimer.time();
+        try {
+            if ( this.binaryEncoding ) {
+                this.socketSession.getBasicRemote().sendBinary(frame.getBinary());
+            } else {
+                this.socketSession.getBasicRemote().sendText(frame.getText());
+            }
+        } finally {
+            sendTime.stop();
         }
     }
 
     /**
-     * Write the given message to the websocket now.
+     * Register the send latency and backlog depth of this session in the metric registry, if there is one.
      *
-     * @param msg text to send to the websocket.
+     * @param sessionId id of the websocket session.
      */
-    private void writeToWebsocket(String msg) throws IOException {
-        this.socketSession.getBasicRemote().sendText(msg);
+    protected void registerMetrics(String sessionId) {
+        MetricRegistry registrySnapshot = metricRegistry;
+        if ( registrySnapshot == null ) {
+            return;
+        }
+
+        this.sendTimer = registrySnapshot.timer(MetricRegistry.name(MonitorWebsocket.class, sessionId, "send"));
+        registrySnapshot.register(MetricRegistry.name(MonitorWebsocket.class, sessionId, "backlog"),
+                new Gauge<Integer>() {
+                    @Override
+                    public Integer getValue() {
+                        return sendQueue.size();
+                    }
+                });
+    }
+
+    protected void unregisterMetrics(String sessionId) {
+        MetricRegistry registrySnapshot = metricRegistry;
+        if ( registrySnapshot == null ) {
+            return;
+        }
+
+        registrySnapshot.remove(MetricRegistry.name(MonitorWebsocket.class, sessionId, "send"));
+        registrySnapshot.remove(MetricRegistry.name(MonitorWebsocket.class, sessionId, "backlog"));
     }
 
 
@@ -196,19 +481,42 @@ public class MonitorWebsocket {
         this.safeClose();
     }
 
-    protected class MySendStep implements Step {
-        private MonitorWebsocket parent = MonitorWebsocket.this;
-
-        private final String msg;
+    /**
+     * Conflater which lets the pending frame decide how it combines with the newer frame.
+     */
+    protected static class MyFrameConflater implements MonitorWebsocketSendQueue.Conflater<MonitorWebsocketFrame> {
+        @Override
+        public MonitorWebsocketFrame conflate(MonitorWebsocketFrame pending, MonitorWebsocketFrame newer) {
+            return pending.conflate(newer);
+        }
+    }
 
-        public MySendStep(String msg) {
-            this.msg = msg;
+    /**
+     * Task which releases the held updates at the end of the update interval.
+     */
+    protected class MyReleaseTask implements Runnable {
+        @Override
+        public void run() {
+            releaseHeldUpdates();
         }
+    }
+
+    /**
+     * Step which sends the message at the head of the send queue.  One step is added for each message added to the
+     * queue as a new entry.
+     */
+    protected class MySendStep implements Step {
+        private MonitorWebsocket parent = MonitorWebsocket.this;
 
         @Override
         public void execute() {
+            MonitorWebsocketFrame frame = parent.sendQueue.poll();
+            if ( frame == null ) {
+                return;
+            }
+
             try {
-                parent.writeToWebsocket(msg);
+                parent.writeToWebsocket(frame);
             } catch ( IOException ioExc ) {
                 parent.onIoException(ioExc);
             }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encoder of monitor websocket frames in a compact binary form of their JSON, for clients which request it.  Each
+ * value starts with a one-byte type; integers are written as zigzag varints, other numbers as 8-byte IEEE doubles,
+ * and strings, arrays, and objects are prefixed with their varint length.  Field names are written once per frame;
+ * later uses refer back to the first by index.  The frame starts with a version byte, followed by the object
+ * {"action": action, "data": content}.
+ *
+ * Field name references are written as a varint: (index << 1) for a name already written in the frame, or
+ * ((length << 1) | 1) followed by the UTF-8 bytes of a new name, which is assigned the next index.
+ *
+ * Frames are encoded from the JSON tree of their data, which the feed already holds or builds directly from the
+ * statistics, so the JSON text is never parsed back.
+ */
+public class MonitorWebsocketBinaryEncoder {
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int TYPE_NULL = 0;
+    public static final int TYPE_FALSE = 1;
+    public static final int TYPE_TRUE = 2;
+    public static final int TYPE_INTEGER = 3;
+    public static final int TYPE_DOUBLE = 4;
+    public static final int TYPE_STRING = 5;
+    public static final int TYPE_ARRAY = 6;
+    public static final int TYPE_OBJECT = 7;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Map<String, Integer> fieldNames = new HashMap<>();
+
+    /**
+     * Encode the frame with the given action and data.
+     *
+     * @param action name of the event.
+     * @param data JSON tree of the content of the event.
+     * @return the encoded frame.
+     */
+    public static byte[] encodeFrame(String action, JsonElement data) {
+        MonitorWebsocketBinaryEncoder encoder = new MonitorWebsocketBinaryEncoder();
+        encoder.buffer.write(FORMAT_VERSION);
+
+        encoder.buffer.write(TYPE_OBJECT);
+        encoder.writeVarint(2);
+        encoder.writeFieldName("action");
+        encoder.buffer.write(TYPE_STRING);
+        encoder.writeString(action);
+        encoder.writeFieldName("data");
+        encoder.writeValue(data);
+
+        return encoder.buffer.toByteArray();
+    }
+
+    protected void writeValue(JsonElement value) {
+        if ( ( value == null ) || ( value.isJsonNull() ) ) {
+            this.buffer.write(TYPE_NULL);
+        } else if ( value.isJsonObject() ) {
+            JsonObject object = value.getAsJsonObject();
+            this.buffer.write(TYPE_OBJECT);
+            this.writeVarint(object.entrySet().size());
+
+            for ( Map.Entry<String, JsonElement> field : object.entrySet() ) {
+                this.writeFieldName(field.getKey());
+                this.writeValue(field.getValue());
+            }
+        } else if ( value.isJsonArray() ) {
+            JsonArray array = value.getAsJsonArray();
+            this.buffer.write(TYPE_ARRAY);
+            this.writeVarint(array.size());
+
+            for ( JsonElement element : array ) {
+                this.writeValue(element);
+            }
+        } else {
+            this.writePrimitive(value.getAsJsonPrimitive());
+        }
+    }
+
+    protected void writePrimitive(JsonPrimitive value) {
+        if ( value.isBoolean() ) {
+            if ( value.getAsBoolean() ) {
+                this.buffer.write(TYPE_TRUE);
+            } else {
+                this.buffer.write(TYPE_FALSE);
+            }
+        } else if ( value.isNumber() ) {
+            Number number = value.getAsNumber();
+            if ( ( number instanceof Long ) || ( number instanceof Integer ) || ( number instanceof Short ) ||
+                    ( number instanceof Byte ) ) {
+
+                this.writeInteger(number.longValue());
+            } else if ( ( number instanceof Double ) || ( number instanceof Float ) ) {
+                this.writeDouble(number.doubleValue());
+            } else {
+                // Numbers of parsed JSON text and big numbers are written according to their text.
+                this.writeNumber(value.getAsString());
+            }
+        } else {
+            this.buffer.write(TYPE_STRING);
+            this.writeString(value.getAsString());
+        }
+    }
+
+    /**
+     * Write the number with the given JSON text, as an integer when it is one that fits in a long.
+     */
+    protected void writeNumber(String text) {
+        if ( ( text.indexOf('.') == -1 ) && ( text.indexOf('e') == -1 ) && ( text.indexOf('E') == -1 ) ) {
+            try {
+                this.writeInteger(Long.parseLong(text));
+                return;
+            } catch ( NumberFormatException nfExc ) {
+                // Too large for a long; fall through and write it as a double.
+            }
+        }
+
+        this.writeDouble(Double.parseDouble(text));
+    }
+
+    protected void writeInteger(long number) {
+        this.buffer.write(TYPE_INTEGER);
+        this.writeVarint(( number << 1 ) ^ ( number >> 63 ));
+    }
+
+    protected void writeDouble(double number) {
+        long bits = Double.doubleToLongBits(number);
+        this.buffer.write(TYPE_DOUBLE);
+        for ( int shift = 56; shift >= 0; shift -= 8 ) {
+            this.buffer.write((int) ( bits >>> shift ));
+        }
+    }
+
+    protected void writeFieldName(String name) {
+        Integer index = this.fieldNames.get(name);
+        if ( index != null ) {
+            this.writeVarint(index << 1);
+            return;
+        }
+
+        this.fieldNames.put(name, this.fieldNames.size());
+
+        byte[] bytes = name.getBytes(UTF8);
+        this.writeVarint(( bytes.length << 1 ) | 1);
+        this.buffer.write(bytes, 0, bytes.length);
+    }
+
+    protected void writeString(String value) {
+        byte[] bytes = value.getBytes(UTF8);
+        this.writeVarint(bytes.length);
+        this.buffer.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write the given value as an unsigned varint: 7 bits per byte, least significant first, with the high bit set
+     * on all but the last byte.
+     */
+    protected void writeVarint(long value) {
+        long remaining = value;
+        while ( ( remaining & ~0x7FL ) != 0 ) {
+            this.buffer.write((int) ( ( remaining & 0x7F ) | 0x80 ));
+            remaining >>>= 7;
+        }
+        this.buffer.write((int) remaining);
+    }
+}
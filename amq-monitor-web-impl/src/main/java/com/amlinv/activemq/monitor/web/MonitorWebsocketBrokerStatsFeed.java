@@ -17,20 +17,67 @@
 package com.amlinv.activemq.monitor.web;
 
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitStateListener;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitStatus;
+import com.amlinv.activemq.monitor.alert.AlertEvent;
+import com.amlinv.activemq.monitor.alert.AlertListener;
 import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
 import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import com.amlinv.activemq.stats.QueueRankingMetric;
 import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.stats.QueueStatisticsSnapshot;
 import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
+ * Feed of broker and queue statistics to the monitor websocket clients.
+ *
+ * Queue statistics are sent in one of two modes.  By default, every update sends the full statistics of all queues
+ * in a "queueStats" event.  In delta mode, clients instead receive a "queueStatsSnapshot" event, with a sequence
+ * number, when they connect or request a resync, and "queueStatsDelta" events after each update carrying only the
+ * queues and fields which changed plus the names of removed queues.  Each delta's sequence number is one more than
+ * the prior.  A slow client's pending delta is merged with the next one, and the merged delta carries the sequence
+ * number it applies to (see MonitorWebsocketQueueStatsDeltaFrame).  A client detecting a gap sends a
+ * "queueStatsResync" request and receives a new snapshot.
+ *
+ * Clients may limit the events they receive by sending a "subscribe" message listing queue name patterns, broker
+ * names, and event types; for example {"action": "subscribe", "queues": ["orders.*"], "events": ["queueStats"]}.
+ * Omitted lists match everything.  Each event is filtered and serialized once per distinct subscription, and the
+ * resulting frame is shared by all of the clients with that subscription.
+ *
+ * Clients may also request a maximum update frequency by sending {"action": "setUpdateInterval", "interval": ms}.
+ * The interval is limited to the configured minimum and maximum, and the interval granted is returned to the client
+ * in an "updateInterval" event.  Updates to the client are then sent at most once per interval, conflated to the
+ * latest state; in delta mode, the deltas held for a throttled client are merged, so it stays in sequence.
+ *
+ * Events are sent as JSON text unless the client sends {"action": "setEncoding", "encoding": "binary"}, after which
+ * they are sent as binary frames (see MonitorWebsocketBinaryEncoder), if binary encoding is allowed.  The encoding
+ * granted is returned to the client in an "encoding" event.
+ *
  * Created by art on 5/14/15.
  */
-public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerListener {
+public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerListener, BrokerCircuitStateListener,
+        AlertListener {
     private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(MonitorWebsocketBrokerStatsFeed.class);
 
     private Logger log = DEFAULT_LOGGER;
@@ -40,9 +87,52 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
     private Gson gson = new GsonBuilder().create();
 
     private DestinationRegistryListener myQueueRegistryListener = new MyQueueRegistryListener();
+    private MonitorWebsocketClientListener myClientListener = new MyClientListener();
 
     private QueueStatisticsRegistry queueStatisticsRegistry;
 
+    private boolean queueStatsDeltaMode = false;
+
+    /**
+     * Limits, in milliseconds, of the update interval granted to clients.  The minimum also applies to clients which
+     * never request an interval; 0 leaves them unthrottled.
+     */
+    private long minClientUpdateInterval = 0;
+    private long maxClientUpdateInterval = 300000;
+
+    /**
+     * Whether clients may select binary encoding of their events.
+     */
+    private boolean binaryEncodingAllowed = true;
+
+    /**
+     * Number of queues sent for each ranking metric in "topQueues" events; 0 disables the events.  The last event
+     * sent is kept, guarded by topQueuesLock, so an unchanged ranking is not sent again.
+     */
+    private int topQueuesLimit = 0;
+    private final Object topQueuesLock = new Object();
+    private String lastTopQueuesJson;
+
+    /**
+     * Registry of the time taken to serialize, and the size in characters of, each type of statistics event;
+     * private to this feed unless a shared registry is supplied.
+     */
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    /**
+     * Cache of the serialized statistics of each queue, in queue name order, maintained from the registry's snapshot
+     * updates so only changed queues are re-serialized.  The JSON tree of each queue's statistics is also kept, for
+     * comparison in delta mode and for binary encoding.  The version counts the changes to the cache, so a tree
+     * requested after a frame was built can be checked against the frame's content.  Guarded by queueStatsJsonLock.
+     */
+    private final Object queueStatsJsonLock = new Object();
+    private final Map<String, String> queueStatsJsonFragments = new TreeMap<>();
+    private final Map<String, JsonObject> queueStatsJsonTrees = new HashMap<>();
+    private String queueStatsJson;
+    private JsonObject queueStatsTree;
+    private long queueStatsSeq = 0;
+    private long queueStatsVersion = 0;
+
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     //
     // METHODS
@@ -61,6 +151,50 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
         return myQueueRegistryListener;
     }
 
+    public MonitorWebsocketClientListener getClientListener() {
+        return myClientListener;
+    }
+
+    public boolean isQueueStatsDeltaMode() {
+        return queueStatsDeltaMode;
+    }
+
+    public void setQueueStatsDeltaMode(boolean queueStatsDeltaMode) {
+        this.queueStatsDeltaMode = queueStatsDeltaMode;
+    }
+
+    public long getMinClientUpdateInterval() {
+        return minClientUpdateInterval;
+    }
+
+    public void setMinClientUpdateInterval(long minClientUpdateInterval) {
+        this.minClientUpdateInterval = minClientUpdateInterval;
+    }
+
+    public long getMaxClientUpdateInterval() {
+        return maxClientUpdateInterval;
+    }
+
+    public void setMaxClientUpdateInterval(long maxClientUpdateInterval) {
+        this.maxClientUpdateInterval = maxClientUpdateInterval;
+    }
+
+    public boolean isBinaryEncodingAllowed() {
+        return binaryEncodingAllowed;
+    }
+
+    public void setBinaryEncodingAllowed(boolean binaryEncodingAllowed) {
+        this.binaryEncodingAllowed = binaryEncodingAllowed;
+    }
+
+    public int getTopQueuesLimit() {
+        return topQueuesLimit;
+    }
+
+    public void setTopQueuesLimit(int topQueuesLimit) {
+        this.topQueuesLimit = topQueuesLimit;
+    }
+
     public QueueStatisticsRegistry getQueueStatisticsRegistry() {
         return queueStatisticsRegistry;
     }
@@ -69,6 +203,14 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
         this.queueStatisticsRegistry = queueStatisticsRegistry;
     }
 
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
     public Logger getLog() {
         return log;
     }
@@ -86,7 +228,33 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
         onBrokerStatsUpdate(brokerStatsPackage);
     }
 
-    protected void onBrokerStatsUpdate (BrokerStatsPackage brokerStatsPackage) {
+    /**
+     * Send the new circuit breaker state of a broker to all clients in a "brokerCircuitState" event, conflated per
+     * broker so slow clients only receive the latest state.
+     *
+     * @param status new state of the broker's circuit.
+     */
+    @Override
+    public void onBrokerCircuitStateChange(BrokerCircuitStatus status) {
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("brokerCircuitState", gson.toJson(status), status);
+
+        fireMonitorFramesNB("brokerCircuitState", status.getBrokerName(),
+                new MatchingFrame(status.getBrokerName(), null, frame));
+    }
+
+    /**
+     * Send an alert, which started firing or was resolved, to all clients in an "alert" event.  Alerts are not
+     * conflated so clients see every change.
+     *
+     * @param event the alert event.
+     */
+    @Override
+    public void onAlert(AlertEvent event) {
+        fireMonitorFramesNB("alert", null, new MatchingFrame(event.getBrokerName(), event.getQueueName(),
+                new MonitorWebsocketFrame("alert", gson.toJson(event), event)));
+    }
+
+    protected void onBrokerStatsUpdate (final BrokerStatsPackage brokerStatsPackage) {
         //
         // Update the metrics for the queues for which statistics were collected.
         //
@@ -94,22 +262,618 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
             this.queueStatisticsRegistry.onUpdatedStats(brokerQueueStats);
         }
 
-        String brokerStatsJson = gson.toJson(brokerStatsPackage);
-        fireMonitorEventNB("brokerStats", brokerStatsJson);
+        final String brokerName = brokerStatsPackage.getBrokerStats().getBrokerName();
+        //
+        // The poller reuses the package for its next poll, so build the trees now rather than letting the frames
+        // convert it lazily.
+        //
+        final JsonElement brokerStatsTree;
+        final String brokerStatsJson;
+        Timer.Context brokerStatsTime = this.getSerializationTimer("brokerStats").time();
+        try {
+            brokerStatsTree = gson.toJsonTree(brokerStatsPackage);
+            brokerStatsJson = gson.toJson(brokerStatsTree);
+        } finally {
+            brokerStatsTime.stop();
+        }
+        fireMonitorFramesNB("brokerStats", brokerName, new SubscriptionFrame() {
+            @Override
+            public MonitorWebsocketFrame getFrame(MonitorWebsocketSubscription subscription) {
+                if ( ! subscription.matchesBroker(brokerName) ) {
+                    return null;
+                }
+                if ( subscription.isAllQueues() ) {
+                    return new MonitorWebsocketFrame("brokerStats", brokerStatsJson, brokerStatsTree);
+                }
+
+                JsonElement filtered = gson.toJsonTree(filterBrokerStatsPackage(brokerStatsPackage, subscription));
+                return new MonitorWebsocketFrame("brokerStats", gson.toJson(filtered), filtered);
+            }
+        });
 
         // TBD: not every time (use a timer and/or check for all polled brokers reporting in)
-        String queueStatsJson = gson.toJson(queueStatisticsRegistry.getQueueStats());
-        fireMonitorEventNB("queueStats", queueStatsJson);
+        if ( this.queueStatsDeltaMode ) {
+            //
+            // Send while holding the lock so every client receives the deltas in sequence order, and any snapshot sent
+            // for a resync is ordered correctly relative to the deltas.
+            //
+            synchronized ( this.queueStatsJsonLock ) {
+                final JsonObject queueStatsDelta;
+                final MonitorWebsocketQueueStatsDeltaFrame queueStatsDeltaFrame;
+                Timer.Context queueStatsTime = this.getSerializationTimer("queueStatsDelta").time();
+                try {
+                    queueStatsDelta = this.prepareQueueStatsDelta();
+                    if ( queueStatsDelta == null ) {
+                        queueStatsDeltaFrame = null;
+                    } else {
+                        queueStatsDeltaFrame = new MonitorWebsocketQueueStatsDeltaFrame(queueStatsDelta);
+                    }
+                } finally {
+                    queueStatsTime.stop();
+                }
+
+                if ( queueStatsDelta != null ) {
+                    fireMonitorFramesNB(MonitorWebsocketQueueStatsDeltaFrame.ACTION, "", new SubscriptionFrame() {
+                        @Override
+                        public MonitorWebsocketFrame getFrame(MonitorWebsocketSubscription subscription) {
+                            if ( subscription.isAllQueues() ) {
+                                return queueStatsDeltaFrame;
+                            }
+
+                            return new MonitorWebsocketQueueStatsDeltaFrame(
+                                    filterQueueStatsDelta(queueStatsDelta, subscription));
+                        }
+                    });
+                }
+            }
+        } else {
+            final MonitorWebsocketFrame queueStatsFrame;
+            Timer.Context queueStatsTime = this.getSerializationTimer("queueStats").time();
+            try {
+                synchronized ( this.queueStatsJsonLock ) {
+                    queueStatsFrame = new MonitorWebsocketFrame("queueStats", this.prepareQueueStatsJson(),
+                            this.prepareQueueStatsTreeSupplier(MonitorWebsocketSubscription.ALL));
+                }
+            } finally {
+                queueStatsTime.stop();
+            }
+            fireMonitorFramesNB("queueStats", "", new SubscriptionFrame() {
+                @Override
+                public MonitorWebsocketFrame getFrame(MonitorWebsocketSubscription subscription) {
+                    if ( subscription.isAllQueues() ) {
+                        return queueStatsFrame;
+                    }
+
+                    synchronized ( queueStatsJsonLock ) {
+                        return new MonitorWebsocketFrame("queueStats", assembleQueueStatsJson(subscription),
+                                prepareQueueStatsTreeSupplier(subscription));
+                    }
+                }
+            });
+        }
+
+        if ( this.topQueuesLimit > 0 ) {
+            this.sendTopQueues();
+        }
     }
 
-    protected void fireMonitorEventNB(final String action, final String content) {
-        for ( final MonitorWebsocket oneTarget : this.websocketRegistry.values() ) {
+    /**
+     * Send the top queues by each ranking metric in a "topQueues" event, keyed by metric name, unless unchanged since
+     * the last event.  Only the names and values of the top queues are sent, so the size of the event is independent
+     * of the number of queues.
+     */
+    protected void sendTopQueues() {
+        synchronized ( this.topQueuesLock ) {
+            JsonObject topQueues = new JsonObject();
+            String topQueuesJson;
+            Timer.Context serializationTime = this.getSerializationTimer("topQueues").time();
+            try {
+                for ( QueueRankingMetric oneMetric : QueueRankingMetric.values() ) {
+                    topQueues.add(oneMetric.getMetricName(), gson.toJsonTree(
+                            this.queueStatisticsRegistry.getTopQueues(oneMetric, this.topQueuesLimit)));
+                }
+
+                topQueuesJson = gson.toJson(topQueues);
+            } finally {
+                serializationTime.stop();
+            }
+
+            if ( ! topQueuesJson.equals(this.lastTopQueuesJson) ) {
+                this.lastTopQueuesJson = topQueuesJson;
+                MonitorWebsocketFrame frame = new MonitorWebsocketFrame("topQueues", topQueuesJson, topQueues);
+                fireMonitorFramesNB("topQueues", "", new MatchingFrame(null, null, frame));
+            }
+        }
+    }
+
+    /**
+     * Bring the cached queue statistics JSON up-to-date with the registry, re-serializing only the queues which
+     * changed since the last call.  The result is identical to serializing the full map of queue statistics.
+     *
+     * @return JSON object of statistics keyed by queue name.
+     */
+    protected String prepareQueueStatsJson() {
+        synchronized ( this.queueStatsJsonLock ) {
+            QueueStatisticsSnapshot snapshot = this.queueStatisticsRegistry.updateSnapshot();
+
+            for ( String removedQueueName : snapshot.getRemovedQueueNames() ) {
+                this.queueStatsJsonFragments.remove(removedQueueName);
+                this.queueStatsJsonTrees.remove(removedQueueName);
+                this.invalidateFullQueueStats();
+            }
+
+            for ( Map.Entry<String, ActiveMQQueueStats> changed : snapshot.getChangedQueueStats().entrySet() ) {
+                JsonObject newTree = gson.toJsonTree(changed.getValue()).getAsJsonObject();
+                this.queueStatsJsonTrees.put(changed.getKey(), newTree);
+
+                this.queueStatsJsonFragments.put(changed.getKey(), gson.toJson(newTree));
+                this.invalidateFullQueueStats();
+            }
+
+            return this.getFullQueueStatsJson();
+        }
+    }
+
+    /**
+     * Bring the cached queue statistics up-to-date with the registry, and prepare the delta of the changes for the
+     * next sequence number.
+     *
+     * @return the delta, or null if nothing changed.
+     */
+    protected JsonObject prepareQueueStatsDelta() {
+        synchronized ( this.queueStatsJsonLock ) {
+            QueueStatisticsSnapshot snapshot = this.queueStatisticsRegistry.updateSnapshot();
+
+            JsonObject changedQueues = new JsonObject();
+            JsonArray removedQueues = new JsonArray();
+
+            for ( String removedQueueName : snapshot.getRemovedQueueNames() ) {
+                this.queueStatsJsonFragments.remove(removedQueueName);
+                this.queueStatsJsonTrees.remove(removedQueueName);
+                this.invalidateFullQueueStats();
+
+                removedQueues.add(new JsonPrimitive(removedQueueName));
+            }
+
+            for ( Map.Entry<String, ActiveMQQueueStats> changed : snapshot.getChangedQueueStats().entrySet() ) {
+                JsonObject newTree = gson.toJsonTree(changed.getValue()).getAsJsonObject();
+                JsonObject oldTree = this.queueStatsJsonTrees.put(changed.getKey(), newTree);
+
+                this.queueStatsJsonFragments.put(changed.getKey(), gson.toJson(newTree));
+                this.invalidateFullQueueStats();
+
+                JsonObject changedFields = this.diffFields(oldTree, newTree);
+                if ( ! changedFields.entrySet().isEmpty() ) {
+                    changedQueues.add(changed.getKey(), changedFields);
+                }
+            }
+
+            if ( ( changedQueues.entrySet().isEmpty() ) && ( removedQueues.size() == 0 ) ) {
+                return null;
+            }
+
+            this.queueStatsSeq++;
+
+            JsonObject delta = new JsonObject();
+            delta.addProperty("seq", this.queueStatsSeq);
+            delta.add("changed", changedQueues);
+            delta.add("removed", removedQueues);
+
+            return delta;
+        }
+    }
+
+    /**
+     * Reduce the given delta to the queues matching the subscription.  The sequence number is kept, so clients of
+     * every subscription receive each delta and can detect gaps.
+     *
+     * @param delta full delta of the changes.
+     * @param subscription subscription of the clients to receive the delta.
+     * @return delta containing only the changed and removed queues matching the subscription.
+     */
+    protected JsonObject filterQueueStatsDelta(JsonObject delta, MonitorWebsocketSubscription subscription) {
+        JsonObject changedQueues = new JsonObject();
+        for ( Map.Entry<String, JsonElement> changed : delta.getAsJsonObject("changed").entrySet() ) {
+            if ( subscription.matchesQueue(changed.getKey()) ) {
+                changedQueues.add(changed.getKey(), changed.getValue());
+            }
+        }
+
+        JsonArray removedQueues = new JsonArray();
+        for ( JsonElement removed : delta.getAsJsonArray("removed") ) {
+            if ( subscription.matchesQueue(removed.getAsString()) ) {
+                removedQueues.add(removed);
+            }
+        }
+
+        JsonObject result = new JsonObject();
+        result.add("seq", delta.get("seq"));
+        result.add("changed", changedQueues);
+        result.add("removed", removedQueues);
+
+        return result;
+    }
+
+    /**
+     * Reduce the queue statistics of the given broker statistics to the queues matching the subscription.
+     *
+     * @param brokerStatsPackage full statistics of the broker.
+     * @param subscription subscription of the clients to receive the statistics.
+     * @return statistics of the broker with only the queues matching the subscription.
+     */
+    protected BrokerStatsPackage filterBrokerStatsPackage(BrokerStatsPackage brokerStatsPackage,
+                                                          MonitorWebsocketSubscription subscription) {
+
+        Map<String, ActiveMQQueueJmxStats> queueStats = new LinkedHashMap<>();
+        for ( Map.Entry<String, ActiveMQQueueJmxStats> oneQueue : brokerStatsPackage.getQueueStats().entrySet() ) {
+            if ( subscription.matchesQueue(oneQueue.getKey()) ) {
+                queueStats.put(oneQueue.getKey(), oneQueue.getValue());
+            }
+        }
+
+        return new BrokerStatsPackage(brokerStatsPackage.getBrokerStats(), queueStats);
+    }
+
+    /**
+     * Prepare a full snapshot of the queue statistics, as of the latest delta sequence number.
+     *
+     * @return JSON of the snapshot.
+     */
+    protected String prepareQueueStatsSnapshotJson() {
+        return this.prepareQueueStatsSnapshotJson(MonitorWebsocketSubscription.ALL);
+    }
+
+    /**
+     * Prepare a snapshot of the statistics of the queues matching the given subscription, as of the latest delta
+     * sequence number.
+     *
+     * @param subscription subscription of the client to receive the snapshot.
+     * @return JSON of the snapshot.
+     */
+    protected String prepareQueueStatsSnapshotJson(MonitorWebsocketSubscription subscription) {
+        synchronized ( this.queueStatsJsonLock ) {
+            String queuesJson;
+            if ( subscription.isAllQueues() ) {
+                queuesJson = this.getFullQueueStatsJson();
+            } else {
+                queuesJson = this.assembleQueueStatsJson(subscription);
+            }
+
+            return "{\"seq\":" + this.queueStatsSeq + ",\"queues\":" + queuesJson + "}";
+        }
+    }
+
+    /**
+     * Prepare the JSON tree of the snapshot given by prepareQueueStatsSnapshotJson(), for binary encoding.  Must be
+     * called holding queueStatsJsonLock.
+     */
+    private JsonObject prepareQueueStatsSnapshotTree(MonitorWebsocketSubscription subscription) {
+        JsonObject result = new JsonObject();
+        result.addProperty("seq", this.queueStatsSeq);
+        if ( subscription.isAllQueues() ) {
+            result.add("queues", this.getFullQueueStatsTree());
+        } else {
+            result.add("queues", this.assembleQueueStatsTree(subscription));
+        }
+
+        return result;
+    }
+
+    /**
+     * Send a snapshot of the queue statistics to the given client only.
+     *
+     * @param websocket websocket of the client.
+     */
+    protected void sendQueueStatsSnapshot(MonitorWebsocket websocket) {
+        synchronized ( this.queueStatsJsonLock ) {
             try {
-                oneTarget.fireMonitorEventNB(action, content);
-            } catch (Exception exc) {
-                log.info("error attempting to send event to listener", exc);
+                String snapshotJson;
+                JsonObject snapshotTree;
+                Timer.Context serializationTime = this.getSerializationTimer("queueStatsSnapshot").time();
+                try {
+                    snapshotJson = this.prepareQueueStatsSnapshotJson(websocket.getSubscription());
+                    snapshotTree = this.prepareQueueStatsSnapshotTree(websocket.getSubscription());
+                } finally {
+                    serializationTime.stop();
+                }
+
+                this.getPayloadSizeHistogram("queueStatsSnapshot").update(snapshotJson.length());
+                websocket.fireMonitorFrameNB(new MonitorWebsocketFrame("queueStatsSnapshot", snapshotJson,
+                        snapshotTree), null);
+            } catch ( Exception exc ) {
+                log.info("error attempting to send queue stats snapshot to listener", exc);
+            }
+        }
+    }
+
+    /**
+     * Return the JSON of the statistics of all the queues, assembling it from the per-queue fragments if any changed.
+     * Must be called holding queueStatsJsonLock.
+     */
+    private String getFullQueueStatsJson() {
+        if ( this.queueStatsJson == null ) {
+            this.queueStatsJson = this.assembleQueueStatsJson(MonitorWebsocketSubscription.ALL);
+        }
+
+        return this.queueStatsJson;
+    }
+
+    /**
+     * Return the JSON tree of the statistics of all the queues, assembling it from the per-queue trees if any changed.
+     * Must be called holding queueStatsJsonLock.
+     */
+    private JsonObject getFullQueueStatsTree() {
+        if ( this.queueStatsTree == null ) {
+            this.queueStatsTree = this.assembleQueueStatsTree(MonitorWebsocketSubscription.ALL);
+        }
+
+        return this.queueStatsTree;
+    }
+
+    /**
+     * Drop the assembled statistics of all the queues after a change to those of any queue.  Must be called holding
+     * queueStatsJsonLock.
+     */
+    private void invalidateFullQueueStats() {
+        this.queueStatsJson = null;
+        this.queueStatsTree = null;
+        this.queueStatsVersion++;
+    }
+
+    /**
+     * Prepare a supplier of the JSON tree of the statistics of the queues matching the given subscription, as they
+     * are now, for a frame only encoded in binary form if a client uses binary encoding.  The supplier gives null once
+     * the statistics change, so the frame's content is parsed instead.  Must be called holding queueStatsJsonLock.
+     */
+    private MonitorWebsocketFrame.DataTreeSupplier prepareQueueStatsTreeSupplier(
+            final MonitorWebsocketSubscription subscription) {
+
+        final long version = this.queueStatsVersion;
+
+        return new MonitorWebsocketFrame.DataTreeSupplier() {
+            @Override
+            public JsonElement getDataTree() {
+                synchronized ( queueStatsJsonLock ) {
+                    if ( version != queueStatsVersion ) {
+                        return null;
+                    }
+
+                    if ( subscription.isAllQueues() ) {
+                        return getFullQueueStatsTree();
+                    }
+
+                    return assembleQueueStatsTree(subscription);
+                }
+            }
+        };
+    }
+
+    /**
+     * Assemble the JSON tree of the statistics of the queues matching the given subscription from the per-queue
+     * trees, in queue name order.  The per-queue trees are shared, not copied, since they are replaced rather than
+     * modified.  Must be called holding queueStatsJsonLock.
+     */
+    private JsonObject assembleQueueStatsTree(MonitorWebsocketSubscription subscription) {
+        JsonObject result = new JsonObject();
+        for ( String queueName : this.queueStatsJsonFragments.keySet() ) {
+            if ( subscription.matchesQueue(queueName) ) {
+                result.add(queueName, this.queueStatsJsonTrees.get(queueName));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Assemble the JSON of the statistics of the queues matching the given subscription from the per-queue
+     * fragments.  Must be called holding queueStatsJsonLock.
+     */
+    private String assembleQueueStatsJson(MonitorWebsocketSubscription subscription) {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append('{');
+        for ( Map.Entry<String, String> fragment : this.queueStatsJsonFragments.entrySet() ) {
+            if ( subscription.matchesQueue(fragment.getKey()) ) {
+                if ( buffer.length() > 1 ) {
+                    buffer.append(',');
+                }
+                buffer.append(gson.toJson(fragment.getKey())).append(':').append(fragment.getValue());
             }
         }
+        buffer.append('}');
+
+        return buffer.toString();
+    }
+
+    /**
+     * Determine the fields of the new statistics which differ from the old statistics.
+     *
+     * @param oldTree prior statistics, or null if there are none.
+     * @param newTree updated statistics.
+     * @return object containing the fields with changed values.
+     */
+    private JsonObject diffFields(JsonObject oldTree, JsonObject newTree) {
+        JsonObject result = new JsonObject();
+
+        for ( Map.Entry<String, JsonElement> field : newTree.entrySet() ) {
+            JsonElement oldValue = null;
+            if ( oldTree != null ) {
+                oldValue = oldTree.get(field.getKey());
+            }
+
+            if ( ! field.getValue().equals(oldValue) ) {
+                result.add(field.getKey(), field.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Replace the subscription of the client with the one in the given "subscribe" message.  In delta mode, the
+     * client is sent a new snapshot, since the set of queues it receives may have changed.
+     *
+     * @param websocket websocket of the client.
+     * @param message the subscribe message.
+     */
+    protected void onClientSubscribe(MonitorWebsocket websocket, JsonObject message) {
+        MonitorWebsocketSubscription subscription;
+        try {
+            subscription = new MonitorWebsocketSubscription(this.parseStringList(message, "queues"),
+                    this.parseStringList(message, "brokers"), this.parseStringList(message, "events"));
+        } catch ( IllegalStateException | UnsupportedOperationException | ClassCastException exc ) {
+            log.debug("ignoring invalid client subscription: msg={}", message, exc);
+            return;
+        }
+
+        websocket.setSubscription(subscription);
+        log.debug("updated client subscription: {}", subscription);
+
+        if ( ( this.queueStatsDeltaMode ) && ( subscription.matchesEvent("queueStatsDelta") ) ) {
+            this.sendQueueStatsSnapshot(websocket);
+        }
+    }
+
+    /**
+     * Grant the client the update interval requested in the given "setUpdateInterval" message, within the configured
+     * limits, and notify the client of the interval granted.
+     *
+     * @param websocket websocket of the client.
+     * @param message the setUpdateInterval message.
+     */
+    protected void onClientSetUpdateInterval(MonitorWebsocket websocket, JsonObject message) {
+        JsonElement interval = message.get("interval");
+        long requested = -1;
+        if ( ( interval != null ) && ( interval.isJsonPrimitive() ) ) {
+            try {
+                requested = interval.getAsLong();
+            } catch ( NumberFormatException nfExc ) {
+                log.debug("invalid client update interval", nfExc);
+            }
+        }
+
+        if ( requested < 0 ) {
+            log.debug("ignoring invalid client update interval: msg={}", message);
+            return;
+        }
+
+        long granted = Math.min(Math.max(requested, this.minClientUpdateInterval), this.maxClientUpdateInterval);
+        websocket.setUpdateInterval(granted);
+
+        log.debug("set client update interval: requested={}; granted={}", requested, granted);
+
+        JsonObject reply = new JsonObject();
+        reply.addProperty("interval", granted);
+        try {
+            websocket.fireMonitorFrameNB(new MonitorWebsocketFrame("updateInterval", gson.toJson(reply), reply), null);
+        } catch ( Exception exc ) {
+            log.info("error attempting to send update interval to listener", exc);
+        }
+    }
+
+    /**
+     * Select the encoding of events requested in the given "setEncoding" message, either "json" or "binary", and
+     * notify the client of the encoding granted.  Binary is only granted if allowed.
+     *
+     * @param websocket websocket of the client.
+     * @param message the setEncoding message.
+     */
+    protected void onClientSetEncoding(MonitorWebsocket websocket, JsonObject message) {
+        JsonElement encoding = message.get("encoding");
+        String requested = null;
+        if ( ( encoding != null ) && ( encoding.isJsonPrimitive() ) ) {
+            requested = encoding.getAsString();
+        }
+
+        if ( ( ! "json".equals(requested) ) && ( ! "binary".equals(requested) ) ) {
+            log.debug("ignoring invalid client encoding: msg={}", message);
+            return;
+        }
+
+        boolean binary = ( "binary".equals(requested) ) && ( this.binaryEncodingAllowed );
+        websocket.setBinaryEncoding(binary);
+
+        log.debug("set client encoding: requested={}; binary={}", requested, binary);
+
+        JsonObject reply = new JsonObject();
+        if ( binary ) {
+            reply.addProperty("encoding", "binary");
+        } else {
+            reply.addProperty("encoding", "json");
+        }
+        try {
+            websocket.fireMonitorFrameNB(new MonitorWebsocketFrame("encoding", gson.toJson(reply), reply), null);
+        } catch ( Exception exc ) {
+            log.info("error attempting to send encoding to listener", exc);
+        }
+    }
+
+    /**
+     * Parse the named array of strings in the given message.
+     *
+     * @return the strings; empty if the message has no such member.
+     */
+    private List<String> parseStringList(JsonObject message, String name) {
+        List<String> result = new ArrayList<>();
+
+        JsonElement element = message.get(name);
+        if ( ( element != null ) && ( ! element.isJsonNull() ) ) {
+            for ( JsonElement oneValue : element.getAsJsonArray() ) {
+                result.add(oneValue.getAsString());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Send the frames of the event to all websocket clients subscribed to it.  Statistics events carry the latest full
+     * state, so they are sent with a conflation key allowing a slow client to skip stale ones: the broker name for
+     * broker stats, and a single key for the queue stats.  Queue added and removed events are not conflated.
+     *
+     * The frame is built once for each distinct subscription and shared by all of the clients with that subscription.
+     */
+    protected void fireMonitorFramesNB(final String action, final String conflationKey,
+                                       final SubscriptionFrame frameSource) {
+
+        Map<MonitorWebsocketSubscription, MonitorWebsocketFrame> frames = new HashMap<>();
+
+        for ( final MonitorWebsocket oneTarget : this.websocketRegistry.values() ) {
+            MonitorWebsocketSubscription subscription = oneTarget.getSubscription();
+            if ( ! subscription.matchesEvent(action) ) {
+                continue;
+            }
+
+            MonitorWebsocketFrame frame;
+            if ( frames.containsKey(subscription) ) {
+                frame = frames.get(subscription);
+            } else {
+                frame = frameSource.getFrame(subscription);
+                if ( frame != null ) {
+                    this.getPayloadSizeHistogram(action).update(frame.getText().length());
+                }
+
+                // Remember subscriptions with nothing to send too, so their content is not prepared again.
+                frames.put(subscription, frame);
+            }
+
+            if ( frame != null ) {
+                try {
+                    oneTarget.fireMonitorFrameNB(frame, conflationKey);
+                } catch (Exception exc) {
+                    log.info("error attempting to send event to listener", exc);
+                }
+            }
+        }
+    }
+
+    protected Timer getSerializationTimer(String action) {
+        return this.metricRegistry.timer(MetricRegistry.name(MonitorWebsocketBrokerStatsFeed.class, action,
+                "serialization"));
+    }
+
+    protected Histogram getPayloadSizeHistogram(String action) {
+        return this.metricRegistry.histogram(MetricRegistry.name(MonitorWebsocketBrokerStatsFeed.class, action,
+                "payloadSize"));
     }
 
     /**
@@ -120,7 +884,8 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
         public void onPutEntry(String putKey, DestinationState putValue) {
             String queueNameJson = gson.toJson(putValue.getName());
 
-            fireMonitorEventNB("queueAdded", queueNameJson);
+            fireMonitorFramesNB("queueAdded", null, new MatchingFrame(null, putValue.getName(),
+                    new MonitorWebsocketFrame("queueAdded", queueNameJson, putValue.getName())));
         }
 
         @Override
@@ -130,11 +895,102 @@ public class MonitorWebsocketBrokerStatsFeed implements ActiveMQBrokerPollerList
             //
             String queueNameJson = gson.toJson(removeValue.getName());
 
-            fireMonitorEventNB("queueRemoved", queueNameJson);
+            fireMonitorFramesNB("queueRemoved", null, new MatchingFrame(null, removeValue.getName(),
+                    new MonitorWebsocketFrame("queueRemoved", queueNameJson, removeValue.getName())));
         }
 
         @Override
         public void onReplaceEntry(String replaceKey, DestinationState oldValue, DestinationState newValue) {
         }
     }
+
+    /**
+     * Listener for websocket clients; sends the snapshot needed to start applying deltas.
+     */
+    protected class MyClientListener implements MonitorWebsocketClientListener {
+        @Override
+        public void onClientOpen(MonitorWebsocket websocket) {
+            if ( minClientUpdateInterval > 0 ) {
+                websocket.setUpdateInterval(minClientUpdateInterval);
+            }
+
+            if ( queueStatsDeltaMode ) {
+                sendQueueStatsSnapshot(websocket);
+            }
+        }
+
+        @Override
+        public void onClientMessage(MonitorWebsocket websocket, String msg) {
+            JsonObject message = null;
+            String action = null;
+            try {
+                JsonElement parsed = gson.fromJson(msg, JsonElement.class);
+                if ( ( parsed != null ) && ( parsed.isJsonObject() ) && ( parsed.getAsJsonObject().has("action") ) ) {
+                    message = parsed.getAsJsonObject();
+                    action = message.get("action").getAsString();
+                }
+            } catch ( JsonParseException | IllegalStateException | UnsupportedOperationException exc ) {
+                log.debug("ignoring unrecognized client message: msg={}", msg, exc);
+                return;
+            }
+
+            if ( "queueStatsResync".equals(action) ) {
+                if ( queueStatsDeltaMode ) {
+                    sendQueueStatsSnapshot(websocket);
+                } else {
+                    log.debug("ignoring queue stats resync request; delta mode is disabled");
+                }
+            } else if ( "subscribe".equals(action) ) {
+                onClientSubscribe(websocket, message);
+            } else if ( "setUpdateInterval".equals(action) ) {
+                onClientSetUpdateInterval(websocket, message);
+            } else if ( "setEncoding".equals(action) ) {
+                onClientSetEncoding(websocket, message);
+            }
+        }
+    }
+
+    /**
+     * Frame of an event built for the clients of one subscription.
+     */
+    protected interface SubscriptionFrame {
+        /**
+         * Build the frame of the event for the clients with the given subscription.
+         *
+         * @param subscription subscription of the clients.
+         * @return the frame; null if nothing in the event matches the subscription.
+         */
+        MonitorWebsocketFrame getFrame(MonitorWebsocketSubscription subscription);
+    }
+
+    /**
+     * Frame about, at most, one broker and one queue, sent unchanged to the subscriptions matching both.
+     */
+    protected static class MatchingFrame implements SubscriptionFrame {
+        private final String brokerName;
+        private final String queueName;
+        private final MonitorWebsocketFrame frame;
+
+        /**
+         * @param brokerName name of the broker the frame is about; null if not specific to one broker.
+         * @param queueName name of the queue the frame is about; null if not specific to one queue.
+         * @param frame frame of the event.
+         */
+        public MatchingFrame(String brokerName, String queueName, MonitorWebsocketFrame frame) {
+            this.brokerName = brokerName;
+            this.queueName = queueName;
+            this.frame = frame;
+        }
+
+        @Override
+        public MonitorWebsocketFrame getFrame(MonitorWebsocketSubscription subscription) {
+            if ( ( subscription.matchesBroker(this.brokerName) ) &&
+                    ( ( this.queueName == null ) || ( subscription.matchesQueue(this.queueName) ) ) ) {
+
+                return this.frame;
+            }
+
+            return null;
+        }
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.web;
+
+/**
+ * Listener for activity from the clients of the monitor websocket.
+ */
+public interface MonitorWebsocketClientListener {
+    /**
+     * Called once a client's websocket is open and ready to send.
+     *
+     * @param websocket the websocket of the client.
+     */
+    void onClientOpen(MonitorWebsocket websocket);
+
+    /**
+     * Called with each message received from a client.
+     *
+     * @param websocket the websocket of the client.
+     * @param msg text of the message.
+     */
+    void onClientMessage(MonitorWebsocket websocket, String msg);
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.web;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Immutable event frame for the monitor websocket, built once per event and shared by every websocket the event is
+ * sent to, so broadcasting a large payload does not copy it once per client.  The binary form of the frame is only
+ * encoded when first requested by a client using binary encoding, and is then shared the same way.
+ *
+ * Frames built with the data their content was serialized from are encoded from that data; only frames built from
+ * the content text alone have it parsed for binary encoding.  Data that is costly to prepare may be supplied by a
+ * DataTreeSupplier instead, called only when the frame is first encoded.
+ */
+public class MonitorWebsocketFrame {
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private final String action;
+    private final String content;
+    private final Object data;
+    private final String text;
+
+    /**
+     * Binary form of the frame; encoding is idempotent, so concurrent first requests may each encode it.
+     */
+    private volatile byte[] binary;
+
+    public MonitorWebsocketFrame(String action, String content) {
+        this(action, content, null);
+    }
+
+    /**
+     * @param action name of the event.
+     * @param content JSON content of the event.
+     * @param data JSON tree of the content, the object serialized to the content by a default Gson, or a
+     *             DataTreeSupplier of the JSON tree; null if only the content is available.  Not modified, and must
+     *             not be modified after, since it is only encoded when first requested.
+     */
+    public MonitorWebsocketFrame(String action, String content, Object data) {
+        this.action = action;
+        this.content = content;
+        this.data = data;
+        this.text = "{\"action\": \"" + action + "\", \"data\": " + content + "}";
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Full text of the frame, as sent on the websocket.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Combine this frame, while still pending send, with a newer frame with the same action and conflation key.
+     * Statistics events carry the full latest state, so by default the newer frame simply replaces this one.
+     *
+     * @param newer the newer frame.
+     * @return the frame to send in place of both.
+     */
+    public MonitorWebsocketFrame conflate(MonitorWebsocketFrame newer) {
+        return newer;
+    }
+
+    /**
+     * Binary form of the frame, as sent on the websocket to clients using binary encoding.
+     *
+     * @return a new read-only buffer over the encoded frame.
+     */
+    public ByteBuffer getBinary() {
+        byte[] result = this.binary;
+        if ( result == null ) {
+            result = MonitorWebsocketBinaryEncoder.encodeFrame(this.action, this.getDataTree());
+            this.binary = result;
+        }
+
+        return ByteBuffer.wrap(result).asReadOnlyBuffer();
+    }
+
+    /**
+     * JSON tree of the content of the frame, for binary encoding.
+     */
+    protected JsonElement getDataTree() {
+        if ( this.data instanceof DataTreeSupplier ) {
+            JsonElement result = ( (DataTreeSupplier) this.data ).getDataTree();
+            if ( result != null ) {
+                return result;
+            }
+        } else if ( this.data instanceof JsonElement ) {
+            return (JsonElement) this.data;
+        } else if ( this.data != null ) {
+            return GSON.toJsonTree(this.data);
+        }
+
+        return new JsonParser().parse(this.content);
+    }
+
+    /**
+     * Supplier of the JSON tree of the content of a frame, called only if the frame is encoded in binary form.
+     */
+    public interface DataTreeSupplier {
+        /**
+         * @return the JSON tree of the content; null if no longer available, in which case the content is parsed.
+         */
+        JsonElement getDataTree();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Frame of a "queueStatsDelta" event.  Unlike other statistics events, a delta only carries the changes since the
+ * prior delta, so a pending delta superseded by a newer one is merged with it rather than dropped; otherwise a slow or
+ * throttled client would see a gap in the sequence numbers and need a full snapshot.
+ *
+ * A merged delta carries the sequence number of the newer delta and, as "baseSeq", the sequence number the older
+ * delta applied to; clients accept it if they are at, or past, the base.  Deltas which were not merged omit baseSeq,
+ * which is then one less than seq.
+ */
+public class MonitorWebsocketQueueStatsDeltaFrame extends MonitorWebsocketFrame {
+    public static final String ACTION = "queueStatsDelta";
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private final JsonObject delta;
+
+    /**
+     * @param delta the delta, with seq, changed, and removed members; not modified.
+     */
+    public MonitorWebsocketQueueStatsDeltaFrame(JsonObject delta) {
+        super(ACTION, GSON.toJson(delta), delta);
+
+        this.delta = delta;
+    }
+
+    public JsonObject getDelta() {
+        return delta;
+    }
+
+    /**
+     * Merge this delta with the newer delta given.
+     */
+    @Override
+    public MonitorWebsocketFrame conflate(MonitorWebsocketFrame newer) {
+        if ( ! ( newer instanceof MonitorWebsocketQueueStatsDeltaFrame ) ) {
+            return newer;
+        }
+
+        return new MonitorWebsocketQueueStatsDeltaFrame(
+                mergeDeltas(this.delta, ((MonitorWebsocketQueueStatsDeltaFrame) newer).delta));
+    }
+
+    /**
+     * Merge the given deltas into one delta with the same effect as applying the older and then the newer.  Neither
+     * delta is modified, since deltas are shared by the clients they are sent to.
+     *
+     * @param older delta applied first.
+     * @param newer delta applied second.
+     * @return the merged delta.
+     */
+    public static JsonObject mergeDeltas(JsonObject older, JsonObject newer) {
+        JsonObject newerChanged = newer.getAsJsonObject("changed");
+
+        Set<String> newerRemoved = new HashSet<>();
+        for ( JsonElement removed : newer.getAsJsonArray("removed") ) {
+            newerRemoved.add(removed.getAsString());
+        }
+
+        //
+        // Changes of the older delta, less those to queues since removed, overlaid with those of the newer delta.
+        //
+        JsonObject changed = new JsonObject();
+        for ( Map.Entry<String, JsonElement> olderQueue : older.getAsJsonObject("changed").entrySet() ) {
+            if ( newerRemoved.contains(olderQueue.getKey()) ) {
+                continue;
+            }
+
+            JsonObject newerFields = newerChanged.getAsJsonObject(olderQueue.getKey());
+            if ( newerFields == null ) {
+                changed.add(olderQueue.getKey(), olderQueue.getValue());
+            } else {
+                JsonObject fields = new JsonObject();
+                for ( Map.Entry<String, JsonElement> olderField : olderQueue.getValue().getAsJsonObject().entrySet() ) {
+                    fields.add(olderField.getKey(), olderField.getValue());
+                }
+                for ( Map.Entry<String, JsonElement> newerField : newerFields.entrySet() ) {
+                    fields.add(newerField.getKey(), newerField.getValue());
+                }
+                changed.add(olderQueue.getKey(), fields);
+            }
+        }
+        for ( Map.Entry<String, JsonElement> newerQueue : newerChanged.entrySet() ) {
+            if ( ! changed.has(newerQueue.getKey()) ) {
+                changed.add(newerQueue.getKey(), newerQueue.getValue());
+            }
+        }
+
+        //
+        // Removals of the older delta, less queues added again since, plus those of the newer delta.  Clients apply
+        //  removals after changes, so a queue in both would end up removed.
+        //
+        JsonArray removed = new JsonArray();
+        for ( JsonElement olderRemoved : older.getAsJsonArray("removed") ) {
+            String queueName = olderRemoved.getAsString();
+            if ( ( ! newerChanged.has(queueName) ) && ( ! newerRemoved.contains(queueName) ) ) {
+                removed.add(olderRemoved);
+            }
+        }
+        for ( JsonElement oneRemoved : newer.getAsJsonArray("removed") ) {
+            removed.add(oneRemoved);
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("baseSeq", getBaseSeq(older));
+        result.add("seq", newer.get("seq"));
+        result.add("changed", changed);
+        result.add("removed", removed);
+
+        return result;
+    }
+
+    /**
+     * Sequence number the given delta applies to.
+     */
+    public static long getBaseSeq(JsonObject delta) {
+        if ( delta.has("baseSeq") ) {
+            return delta.get("baseSeq").getAsLong();
+        }
+
+        return delta.get("seq").getAsLong() - 1;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.web;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Queue of messages pending send to one websocket client.  Messages with a conflation key replace, or are combined
+ * with, any pending message with the same key, in place, so a slow client only receives the latest state for each
+ * key and the number of such messages pending never exceeds the number of distinct keys.  Messages without a key are
+ * never dropped or reordered; the number of those pending is limited, and an attempt to exceed the limit is rejected.
+ *
+ * @param <T> type of the messages.
+ */
+public class MonitorWebsocketSendQueue<T> {
+    public enum OfferResult { QUEUED, CONFLATED, REJECTED }
+
+    private final int maxUnconflatedMessages;
+    private final Conflater<T> conflater;
+
+    private final LinkedList<PendingMessage<T>> pending = new LinkedList<>();
+    private final Map<String, PendingMessage<T>> pendingByKey = new HashMap<>();
+    private int pendingUnconflatedCount = 0;
+
+    private long conflatedCount = 0;
+
+    /**
+     * Create a queue in which newer messages replace pending messages with the same key.
+     */
+    public MonitorWebsocketSendQueue(int maxUnconflatedMessages) {
+        this(maxUnconflatedMessages, new Conflater<T>() {
+            @Override
+            public T conflate(T pending, T newer) {
+                return newer;
+            }
+        });
+    }
+
+    /**
+     * Create a queue in which newer messages are combined with pending messages with the same key by the given
+     * conflater.
+     */
+    public MonitorWebsocketSendQueue(int maxUnconflatedMessages, Conflater<T> conflater) {
+        this.maxUnconflatedMessages = maxUnconflatedMessages;
+        this.conflater = conflater;
+    }
+
+    /**
+     * Add the given message to the queue.
+     *
+     * @param conflationKey key of the message for conflation, or null for a message which must always be delivered.
+     * @param msg message to send.
+     * @return QUEUED if the message was added as a new entry, CONFLATED if it replaced, or was combined with, a
+     * pending message with the same key, and REJECTED if the limit of pending messages without a key was reached.
+     */
+    public synchronized OfferResult offer(String conflationKey, T msg) {
+        if ( conflationKey == null ) {
+            if ( this.pendingUnconflatedCount >= this.maxUnconflatedMessages ) {
+                return OfferResult.REJECTED;
+            }
+
+            this.pending.add(new PendingMessage<>(null, msg));
+            this.pendingUnconflatedCount++;
+
+            return OfferResult.QUEUED;
+        }
+
+        PendingMessage<T> existing = this.pendingByKey.get(conflationKey);
+        if ( existing != null ) {
+            existing.msg = this.conflater.conflate(existing.msg, msg);
+            this.conflatedCount++;
+
+            return OfferResult.CONFLATED;
+        }
+
+        PendingMessage<T> newMessage = new PendingMessage<>(conflationKey, msg);
+        this.pending.add(newMessage);
+        this.pendingByKey.put(conflationKey, newMessage);
+
+        return OfferResult.QUEUED;
+    }
+
+    /**
+     * Remove and return the next message to send.
+     *
+     * @return the next message, or null if the queue is empty.
+     */
+    public synchronized T poll() {
+        PendingMessage<T> next = this.pending.poll();
+        if ( next == null ) {
+            return null;
+        }
+
+        if ( next.conflationKey == null ) {
+            this.pendingUnconflatedCount--;
+        } else {
+            this.pendingByKey.remove(next.conflationKey);
+        }
+
+        return next.msg;
+    }
+
+    public synchronized int size() {
+        return this.pending.size();
+    }
+
+    /**
+     * Number of messages replaced by newer ones before they were sent.
+     */
+    public synchronized long getConflatedCount() {
+        return conflatedCount;
+    }
+
+    public synchronized void clear() {
+        this.pending.clear();
+        this.pendingByKey.clear();
+        this.pendingUnconflatedCount = 0;
+    }
+
+    /**
+     * Combines a pending message with a newer message with the same conflation key.
+     */
+    public interface Conflater<T> {
+        /**
+         * @return the message to send in place of both.
+         */
+        T conflate(T pending, T newer);
+    }
+
+    private static class PendingMessage<T> {
+        private final String conflationKey;
+        private T msg;
+
+        public PendingMessage(String conflationKey, T msg) {
+            this.conflationKey = conflationKey;
+            this.msg = msg;
+        }
+    }
+}
@@ -17,6 +17,9 @@
 package com.amlinv.activemq.monitor.web;
 
 import com.amlinv.javasched.Scheduler;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Spring injection class for getting the websocket registry into the MonitorWebsocket.
@@ -47,4 +50,28 @@ public class MonitorWebsocketStaticInjector {
     public void setScheduler(Scheduler newScheduler) {
         MonitorWebsocket.setScheduler(newScheduler);
     }
+
+    public MonitorWebsocketClientListener getClientListener() {
+        return MonitorWebsocket.getClientListener();
+    }
+
+    public void setClientListener(MonitorWebsocketClientListener newClientListener) {
+        MonitorWebsocket.setClientListener(newClientListener);
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return MonitorWebsocket.getMetricRegistry();
+    }
+
+    public void setMetricRegistry(MetricRegistry newMetricRegistry) {
+        MonitorWebsocket.setMetricRegistry(newMetricRegistry);
+    }
+
+    public ScheduledExecutorService getThrottleExecutor() {
+        return MonitorWebsocket.getThrottleExecutor();
+    }
+
+    public void setThrottleExecutor(ScheduledExecutorService newThrottleExecutor) {
+        MonitorWebsocket.setThrottleExecutor(newThrottleExecutor);
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.amlinv.activemq.monitor.QueueNamePatternUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Filter of the events sent to a websocket client, by queue name pattern, broker name, and event type.  An empty set
+ * of any one of the three matches everything.  Queue name patterns are queue names optionally containing "*"
+ * wildcards matching any sequence of characters.
+ *
+ * Subscriptions are immutable and equal when their filters are equal, so the clients with identical filters are
+ * grouped together and share the frames prepared for the group.
+ */
+public class MonitorWebsocketSubscription {
+    public static final MonitorWebsocketSubscription ALL = new MonitorWebsocketSubscription(
+            Collections.<String>emptySet(), Collections.<String>emptySet(), Collections.<String>emptySet());
+
+    private final Set<String> queuePatterns;
+    private final Set<String> brokerNames;
+    private final Set<String> eventTypes;
+
+    private final boolean allQueues;
+    private final List<Pattern> queueRegexes = new ArrayList<>();
+
+    public MonitorWebsocketSubscription(Collection<String> queuePatterns, Collection<String> brokerNames,
+                                        Collection<String> eventTypes) {
+
+        this.queuePatterns = Collections.unmodifiableSet(new TreeSet<>(queuePatterns));
+        this.brokerNames = Collections.unmodifiableSet(new TreeSet<>(brokerNames));
+        this.eventTypes = Collections.unmodifiableSet(new TreeSet<>(eventTypes));
+
+        this.allQueues = this.queuePatterns.isEmpty() || this.queuePatterns.contains("*");
+        if ( ! this.allQueues ) {
+            for ( String onePattern : this.queuePatterns ) {
+                this.queueRegexes.add(QueueNamePatternUtil.globToRegex(onePattern));
+            }
+        }
+    }
+
+    public Set<String> getQueuePatterns() {
+        return queuePatterns;
+    }
+
+    public Set<String> getBrokerNames() {
+        return brokerNames;
+    }
+
+    public Set<String> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Determine whether every queue matches the subscription, in which case content listing queues is sent unfiltered.
+     */
+    public boolean isAllQueues() {
+        return allQueues;
+    }
+
+    public boolean matchesEvent(String action) {
+        return this.eventTypes.isEmpty() || this.eventTypes.contains(action);
+    }
+
+    /**
+     * Determine whether the named broker matches the subscription.  Content not specific to one broker, such as the
+     * queue statistics aggregated across brokers, is indicated by a null broker name and always matches.
+     *
+     * @param brokerName name of the broker; null for none.
+     * @return true if the broker matches the subscription; false otherwise.
+     */
+    public boolean matchesBroker(String brokerName) {
+        return ( brokerName == null ) || this.brokerNames.isEmpty() || this.brokerNames.contains(brokerName);
+    }
+
+    public boolean matchesQueue(String queueName) {
+        if ( this.allQueues ) {
+            return true;
+        }
+
+        for ( Pattern oneRegex : this.queueRegexes ) {
+            if ( oneRegex.matcher(queueName).matches() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( ! ( other instanceof MonitorWebsocketSubscription ) ) {
+            return false;
+        }
+
+        MonitorWebsocketSubscription otherSubscription = (MonitorWebsocketSubscription) other;
+        return this.queuePatterns.equals(otherSubscription.queuePatterns) &&
+                this.brokerNames.equals(otherSubscription.brokerNames) &&
+                this.eventTypes.equals(otherSubscription.eventTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return ( ( ( 31 * this.queuePatterns.hashCode() ) + this.brokerNames.hashCode() ) * 31 ) +
+                this.eventTypes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "queues=" + this.queuePatterns + "; brokers=" + this.brokerNames + "; events=" + this.eventTypes;
+    }
+}
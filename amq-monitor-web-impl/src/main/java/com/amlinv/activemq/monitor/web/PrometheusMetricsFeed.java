@@ -0,0 +1,388 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.monitor.web;
+
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.topo.registry.BrokerRegistryListener;
+import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
+import com.amlinv.activemq.topo.registry.model.BrokerInfo;
+import com.amlinv.activemq.topo.registry.model.DestinationState;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Feed of broker and queue statistics in the Prometheus text exposition format.
+ *
+ * The series of each broker, each queue on each broker, and each queue's aggregated statistics are rendered once, as
+ * the statistics are polled, and kept as text fragments.  The full exposition is assembled from the fragments on the
+ * first scrape after a poll and cached, so further scrapes until the next poll only return the cached bytes.
+ */
+public class PrometheusMetricsFeed implements ActiveMQBrokerPollerListener {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MetricFamily[] BROKER_METRICS = {
+            new MetricFamily("activemq_broker_average_message_size_bytes", "gauge", "Average message size"),
+            new MetricFamily("activemq_broker_uptime_milliseconds", "gauge", "Broker uptime"),
+            new MetricFamily("activemq_broker_memory_limit_bytes", "gauge", "Broker memory limit"),
+            new MetricFamily("activemq_broker_memory_usage_percent", "gauge", "Percent of broker memory limit used"),
+            new MetricFamily("activemq_broker_store_usage_percent", "gauge", "Percent of broker store limit used"),
+            new MetricFamily("activemq_broker_connections", "gauge", "Current number of connections"),
+            new MetricFamily("activemq_broker_consumers", "gauge", "Current number of consumers"),
+            new MetricFamily("activemq_broker_messages", "gauge", "Current number of messages"),
+            new MetricFamily("activemq_broker_enqueued_messages_total", "counter", "Messages enqueued"),
+            new MetricFamily("activemq_broker_dequeued_messages_total", "counter", "Messages dequeued")
+    };
+
+    private static final MetricFamily[] QUEUE_METRICS = {
+            new MetricFamily("activemq_queue_size", "gauge", "Number of messages on the queue"),
+            new MetricFamily("activemq_queue_enqueued_messages_total", "counter", "Messages enqueued to the queue"),
+            new MetricFamily("activemq_queue_dequeued_messages_total", "counter", "Messages dequeued from the queue"),
+            new MetricFamily("activemq_queue_consumers", "gauge", "Number of consumers on the queue"),
+            new MetricFamily("activemq_queue_producers", "gauge", "Number of producers on the queue"),
+            new MetricFamily("activemq_queue_cursor_usage_percent", "gauge", "Percent of cursor limit used"),
+            new MetricFamily("activemq_queue_memory_usage_percent", "gauge", "Percent of queue memory limit used"),
+            new MetricFamily("activemq_queue_inflight_messages", "gauge", "Messages dispatched and not acknowledged")
+    };
+
+    private static final MetricFamily[] QUEUE_TOTAL_METRICS = {
+            new MetricFamily("activemq_queue_total_size", "gauge", "Number of messages on the queue, all brokers"),
+            new MetricFamily("activemq_queue_total_consumers", "gauge",
+                    "Number of consumers on the queue, all brokers"),
+            new MetricFamily("activemq_queue_enqueue_rate_1m", "gauge", "Messages enqueued per second over 1 minute"),
+            new MetricFamily("activemq_queue_enqueue_rate_1h", "gauge", "Messages enqueued per second over 1 hour"),
+            new MetricFamily("activemq_queue_enqueue_rate_1d", "gauge", "Messages enqueued per second over 1 day"),
+            new MetricFamily("activemq_queue_dequeue_rate_1m", "gauge", "Messages dequeued per second over 1 minute"),
+            new MetricFamily("activemq_queue_dequeue_rate_1h", "gauge", "Messages dequeued per second over 1 hour"),
+            new MetricFamily("activemq_queue_dequeue_rate_1d", "gauge", "Messages dequeued per second over 1 day")
+    };
+
+    private final DestinationRegistryListener myQueueRegistryListener = new MyQueueRegistryListener();
+    private final BrokerRegistryListener myBrokerRegistryListener = new MyBrokerRegistryListener();
+
+    private QueueStatisticsRegistry queueStatisticsRegistry;
+
+    //
+    // Rendered series, per metric family, for each broker, each broker's queues, and each queue's totals.
+    //
+    private final Object metricsLock = new Object();
+    private final TreeMap<String, String[]> brokerSeries = new TreeMap<>();
+    private final TreeMap<String, TreeMap<String, String[]>> queueSeriesByBroker = new TreeMap<>();
+    private final TreeMap<String, String[]> queueTotalSeries = new TreeMap<>();
+    private byte[] exposition;
+
+    public QueueStatisticsRegistry getQueueStatisticsRegistry() {
+        return queueStatisticsRegistry;
+    }
+
+    public void setQueueStatisticsRegistry(QueueStatisticsRegistry queueStatisticsRegistry) {
+        this.queueStatisticsRegistry = queueStatisticsRegistry;
+    }
+
+    public DestinationRegistryListener getQueueRegistryListener() {
+        return myQueueRegistryListener;
+    }
+
+    public BrokerRegistryListener getBrokerRegistryListener() {
+        return myBrokerRegistryListener;
+    }
+
+    /**
+     * Render the series of the broker and queues in the poll results.  The aggregated statistics of the queues are read
+     * from the queue statistics registry, which must already have been updated with the results.
+     */
+    @Override
+    public void onBrokerPollComplete(BrokerStatsPackage brokerStatsPackage) {
+        ActiveMQBrokerStats brokerStats = brokerStatsPackage.getBrokerStats();
+        String brokerName = brokerStats.getBrokerName();
+
+        String[] renderedBroker = this.renderBrokerSeries(brokerStats);
+
+        TreeMap<String, String[]> renderedQueues = new TreeMap<>();
+        TreeMap<String, String[]> renderedTotals = new TreeMap<>();
+        for ( ActiveMQQueueJmxStats oneQueueStats : brokerStatsPackage.getQueueStats().values() ) {
+            renderedQueues.put(oneQueueStats.getQueueName(), this.renderQueueSeries(oneQueueStats));
+
+            if ( this.queueStatisticsRegistry != null ) {
+                ActiveMQQueueStats totalStats =
+                        this.queueStatisticsRegistry.getQueueStats(oneQueueStats.getQueueName());
+                if ( totalStats != null ) {
+                    renderedTotals.put(oneQueueStats.getQueueName(), this.renderQueueTotalSeries(totalStats));
+                }
+            }
+        }
+
+        synchronized ( this.metricsLock ) {
+            this.brokerSeries.put(brokerName, renderedBroker);
+            this.queueSeriesByBroker.put(brokerName, renderedQueues);
+            this.queueTotalSeries.putAll(renderedTotals);
+
+            this.exposition = null;
+        }
+    }
+
+    /**
+     * Remove the series of the named broker and its queues, along with the totals of queues no other broker reports.
+     *
+     * @param brokerName name of the broker no longer monitored.
+     */
+    protected void onBrokerRemoved(String brokerName) {
+        synchronized ( this.metricsLock ) {
+            this.brokerSeries.remove(brokerName);
+
+            TreeMap<String, String[]> removedQueues = this.queueSeriesByBroker.remove(brokerName);
+            if ( removedQueues != null ) {
+                for ( String oneQueueName : removedQueues.keySet() ) {
+                    if ( ! this.isQueueReported(oneQueueName) ) {
+                        this.queueTotalSeries.remove(oneQueueName);
+                    }
+                }
+            }
+
+            this.exposition = null;
+        }
+    }
+
+    /**
+     * Determine whether any broker reports the named queue.  Must be called while holding the metrics lock.
+     */
+    protected boolean isQueueReported(String queueName) {
+        for ( Map<String, String[]> oneBrokerQueues : this.queueSeriesByBroker.values() ) {
+            if ( oneBrokerQueues.containsKey(queueName) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Retrieve the exposition of all of the series, in UTF-8.
+     *
+     * @return the exposition text; shared with other callers and must not be modified.
+     */
+    public byte[] getExposition() {
+        synchronized ( this.metricsLock ) {
+            if ( this.exposition == null ) {
+                this.exposition = this.assembleExposition().getBytes(StandardCharsets.UTF_8);
+            }
+
+            return this.exposition;
+        }
+    }
+
+    protected String assembleExposition() {
+        StringBuilder result = new StringBuilder();
+
+        for ( int cur = 0; cur < BROKER_METRICS.length; cur++ ) {
+            result.append(BROKER_METRICS[cur].header);
+            for ( String[] oneBroker : this.brokerSeries.values() ) {
+                result.append(oneBroker[cur]);
+            }
+        }
+
+        for ( int cur = 0; cur < QUEUE_METRICS.length; cur++ ) {
+            result.append(QUEUE_METRICS[cur].header);
+            for ( Map<String, String[]> oneBrokerQueues : this.queueSeriesByBroker.values() ) {
+                for ( String[] oneQueue : oneBrokerQueues.values() ) {
+                    result.append(oneQueue[cur]);
+                }
+            }
+        }
+
+        for ( int cur = 0; cur < QUEUE_TOTAL_METRICS.length; cur++ ) {
+            result.append(QUEUE_TOTAL_METRICS[cur].header);
+            for ( String[] oneQueue : this.queueTotalSeries.values() ) {
+                result.append(oneQueue[cur]);
+            }
+        }
+
+        return result.toString();
+    }
+
+    protected String[] renderBrokerSeries(ActiveMQBrokerStats brokerStats) {
+        String labels = "{broker=\"" + escapeLabelValue(brokerStats.getBrokerName()) + "\"} ";
+
+        return this.renderSeries(BROKER_METRICS, labels,
+                brokerStats.getAverageMessageSize(),
+                brokerStats.getUptimeMillis(),
+                brokerStats.getMemoryLimit(),
+                brokerStats.getMemoryPercentUsage(),
+                brokerStats.getStorePercentUsage(),
+                brokerStats.getCurrentConnectionsCount(),
+                brokerStats.getTotalConsumerCount(),
+                brokerStats.getTotalMessageCount(),
+                brokerStats.getTotalEnqueueCount(),
+                brokerStats.getTotalDequeueCount());
+    }
+
+    protected String[] renderQueueSeries(ActiveMQQueueJmxStats queueStats) {
+        String labels = "{broker=\"" + escapeLabelValue(queueStats.getBrokerName()) + "\",queue=\"" +
+                escapeLabelValue(queueStats.getQueueName()) + "\"} ";
+
+        return this.renderSeries(QUEUE_METRICS, labels,
+                queueStats.getQueueSize(),
+                queueStats.getEnqueueCount(),
+                queueStats.getDequeueCount(),
+                queueStats.getNumConsumers(),
+                queueStats.getNumProducers(),
+                queueStats.getCursorPercentUsage(),
+                queueStats.getMemoryPercentUsage(),
+                queueStats.getInflightCount());
+    }
+
+    protected String[] renderQueueTotalSeries(ActiveMQQueueStats queueStats) {
+        String labels = "{queue=\"" + escapeLabelValue(queueStats.getQueueName()) + "\"} ";
+
+        return this.renderSeries(QUEUE_TOTAL_METRICS, labels,
+                queueStats.getQueueSize(),
+                queueStats.getNumConsumers(),
+                queueStats.getEnqueueRate1Minute(),
+                queueStats.getEnqueueRate1Hour(),
+                queueStats.getEnqueueRate1Day(),
+                queueStats.getDequeueRate1Minute(),
+                queueStats.getDequeueRate1Hour(),
+                queueStats.getDequeueRate1Day());
+    }
+
+    protected String[] renderSeries(MetricFamily[] families, String labels, Number... values) {
+        String[] result = new String[families.length];
+
+        for ( int cur = 0; cur < families.length; cur++ ) {
+            result[cur] = families[cur].name + labels + formatValue(values[cur]) + "\n";
+        }
+
+        return result;
+    }
+
+    protected static String formatValue(Number value) {
+        if ( ( value instanceof Double ) || ( value instanceof Float ) ) {
+            double doubleValue = value.doubleValue();
+
+            if ( Double.isNaN(doubleValue) ) {
+                return "NaN";
+            } else if ( Double.isInfinite(doubleValue) ) {
+                return ( doubleValue > 0 ) ? "+Inf" : "-Inf";
+            }
+
+            return Double.toString(doubleValue);
+        }
+
+        return Long.toString(value.longValue());
+    }
+
+    /**
+     * Escape a label value as required by the exposition format: backslash, double-quote and line feed.
+     */
+    protected static String escapeLabelValue(String value) {
+        if ( value == null ) {
+            return "";
+        }
+
+        StringBuilder result = null;
+        for ( int cur = 0; cur < value.length(); cur++ ) {
+            char ch = value.charAt(cur);
+
+            String replacement = null;
+            if ( ch == '\\' ) {
+                replacement = "\\\\";
+            } else if ( ch == '"' ) {
+                replacement = "\\\"";
+            } else if ( ch == '\n' ) {
+                replacement = "\\n";
+            }
+
+            if ( replacement != null ) {
+                if ( result == null ) {
+                    result = new StringBuilder(value.length() + 8);
+                    result.append(value, 0, cur);
+                }
+                result.append(replacement);
+            } else if ( result != null ) {
+                result.append(ch);
+            }
+        }
+
+        if ( result == null ) {
+            return value;
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Name, type and help text of one metric family, with its rendered header.
+     */
+    protected static class MetricFamily {
+        private final String name;
+        private final String header;
+
+        public MetricFamily(String name, String type, String help) {
+            this.name = name;
+            this.header = "# HELP " + name + " " + help + "\n# TYPE " + name + " " + type + "\n";
+        }
+    }
+
+    /**
+     * Listener for events on the queue registry; removes the series of queues which are no longer monitored.
+     */
+    protected class MyQueueRegistryListener implements DestinationRegistryListener {
+        @Override
+        public void onPutEntry(String putKey, DestinationState putValue) {
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, DestinationState removeValue) {
+            synchronized ( metricsLock ) {
+                queueTotalSeries.remove(removeKey);
+
+                for ( Map<String, String[]> oneBrokerQueues : queueSeriesByBroker.values() ) {
+                    oneBrokerQueues.remove(removeKey);
+                }
+
+                exposition = null;
+            }
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, DestinationState oldValue, DestinationState newValue) {
+        }
+    }
+
+    /**
+     * Listener for events on the broker registry; removes the series of brokers which are no longer monitored.
+     */
+    protected class MyBrokerRegistryListener implements BrokerRegistryListener {
+        @Override
+        public void onPutEntry(String putKey, BrokerInfo putValue) {
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, BrokerInfo removeValue) {
+            onBrokerRemoved(removeValue.getBrokerName());
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, BrokerInfo oldValue, BrokerInfo newValue) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Persistent store of broker and queue statistics over time.
+ */
+public interface StatisticsStore {
+    void storeBrokerStats(long timestamp, ActiveMQBrokerStats brokerStats) throws IOException;
+
+    void storeQueueStats(long timestamp, ActiveMQQueueJmxStats queueStats) throws IOException;
+
+    /**
+     * Retrieve the stored statistics for the named queue, across all brokers, within the given time range.
+     *
+     * @param queueName name of the queue.
+     * @param fromTime start of the time range, inclusive, in milliseconds since the epoch.
+     * @param toTime end of the time range, inclusive, in milliseconds since the epoch.
+     * @return statistics in time order.
+     */
+    List<StoredQueueStats> scanQueueStats(String queueName, long fromTime, long toTime) throws IOException;
+
+    /**
+     * Retrieve the stored statistics for the named broker within the given time range.
+     *
+     * @param brokerName name of the broker.
+     * @param fromTime start of the time range, inclusive, in milliseconds since the epoch.
+     * @param toTime end of the time range, inclusive, in milliseconds since the epoch.
+     * @return statistics in time order.
+     */
+    List<StoredBrokerStats> scanBrokerStats(String brokerName, long fromTime, long toTime) throws IOException;
+
+    /**
+     * Retrieve the statistics for the named queue, across all brokers, within the given time range, summarized at the
+     * coarsest interval available which is no longer than the given resolution.
+     *
+     * @param queueName name of the queue.
+     * @param fromTime start of the time range, inclusive, in milliseconds since the epoch.
+     * @param toTime end of the time range, inclusive, in milliseconds since the epoch.
+     * @param resolution longest acceptable summary interval, in milliseconds; zero for raw samples.
+     * @return summarized statistics in time order.
+     */
+    List<StoredStatsRollup<ActiveMQQueueJmxStats>> scanQueueStatsRollup(String queueName, long fromTime, long toTime,
+                                                                        long resolution) throws IOException;
+
+    /**
+     * Retrieve the statistics for the named broker within the given time range, summarized at the coarsest interval
+     * available which is no longer than the given resolution.
+     *
+     * @param brokerName name of the broker.
+     * @param fromTime start of the time range, inclusive, in milliseconds since the epoch.
+     * @param toTime end of the time range, inclusive, in milliseconds since the epoch.
+     * @param resolution longest acceptable summary interval, in milliseconds; zero for raw samples.
+     * @return summarized statistics in time order.
+     */
+    List<StoredStatsRollup<ActiveMQBrokerStats>> scanBrokerStatsRollup(String brokerName, long fromTime, long toTime,
+                                                                       long resolution) throws IOException;
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence;
+
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Broker poller listener which records the results of broker polls in a statistics store, at most once per store
+ * interval for each broker.
+ */
+public class StatisticsStorePollerListener implements ActiveMQBrokerPollerListener {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(StatisticsStorePollerListener.class);
+
+    public static final long DEFAULT_STORE_INTERVAL = 60000L;
+
+    private final StatisticsStore statisticsStore;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private StatsClock statsClock = new SystemStatsClock();
+    private long storeInterval = DEFAULT_STORE_INTERVAL;
+
+    private final ConcurrentMap<String, Long> lastStoreTimes = new ConcurrentHashMap<>();
+
+    public StatisticsStorePollerListener(StatisticsStore statisticsStore) {
+        this.statisticsStore = statisticsStore;
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public StatisticsStore getStatisticsStore() {
+        return statisticsStore;
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
+    public long getStoreInterval() {
+        return storeInterval;
+    }
+
+    /**
+     * Set the minimum time, in milliseconds, between stored samples for a single broker.
+     */
+    public void setStoreInterval(long storeInterval) {
+        this.storeInterval = storeInterval;
+    }
+
+    @Override
+    public void onBrokerPollComplete(BrokerStatsPackage brokerStatsPackage) {
+        String brokerName = brokerStatsPackage.getBrokerStats().getBrokerName();
+
+        if ( ! this.checkStoreDue(brokerName) ) {
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        try {
+            this.statisticsStore.storeBrokerStats(timestamp, brokerStatsPackage.getBrokerStats());
+
+            for ( ActiveMQQueueJmxStats oneQueueStats : brokerStatsPackage.getQueueStats().values() ) {
+                this.statisticsStore.storeQueueStats(timestamp, oneQueueStats);
+            }
+        } catch ( IOException ioExc ) {
+            this.log.warn("failed to store broker statistics: broker={}", brokerName, ioExc);
+        }
+    }
+
+    /**
+     * Determine whether the store interval has passed for the broker and, if so, record the new store time.
+     */
+    protected boolean checkStoreDue(String brokerName) {
+        long now = this.statsClock.getStatsStopWatchTime();
+
+        Long lastStoreTime = this.lastStoreTimes.get(brokerName);
+        if ( lastStoreTime == null ) {
+            return this.lastStoreTimes.putIfAbsent(brokerName, now) == null;
+        }
+
+        if ( ( now - lastStoreTime ) < this.storeInterval ) {
+            return false;
+        }
+
+        return this.lastStoreTimes.replace(brokerName, lastStoreTime, now);
+    }
+}
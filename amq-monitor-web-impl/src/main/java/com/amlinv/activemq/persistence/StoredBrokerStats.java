@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+
+/**
+ * Broker statistics read back from a statistics store, with the time at which they were stored.
+ */
+public class StoredBrokerStats extends ActiveMQBrokerStats {
+    private final long timestamp;
+
+    public StoredBrokerStats(String brokerName, long timestamp) {
+        super(brokerName);
+
+        this.timestamp = timestamp;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence;
+
+/**
+ * Statistics read back from a statistics store, summarized over an interval: the minimum, maximum, average and last
+ * of each value over the samples in the interval.  A raw sample is represented as a rollup with an interval of zero
+ * in which all four summaries are the sample itself.
+ *
+ * @param <T> type of statistics summarized.
+ */
+public class StoredStatsRollup<T> {
+    private final String brokerName;
+    private final long timestamp;
+    private final long interval;
+
+    private final T min;
+    private final T max;
+    private final T avg;
+    private final T last;
+
+    public StoredStatsRollup(String brokerName, long timestamp, long interval, T min, T max, T avg, T last) {
+        this.brokerName = brokerName;
+        this.timestamp = timestamp;
+        this.interval = interval;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+        this.last = last;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    /**
+     * @return start time of the interval, or time of the sample, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return length of the interval, in milliseconds; zero for a raw sample.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public T getMin() {
+        return min;
+    }
+
+    public T getMax() {
+        return max;
+    }
+
+    public T getAvg() {
+        return avg;
+    }
+
+    public T getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,993 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence.impl;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.persistence.StatisticsStore;
+import com.amlinv.activemq.persistence.StoredBrokerStats;
+import com.amlinv.activemq.persistence.StoredQueueStats;
+import com.amlinv.activemq.persistence.StoredStatsRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics store which appends fixed-width binary records to memory-mapped segment files in a directory.
+ *
+ * Each segment file starts with a header holding the number of records and the time range they cover, followed by the
+ * records in time order.  The header bounds let scans skip segments outside of the requested time range, and the fixed
+ * record width allows a binary search for the start of the range within a segment; only the records within the range
+ * are then examined.  Queue and broker names are stored once in a separate name file and referenced by number from
+ * the records.  Each segment keeps an index in memory of its records by name, rebuilt from the records when the store
+ * is opened, so a scan reads only the records of the requested name.
+ *
+ * Records are written directly to the mapped files, so they survive a restart of the monitor; flush() forces them to
+ * disk for protection against an operating system failure.  When the limit on the number of segments is reached, or
+ * the oldest segment holds only records older than the retention time, the oldest segment is deleted; deleting a
+ * segment by the limit before its retention time is logged as a warning.
+ *
+ * Besides raw samples, records may hold one aggregate, such as the minimum, of the samples over an interval; the
+ * rollup tiers of RollupStatisticsStore are stored in this way.
+ */
+public class MappedFileStatisticsStore implements StatisticsStore {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(MappedFileStatisticsStore.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 64;
+
+    public static final String SEGMENT_FILE_PREFIX = "stats-";
+    public static final String SEGMENT_FILE_SUFFIX = ".seg";
+    public static final String NAMES_FILE = "names.dat";
+
+    //
+    // Segment header layout.
+    //
+    protected static final int SEGMENT_MAGIC = 0x414d5153;
+    protected static final int SEGMENT_VERSION = 2;
+    protected static final int HDR_MAGIC = 0;
+    protected static final int HDR_VERSION = 4;
+    protected static final int HDR_RECORD_SIZE = 8;
+    protected static final int HDR_RECORD_COUNT = 12;
+    protected static final int HDR_FIRST_TIMESTAMP = 16;
+    protected static final int HDR_LAST_TIMESTAMP = 24;
+    protected static final int HEADER_SIZE = 64;
+
+    //
+    // Record layout.
+    //
+    protected static final int REC_TIMESTAMP = 0;
+    protected static final int REC_TYPE = 8;
+    protected static final int REC_AGGREGATE = 10;
+    protected static final int REC_NAME_ID = 12;
+    protected static final int REC_BROKER_ID = 16;
+    protected static final int REC_VALUES = 24;
+    public static final int NUM_VALUES = 10;
+    protected static final int RECORD_SIZE = REC_VALUES + ( NUM_VALUES * 8 );
+
+    public static final int RECORD_TYPE_BROKER = 1;
+    public static final int RECORD_TYPE_QUEUE = 2;
+
+    //
+    // Aggregate held by a record: a raw sample, or one aggregate of the samples over an interval, including their
+    //  count.
+    //
+    public static final int AGGREGATE_SAMPLE = 0;
+    public static final int AGGREGATE_MIN = 1;
+    public static final int AGGREGATE_MAX = 2;
+    public static final int AGGREGATE_AVG = 3;
+    public static final int AGGREGATE_LAST = 4;
+    public static final int AGGREGATE_COUNT = 5;
+
+    private final File directory;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private int maxSegments = DEFAULT_MAX_SEGMENTS;
+    private long retentionTime = 0;
+    private long rollupInterval = 0;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private long nextSegmentNumber = 0;
+    private long lastTimestamp = 0;
+
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private DataOutputStream namesOutput;
+
+    public MappedFileStatisticsStore(File directory) {
+        this.directory = directory;
+    }
+
+    public MappedFileStatisticsStore(String directory) {
+        this(new File(directory));
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Set the size, in bytes, of new segment files.  Existing segments keep their size.
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    public long getRetentionTime() {
+        return retentionTime;
+    }
+
+    /**
+     * Set the time, in milliseconds, for which to keep records; segments holding only older records are deleted
+     * once a new segment is started.  Zero keeps records until the limit on the number of segments is reached.
+     */
+    public void setRetentionTime(long retentionTime) {
+        this.retentionTime = retentionTime;
+    }
+
+    public long getRollupInterval() {
+        return rollupInterval;
+    }
+
+    /**
+     * Set the interval, in milliseconds, summarized by the aggregate records held in this store; zero when the store
+     * holds raw samples.
+     */
+    public void setRollupInterval(long rollupInterval) {
+        this.rollupInterval = rollupInterval;
+    }
+
+    /**
+     * Open the store, loading the names and segments already in the directory.
+     */
+    public synchronized void open() throws IOException {
+        if ( ( ! this.directory.isDirectory() ) && ( ! this.directory.mkdirs() ) ) {
+            throw new IOException("failed to create statistics store directory: " + this.directory);
+        }
+
+        this.loadNames();
+        this.loadSegments();
+
+        log.info("Opened statistics store: directory={}; segment-count={}; name-count={}", this.directory,
+                this.segments.size(), this.names.size());
+    }
+
+    /**
+     * Force all written records to disk.
+     */
+    public synchronized void flush() throws IOException {
+        for ( Segment oneSegment : this.segments ) {
+            oneSegment.buffer.force();
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        this.flush();
+
+        for ( Segment oneSegment : this.segments ) {
+            oneSegment.close();
+        }
+        this.segments.clear();
+
+        if ( this.namesOutput != null ) {
+            this.namesOutput.close();
+            this.namesOutput = null;
+        }
+
+        this.names.clear();
+        this.nameIds.clear();
+    }
+
+    @Override
+    public void storeBrokerStats(long timestamp, ActiveMQBrokerStats brokerStats) throws IOException {
+        this.storeRecord(timestamp, RECORD_TYPE_BROKER, AGGREGATE_SAMPLE, brokerStats.getBrokerName(),
+                brokerStats.getBrokerName(), brokerStatsValues(brokerStats));
+    }
+
+    @Override
+    public void storeQueueStats(long timestamp, ActiveMQQueueJmxStats queueStats) throws IOException {
+        this.storeRecord(timestamp, RECORD_TYPE_QUEUE, AGGREGATE_SAMPLE, queueStats.getQueueName(),
+                queueStats.getBrokerName(), queueStatsValues(queueStats));
+    }
+
+    @Override
+    public List<StoredQueueStats> scanQueueStats(final String queueName, long fromTime, long toTime) {
+        final List<StoredQueueStats> result = new ArrayList<>();
+
+        this.scanRecords(RECORD_TYPE_QUEUE, queueName, fromTime, toTime, new RecordVisitor() {
+            @Override
+            public void onRecord(long timestamp, int aggregate, String brokerName, long[] values) {
+                if ( aggregate != AGGREGATE_SAMPLE ) {
+                    return;
+                }
+
+                StoredQueueStats stats = new StoredQueueStats(brokerName, queueName, timestamp);
+                applyQueueStatsValues(values, stats);
+
+                result.add(stats);
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public List<StoredBrokerStats> scanBrokerStats(String brokerName, long fromTime, long toTime) {
+        final List<StoredBrokerStats> result = new ArrayList<>();
+
+        this.scanRecords(RECORD_TYPE_BROKER, brokerName, fromTime, toTime, new RecordVisitor() {
+            @Override
+            public void onRecord(long timestamp, int aggregate, String recordBrokerName, long[] values) {
+                if ( aggregate != AGGREGATE_SAMPLE ) {
+                    return;
+                }
+
+                StoredBrokerStats stats = new StoredBrokerStats(recordBrokerName, timestamp);
+                applyBrokerStatsValues(values, stats);
+
+                result.add(stats);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Retrieve the queue statistics summarized at the interval held by this store; the resolution is not used.
+     */
+    @Override
+    public List<StoredStatsRollup<ActiveMQQueueJmxStats>> scanQueueStatsRollup(final String queueName, long fromTime,
+                                                                               long toTime, long resolution) {
+
+        return this.scanRollups(RECORD_TYPE_QUEUE, queueName, fromTime, toTime,
+                new RollupValueConverter<ActiveMQQueueJmxStats>() {
+                    @Override
+                    public ActiveMQQueueJmxStats convert(String brokerName, long[] values) {
+                        ActiveMQQueueJmxStats result = new ActiveMQQueueJmxStats(brokerName, queueName);
+                        applyQueueStatsValues(values, result);
+
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * Retrieve the broker statistics summarized at the interval held by this store; the resolution is not used.
+     */
+    @Override
+    public List<StoredStatsRollup<ActiveMQBrokerStats>> scanBrokerStatsRollup(String brokerName, long fromTime,
+                                                                              long toTime, long resolution) {
+
+        return this.scanRollups(RECORD_TYPE_BROKER, brokerName, fromTime, toTime,
+                new RollupValueConverter<ActiveMQBrokerStats>() {
+                    @Override
+                    public ActiveMQBrokerStats convert(String recordBrokerName, long[] values) {
+                        ActiveMQBrokerStats result = new ActiveMQBrokerStats(recordBrokerName);
+                        applyBrokerStatsValues(values, result);
+
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * Append one record to the store.
+     *
+     * @param timestamp time of the record; raised to the time of the latest record if earlier.
+     * @param recordType RECORD_TYPE_BROKER or RECORD_TYPE_QUEUE.
+     * @param aggregate aggregate of the values in the record, such as AGGREGATE_SAMPLE for a raw sample.
+     * @param name name of the queue or broker.
+     * @param brokerName name of the broker.
+     * @param values up to NUM_VALUES values of the record.
+     */
+    public synchronized void storeRecord(long timestamp, int recordType, int aggregate, String name,
+                                         String brokerName, long[] values) throws IOException {
+
+        int nameId = this.getOrCreateNameId(name);
+        int brokerId = this.getOrCreateNameId(brokerName);
+
+        long recordTimestamp = this.nextTimestamp(timestamp);
+
+        Segment segment = this.getAppendSegment();
+        int offset = segment.startRecord(recordTimestamp, recordType, aggregate, nameId, brokerId);
+
+        MappedByteBuffer buffer = segment.buffer;
+        for ( int cur = 0; cur < NUM_VALUES; cur++ ) {
+            long value = 0;
+            if ( cur < values.length ) {
+                value = values[cur];
+            }
+
+            buffer.putLong(offset + valueOffset(cur), value);
+        }
+
+        segment.commitRecord(recordTimestamp, nameId);
+    }
+
+    /**
+     * Pass all of the records of the given type and name within the time range to the visitor, in time order.
+     *
+     * Only the segments and their record indexes for the name are read while holding the store lock, so records
+     * stored during the scan neither wait for it nor are seen by it.  The mapping of a segment removed during the scan
+     * stays readable until the scan releases it.
+     *
+     * @param recordType RECORD_TYPE_BROKER or RECORD_TYPE_QUEUE.
+     * @param name name of the queue or broker.
+     * @param fromTime start of the time range, inclusive.
+     * @param toTime end of the time range, inclusive.
+     * @param visitor visitor to receive the records.
+     */
+    public void scanRecords(int recordType, String name, long fromTime, long toTime, RecordVisitor visitor) {
+        List<Segment> scanSegments = new ArrayList<>();
+        List<int[]> scanIndexes = new ArrayList<>();
+        List<Integer> scanCounts = new ArrayList<>();
+
+        synchronized ( this ) {
+            Integer nameId = this.nameIds.get(name);
+            if ( nameId == null ) {
+                return;
+            }
+
+            for ( Segment oneSegment : this.segments ) {
+                if ( oneSegment.overlaps(fromTime, toTime) ) {
+                    NameRecords records = oneSegment.nameIndex.get(nameId);
+                    if ( records != null ) {
+                        scanSegments.add(oneSegment);
+                        scanIndexes.add(records.recordIndexes);
+                        scanCounts.add(records.count);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, String> brokerNames = new HashMap<>();
+        for ( int segmentIndex = 0; segmentIndex < scanSegments.size(); segmentIndex++ ) {
+            Segment oneSegment = scanSegments.get(segmentIndex);
+            int[] recordIndexes = scanIndexes.get(segmentIndex);
+            int count = scanCounts.get(segmentIndex);
+
+            MappedByteBuffer buffer = oneSegment.buffer;
+            for ( int cur = oneSegment.findFirstRecord(recordIndexes, fromTime, count); cur < count; cur++ ) {
+                int offset = recordOffset(recordIndexes[cur]);
+
+                long timestamp = buffer.getLong(offset + REC_TIMESTAMP);
+                if ( timestamp > toTime ) {
+                    break;
+                }
+
+                // Broker and queue names share the name numbers.
+                if ( buffer.getShort(offset + REC_TYPE) == recordType ) {
+
+                    long[] values = new long[NUM_VALUES];
+                    for ( int valueIndex = 0; valueIndex < NUM_VALUES; valueIndex++ ) {
+                        values[valueIndex] = buffer.getLong(offset + valueOffset(valueIndex));
+                    }
+
+                    int brokerId = buffer.getInt(offset + REC_BROKER_ID);
+                    String brokerName = brokerNames.get(brokerId);
+                    if ( brokerName == null ) {
+                        brokerName = this.getName(brokerId);
+                        brokerNames.put(brokerId, brokerName);
+                    }
+
+                    visitor.onRecord(timestamp, buffer.getShort(offset + REC_AGGREGATE), brokerName, values);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan records and assemble the aggregates for each broker and interval into rollups.  The aggregate records of
+     * one interval are written together, so they are assembled in time order.  Raw samples become rollups of their
+     * own.
+     *
+     * An interval flushed part way through, such as on shutdown, has more than one set of aggregates under the same
+     * start time; the sets are merged into one rollup, weighting the averages by their sample counts.
+     */
+    protected <T> List<StoredStatsRollup<T>> scanRollups(int recordType, String name, long fromTime, long toTime,
+                                                        final RollupValueConverter<T> converter) {
+
+        final Map<String, RecordGroup> groups = new LinkedHashMap<>();
+
+        this.scanRecords(recordType, name, fromTime, toTime, new RecordVisitor() {
+            @Override
+            public void onRecord(long timestamp, int aggregate, String brokerName, long[] values) {
+                String key = timestamp + ":" + brokerName;
+                if ( aggregate == AGGREGATE_SAMPLE ) {
+                    key = key + ":sample";
+                }
+
+                RecordGroup group = groups.get(key);
+                if ( group == null ) {
+                    group = new RecordGroup(timestamp, brokerName);
+                    groups.put(key, group);
+                }
+
+                if ( ( aggregate >= 0 ) && ( aggregate <= AGGREGATE_COUNT ) ) {
+                    group.add(aggregate, values);
+                }
+            }
+        });
+
+        List<StoredStatsRollup<T>> result = new ArrayList<>(groups.size());
+        for ( RecordGroup oneGroup : groups.values() ) {
+            oneGroup.completeSet();
+            long[][] values = oneGroup.summary;
+
+            if ( oneGroup.sample != null ) {
+                T sample = converter.convert(oneGroup.brokerName, oneGroup.sample);
+                result.add(new StoredStatsRollup<>(oneGroup.brokerName, oneGroup.timestamp, 0, sample, sample, sample,
+                        sample));
+            } else if ( values != null ) {
+                result.add(new StoredStatsRollup<>(oneGroup.brokerName, oneGroup.timestamp, this.rollupInterval,
+                        converter.convert(oneGroup.brokerName, values[AGGREGATE_MIN]),
+                        converter.convert(oneGroup.brokerName, values[AGGREGATE_MAX]),
+                        converter.convert(oneGroup.brokerName, values[AGGREGATE_AVG]),
+                        converter.convert(oneGroup.brokerName, values[AGGREGATE_LAST])));
+            }
+        }
+
+        return result;
+    }
+
+    public static long[] queueStatsValues(ActiveMQQueueJmxStats queueStats) {
+        return new long[] {
+                queueStats.getQueueSize(),
+                queueStats.getEnqueueCount(),
+                queueStats.getDequeueCount(),
+                queueStats.getNumConsumers(),
+                queueStats.getNumProducers(),
+                queueStats.getCursorPercentUsage(),
+                queueStats.getMemoryPercentUsage(),
+                queueStats.getInflightCount()
+        };
+    }
+
+    public static void applyQueueStatsValues(long[] values, ActiveMQQueueJmxStats queueStats) {
+        queueStats.setQueueSize(values[0]);
+        queueStats.setEnqueueCount(values[1]);
+        queueStats.setDequeueCount(values[2]);
+        queueStats.setNumConsumers(values[3]);
+        queueStats.setNumProducers(values[4]);
+        queueStats.setCursorPercentUsage((int) values[5]);
+        queueStats.setMemoryPercentUsage((int) values[6]);
+        queueStats.setInflightCount(values[7]);
+    }
+
+    public static long[] brokerStatsValues(ActiveMQBrokerStats brokerStats) {
+        return new long[] {
+                brokerStats.getAverageMessageSize(),
+                brokerStats.getUptimeMillis(),
+                brokerStats.getMemoryLimit(),
+                brokerStats.getMemoryPercentUsage(),
+                brokerStats.getStorePercentUsage(),
+                brokerStats.getCurrentConnectionsCount(),
+                brokerStats.getTotalConsumerCount(),
+                brokerStats.getTotalMessageCount(),
+                brokerStats.getTotalEnqueueCount(),
+                brokerStats.getTotalDequeueCount()
+        };
+    }
+
+    public static void applyBrokerStatsValues(long[] values, ActiveMQBrokerStats brokerStats) {
+        brokerStats.setAverageMessageSize(values[0]);
+        brokerStats.setUptimeMillis(values[1]);
+        brokerStats.setMemoryLimit(values[2]);
+        brokerStats.setMemoryPercentUsage((int) values[3]);
+        brokerStats.setStorePercentUsage((int) values[4]);
+        brokerStats.setCurrentConnectionsCount(values[5]);
+        brokerStats.setTotalConsumerCount(values[6]);
+        brokerStats.setTotalMessageCount(values[7]);
+        brokerStats.setTotalEnqueueCount(values[8]);
+        brokerStats.setTotalDequeueCount(values[9]);
+    }
+
+    /**
+     * @return number of segment files currently in the store.
+     */
+    public synchronized int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    protected static int recordOffset(int recordIndex) {
+        return HEADER_SIZE + ( recordIndex * RECORD_SIZE );
+    }
+
+    protected static int valueOffset(int valueIndex) {
+        return REC_VALUES + ( valueIndex * 8 );
+    }
+
+    protected synchronized String getName(int id) {
+        return this.names.get(id);
+    }
+
+    /**
+     * Records must be in time order for the scans; never let the timestamp go backwards, such as on a clock change.
+     */
+    protected long nextTimestamp(long timestamp) {
+        if ( timestamp > this.lastTimestamp ) {
+            this.lastTimestamp = timestamp;
+        }
+
+        return this.lastTimestamp;
+    }
+
+    protected Segment getAppendSegment() throws IOException {
+        if ( this.namesOutput == null ) {
+            throw new IOException("statistics store is not open: directory=" + this.directory);
+        }
+
+        Segment active = null;
+        if ( ! this.segments.isEmpty() ) {
+            active = this.segments.get(this.segments.size() - 1);
+        }
+
+        if ( ( active == null ) || ( active.isFull() ) ) {
+            if ( active != null ) {
+                active.buffer.force();
+            }
+
+            active = this.createSegment();
+            this.segments.add(active);
+
+            this.removeExcessSegments();
+        }
+
+        return active;
+    }
+
+    protected Segment createSegment() throws IOException {
+        File segmentFile = new File(this.directory,
+                SEGMENT_FILE_PREFIX + String.format("%016d", this.nextSegmentNumber) + SEGMENT_FILE_SUFFIX);
+        this.nextSegmentNumber++;
+
+        log.debug("creating statistics segment: file={}", segmentFile);
+
+        Segment segment = new Segment(segmentFile, this.segmentSize);
+
+        segment.buffer.putInt(HDR_MAGIC, SEGMENT_MAGIC);
+        segment.buffer.putInt(HDR_VERSION, SEGMENT_VERSION);
+        segment.buffer.putInt(HDR_RECORD_SIZE, RECORD_SIZE);
+        segment.buffer.putInt(HDR_RECORD_COUNT, 0);
+
+        return segment;
+    }
+
+    protected void removeExcessSegments() {
+        boolean expired;
+        while ( ( expired = this.isOldestSegmentExpired() ) || ( this.segments.size() > this.maxSegments ) ) {
+            Segment oldest = this.segments.remove(0);
+
+            if ( ( ! expired ) && ( this.retentionTime > 0 ) ) {
+                //
+                // The limit on the number of segments is too small to hold the retention time; size maxSegments and
+                // segmentSize for the number of queues.
+                //
+                log.warn("removing statistics segment before its retention time: file={}; max-segments={}; " +
+                        "segment-size={}; retention-time={}", oldest.file, this.maxSegments, this.segmentSize,
+                        this.retentionTime);
+            } else {
+                log.info("removing oldest statistics segment: file={}", oldest.file);
+            }
+
+            oldest.close();
+            if ( ! oldest.file.delete() ) {
+                log.warn("failed to delete statistics segment: file={}", oldest.file);
+            }
+        }
+    }
+
+    /**
+     * Determine whether the oldest segment holds only records older than the retention time.  The newest segment is
+     * never considered expired.
+     */
+    protected boolean isOldestSegmentExpired() {
+        if ( ( this.retentionTime <= 0 ) || ( this.segments.size() < 2 ) ) {
+            return false;
+        }
+
+        Segment oldest = this.segments.get(0);
+
+        return ( oldest.getRecordCount() == 0 ) ||
+                ( oldest.buffer.getLong(HDR_LAST_TIMESTAMP) < ( this.lastTimestamp - this.retentionTime ) );
+    }
+
+    protected void loadSegments() throws IOException {
+        File[] segmentFiles = this.directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX);
+            }
+        });
+
+        if ( segmentFiles == null ) {
+            return;
+        }
+
+        // The fixed-width segment numbers sort in creation order.
+        Arrays.sort(segmentFiles);
+
+        for ( File oneFile : segmentFiles ) {
+            String numberPart = oneFile.getName().substring(SEGMENT_FILE_PREFIX.length(),
+                    oneFile.getName().length() - SEGMENT_FILE_SUFFIX.length());
+            try {
+                this.nextSegmentNumber = Math.max(this.nextSegmentNumber, Long.parseLong(numberPart) + 1);
+            } catch ( NumberFormatException nfExc ) {
+                log.warn("ignoring statistics segment with invalid name: file={}", oneFile);
+                continue;
+            }
+
+            Segment segment = new Segment(oneFile, (int) oneFile.length());
+            if ( ( oneFile.length() < HEADER_SIZE ) ||
+                 ( segment.buffer.getInt(HDR_MAGIC) != SEGMENT_MAGIC ) ||
+                 ( segment.buffer.getInt(HDR_VERSION) != SEGMENT_VERSION ) ||
+                 ( segment.buffer.getInt(HDR_RECORD_SIZE) != RECORD_SIZE ) ) {
+
+                log.warn("ignoring invalid statistics segment: file={}", oneFile);
+                segment.close();
+                continue;
+            }
+
+            segment.indexRecords();
+
+            this.segments.add(segment);
+            if ( segment.getRecordCount() > 0 ) {
+                this.lastTimestamp = Math.max(this.lastTimestamp, segment.buffer.getLong(HDR_LAST_TIMESTAMP));
+            }
+        }
+    }
+
+    /**
+     * Load the names, each identified by its position in the file.  An entry only partially written, as on a crash,
+     * is dropped and the file truncated to the last complete entry.
+     */
+    protected void loadNames() throws IOException {
+        File namesFile = new File(this.directory, NAMES_FILE);
+
+        long validLength = 0;
+        if ( namesFile.exists() ) {
+            try ( DataInputStream input =
+                          new DataInputStream(new BufferedInputStream(new FileInputStream(namesFile))) ) {
+                while ( true ) {
+                    String name = input.readUTF();
+
+                    this.nameIds.put(name, this.names.size());
+                    this.names.add(name);
+                    validLength += 2 + utf8Length(name);
+                }
+            } catch ( EOFException eofExc ) {
+                // Reached the end of the names.
+            }
+
+            if ( validLength != namesFile.length() ) {
+                log.warn("truncating incomplete name entry in statistics store: file={}", namesFile);
+
+                try ( RandomAccessFile truncateFile = new RandomAccessFile(namesFile, "rw") ) {
+                    truncateFile.setLength(validLength);
+                }
+            }
+        }
+
+        this.namesOutput = new DataOutputStream(new FileOutputStream(namesFile, true));
+    }
+
+    protected int getOrCreateNameId(String name) throws IOException {
+        if ( this.namesOutput == null ) {
+            throw new IOException("statistics store is not open: directory=" + this.directory);
+        }
+
+        if ( name == null ) {
+            name = "";
+        }
+
+        Integer id = this.nameIds.get(name);
+        if ( id == null ) {
+            this.namesOutput.writeUTF(name);
+            this.namesOutput.flush();
+
+            id = this.names.size();
+            this.nameIds.put(name, id);
+            this.names.add(name);
+        }
+
+        return id;
+    }
+
+    /**
+     * Length of the given string in the modified UTF-8 encoding used by DataOutput.writeUTF().
+     */
+    protected static int utf8Length(String value) {
+        int result = 0;
+        for ( int cur = 0; cur < value.length(); cur++ ) {
+            char ch = value.charAt(cur);
+            if ( ( ch >= 0x0001 ) && ( ch <= 0x007F ) ) {
+                result++;
+            } else if ( ch > 0x07FF ) {
+                result += 3;
+            } else {
+                result += 2;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Visitor of the records found by a scan.
+     */
+    public interface RecordVisitor {
+        void onRecord(long timestamp, int aggregate, String brokerName, long[] values);
+    }
+
+    /**
+     * Conversion of the values of a record into statistics.
+     */
+    protected interface RollupValueConverter<T> {
+        T convert(String brokerName, long[] values);
+    }
+
+    /**
+     * Records of one broker at one time, indexed by aggregate.
+     */
+    protected static class RecordGroup {
+        private final long timestamp;
+        private final String brokerName;
+
+        private long[] sample;
+
+        /**
+         * Set of aggregates being read, indexed by aggregate, and the merge of the complete sets read before it.
+         */
+        private long[][] values = new long[AGGREGATE_COUNT + 1][];
+        private long[][] summary;
+        private long summaryCount;
+
+        public RecordGroup(long timestamp, String brokerName) {
+            this.timestamp = timestamp;
+            this.brokerName = brokerName;
+        }
+
+        public void add(int aggregate, long[] recordValues) {
+            if ( aggregate == AGGREGATE_SAMPLE ) {
+                this.sample = recordValues;
+                return;
+            }
+
+            // A repeated aggregate starts the next set.
+            if ( this.values[aggregate] != null ) {
+                this.completeSet();
+            }
+
+            this.values[aggregate] = recordValues;
+        }
+
+        /**
+         * Merge the set of aggregates being read into the summary; incomplete sets are dropped.  Sets written without
+         * a sample count count as one sample.
+         */
+        public void completeSet() {
+            long[][] set = this.values;
+            this.values = new long[AGGREGATE_COUNT + 1][];
+
+            if ( ( set[AGGREGATE_MIN] == null ) || ( set[AGGREGATE_MAX] == null ) || ( set[AGGREGATE_AVG] == null ) ||
+                 ( set[AGGREGATE_LAST] == null ) ) {
+                return;
+            }
+
+            long count = 1;
+            if ( ( set[AGGREGATE_COUNT] != null ) && ( set[AGGREGATE_COUNT][0] > 0 ) ) {
+                count = set[AGGREGATE_COUNT][0];
+            }
+
+            if ( this.summary == null ) {
+                this.summary = set;
+                this.summaryCount = count;
+                return;
+            }
+
+            long totalCount = this.summaryCount + count;
+            for ( int cur = 0; cur < NUM_VALUES; cur++ ) {
+                this.summary[AGGREGATE_MIN][cur] = Math.min(this.summary[AGGREGATE_MIN][cur], set[AGGREGATE_MIN][cur]);
+                this.summary[AGGREGATE_MAX][cur] = Math.max(this.summary[AGGREGATE_MAX][cur], set[AGGREGATE_MAX][cur]);
+                this.summary[AGGREGATE_AVG][cur] = ( ( this.summary[AGGREGATE_AVG][cur] * this.summaryCount ) +
+                        ( set[AGGREGATE_AVG][cur] * count ) ) / totalCount;
+            }
+            this.summary[AGGREGATE_LAST] = set[AGGREGATE_LAST];
+            this.summaryCount = totalCount;
+        }
+    }
+
+    /**
+     * Indexes, in time order, of the records of one name within a segment.  Records are only appended; growing the
+     * array replaces it, so the indexes up to a count read under the store lock remain valid without the lock.
+     */
+    protected static class NameRecords {
+        private int[] recordIndexes = new int[16];
+        private int count;
+
+        public void add(int recordIndex) {
+            if ( this.count == this.recordIndexes.length ) {
+                this.recordIndexes = Arrays.copyOf(this.recordIndexes, this.count * 2);
+            }
+
+            this.recordIndexes[this.count] = recordIndex;
+            this.count++;
+        }
+    }
+
+    /**
+     * One segment file, mapped into memory in its entirety.
+     */
+    protected class Segment {
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final Map<Integer, NameRecords> nameIndex = new HashMap<>();
+
+        public Segment(File file, int size) throws IOException {
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+
+            try {
+                if ( this.randomAccessFile.length() < size ) {
+                    this.randomAccessFile.setLength(size);
+                }
+
+                this.buffer = this.randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch ( IOException ioExc ) {
+                this.randomAccessFile.close();
+                throw ioExc;
+            }
+
+            this.capacity = Math.max(0, ( size - HEADER_SIZE ) / RECORD_SIZE);
+        }
+
+        public int getRecordCount() {
+            return this.buffer.getInt(HDR_RECORD_COUNT);
+        }
+
+        public boolean isFull() {
+            return this.getRecordCount() >= this.capacity;
+        }
+
+        public boolean overlaps(long fromTime, long toTime) {
+            return ( this.getRecordCount() > 0 ) && ( this.buffer.getLong(HDR_FIRST_TIMESTAMP) <= toTime ) &&
+                    ( this.buffer.getLong(HDR_LAST_TIMESTAMP) >= fromTime );
+        }
+
+        /**
+         * Write the header of a new record at the end of the segment; the record is not visible until committed.
+         *
+         * @return offset of the record within the segment.
+         */
+        public int startRecord(long timestamp, int recordType, int aggregate, int nameId, int brokerId) {
+            int offset = recordOffset(this.getRecordCount());
+
+            this.buffer.putLong(offset + REC_TIMESTAMP, timestamp);
+            this.buffer.putShort(offset + REC_TYPE, (short) recordType);
+            this.buffer.putShort(offset + REC_AGGREGATE, (short) aggregate);
+            this.buffer.putInt(offset + REC_NAME_ID, nameId);
+            this.buffer.putInt(offset + REC_BROKER_ID, brokerId);
+
+            return offset;
+        }
+
+        /**
+         * Make the record written since startRecord() visible by updating the header.  The count is written last so a
+         * partially-written record is never included.
+         */
+        public void commitRecord(long timestamp, int nameId) {
+            int count = this.getRecordCount();
+            if ( count == 0 ) {
+                this.buffer.putLong(HDR_FIRST_TIMESTAMP, timestamp);
+            }
+            this.buffer.putLong(HDR_LAST_TIMESTAMP, timestamp);
+            this.buffer.putInt(HDR_RECORD_COUNT, count + 1);
+
+            this.indexRecord(nameId, count);
+        }
+
+        /**
+         * Rebuild the name index from the records of a segment loaded from its file.
+         */
+        public void indexRecords() {
+            int count = this.getRecordCount();
+            for ( int cur = 0; cur < count; cur++ ) {
+                this.indexRecord(this.buffer.getInt(recordOffset(cur) + REC_NAME_ID), cur);
+            }
+        }
+
+        /**
+         * Binary search for the first of the given number of indexed records at or after the given time.
+         *
+         * @return position of the record within the record indexes; the count if there is none.
+         */
+        public int findFirstRecord(int[] recordIndexes, long fromTime, int count) {
+            int low = 0;
+            int high = count;
+
+            while ( low < high ) {
+                int mid = ( low + high ) >>> 1;
+                if ( this.buffer.getLong(recordOffset(recordIndexes[mid]) + REC_TIMESTAMP) < fromTime ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+
+        protected void indexRecord(int nameId, int recordIndex) {
+            NameRecords records = this.nameIndex.get(nameId);
+            if ( records == null ) {
+                records = new NameRecords();
+                this.nameIndex.put(nameId, records);
+            }
+
+            records.add(recordIndex);
+        }
+
+        public void close() {
+            try {
+                this.randomAccessFile.close();
+            } catch ( IOException ioExc ) {
+                log.debug("failed to close statistics segment: file={}", this.file, ioExc);
+            }
+        }
+    }
+}
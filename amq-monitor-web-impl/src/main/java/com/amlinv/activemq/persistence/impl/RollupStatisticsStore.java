@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence.impl;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.persistence.StatisticsStore;
+import com.amlinv.activemq.persistence.StoredBrokerStats;
+import com.amlinv.activemq.persistence.StoredQueueStats;
+import com.amlinv.activemq.persistence.StoredStatsRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Statistics store which keeps raw samples in one store and summarizes them into rollup tiers of increasing interval,
+ * such as 1 minute, 15 minutes and 1 hour.  Each tier is summarized directly from the raw samples as they are stored,
+ * so raw samples are never read back for rollups, and each tier's store bounds its own size with its retention time.
+ *
+ * Queries for a resolution are served from the coarsest tier with an interval no longer than the resolution, or
+ * from the raw samples when the resolution is finer than every tier.
+ */
+public class RollupStatisticsStore implements StatisticsStore {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(RollupStatisticsStore.class);
+
+    private final StatisticsStore rawStore;
+    private final List<StatisticsRollupTier> tiers;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    public RollupStatisticsStore(StatisticsStore rawStore, List<StatisticsRollupTier> tiers) {
+        this.rawStore = rawStore;
+        this.tiers = new ArrayList<>(tiers);
+
+        Collections.sort(this.tiers, new Comparator<StatisticsRollupTier>() {
+            @Override
+            public int compare(StatisticsRollupTier tier1, StatisticsRollupTier tier2) {
+                return Long.compare(tier1.getInterval(), tier2.getInterval());
+            }
+        });
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public StatisticsStore getRawStore() {
+        return rawStore;
+    }
+
+    /**
+     * @return the rollup tiers, in order of increasing interval.
+     */
+    public List<StatisticsRollupTier> getTiers() {
+        return Collections.unmodifiableList(this.tiers);
+    }
+
+    /**
+     * Write the summaries of the intervals in progress in every tier.  Must be called before the tier stores are
+     * closed.
+     */
+    public void close() throws IOException {
+        for ( StatisticsRollupTier oneTier : this.tiers ) {
+            try {
+                oneTier.flush();
+            } catch ( IOException ioExc ) {
+                this.log.warn("failed to flush statistics rollup tier: interval={}", oneTier.getInterval(), ioExc);
+            }
+        }
+    }
+
+    @Override
+    public void storeBrokerStats(long timestamp, ActiveMQBrokerStats brokerStats) throws IOException {
+        this.rawStore.storeBrokerStats(timestamp, brokerStats);
+
+        long[] values = MappedFileStatisticsStore.brokerStatsValues(brokerStats);
+        for ( StatisticsRollupTier oneTier : this.tiers ) {
+            oneTier.addSample(timestamp, MappedFileStatisticsStore.RECORD_TYPE_BROKER, brokerStats.getBrokerName(),
+                    brokerStats.getBrokerName(), values);
+        }
+    }
+
+    @Override
+    public void storeQueueStats(long timestamp, ActiveMQQueueJmxStats queueStats) throws IOException {
+        this.rawStore.storeQueueStats(timestamp, queueStats);
+
+        long[] values = MappedFileStatisticsStore.queueStatsValues(queueStats);
+        for ( StatisticsRollupTier oneTier : this.tiers ) {
+            oneTier.addSample(timestamp, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, queueStats.getQueueName(),
+                    queueStats.getBrokerName(), values);
+        }
+    }
+
+    @Override
+    public List<StoredQueueStats> scanQueueStats(String queueName, long fromTime, long toTime) throws IOException {
+        return this.rawStore.scanQueueStats(queueName, fromTime, toTime);
+    }
+
+    @Override
+    public List<StoredBrokerStats> scanBrokerStats(String brokerName, long fromTime, long toTime) throws IOException {
+        return this.rawStore.scanBrokerStats(brokerName, fromTime, toTime);
+    }
+
+    @Override
+    public List<StoredStatsRollup<ActiveMQQueueJmxStats>> scanQueueStatsRollup(String queueName, long fromTime,
+                                                                               long toTime, long resolution)
+            throws IOException {
+
+        return this.selectStore(resolution).scanQueueStatsRollup(queueName, fromTime, toTime, resolution);
+    }
+
+    @Override
+    public List<StoredStatsRollup<ActiveMQBrokerStats>> scanBrokerStatsRollup(String brokerName, long fromTime,
+                                                                              long toTime, long resolution)
+            throws IOException {
+
+        return this.selectStore(resolution).scanBrokerStatsRollup(brokerName, fromTime, toTime, resolution);
+    }
+
+    /**
+     * Select the store of the coarsest tier with an interval no longer than the given resolution.
+     */
+    protected StatisticsStore selectStore(long resolution) {
+        StatisticsStore result = this.rawStore;
+
+        for ( StatisticsRollupTier oneTier : this.tiers ) {
+            if ( oneTier.getInterval() > resolution ) {
+                break;
+            }
+
+            result = oneTier.getStore();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One rollup tier of a statistics store: raw samples are summarized over fixed intervals aligned to the epoch, and the
+ * minimum, maximum, average and last of each value are written to the tier's store once the interval is complete.
+ *
+ * Intervals in progress are held in memory, one per broker, queue and interval.  All of the intervals in progress are
+ * completed on the first sample of a later interval, so a queue which is no longer sampled does not hold memory.
+ *
+ * The store requires records in time order, so completed intervals are written in order of their start times, and a
+ * sample arriving after a later interval was written is dropped with a warning.  A late sample of the interval last
+ * written starts another summary of that interval, which scans merge.
+ */
+public class StatisticsRollupTier {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(StatisticsRollupTier.class);
+
+    private static final Comparator<Accumulator> INTERVAL_START_ORDER = new Comparator<Accumulator>() {
+        @Override
+        public int compare(Accumulator first, Accumulator second) {
+            return Long.compare(first.intervalStart, second.intervalStart);
+        }
+    };
+
+    private final MappedFileStatisticsStore store;
+    private final long interval;
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private final Map<String, Accumulator> accumulators = new HashMap<>();
+    private long currentIntervalStart = Long.MIN_VALUE;
+    private long lastWrittenIntervalStart = Long.MIN_VALUE;
+
+    /**
+     * @param store store for the summaries; its rollup interval determines the interval of the tier.
+     */
+    public StatisticsRollupTier(MappedFileStatisticsStore store) {
+        if ( store.getRollupInterval() <= 0 ) {
+            throw new IllegalArgumentException("rollup tier store must have a positive rollup interval: directory=" +
+                    store.getDirectory());
+        }
+
+        this.store = store;
+        this.interval = store.getRollupInterval();
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public MappedFileStatisticsStore getStore() {
+        return store;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Add one raw sample to the tier.
+     *
+     * @param timestamp time of the sample.
+     * @param recordType MappedFileStatisticsStore.RECORD_TYPE_BROKER or RECORD_TYPE_QUEUE.
+     * @param name name of the queue or broker.
+     * @param brokerName name of the broker.
+     * @param values values of the sample.
+     */
+    public synchronized void addSample(long timestamp, int recordType, String name, String brokerName, long[] values)
+            throws IOException {
+
+        long intervalStart = timestamp - ( timestamp % this.interval );
+
+        if ( intervalStart > this.currentIntervalStart ) {
+            this.completeIntervalsBefore(intervalStart);
+            this.currentIntervalStart = intervalStart;
+        }
+
+        if ( intervalStart < this.lastWrittenIntervalStart ) {
+            this.log.warn("dropping sample older than the last interval written: interval={}; timestamp={}; " +
+                    "last-written={}; name={}; broker={}", this.interval, timestamp, this.lastWrittenIntervalStart,
+                    name, brokerName);
+            return;
+        }
+
+        // Samples older than the current interval can arrive across brokers.
+        String key = recordType + ":" + brokerName + ":" + name + ":" + intervalStart;
+        Accumulator accumulator = this.accumulators.get(key);
+
+        if ( accumulator == null ) {
+            accumulator = new Accumulator(intervalStart, recordType, name, brokerName, values.length);
+            this.accumulators.put(key, accumulator);
+        }
+
+        accumulator.add(values);
+    }
+
+    /**
+     * Write the summaries of all intervals in progress, such as on shutdown.  Samples in the remainder of an interval
+     * written in this way are summarized separately, under the same interval start time; the sample counts written
+     * with each summary let scans merge them.
+     */
+    public synchronized void flush() throws IOException {
+        this.completeIntervalsBefore(Long.MAX_VALUE);
+    }
+
+    protected void completeIntervalsBefore(long intervalStart) throws IOException {
+        List<Accumulator> completed = new ArrayList<>();
+
+        Iterator<Accumulator> iterator = this.accumulators.values().iterator();
+        while ( iterator.hasNext() ) {
+            Accumulator oneAccumulator = iterator.next();
+
+            if ( oneAccumulator.intervalStart < intervalStart ) {
+                iterator.remove();
+                completed.add(oneAccumulator);
+            }
+        }
+
+        Collections.sort(completed, INTERVAL_START_ORDER);
+        for ( Accumulator oneAccumulator : completed ) {
+            this.writeAccumulator(oneAccumulator);
+            this.lastWrittenIntervalStart = oneAccumulator.intervalStart;
+        }
+    }
+
+    protected void writeAccumulator(Accumulator accumulator) throws IOException {
+        this.log.trace("writing rollup: interval={}; start={}; name={}; broker={}; sample-count={}", this.interval,
+                accumulator.intervalStart, accumulator.name, accumulator.brokerName, accumulator.count);
+
+        long[] avg = new long[accumulator.sum.length];
+        for ( int cur = 0; cur < avg.length; cur++ ) {
+            avg[cur] = accumulator.sum[cur] / accumulator.count;
+        }
+
+        long start = accumulator.intervalStart;
+        this.store.storeRecord(start, accumulator.recordType, MappedFileStatisticsStore.AGGREGATE_MIN,
+                accumulator.name, accumulator.brokerName, accumulator.min);
+        this.store.storeRecord(start, accumulator.recordType, MappedFileStatisticsStore.AGGREGATE_MAX,
+                accumulator.name, accumulator.brokerName, accumulator.max);
+        this.store.storeRecord(start, accumulator.recordType, MappedFileStatisticsStore.AGGREGATE_AVG,
+                accumulator.name, accumulator.brokerName, avg);
+        this.store.storeRecord(start, accumulator.recordType, MappedFileStatisticsStore.AGGREGATE_COUNT,
+                accumulator.name, accumulator.brokerName, new long[] { accumulator.count });
+        this.store.storeRecord(start, accumulator.recordType, MappedFileStatisticsStore.AGGREGATE_LAST,
+                accumulator.name, accumulator.brokerName, accumulator.last);
+    }
+
+    /**
+     * Running summary of the samples of one queue or broker over one interval.
+     */
+    protected static class Accumulator {
+        private final long intervalStart;
+        private final int recordType;
+        private final String name;
+        private final String brokerName;
+
+        private final long[] min;
+        private final long[] max;
+        private final long[] sum;
+        private final long[] last;
+        private long count;
+
+        public Accumulator(long intervalStart, int recordType, String name, String brokerName, int numValues) {
+            this.intervalStart = intervalStart;
+            this.recordType = recordType;
+            this.name = name;
+            this.brokerName = brokerName;
+
+            this.min = new long[numValues];
+            this.max = new long[numValues];
+            this.sum = new long[numValues];
+            this.last = new long[numValues];
+        }
+
+        public void add(long[] values) {
+            int numValues = Math.min(values.length, this.sum.length);
+
+            for ( int cur = 0; cur < numValues; cur++ ) {
+                long value = values[cur];
+
+                if ( ( this.count == 0 ) || ( value < this.min[cur] ) ) {
+                    this.min[cur] = value;
+                }
+                if ( ( this.count == 0 ) || ( value > this.max[cur] ) ) {
+                    this.max[cur] = value;
+                }
+                this.sum[cur] += value;
+                this.last[cur] = value;
+            }
+
+            this.count++;
+        }
+    }
+}
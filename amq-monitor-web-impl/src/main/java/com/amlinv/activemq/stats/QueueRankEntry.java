@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+/**
+ * Value of one ranking metric for one queue.  Ordered by descending value, then by queue name so every queue has a
+ * distinct position.
+ */
+public class QueueRankEntry implements Comparable<QueueRankEntry> {
+    private final String queueName;
+    private final double value;
+
+    public QueueRankEntry(String queueName, double value) {
+        this.queueName = queueName;
+        this.value = value;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public int compareTo(QueueRankEntry other) {
+        int result = Double.compare(other.value, this.value);
+
+        if ( result == 0 ) {
+            result = this.queueName.compareTo(other.queueName);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( ! ( other instanceof QueueRankEntry ) ) {
+            return false;
+        }
+
+        QueueRankEntry otherEntry = (QueueRankEntry) other;
+        return ( Double.compare(this.value, otherEntry.value) == 0 ) && this.queueName.equals(otherEntry.queueName);
+    }
+
+    @Override
+    public int hashCode() {
+        long valueBits = Double.doubleToLongBits(this.value);
+
+        return ( 31 * this.queueName.hashCode() ) + (int) ( valueBits ^ ( valueBits >>> 32 ) );
+    }
+}
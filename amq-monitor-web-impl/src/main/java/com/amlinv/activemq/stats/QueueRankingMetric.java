@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+/**
+ * Metric by which queues are ranked in the top-N queue index.  Rates are the one-minute averages, in messages per
+ * second, aggregated across brokers; backlog growth is the enqueue rate less the dequeue rate.
+ */
+public enum QueueRankingMetric {
+    QUEUE_SIZE("queueSize"),
+    ENQUEUE_RATE("enqueueRate"),
+    DEQUEUE_RATE("dequeueRate"),
+    INFLIGHT_COUNT("inflightCount"),
+    BACKLOG_GROWTH("backlogGrowth");
+
+    private final String metricName;
+
+    QueueRankingMetric(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    /**
+     * Lookup the metric with the given name.
+     *
+     * @param metricName name of the metric, such as "queueSize".
+     * @return the metric; null if there is no metric with the given name.
+     */
+    public static QueueRankingMetric fromMetricName(String metricName) {
+        for ( QueueRankingMetric oneMetric : values() ) {
+            if ( oneMetric.metricName.equals(metricName) ) {
+                return oneMetric;
+            }
+        }
+
+        return null;
+    }
+}
@@ -20,24 +20,57 @@ import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Collection of statistics for a single Queue.
  *
+ * Counts are held in primitive arrays, per broker and aggregated across brokers, and are updated in place so the
+ * steady-state update path does not allocate.  A fixed-size history of samples is also kept for each broker; see
+ * QueueStatisticsHistory.
+ *
  * Created by art on 5/28/15.
  */
 public class QueueStatisticsCollection {
     private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(QueueStatisticsCollection.class);
 
+    //
+    // Index of each count within the per-broker and aggregated count arrays.
+    //
+    protected static final int QUEUE_SIZE = 0;
+    protected static final int ENQUEUE_COUNT = 1;
+    protected static final int DEQUEUE_COUNT = 2;
+    protected static final int NUM_CONSUMERS = 3;
+    protected static final int NUM_PRODUCERS = 4;
+    protected static final int INFLIGHT_COUNT = 5;
+    protected static final int NUM_COUNTS = 6;
+
+    /**
+     * Default history of 24 hours at 5 minute intervals; about 14 KB per queue per broker.
+     */
+    public static final int DEFAULT_HISTORY_CAPACITY = 288;
+    public static final long DEFAULT_HISTORY_SAMPLE_INTERVAL = 5 * 60 * 1000L;
+
     private final String queueName;
+    private final int historyCapacity;
+    private final long historySampleInterval;
 
     private final Map<String, QueueStatMeasurements> statsByBroker = new HashMap<>();
 
+    /**
+     * Same measurements as statsByBroker, for iteration without allocating an iterator.
+     */
+    private final List<QueueStatMeasurements> measurementsList = new ArrayList<>();
+
     private Logger log = DEFAULT_LOGGER;
 
-    private ActiveMQQueueJmxStats aggregatedStats;
+    private final long[] aggregateCounts = new long[NUM_COUNTS];
+    private int aggregateCursorPercentUsage = 0;
+    private int aggregateMemoryPercentUsage = 0;
     private double aggregateDequeueRateOneMinute = 0.0;
     private double aggregateDequeueRateOneHour = 0.0;
     private double aggregateDequeueRateOneDay = 0.0;
@@ -47,8 +80,29 @@ public class QueueStatisticsCollection {
 
     private StatsClock statsClock = new SystemStatsClock();
 
+    /**
+     * Index of the top queues, updated with the aggregated statistics of this queue on each update; null for none.
+     */
+    private QueueTopNIndex topNIndex;
+
+    /**
+     * Whether the queue was removed from its registry; guarded by statsByBroker.
+     */
+    private boolean removed = false;
+
     public QueueStatisticsCollection(String queueName) {
+        this(queueName, DEFAULT_HISTORY_CAPACITY, DEFAULT_HISTORY_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * @param queueName name of the queue.
+     * @param historyCapacity number of history samples kept per broker; 0 disables history.
+     * @param historySampleInterval minimum time, in milliseconds, between history samples.
+     */
+    public QueueStatisticsCollection(String queueName, int historyCapacity, long historySampleInterval) {
         this.queueName = queueName;
+        this.historyCapacity = historyCapacity;
+        this.historySampleInterval = historySampleInterval;
     }
 
     public Logger getLog() {
@@ -71,41 +125,78 @@ public class QueueStatisticsCollection {
         this.statsClock = statsClock;
     }
 
+    public QueueTopNIndex getTopNIndex() {
+        return topNIndex;
+    }
+
+    public void setTopNIndex(QueueTopNIndex topNIndex) {
+        this.topNIndex = topNIndex;
+    }
+
     public void onUpdatedStats (ActiveMQQueueJmxStats updatedStats) {
-        this.log.trace("Have updated stats for queue {}; consumer-count={}", this.queueName,
-                updatedStats.getNumConsumers());
+        if ( this.log.isTraceEnabled() ) {
+            this.log.trace("Have updated stats for queue {}; consumer-count={}", this.queueName,
+                    updatedStats.getNumConsumers());
+        }
 
 
         String brokerName = updatedStats.getBrokerName();
         synchronized ( this.statsByBroker ) {
+            // An update that was in flight when the queue was removed; keep it out of the index.
+            if ( this.removed ) {
+                return;
+            }
+
             QueueStatMeasurements brokerQueueStats = this.statsByBroker.get(brokerName);
             if ( brokerQueueStats == null ) {
                 //
                 // First time to see stats for this broker and queue, so don't update message rates.
                 //
-                brokerQueueStats = new QueueStatMeasurements(updatedStats.dup(brokerName));
+                brokerQueueStats = new QueueStatMeasurements();
                 this.statsByBroker.put(brokerName, brokerQueueStats);
+                this.measurementsList.add(brokerQueueStats);
 
-                if ( this.aggregatedStats != null ) {
-                    this.aggregatedStats = this.aggregatedStats.addCounts(updatedStats, "totals");
-                    this.updateNonCountStats(updatedStats);
-                } else {
-                    this.aggregatedStats = updatedStats.dup("totals");
-                }
+                this.storeCounts(brokerQueueStats, updatedStats);
+                this.updateNonCountStats();
+                this.addHistorySample(brokerQueueStats, this.statsClock.getStatsStopWatchTime());
             } else {
                 //
-                // Updates to existing stats.  Add in the effect of the new stats: subtractCounts the old stats from the
-                //  new and addCounts those back into the aggregated results; addCounts the updated enqueue and dequeue
-                //  counts to the rate collector for the queue; and store the results.
+                // Updates to existing stats.  Add in the effect of the new stats: the difference between the new and
+                //  old counts is added into the aggregated counts; the updated enqueue and dequeue counts are added to
+                //  the rate collector for the queue; and the new counts replace the old ones.
                 //
+                long dequeueCountDelta =
+                        updatedStats.getDequeueCount() - brokerQueueStats.counts[DEQUEUE_COUNT];
+                long enqueueCountDelta =
+                        updatedStats.getEnqueueCount() - brokerQueueStats.counts[ENQUEUE_COUNT];
 
-                ActiveMQQueueJmxStats diffs = updatedStats.subtractCounts(brokerQueueStats.statsFromBroker);
-                this.aggregatedStats = this.aggregatedStats.addCounts(diffs, "totals");
+                long sampleTime = this.statsClock.getStatsStopWatchTime();
 
-                this.updateNonCountStats(updatedStats);
+                this.storeCounts(brokerQueueStats, updatedStats);
+                this.updateNonCountStats();
+                this.addHistorySample(brokerQueueStats, sampleTime);
 
-                brokerQueueStats.statsFromBroker = updatedStats.dup(brokerName);
-                this.updateRates(brokerQueueStats, diffs.getDequeueCount(), diffs.getEnqueueCount());
+                this.updateRates(brokerQueueStats, sampleTime, dequeueCountDelta, enqueueCountDelta);
+            }
+
+            if ( this.topNIndex != null ) {
+                this.topNIndex.onQueueUpdated(this.queueName, this.aggregateCounts[QUEUE_SIZE],
+                        this.aggregateEnqueueRateOneMinute, this.aggregateDequeueRateOneMinute,
+                        this.aggregateCounts[INFLIGHT_COUNT]);
+            }
+        }
+    }
+
+    /**
+     * Mark the queue as removed from its registry and remove it from the index of top queues; later updates are
+     * ignored.
+     */
+    public void onRemoved() {
+        synchronized ( this.statsByBroker ) {
+            this.removed = true;
+
+            if ( this.topNIndex != null ) {
+                this.topNIndex.removeQueue(this.queueName);
             }
         }
     }
@@ -113,9 +204,28 @@ public class QueueStatisticsCollection {
     public ActiveMQQueueStats getQueueTotalStats () {
         ActiveMQQueueStats result = new ActiveMQQueueStats("totals", this.queueName);
 
+        this.copyOutQueueTotalStats(result);
+
+        return result;
+    }
+
+    /**
+     * Copy the totals for the queue across all brokers into the given stats, allowing callers to reuse one stats
+     * object across calls.
+     *
+     * @param result stats object which receives the totals.
+     */
+    public void copyOutQueueTotalStats (ActiveMQQueueStats result) {
         synchronized ( this.statsByBroker ) {
-            if ( this.aggregatedStats != null ) {
-                aggregatedStats.copyOut(result);
+            if ( ! this.measurementsList.isEmpty() ) {
+                result.setQueueSize(this.aggregateCounts[QUEUE_SIZE]);
+                result.setEnqueueCount(this.aggregateCounts[ENQUEUE_COUNT]);
+                result.setDequeueCount(this.aggregateCounts[DEQUEUE_COUNT]);
+                result.setNumConsumers(this.aggregateCounts[NUM_CONSUMERS]);
+                result.setNumProducers(this.aggregateCounts[NUM_PRODUCERS]);
+                result.setInflightCount(this.aggregateCounts[INFLIGHT_COUNT]);
+                result.setCursorPercentUsage(this.aggregateCursorPercentUsage);
+                result.setMemoryPercentUsage(this.aggregateMemoryPercentUsage);
             }
 
             result.setDequeueRate1Minute(aggregateDequeueRateOneMinute);
@@ -126,36 +236,96 @@ public class QueueStatisticsCollection {
             result.setEnqueueRate1Hour(aggregateEnqueueRateOneHour);
             result.setEnqueueRate1Day(aggregateEnqueueRateOneDay);
         }
+    }
+
+    /**
+     * Retrieve the history of the queue on each broker.
+     *
+     * @param sinceTime earliest sample time to include, in milliseconds since the epoch.
+     * @return series of samples for each broker, keyed by broker name.
+     */
+    public Map<String, QueueStatisticsHistorySeries> getHistory(long sinceTime) {
+        Map<String, QueueStatisticsHistorySeries> result = new TreeMap<>();
+
+        synchronized ( this.statsByBroker ) {
+            //
+            // Samples are timestamped with the stats clock; convert to wall-clock time.
+            //
+            long timeOffset = System.currentTimeMillis() - this.statsClock.getStatsStopWatchTime();
+
+            for ( Map.Entry<String, QueueStatMeasurements> oneBroker : this.statsByBroker.entrySet() ) {
+                result.put(oneBroker.getKey(), oneBroker.getValue().history.getSeries(sinceTime - timeOffset,
+                        timeOffset));
+            }
+        }
 
         return result;
     }
 
-    protected void updateNonCountStats(ActiveMQQueueJmxStats updatedStats) {
+    /**
+     * Store the counts from the given stats for one broker, adding the change from the previous counts into the
+     * aggregated counts.
+     *
+     * @param measurements measurements for the broker.
+     * @param updatedStats latest stats polled from the broker.
+     */
+    protected void storeCounts(QueueStatMeasurements measurements, ActiveMQQueueJmxStats updatedStats) {
+        this.storeCount(measurements, QUEUE_SIZE, updatedStats.getQueueSize());
+        this.storeCount(measurements, ENQUEUE_COUNT, updatedStats.getEnqueueCount());
+        this.storeCount(measurements, DEQUEUE_COUNT, updatedStats.getDequeueCount());
+        this.storeCount(measurements, NUM_CONSUMERS, updatedStats.getNumConsumers());
+        this.storeCount(measurements, NUM_PRODUCERS, updatedStats.getNumProducers());
+        this.storeCount(measurements, INFLIGHT_COUNT, updatedStats.getInflightCount());
+
+        measurements.cursorPercentUsage = updatedStats.getCursorPercentUsage();
+        measurements.memoryPercentUsage = updatedStats.getMemoryPercentUsage();
+    }
+
+    protected void storeCount(QueueStatMeasurements measurements, int index, long newValue) {
+        this.aggregateCounts[index] += newValue - measurements.counts[index];
+        measurements.counts[index] = newValue;
+    }
+
+    protected void addHistorySample(QueueStatMeasurements measurements, long sampleTime) {
+        if ( this.historyCapacity > 0 ) {
+            measurements.history.addSample(sampleTime, measurements.counts[QUEUE_SIZE],
+                    measurements.counts[ENQUEUE_COUNT], measurements.counts[DEQUEUE_COUNT],
+                    measurements.counts[NUM_CONSUMERS], measurements.counts[INFLIGHT_COUNT]);
+        }
+    }
+
+    protected void updateNonCountStats() {
         int highestCursorPct = 0;
         int highestMemoryPct = 0;
 
-        for ( QueueStatMeasurements measurements : statsByBroker.values() ) {
-            if ( measurements.statsFromBroker.getCursorPercentUsage() > highestCursorPct ) {
-                highestCursorPct = measurements.statsFromBroker.getCursorPercentUsage();
+        int count = this.measurementsList.size();
+        for ( int cur = 0; cur < count; cur++ ) {
+            QueueStatMeasurements measurements = this.measurementsList.get(cur);
+
+            if ( measurements.cursorPercentUsage > highestCursorPct ) {
+                highestCursorPct = measurements.cursorPercentUsage;
             }
 
-            if ( measurements.statsFromBroker.getMemoryPercentUsage() > highestMemoryPct ) {
-                highestMemoryPct = measurements.statsFromBroker.getMemoryPercentUsage();
+            if ( measurements.memoryPercentUsage > highestMemoryPct ) {
+                highestMemoryPct = measurements.memoryPercentUsage;
             }
         }
 
-        this.aggregatedStats.setCursorPercentUsage(highestCursorPct);
-        this.aggregatedStats.setMemoryPercentUsage(highestMemoryPct);
+        this.aggregateCursorPercentUsage = highestCursorPct;
+        this.aggregateMemoryPercentUsage = highestMemoryPct;
     }
 
     /**
      * Update message rates given the change in dequeue and enqueue counts for one broker queue.
      *
      * @param rateMeasurements measurements for one broker queue.
+     * @param sampleTime stats clock time of the measurement.
      * @param dequeueCountDelta change in the dequeue count since the last measurement for the same broker queue.
      * @param enqueueCountDelta change in the enqueue count since the last measurement for the same broker queue.
      */
-    protected void updateRates (QueueStatMeasurements rateMeasurements, long dequeueCountDelta, long enqueueCountDelta) {
+    protected void updateRates (QueueStatMeasurements rateMeasurements, long sampleTime, long dequeueCountDelta,
+                                long enqueueCountDelta) {
+
         double oldDequeueRateOneMinute = rateMeasurements.messageRates.getOneMinuteAverageDequeueRate();
         double oldDequeueRateOneHour = rateMeasurements.messageRates.getOneHourAverageDequeueRate();
         double oldDequeueRateOneDay = rateMeasurements.messageRates.getOneDayAverageDequeueRate();
@@ -185,7 +355,7 @@ public class QueueStatisticsCollection {
         //
         // Update the rates and add in the changes.
         //
-        rateMeasurements.messageRates.onTimestampSample(statsClock.getStatsStopWatchTime(), dequeueCountDelta, enqueueCountDelta);
+        rateMeasurements.messageRates.onTimestampSample(sampleTime, dequeueCountDelta, enqueueCountDelta);
 
         aggregateDequeueRateOneMinute -= oldDequeueRateOneMinute;
         aggregateDequeueRateOneMinute += rateMeasurements.messageRates.getOneMinuteAverageDequeueRate();
@@ -208,12 +378,11 @@ public class QueueStatisticsCollection {
     }
 
     protected class QueueStatMeasurements {
-        public ActiveMQQueueJmxStats statsFromBroker;
-        public QueueMessageRateCollector messageRates;
-
-        public QueueStatMeasurements(ActiveMQQueueJmxStats statsFromBroker) {
-            this.statsFromBroker = statsFromBroker;
-            this.messageRates = new QueueMessageRateCollector();
-        }
+        public final long[] counts = new long[NUM_COUNTS];
+        public int cursorPercentUsage;
+        public int memoryPercentUsage;
+        public final QueueMessageRateCollector messageRates = new QueueMessageRateCollector();
+        public final QueueStatisticsHistory history =
+                new QueueStatisticsHistory(historyCapacity, historySampleInterval);
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.stats;
+
+/**
+ * Fixed-size ring buffer of statistics samples for one queue on one broker.  Samples are stored in a single primitive
+ * array allocated up-front, so the heap used is fixed at capacity x BYTES_PER_SAMPLE regardless of how long the
+ * monitor runs, and adding a sample does not allocate.  Once full, each new sample overwrites the oldest one.
+ *
+ * Samples closer together than the sample interval are dropped, so the history covers capacity x sample-interval of
+ * time independent of the polling rate.
+ *
+ * Not thread-safe; callers must synchronize access.
+ */
+public class QueueStatisticsHistory {
+    //
+    // Offset of each value within a sample.
+    //
+    protected static final int SAMPLE_TIME = 0;
+    protected static final int QUEUE_SIZE = 1;
+    protected static final int ENQUEUE_COUNT = 2;
+    protected static final int DEQUEUE_COUNT = 3;
+    protected static final int NUM_CONSUMERS = 4;
+    protected static final int INFLIGHT_COUNT = 5;
+    protected static final int SAMPLE_WIDTH = 6;
+
+    public static final int BYTES_PER_SAMPLE = SAMPLE_WIDTH * 8;
+
+    private final int capacity;
+    private final long sampleInterval;
+    private final long[] samples;
+
+    private int nextSlot = 0;
+    private int size = 0;
+    private long lastSampleTime;
+
+    /**
+     * @param capacity maximum number of samples retained.
+     * @param sampleInterval minimum time, in milliseconds, between retained samples.
+     */
+    public QueueStatisticsHistory(int capacity, long sampleInterval) {
+        this.capacity = capacity;
+        this.sampleInterval = sampleInterval;
+        this.samples = new long[capacity * SAMPLE_WIDTH];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a sample, unless it is within the sample interval of the last sample added.
+     *
+     * @return true if the sample was added; false if it was dropped.
+     */
+    public boolean addSample(long sampleTime, long queueSize, long enqueueCount, long dequeueCount,
+                             long numConsumers, long inflightCount) {
+
+        if ( ( this.capacity == 0 ) || ( ( this.size > 0 ) && ( sampleTime - lastSampleTime < sampleInterval ) ) ) {
+            return false;
+        }
+
+        int base = this.nextSlot * SAMPLE_WIDTH;
+        this.samples[base + SAMPLE_TIME] = sampleTime;
+        this.samples[base + QUEUE_SIZE] = queueSize;
+        this.samples[base + ENQUEUE_COUNT] = enqueueCount;
+        this.samples[base + DEQUEUE_COUNT] = dequeueCount;
+        this.samples[base + NUM_CONSUMERS] = numConsumers;
+        this.samples[base + INFLIGHT_COUNT] = inflightCount;
+
+        this.nextSlot = ( this.nextSlot + 1 ) % this.capacity;
+        if ( this.size < this.capacity ) {
+            this.size++;
+        }
+        this.lastSampleTime = sampleTime;
+
+        return true;
+    }
+
+    /**
+     * Copy out the samples taken at or after the given time, oldest first.
+     *
+     * @param sinceTime earliest sample time to include, in the same time base as the samples.
+     * @param timeOffset offset added to each sample time in the result, used to convert to another time base.
+     * @return series of the selected samples.
+     */
+    public QueueStatisticsHistorySeries getSeries(long sinceTime, long timeOffset) {
+        int first = ( this.nextSlot - this.size + this.capacity ) % Math.max(this.capacity, 1);
+
+        //
+        // Skip samples before the requested time; they are in time order, so stop at the first one included.
+        //
+        int skip = 0;
+        while ( ( skip < this.size ) &&
+                ( this.samples[( ( first + skip ) % this.capacity ) * SAMPLE_WIDTH + SAMPLE_TIME] < sinceTime ) ) {
+            skip++;
+        }
+
+        int count = this.size - skip;
+        QueueStatisticsHistorySeries result = new QueueStatisticsHistorySeries(count);
+
+        for ( int cur = 0; cur < count; cur++ ) {
+            int base = ( ( first + skip + cur ) % this.capacity ) * SAMPLE_WIDTH;
+
+            result.getTimestamps()[cur] = this.samples[base + SAMPLE_TIME] + timeOffset;
+            result.getQueueSize()[cur] = this.samples[base + QUEUE_SIZE];
+            result.getEnqueueCount()[cur] = this.samples[base + ENQUEUE_COUNT];
+            result.getDequeueCount()[cur] = this.samples[base + DEQUEUE_COUNT];
+            result.getNumConsumers()[cur] = this.samples[base + NUM_CONSUMERS];
+            result.getInflightCount()[cur] = this.samples[base + INFLIGHT_COUNT];
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.stats;
+
+/**
+ * Series of historical statistics samples for a queue on one broker, in column form: the values at the same index of
+ * each array belong to the same sample.  Samples are in time order, oldest first.
+ */
+public class QueueStatisticsHistorySeries {
+    private final long[] timestamps;
+    private final long[] queueSize;
+    private final long[] enqueueCount;
+    private final long[] dequeueCount;
+    private final long[] numConsumers;
+    private final long[] inflightCount;
+
+    public QueueStatisticsHistorySeries(int size) {
+        this.timestamps = new long[size];
+        this.queueSize = new long[size];
+        this.enqueueCount = new long[size];
+        this.dequeueCount = new long[size];
+        this.numConsumers = new long[size];
+        this.inflightCount = new long[size];
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * Time of each sample, in milliseconds since the epoch.
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public long[] getQueueSize() {
+        return queueSize;
+    }
+
+    public long[] getEnqueueCount() {
+        return enqueueCount;
+    }
+
+    public long[] getDequeueCount() {
+        return dequeueCount;
+    }
+
+    public long[] getNumConsumers() {
+        return numConsumers;
+    }
+
+    public long[] getInflightCount() {
+        return inflightCount;
+    }
+}
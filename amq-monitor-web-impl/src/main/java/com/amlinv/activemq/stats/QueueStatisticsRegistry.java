@@ -19,21 +19,57 @@ package com.amlinv.activemq.stats;
 import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
 import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Registry of statistics for Queues, with details by broker.
+ * Registry of statistics for Queues, with details by broker.  There is no registry-wide lock: the map of queues is
+ * concurrent, and each queue's statistics are guarded by their own collection, so updates to different queues never
+ * contend and readers building snapshots do not block pollers.
+ *
+ * In addition to the full view from getQueueStats(), the registry tracks the queues changed since the last call to
+ * updateSnapshot() so a consumer that keeps its own copy of the statistics only needs to re-materialize those queues.
  *
  * Created by art on 5/28/15.
  */
 public class QueueStatisticsRegistry {
-    private final Map<String, QueueStatisticsCollection> queueStats = new HashMap<>();
+    private final ConcurrentMap<String, QueueStatisticsCollection> queueStats = new ConcurrentHashMap<>();
+
+    /**
+     * Names of queues updated or removed since the last snapshot update.  Marked after the change is applied, and
+     * drained before the statistics are read, so a change racing with a snapshot update is picked up by the next one.
+     */
+    private final Set<String> changedQueueNames =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Object snapshotLock = new Object();
+    private long snapshotVersion = 0;
+
+    private int historyCapacity = QueueStatisticsCollection.DEFAULT_HISTORY_CAPACITY;
+    private long historySampleInterval = QueueStatisticsCollection.DEFAULT_HISTORY_SAMPLE_INTERVAL;
 
     private MyQueueRegistryListener queueRegistryListener = new MyQueueRegistryListener();
 
+    private final QueueTopNIndex topNIndex = new QueueTopNIndex();
+
+    /**
+     * Registry of the aggregation metrics; private to this registry unless a shared one is supplied.
+     */
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private Timer aggregationTimer = this.metricRegistry.timer(MetricRegistry.name(QueueStatisticsRegistry.class,
+            "aggregation"));
+
     /**
      * Retrieve the listener for injection into the queue registry.
      *
@@ -43,6 +79,44 @@ public class QueueStatisticsRegistry {
         return queueRegistryListener;
     }
 
+    public int getHistoryCapacity() {
+        return historyCapacity;
+    }
+
+    /**
+     * Set the number of history samples kept for each queue on each broker; applies to queues first seen after the
+     * change.  The heap used by history is bounded by queues x brokers x capacity x
+     * QueueStatisticsHistory.BYTES_PER_SAMPLE.
+     *
+     * @param historyCapacity number of samples; 0 disables history.
+     */
+    public void setHistoryCapacity(int historyCapacity) {
+        this.historyCapacity = historyCapacity;
+    }
+
+    public long getHistorySampleInterval() {
+        return historySampleInterval;
+    }
+
+    public void setHistorySampleInterval(long historySampleInterval) {
+        this.historySampleInterval = historySampleInterval;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Set the registry in which to record the time taken to aggregate each update of queue statistics.
+     *
+     * @param metricRegistry registry of the aggregation metrics.
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.aggregationTimer = metricRegistry.timer(MetricRegistry.name(QueueStatisticsRegistry.class,
+                "aggregation"));
+    }
+
     /**
      * Update the statistics in the registry given one set of polled statistics.  These statistics are assigned a
      * timestamp equal to "now".
@@ -50,18 +124,27 @@ public class QueueStatisticsRegistry {
      * @param updatedStats statistics with which to update the registry.
      */
     public void onUpdatedStats(ActiveMQQueueJmxStats updatedStats) {
-        QueueStatisticsCollection queueStatisticsCollection;
+        Timer.Context aggregationTime = this.aggregationTimer.time();
 
-        synchronized ( this.queueStats ) {
-            queueStatisticsCollection = this.queueStats.get(updatedStats.getQueueName());
+        try {
+            QueueStatisticsCollection queueStatisticsCollection = this.queueStats.get(updatedStats.getQueueName());
 
             if ( queueStatisticsCollection == null ) {
-                queueStatisticsCollection = new QueueStatisticsCollection(updatedStats.getQueueName());
-                this.queueStats.put(updatedStats.getQueueName(), queueStatisticsCollection);
+                QueueStatisticsCollection newCollection = new QueueStatisticsCollection(updatedStats.getQueueName(),
+                        this.historyCapacity, this.historySampleInterval);
+                newCollection.setTopNIndex(this.topNIndex);
+
+                queueStatisticsCollection = this.queueStats.putIfAbsent(updatedStats.getQueueName(), newCollection);
+                if ( queueStatisticsCollection == null ) {
+                    queueStatisticsCollection = newCollection;
+                }
             }
-        }
 
-        queueStatisticsCollection.onUpdatedStats(updatedStats);
+            queueStatisticsCollection.onUpdatedStats(updatedStats);
+            this.changedQueueNames.add(updatedStats.getQueueName());
+        } finally {
+            aggregationTime.stop();
+        }
     }
 
     /**
@@ -74,15 +157,91 @@ public class QueueStatisticsRegistry {
 
         result = new TreeMap<>();
 
-        synchronized ( this.queueStats ) {
-            for (QueueStatisticsCollection queueStatisticsCollection : this.queueStats.values()) {
-                result.put(queueStatisticsCollection.getQueueName(), queueStatisticsCollection.getQueueTotalStats());
-            }
+        //
+        // Weakly-consistent iteration; queues added or removed concurrently may or may not be included.
+        //
+        for (QueueStatisticsCollection queueStatisticsCollection : this.queueStats.values()) {
+            result.put(queueStatisticsCollection.getQueueName(), queueStatisticsCollection.getQueueTotalStats());
         }
 
         return result;
     }
 
+    /**
+     * Retrieve the aggregated statistics for one queue.
+     *
+     * @param queueName name of the queue.
+     * @return aggregated statistics for the queue; null if the queue has no statistics.
+     */
+    public ActiveMQQueueStats getQueueStats(String queueName) {
+        QueueStatisticsCollection queueStatisticsCollection = this.queueStats.get(queueName);
+        if ( queueStatisticsCollection == null ) {
+            return null;
+        }
+
+        return queueStatisticsCollection.getQueueTotalStats();
+    }
+
+    /**
+     * Retrieve the history of statistics for one queue.
+     *
+     * @param queueName name of the queue.
+     * @param sinceTime earliest sample time to include, in milliseconds since the epoch.
+     * @return series of samples for each broker, keyed by broker name; null if the queue has no statistics.
+     */
+    public Map<String, QueueStatisticsHistorySeries> getQueueHistory(String queueName, long sinceTime) {
+        QueueStatisticsCollection queueStatisticsCollection = this.queueStats.get(queueName);
+        if ( queueStatisticsCollection == null ) {
+            return null;
+        }
+
+        return queueStatisticsCollection.getHistory(sinceTime);
+    }
+
+    /**
+     * Retrieve the queues with the highest values of the given metric, aggregated across brokers.  The cost is
+     * proportional to the limit, not the total number of queues.
+     *
+     * @param metric metric by which to rank the queues.
+     * @param limit maximum number of queues to return.
+     * @return up to limit queues with their values, highest value first.
+     */
+    public List<QueueRankEntry> getTopQueues(QueueRankingMetric metric, int limit) {
+        return this.topNIndex.getTopQueues(metric, limit);
+    }
+
+    /**
+     * Advance the snapshot to cover all of the changes made since the last call, and return those changes.  The
+     * cost is proportional to the number of changed queues, not the total number of queues.
+     *
+     * @return the changes since the last update; the version is unchanged if nothing changed.
+     */
+    public QueueStatisticsSnapshot updateSnapshot() {
+        synchronized ( this.snapshotLock ) {
+            Map<String, ActiveMQQueueStats> changedStats = new HashMap<>();
+            Set<String> removedNames = new HashSet<>();
+
+            Iterator<String> iter = this.changedQueueNames.iterator();
+            while ( iter.hasNext() ) {
+                String queueName = iter.next();
+                iter.remove();
+
+                QueueStatisticsCollection queueStatisticsCollection = this.queueStats.get(queueName);
+                if ( queueStatisticsCollection != null ) {
+                    changedStats.put(queueName, queueStatisticsCollection.getQueueTotalStats());
+                } else {
+                    removedNames.add(queueName);
+                }
+            }
+
+            if ( ( ! changedStats.isEmpty() ) || ( ! removedNames.isEmpty() ) ) {
+                this.snapshotVersion++;
+            }
+
+            return new QueueStatisticsSnapshot(this.snapshotVersion, changedStats, removedNames);
+        }
+    }
+
     /**
      * Listener for events on the queue registry so we don't keep around statistics for queues that no longer exist.
      */
@@ -96,8 +255,10 @@ public class QueueStatisticsRegistry {
             //
             // Remove the statistics for the queue from all of the broker statistics.
             //
-            synchronized ( queueStats ) {
-                queueStats.remove(removeKey);
+            QueueStatisticsCollection removedCollection = queueStats.remove(removeKey);
+            if ( removedCollection != null ) {
+                removedCollection.onRemoved();
+                changedQueueNames.add(removeKey);
             }
         }
 
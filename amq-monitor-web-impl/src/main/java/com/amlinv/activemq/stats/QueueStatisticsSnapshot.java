@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental update of the registry's queue statistics snapshot: the statistics of the queues which changed since
+ * the prior version of the snapshot, and the names of the queues which were removed.  Consumers holding the prior
+ * version apply the changes to bring their own copy up-to-date.
+ */
+public class QueueStatisticsSnapshot {
+    private final long version;
+    private final Map<String, ActiveMQQueueStats> changedQueueStats;
+    private final Set<String> removedQueueNames;
+
+    public QueueStatisticsSnapshot(long version, Map<String, ActiveMQQueueStats> changedQueueStats,
+                                   Set<String> removedQueueNames) {
+
+        this.version = version;
+        this.changedQueueStats = Collections.unmodifiableMap(changedQueueStats);
+        this.removedQueueNames = Collections.unmodifiableSet(removedQueueNames);
+    }
+
+    /**
+     * Version of the snapshot; only advanced when at least one queue changed.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, ActiveMQQueueStats> getChangedQueueStats() {
+        return changedQueueStats;
+    }
+
+    public Set<String> getRemovedQueueNames() {
+        return removedQueueNames;
+    }
+
+    public boolean isEmpty() {
+        return this.changedQueueStats.isEmpty() && this.removedQueueNames.isEmpty();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index of the queues ranked by each of the ranking metrics, maintained incrementally as the aggregated statistics of
+ * each queue are updated.  Each metric has a skip list ordered by descending value, so the top N queues are read by
+ * visiting the first N entries instead of sorting every queue, and an update only moves the one queue.
+ *
+ * Updates of one queue are serialized on that queue's entries, so updates of different queues do not contend.  A
+ * reader racing with the update of a queue may momentarily not see that queue.
+ *
+ * Only queues currently ranked are tracked; an update racing with the removal of its queue either lands before the
+ * removal or ranks the queue anew.  Callers keep late updates of a removed queue away from the index; see
+ * QueueStatisticsCollection.
+ */
+public class QueueTopNIndex {
+    private static final int NUM_METRICS = QueueRankingMetric.values().length;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ConcurrentSkipListSet<QueueRankEntry>[] rankings = new ConcurrentSkipListSet[NUM_METRICS];
+
+    /**
+     * Current entry of each queue in each of the rankings, indexed by metric ordinal.
+     */
+    private final ConcurrentMap<String, QueueEntries> queueEntries = new ConcurrentHashMap<>();
+
+    public QueueTopNIndex() {
+        for ( int cur = 0; cur < NUM_METRICS; cur++ ) {
+            this.rankings[cur] = new ConcurrentSkipListSet<>();
+        }
+    }
+
+    /**
+     * Update the rankings of the named queue given its latest aggregated values.
+     *
+     * @param queueName name of the queue.
+     * @param queueSize number of messages on the queue.
+     * @param enqueueRate one-minute average enqueue rate.
+     * @param dequeueRate one-minute average dequeue rate.
+     * @param inflightCount number of messages in flight.
+     */
+    public void onQueueUpdated(String queueName, long queueSize, double enqueueRate, double dequeueRate,
+                               long inflightCount) {
+
+        while ( true ) {
+            QueueEntries entries = this.queueEntries.get(queueName);
+            if ( entries == null ) {
+                QueueEntries newEntries = new QueueEntries();
+                entries = this.queueEntries.putIfAbsent(queueName, newEntries);
+                if ( entries == null ) {
+                    entries = newEntries;
+                }
+            }
+
+            synchronized ( entries ) {
+                // Removed since it was looked up; rank the queue anew.
+                if ( entries.removed ) {
+                    continue;
+                }
+
+                this.updateEntry(entries.entries, QueueRankingMetric.QUEUE_SIZE, queueName, queueSize);
+                this.updateEntry(entries.entries, QueueRankingMetric.ENQUEUE_RATE, queueName, enqueueRate);
+                this.updateEntry(entries.entries, QueueRankingMetric.DEQUEUE_RATE, queueName, dequeueRate);
+                this.updateEntry(entries.entries, QueueRankingMetric.INFLIGHT_COUNT, queueName, inflightCount);
+                this.updateEntry(entries.entries, QueueRankingMetric.BACKLOG_GROWTH, queueName,
+                        enqueueRate - dequeueRate);
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove the named queue from all of the rankings.
+     *
+     * @param queueName name of the queue removed.
+     */
+    public void removeQueue(String queueName) {
+        QueueEntries entries = this.queueEntries.remove(queueName);
+
+        if ( entries != null ) {
+            synchronized ( entries ) {
+                entries.removed = true;
+
+                for ( int cur = 0; cur < NUM_METRICS; cur++ ) {
+                    if ( entries.entries[cur] != null ) {
+                        this.rankings[cur].remove(entries.entries[cur]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieve the queues with the highest values of the given metric.
+     *
+     * @param metric metric by which to rank the queues.
+     * @param limit maximum number of queues to return.
+     * @return up to limit entries, highest value first.
+     */
+    public List<QueueRankEntry> getTopQueues(QueueRankingMetric metric, int limit) {
+        List<QueueRankEntry> result = new ArrayList<>(Math.max(0, Math.min(limit, this.queueEntries.size())));
+
+        Iterator<QueueRankEntry> iter = this.rankings[metric.ordinal()].iterator();
+        while ( ( result.size() < limit ) && ( iter.hasNext() ) ) {
+            result.add(iter.next());
+        }
+
+        return result;
+    }
+
+    protected void updateEntry(QueueRankEntry[] entries, QueueRankingMetric metric, String queueName, double value) {
+        int index = metric.ordinal();
+        QueueRankEntry oldEntry = entries[index];
+
+        if ( ( oldEntry != null ) && ( Double.compare(oldEntry.getValue(), value) == 0 ) ) {
+            // Unchanged; leave the ranking alone.
+            return;
+        }
+
+        if ( oldEntry != null ) {
+            this.rankings[index].remove(oldEntry);
+        }
+
+        QueueRankEntry newEntry = new QueueRankEntry(queueName, value);
+        this.rankings[index].add(newEntry);
+        entries[index] = newEntry;
+    }
+
+    /**
+     * Current entries of one queue in each ranking.  Guarded by itself; once removed, no longer in use.
+     */
+    protected static class QueueEntries {
+        private final QueueRankEntry[] entries = new QueueRankEntry[NUM_METRICS];
+        private boolean removed = false;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueNamePatternUtilTest {
+
+    @Test
+    public void testGlobToRegex() throws Exception {
+        assertTrue(QueueNamePatternUtil.globToRegex("*.in.*").matcher("orders.in.eu").matches());
+        assertTrue(QueueNamePatternUtil.globToRegex("orders").matcher("orders").matches());
+        assertTrue(QueueNamePatternUtil.globToRegex("*").matcher("").matches());
+        assertFalse(QueueNamePatternUtil.globToRegex("orders").matcher("orders.in").matches());
+        assertFalse(QueueNamePatternUtil.globToRegex("orders.*").matcher("billing.in").matches());
+    }
+
+    @Test
+    public void testGlobToRegexQuotesLiterals() throws Exception {
+        assertFalse(QueueNamePatternUtil.globToRegex("a.b").matcher("aXb").matches());
+        assertTrue(QueueNamePatternUtil.globToRegex("a+b(*)").matcher("a+b(x)").matches());
+    }
+}
@@ -25,6 +25,7 @@ import com.amlinv.activemq.topo.registry.DestinationRegistry;
 import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
 import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -42,9 +43,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
@@ -63,7 +63,8 @@ public class ActiveMQBrokerPollerTest {
     private DestinationRegistry mockQueueRegistry;
     private DestinationRegistry mockTopicRegistry;
     private BrokerStatsLogger mockBrokerStatsLogger;
-    private Timer mockTimer;
+    private BrokerPollScheduler mockScheduler;
+    private ScheduledFuture mockScheduledFuture;
     private StatsClock mockStatsClock;
     private Logger mockLogger;
     private BrokerStatsJmxAttributePollerFactory mockJmxPollerFactory;
@@ -78,7 +79,8 @@ public class ActiveMQBrokerPollerTest {
         this.mockQueueRegistry = Mockito.mock(DestinationRegistry.class);
         this.mockTopicRegistry = Mockito.mock(DestinationRegistry.class);
         this.mockBrokerStatsLogger = Mockito.mock(BrokerStatsLogger.class);
-        this.mockTimer = Mockito.mock(Timer.class);
+        this.mockScheduler = Mockito.mock(BrokerPollScheduler.class);
+        this.mockScheduledFuture = Mockito.mock(ScheduledFuture.class);
         this.mockStatsClock = Mockito.mock(StatsClock.class);
         this.mockLogger = Mockito.mock(Logger.class);
         this.mockJmxPollerFactory = Mockito.mock(BrokerStatsJmxAttributePollerFactory.class);
@@ -117,10 +119,10 @@ public class ActiveMQBrokerPollerTest {
     @Test
     public void testGetSetScheduler() throws Exception {
         assertNotNull(this.poller.getScheduler());
-        assertNotSame(this.mockTimer, this.poller.getScheduler());
+        assertNotSame(this.mockScheduler, this.poller.getScheduler());
 
-        this.poller.setScheduler(this.mockTimer);
-        assertSame(this.mockTimer, this.poller.getScheduler());
+        this.poller.setScheduler(this.mockScheduler);
+        assertSame(this.mockScheduler, this.poller.getScheduler());
     }
 
     @Test
@@ -140,6 +142,17 @@ public class ActiveMQBrokerPollerTest {
         assertSame(this.mockJmxPollerFactory, this.poller.getJmxPollerFactory());
     }
 
+    @Test
+    public void testGetSetCircuitBreaker() throws Exception {
+        BrokerCircuitBreaker circuitBreaker = new BrokerCircuitBreaker("x-broker-x");
+
+        assertNotNull(this.poller.getCircuitBreaker());
+        assertNotSame(circuitBreaker, this.poller.getCircuitBreaker());
+
+        this.poller.setCircuitBreaker(circuitBreaker);
+        assertSame(circuitBreaker, this.poller.getCircuitBreaker());
+    }
+
     @Test
     public void testGetSetLog() throws Exception {
         assertNotNull(this.poller.getLog());
@@ -149,6 +162,23 @@ public class ActiveMQBrokerPollerTest {
         assertSame(this.mockLogger, this.poller.getLog());
     }
 
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNotNull(this.poller.getMetricRegistry());
+        assertNotSame(metricRegistry, this.poller.getMetricRegistry());
+
+        this.poller.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, this.poller.getMetricRegistry());
+        assertTrue(metricRegistry.getTimers().containsKey(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.poll"));
+        assertTrue(metricRegistry.getTimers().containsKey(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.jmxRoundTrip"));
+        assertTrue(metricRegistry.getMeters().containsKey(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.pollFailures"));
+    }
+
     @Test
     public void testStart() throws Exception {
         //
@@ -169,12 +199,13 @@ public class ActiveMQBrokerPollerTest {
         //
         // VALIDATE
         //
-        ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
 
-        Mockito.verify(this.mockTimer).schedule(captor.capture(), Mockito.eq(0L), Mockito.eq(3000L));
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
         Mockito.verifyZeroInteractions(this.listener);
 
-        TimerTask pollerTask = captor.getValue();
+        Runnable pollerTask = captor.getValue();
 
 
         //
@@ -184,6 +215,8 @@ public class ActiveMQBrokerPollerTest {
 
         Mockito.verify(this.listener).onBrokerPollComplete(Mockito.any(BrokerStatsPackage.class));
         Mockito.verify(this.mockBrokerStatsLogger).logStats(Mockito.any(BrokerStatsPackage.class));
+        Mockito.verify(this.mockJmxPollerFactory).createPoller(this.matchPolledQueues("x-queue1-x", "x-queue2-x"),
+                Mockito.any(BrokerStatsPackage.class));
     }
 
     @Test
@@ -194,9 +227,134 @@ public class ActiveMQBrokerPollerTest {
 
         this.poller.stop();
 
+        Mockito.verify(this.mockScheduledFuture).cancel(false);
         Mockito.verify(this.mockQueueRegistry).removeListener(Mockito.any(DestinationRegistryListener.class));
     }
 
+    @Test
+    public void testPollMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.poller.setMetricRegistry(metricRegistry);
+        this.preparePoller();
+
+        this.poller.start();
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
+
+        BrokerStatsJmxAttributePoller jmxPoller = this.jmxPollers.getFirst();
+        Mockito.verify(jmxPoller).setRoundTripTimer(metricRegistry.timer(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.jmxRoundTrip"));
+
+        captor.getValue().run();
+        Mockito.doThrow(new IOException("x-io-exc-x")).when(jmxPoller).poll();
+        captor.getValue().run();
+
+        assertEquals(2, metricRegistry.timer(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.poll").getCount());
+        assertEquals(1, metricRegistry.meter(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.pollFailures").getCount());
+    }
+
+    @Test
+    public void testPollSkippedWhileCircuitOpen() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        BrokerCircuitBreaker mockCircuitBreaker = Mockito.mock(BrokerCircuitBreaker.class);
+        this.poller.setMetricRegistry(metricRegistry);
+        this.poller.setCircuitBreaker(mockCircuitBreaker);
+        this.preparePoller();
+
+        this.poller.start();
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
+
+        Mockito.when(mockCircuitBreaker.allowPoll()).thenReturn(false);
+        captor.getValue().run();
+
+        Mockito.verify(this.jmxPollers.getFirst(), Mockito.never()).poll();
+        Mockito.verifyZeroInteractions(this.listener);
+        assertEquals(1, metricRegistry.meter(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.pollsSkipped").getCount());
+        assertEquals(0, metricRegistry.timer(
+                "com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller.x-broker-x.poll").getCount());
+    }
+
+    @Test
+    public void testPollReportsOutcomeToCircuitBreaker() throws Exception {
+        BrokerCircuitBreaker mockCircuitBreaker = Mockito.mock(BrokerCircuitBreaker.class);
+        this.poller.setCircuitBreaker(mockCircuitBreaker);
+        this.preparePoller();
+        Mockito.when(mockCircuitBreaker.allowPoll()).thenReturn(true);
+
+        this.poller.start();
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
+
+        captor.getValue().run();
+        Mockito.verify(mockCircuitBreaker).onPollSuccess();
+
+        Mockito.doThrow(new IOException("x-io-exc-x")).when(this.jmxPollers.getFirst()).poll();
+        captor.getValue().run();
+        Mockito.verify(mockCircuitBreaker).onPollFailure();
+    }
+
+    @Test
+    public void testTrialPollRuntimeExceptionReopensCircuit() throws Exception {
+        BrokerCircuitBreaker circuitBreaker = new BrokerCircuitBreaker("x-broker-x");
+        circuitBreaker.setFailureThreshold(1);
+        circuitBreaker.setJitterFactor(0);
+        circuitBreaker.setStatsClock(this.mockStatsClock);
+        this.poller.setCircuitBreaker(circuitBreaker);
+        this.preparePoller();
+
+        this.poller.start();
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(100000L);
+        Mockito.doThrow(new IOException("x-io-exc-x")).when(this.jmxPollers.getFirst()).poll();
+        captor.getValue().run();
+        assertEquals(BrokerCircuitState.OPEN, circuitBreaker.getState());
+
+        // The trial poll, once the backoff elapses, throws an unchecked exception.
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.doThrow(rtExc).when(this.jmxPollers.getFirst()).poll();
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(200000L);
+        try {
+            captor.getValue().run();
+            fail("missing expected exception");
+        } catch ( RuntimeException caught ) {
+            assertSame(rtExc, caught);
+        }
+
+        // The circuit must re-open, rather than remain half-open, so polling resumes after the next backoff.
+        assertEquals(BrokerCircuitState.OPEN, circuitBreaker.getState());
+
+        Mockito.doNothing().when(this.jmxPollers.getFirst()).poll();
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(300000L);
+        captor.getValue().run();
+        assertEquals(BrokerCircuitState.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testStopRemovesMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.poller.setMetricRegistry(metricRegistry);
+        this.preparePoller();
+
+        this.poller.start();
+        this.poller.stop();
+
+        assertTrue(metricRegistry.getMetrics().isEmpty());
+    }
+
     @Test(timeout = 3000L)
     public void testWaitUntilShutdown() throws Exception {
         //
@@ -328,10 +486,11 @@ public class ActiveMQBrokerPollerTest {
         //
         // VALIDATE
         //
-        ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
-        Mockito.verify(this.mockTimer).schedule(captor.capture(), Mockito.eq(0L), Mockito.eq(3000L));
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
 
-        TimerTask pollerTask = captor.getValue();
+        Runnable pollerTask = captor.getValue();
 
 
         //
@@ -389,32 +548,41 @@ public class ActiveMQBrokerPollerTest {
         // INITIAL SETUP
         //
         DestinationRegistryListener listener = this.startPollerAndGetQueueRegistryListener();
+        List<Object> polledObjects = this.capturePolledObjects();
+        BrokerStatsPackage resultStorage = this.captureResultStorage();
+
+        assertEquals(1, polledObjects.size());
+        assertSame(resultStorage.getBrokerStats(), polledObjects.get(0));
 
 
         //
-        // SETUP INTERACTIONS FOR ADD OF QUEUE VIA REGISTRY
+        // EXECUTE THE LISTENER
         //
+        listener.onPutEntry("x-queue-x", new DestinationState("x-queue-x"));
 
-        // Setup a mock jmx poller on creation of a poller with the added queue
-        BrokerStatsJmxAttributePoller mockJmxPoller = Mockito.mock(BrokerStatsJmxAttributePoller.class);
-        Mockito.when(this.mockJmxPollerFactory.createPoller(this.matchPolledQueues("x-queue-x"),
-                Mockito.any(BrokerStatsPackage.class))).thenReturn(mockJmxPoller);
 
+        //
+        // VALIDATE the existing poller now polls the added queue, and no new poller was created.
+        //
+        assertEquals(2, polledObjects.size());
+        assertSame(resultStorage.getQueueStats().get("x-queue-x"), polledObjects.get(1));
+        assertEquals("x-queue-x", resultStorage.getQueueStats().get("x-queue-x").getQueueName());
+
+        assertEquals(1, this.jmxPollers.size());
+        Mockito.verify(this.jmxPollers.getLast(), Mockito.never()).shutdown();
+    }
 
-        // Registry now contains the queue "x-queue-x" when asked
+    @Test
+    public void testRegistryAddExistingQueueRetainsStats() throws Exception {
         Mockito.when(this.mockQueueRegistry.keys()).thenReturn(new HashSet<String>(Arrays.asList("x-queue-x")));
+        DestinationRegistryListener listener = this.startPollerAndGetQueueRegistryListener();
+        BrokerStatsPackage resultStorage = this.captureResultStorage();
 
+        ActiveMQQueueJmxStats origStats = resultStorage.getQueueStats().get("x-queue-x");
 
-        //
-        // EXECUTE THE LISTENER
-        //
         listener.onPutEntry("x-queue-x", new DestinationState("x-queue-x"));
 
-        //
-        // Verify the mock JMX poller above was prepared for execution.  This will fail if the interactions above
-        //  did not execute properly.
-        //
-        Mockito.verify(mockJmxPoller).setmBeanAccessConnectionFactory(this.mBeanAccessConnectionFactory);
+        assertSame(origStats, resultStorage.getQueueStats().get("x-queue-x"));
     }
 
     @Test
@@ -425,20 +593,11 @@ public class ActiveMQBrokerPollerTest {
         Mockito.when(this.mockQueueRegistry.keys())
                 .thenReturn(new HashSet<String>(Arrays.asList("x-queue1-x", "x-queue2-x")));
         DestinationRegistryListener listener = this.startPollerAndGetQueueRegistryListener();
+        List<Object> polledObjects = this.capturePolledObjects();
+        BrokerStatsPackage resultStorage = this.captureResultStorage();
 
-
-        //
-        // SETUP INTERACTIONS FOR ADD OF QUEUE VIA REGISTRY
-        //
-
-        // Setup a mock jmx poller on creation of a poller with the added queue
-        BrokerStatsJmxAttributePoller mockJmxPoller = Mockito.mock(BrokerStatsJmxAttributePoller.class);
-        Mockito.when(this.mockJmxPollerFactory.createPoller(this.matchPolledQueues("x-queue1-x"),
-                Mockito.any(BrokerStatsPackage.class))).thenReturn(mockJmxPoller);
-
-
-        // Registry now only contains the queue "x-queue-x" when asked
-        Mockito.when(this.mockQueueRegistry.keys()).thenReturn(new HashSet<String>(Arrays.asList("x-queue1-x")));
+        ActiveMQQueueJmxStats queue2Stats = resultStorage.getQueueStats().get("x-queue2-x");
+        assertEquals(3, polledObjects.size());
 
 
         //
@@ -446,11 +605,26 @@ public class ActiveMQBrokerPollerTest {
         //
         listener.onRemoveEntry("x-queue1-x", new DestinationState("x-queue1-x"));
 
+
         //
-        // Verify the mock JMX poller above was prepared for execution.  This will fail if the interactions above
-        //  did not execute properly.
+        // VALIDATE
         //
-        Mockito.verify(mockJmxPoller).setmBeanAccessConnectionFactory(this.mBeanAccessConnectionFactory);
+        assertEquals(2, polledObjects.size());
+        assertSame(resultStorage.getBrokerStats(), polledObjects.get(0));
+        assertSame(queue2Stats, polledObjects.get(1));
+
+        assertEquals(1, this.jmxPollers.size());
+        Mockito.verify(this.jmxPollers.getLast(), Mockito.never()).shutdown();
+    }
+
+    @Test
+    public void testRegistryAddRemoveQueueBeforeStart() throws Exception {
+        this.preparePoller();
+
+        this.poller.addMonitoredQueue("x-queue-x");
+        this.poller.removeMonitoredQueue("x-queue-x");
+
+        Mockito.verifyZeroInteractions(this.mockJmxPollerFactory);
     }
 
     @Test
@@ -480,12 +654,13 @@ public class ActiveMQBrokerPollerTest {
         //
         // VALIDATE
         //
-        ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
 
-        Mockito.verify(this.mockTimer).schedule(captor.capture(), Mockito.eq(0L), Mockito.eq(3000L));
+        Mockito.verify(this.mockScheduler)
+                .schedulePolling(Mockito.eq("x-broker-x"), captor.capture(), Mockito.eq(3000L));
         Mockito.verifyZeroInteractions(this.listener);
 
-        TimerTask pollerTask = captor.getValue();
+        Runnable pollerTask = captor.getValue();
 
 
         //
@@ -518,7 +693,7 @@ public class ActiveMQBrokerPollerTest {
 
 
     protected void preparePoller() throws Exception {
-        this.poller.setScheduler(this.mockTimer);
+        this.poller.setScheduler(this.mockScheduler);
         this.poller.setBrokerStatsLogger(this.mockBrokerStatsLogger);
         this.poller.setQueueRegistry(this.mockQueueRegistry);
         this.poller.setTopicRegistry(this.mockTopicRegistry);
@@ -527,6 +702,9 @@ public class ActiveMQBrokerPollerTest {
         this.poller.setJmxPollerFactory(this.mockJmxPollerFactory);
 
         this.preparePollerFactory();
+
+        Mockito.when(this.mockScheduler.schedulePolling(Mockito.anyString(), Mockito.any(Runnable.class),
+                Mockito.anyLong())).thenReturn(this.mockScheduledFuture);
     }
 
     protected void preparePollerFactory() throws Exception {
@@ -555,6 +733,20 @@ public class ActiveMQBrokerPollerTest {
         return argumentCaptor.getValue();
     }
 
+    protected List<Object> capturePolledObjects() {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.mockJmxPollerFactory).createPoller(captor.capture(), Mockito.any(BrokerStatsPackage.class));
+
+        return captor.getValue();
+    }
+
+    protected BrokerStatsPackage captureResultStorage() {
+        ArgumentCaptor<BrokerStatsPackage> captor = ArgumentCaptor.forClass(BrokerStatsPackage.class);
+        Mockito.verify(this.mockJmxPollerFactory).createPoller(Mockito.anyList(), captor.capture());
+
+        return captor.getValue();
+    }
+
     protected List<Object> matchPolledQueues(final String... expectedQueues) {
         ArgumentMatcher<List<Object>> matcher = new ArgumentMatcher<List<Object>>() {
             @Override
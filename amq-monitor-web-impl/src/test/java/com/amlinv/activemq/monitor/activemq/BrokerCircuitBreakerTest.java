@@ -0,0 +1,305 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.stats.StatsClock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BrokerCircuitBreakerTest {
+
+    private BrokerCircuitBreaker circuitBreaker;
+
+    private StatsClock mockStatsClock;
+    private Random mockRandom;
+    private BrokerCircuitStateListener mockListener;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        this.mockRandom = Mockito.mock(Random.class);
+        this.mockListener = Mockito.mock(BrokerCircuitStateListener.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.circuitBreaker = new BrokerCircuitBreaker("x-broker-x");
+    }
+
+    @Test
+    public void testGetBrokerName() throws Exception {
+        assertEquals("x-broker-x", this.circuitBreaker.getBrokerName());
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.circuitBreaker.getLog());
+        assertNotSame(this.mockLogger, this.circuitBreaker.getLog());
+
+        this.circuitBreaker.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.circuitBreaker.getLog());
+    }
+
+    @Test
+    public void testGetSetFailureThreshold() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_FAILURE_THRESHOLD, this.circuitBreaker.getFailureThreshold());
+
+        this.circuitBreaker.setFailureThreshold(7);
+        assertEquals(7, this.circuitBreaker.getFailureThreshold());
+    }
+
+    @Test
+    public void testGetSetInitialBackoff() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_INITIAL_BACKOFF, this.circuitBreaker.getInitialBackoff());
+
+        this.circuitBreaker.setInitialBackoff(1100L);
+        assertEquals(1100L, this.circuitBreaker.getInitialBackoff());
+    }
+
+    @Test
+    public void testGetSetMaxBackoff() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_MAX_BACKOFF, this.circuitBreaker.getMaxBackoff());
+
+        this.circuitBreaker.setMaxBackoff(1700L);
+        assertEquals(1700L, this.circuitBreaker.getMaxBackoff());
+    }
+
+    @Test
+    public void testGetSetJitterFactor() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_JITTER_FACTOR, this.circuitBreaker.getJitterFactor(), 0.0);
+
+        this.circuitBreaker.setJitterFactor(0.5);
+        assertEquals(0.5, this.circuitBreaker.getJitterFactor(), 0.0);
+    }
+
+    @Test
+    public void testGetSetStatsClock() throws Exception {
+        assertNotNull(this.circuitBreaker.getStatsClock());
+        assertNotSame(this.mockStatsClock, this.circuitBreaker.getStatsClock());
+
+        this.circuitBreaker.setStatsClock(this.mockStatsClock);
+        assertSame(this.mockStatsClock, this.circuitBreaker.getStatsClock());
+    }
+
+    @Test
+    public void testGetSetRandom() throws Exception {
+        assertNotNull(this.circuitBreaker.getRandom());
+        assertNotSame(this.mockRandom, this.circuitBreaker.getRandom());
+
+        this.circuitBreaker.setRandom(this.mockRandom);
+        assertSame(this.mockRandom, this.circuitBreaker.getRandom());
+    }
+
+    @Test
+    public void testGetSetListener() throws Exception {
+        assertNull(this.circuitBreaker.getListener());
+
+        this.circuitBreaker.setListener(this.mockListener);
+        assertSame(this.mockListener, this.circuitBreaker.getListener());
+    }
+
+    @Test
+    public void testClosedBelowThreshold() throws Exception {
+        this.setupCircuitBreaker();
+
+        this.circuitBreaker.onPollFailure();
+        this.circuitBreaker.onPollFailure();
+
+        assertTrue(this.circuitBreaker.allowPoll());
+        assertEquals(BrokerCircuitState.CLOSED, this.circuitBreaker.getState());
+        assertEquals(2, this.circuitBreaker.getStatus().getConsecutiveFailures());
+        Mockito.verifyZeroInteractions(this.mockListener);
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() throws Exception {
+        this.setupCircuitBreaker();
+
+        this.circuitBreaker.onPollFailure();
+        this.circuitBreaker.onPollFailure();
+        this.circuitBreaker.onPollSuccess();
+        this.circuitBreaker.onPollFailure();
+
+        assertEquals(BrokerCircuitState.CLOSED, this.circuitBreaker.getState());
+        assertEquals(1, this.circuitBreaker.getStatus().getConsecutiveFailures());
+        Mockito.verifyZeroInteractions(this.mockListener);
+    }
+
+    @Test
+    public void testOpenAtThreshold() throws Exception {
+        this.setupCircuitBreaker();
+
+        this.failRepeatedly(3);
+
+        assertEquals(BrokerCircuitState.OPEN, this.circuitBreaker.getState());
+
+        BrokerCircuitStatus status = this.circuitBreaker.getStatus();
+        assertEquals("x-broker-x", status.getBrokerName());
+        assertEquals(3, status.getConsecutiveFailures());
+        assertEquals(1000L, status.getBackoff());
+        assertEquals(1000L, status.getRetryDelay());
+
+        ArgumentCaptor<BrokerCircuitStatus> captor = ArgumentCaptor.forClass(BrokerCircuitStatus.class);
+        Mockito.verify(this.mockListener).onBrokerCircuitStateChange(captor.capture());
+        assertEquals(BrokerCircuitState.OPEN, captor.getValue().getState());
+
+        Mockito.verify(this.mockLogger).warn("suspending polls of broker {} after {} consecutive failures; retry-in-ms={}",
+                "x-broker-x", 3, 1000L);
+    }
+
+    @Test
+    public void testOpenSkipsPollsUntilRetryTime() throws Exception {
+        this.setupCircuitBreaker();
+        this.failRepeatedly(3);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(10999L);
+        assertFalse(this.circuitBreaker.allowPoll());
+        assertEquals(BrokerCircuitState.OPEN, this.circuitBreaker.getState());
+        assertEquals(1L, this.circuitBreaker.getStatus().getRetryDelay());
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(11000L);
+        assertTrue(this.circuitBreaker.allowPoll());
+        assertEquals(BrokerCircuitState.HALF_OPEN, this.circuitBreaker.getState());
+        assertEquals(0L, this.circuitBreaker.getStatus().getRetryDelay());
+    }
+
+    @Test
+    public void testHalfOpenAllowsSingleTrial() throws Exception {
+        this.setupCircuitBreaker();
+        this.openCircuit();
+
+        assertFalse(this.circuitBreaker.allowPoll());
+    }
+
+    @Test
+    public void testHalfOpenSuccessCloses() throws Exception {
+        this.setupCircuitBreaker();
+        this.openCircuit();
+
+        this.circuitBreaker.onPollSuccess();
+
+        BrokerCircuitStatus status = this.circuitBreaker.getStatus();
+        assertEquals(BrokerCircuitState.CLOSED, status.getState());
+        assertEquals(0, status.getConsecutiveFailures());
+        assertEquals(0L, status.getBackoff());
+        assertTrue(this.circuitBreaker.allowPoll());
+
+        ArgumentCaptor<BrokerCircuitStatus> captor = ArgumentCaptor.forClass(BrokerCircuitStatus.class);
+        Mockito.verify(this.mockListener, Mockito.times(3)).onBrokerCircuitStateChange(captor.capture());
+        assertEquals(BrokerCircuitState.OPEN, captor.getAllValues().get(0).getState());
+        assertEquals(BrokerCircuitState.HALF_OPEN, captor.getAllValues().get(1).getState());
+        assertEquals(BrokerCircuitState.CLOSED, captor.getAllValues().get(2).getState());
+    }
+
+    @Test
+    public void testHalfOpenFailureDoublesBackoff() throws Exception {
+        this.setupCircuitBreaker();
+        this.openCircuit();
+
+        this.circuitBreaker.onPollFailure();
+
+        BrokerCircuitStatus status = this.circuitBreaker.getStatus();
+        assertEquals(BrokerCircuitState.OPEN, status.getState());
+        assertEquals(4, status.getConsecutiveFailures());
+        assertEquals(2000L, status.getBackoff());
+        assertEquals(2000L, status.getRetryDelay());
+    }
+
+    @Test
+    public void testBackoffLimitedToMax() throws Exception {
+        this.setupCircuitBreaker();
+        this.circuitBreaker.setMaxBackoff(1500L);
+        this.openCircuit();
+
+        this.circuitBreaker.onPollFailure();
+
+        assertEquals(1500L, this.circuitBreaker.getStatus().getBackoff());
+    }
+
+    @Test
+    public void testJitter() throws Exception {
+        this.setupCircuitBreaker();
+        this.circuitBreaker.setJitterFactor(0.2);
+
+        Mockito.when(this.mockRandom.nextDouble()).thenReturn(0.0);
+        this.failRepeatedly(3);
+        assertEquals(800L, this.circuitBreaker.getStatus().getRetryDelay());
+
+        this.circuitBreaker.onPollSuccess();
+
+        Mockito.when(this.mockRandom.nextDouble()).thenReturn(1.0);
+        this.failRepeatedly(3);
+        assertEquals(1200L, this.circuitBreaker.getStatus().getRetryDelay());
+    }
+
+    @Test
+    public void testSuccessWhileClosedDoesNotNotify() throws Exception {
+        this.setupCircuitBreaker();
+
+        this.circuitBreaker.onPollSuccess();
+
+        Mockito.verifyZeroInteractions(this.mockListener);
+    }
+
+    @Test
+    public void testWithoutListener() throws Exception {
+        this.setupCircuitBreaker();
+        this.circuitBreaker.setListener(null);
+
+        this.openCircuit();
+        this.circuitBreaker.onPollSuccess();
+
+        assertEquals(BrokerCircuitState.CLOSED, this.circuitBreaker.getState());
+    }
+
+    protected void setupCircuitBreaker() throws Exception {
+        this.circuitBreaker.setStatsClock(this.mockStatsClock);
+        this.circuitBreaker.setRandom(this.mockRandom);
+        this.circuitBreaker.setListener(this.mockListener);
+        this.circuitBreaker.setLog(this.mockLogger);
+        this.circuitBreaker.setInitialBackoff(1000L);
+
+        // Midpoint of the jitter range; no adjustment.
+        Mockito.when(this.mockRandom.nextDouble()).thenReturn(0.5);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(10000L);
+    }
+
+    /**
+     * Open the circuit and reach its retry time, leaving the circuit half-open.
+     */
+    protected void openCircuit() throws Exception {
+        this.failRepeatedly(3);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(11000L);
+        assertTrue(this.circuitBreaker.allowPoll());
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(10000L);
+    }
+
+    protected void failRepeatedly(int count) throws Exception {
+        for ( int cur = 0; cur < count; cur++ ) {
+            assertTrue(this.circuitBreaker.allowPoll());
+            this.circuitBreaker.onPollFailure();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.Assert.*;
+
+public class BrokerStatsPolledObjectListTest {
+
+    private BrokerStatsPolledObjectList list;
+
+    private ActiveMQBrokerStats brokerStats;
+    private ActiveMQQueueJmxStats queue1Stats;
+    private ActiveMQQueueJmxStats queue2Stats;
+    private ConcurrentSkipListMap<String, ActiveMQQueueJmxStats> queueStatsMap;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        this.queue1Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x");
+        this.queue2Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x");
+        this.queueStatsMap = new ConcurrentSkipListMap<>();
+
+        this.list = new BrokerStatsPolledObjectList(new BrokerStatsPackage(this.brokerStats, this.queueStatsMap));
+    }
+
+    @Test
+    public void testBrokerStatsOnly() throws Exception {
+        assertEquals(1, this.list.size());
+        assertSame(this.brokerStats, this.list.get(0));
+    }
+
+    @Test
+    public void testLiveView() throws Exception {
+        this.queueStatsMap.put("x-queue2-x", this.queue2Stats);
+        this.queueStatsMap.put("x-queue1-x", this.queue1Stats);
+
+        assertEquals(3, this.list.size());
+        assertSame(this.brokerStats, this.list.get(0));
+        assertSame(this.queue1Stats, this.list.get(1));
+        assertSame(this.queue2Stats, this.list.get(2));
+
+        this.queueStatsMap.remove("x-queue1-x");
+
+        assertEquals(2, this.list.size());
+        assertSame(this.queue2Stats, this.list.get(1));
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+        this.queueStatsMap.put("x-queue1-x", this.queue1Stats);
+
+        Iterator<Object> iter = this.list.iterator();
+        assertTrue(iter.hasNext());
+        assertSame(this.brokerStats, iter.next());
+        assertTrue(iter.hasNext());
+        assertSame(this.queue1Stats, iter.next());
+        assertFalse(iter.hasNext());
+
+        try {
+            iter.next();
+            fail("missing expected exception");
+        } catch ( NoSuchElementException nseExc ) {
+            // Expected
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorRemove() throws Exception {
+        Iterator<Object> iter = this.list.iterator();
+        iter.next();
+        iter.remove();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetNegativeIndex() throws Exception {
+        this.list.get(-1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetIndexPastEnd() throws Exception {
+        this.list.get(1);
+    }
+}
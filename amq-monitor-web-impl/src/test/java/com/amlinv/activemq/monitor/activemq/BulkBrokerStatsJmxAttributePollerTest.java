@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import com.codahale.metrics.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.Assert.*;
+
+public class BulkBrokerStatsJmxAttributePollerTest {
+
+    private BulkBrokerStatsJmxAttributePoller poller;
+
+    private BrokerStatsPackage resultStorage;
+    private ConcurrentSkipListMap<String, ActiveMQQueueJmxStats> queueStatsMap;
+
+    private MBeanAccessConnectionFactory mockConnectionFactory;
+    private MBeanAccessConnection mockConnection;
+    private Logger mockLogger;
+
+    private ObjectName brokerOName;
+    private ObjectName queuePattern;
+    private ObjectName queue1OName;
+    private ObjectName queue2OName;
+    private ObjectName unmonitoredQueueOName;
+    private ObjectName consumerOName;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.queueStatsMap = new ConcurrentSkipListMap<>();
+        this.queueStatsMap.put("x-queue1-x", new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x"));
+        this.queueStatsMap.put("x-queue2-x", new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x"));
+        this.resultStorage = new BrokerStatsPackage(new ActiveMQBrokerStats("x-broker-x"), this.queueStatsMap);
+
+        this.poller = new BulkBrokerStatsJmxAttributePoller(new BrokerStatsPolledObjectList(this.resultStorage),
+                this.resultStorage);
+
+        this.mockConnectionFactory = Mockito.mock(MBeanAccessConnectionFactory.class);
+        this.mockConnection = Mockito.mock(MBeanAccessConnection.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.brokerOName = new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x");
+        this.queuePattern =
+                new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x,destinationType=Queue,*");
+        this.queue1OName = this.queueOName("x-queue1-x");
+        this.queue2OName = this.queueOName("x-queue2-x");
+        this.unmonitoredQueueOName = this.queueOName("x-queue3-x");
+        this.consumerOName = new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x," +
+                "destinationType=Queue,destinationName=x-queue1-x,endpoint=Consumer,clientId=x-client-x");
+
+        Mockito.when(this.mockConnectionFactory.createConnection()).thenReturn(this.mockConnection);
+        Mockito.when(this.mockConnection.queryNames(this.queuePattern, null)).thenReturn(new HashSet<>(
+                Arrays.asList(this.queue1OName, this.queue2OName, this.unmonitoredQueueOName, this.consumerOName)));
+        Mockito.when(this.mockConnection.getAttributes(Mockito.eq(this.brokerOName), Mockito.any(String[].class)))
+                .thenReturn(this.attributes("TotalMessageCount", 101L, "Uptime", "x-uptime-x"));
+        Mockito.when(this.mockConnection.getAttributes(Mockito.eq(this.queue1OName), Mockito.any(String[].class)))
+                .thenReturn(this.attributes("QueueSize", 11L, "ConsumerCount", 3L, "MemoryPercentUsage", 7));
+        Mockito.when(this.mockConnection.getAttributes(Mockito.eq(this.queue2OName), Mockito.any(String[].class)))
+                .thenReturn(this.attributes("QueueSize", 22L));
+
+        this.poller.setmBeanAccessConnectionFactory(this.mockConnectionFactory);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.poller.getLog());
+        assertNotSame(this.mockLogger, this.poller.getLog());
+
+        this.poller.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.poller.getLog());
+    }
+
+    @Test
+    public void testPoll() throws Exception {
+        this.poller.poll();
+
+        assertEquals(101L, this.resultStorage.getBrokerStats().getTotalMessageCount());
+        assertEquals("x-uptime-x", this.resultStorage.getBrokerStats().getUptime());
+        assertEquals(11L, this.queueStatsMap.get("x-queue1-x").getQueueSize());
+        assertEquals(3L, this.queueStatsMap.get("x-queue1-x").getNumConsumers());
+        assertEquals(7, this.queueStatsMap.get("x-queue1-x").getMemoryPercentUsage());
+        assertEquals(22L, this.queueStatsMap.get("x-queue2-x").getQueueSize());
+
+        // One query for all of the queues, and one read per monitored MBean only.
+        Mockito.verify(this.mockConnection).queryNames(Mockito.any(ObjectName.class), Mockito.any(QueryExp.class));
+        Mockito.verify(this.mockConnection, Mockito.times(3))
+                .getAttributes(Mockito.any(ObjectName.class), Mockito.any(String[].class));
+        Mockito.verify(this.mockConnection, Mockito.never())
+                .getAttributes(Mockito.eq(this.unmonitoredQueueOName), Mockito.any(String[].class));
+        Mockito.verify(this.mockConnection, Mockito.never())
+                .getAttributes(Mockito.eq(this.consumerOName), Mockito.any(String[].class));
+    }
+
+    @Test
+    public void testGetSetRoundTripTimer() throws Exception {
+        Timer timer = new Timer();
+
+        assertNotNull(this.poller.getRoundTripTimer());
+        assertNotSame(timer, this.poller.getRoundTripTimer());
+
+        this.poller.setRoundTripTimer(timer);
+        assertSame(timer, this.poller.getRoundTripTimer());
+    }
+
+    @Test
+    public void testPollTimesRoundTrips() throws Exception {
+        Timer timer = new Timer();
+        this.poller.setRoundTripTimer(timer);
+
+        this.poller.poll();
+
+        // The queue query, plus the broker and two queue reads.
+        assertEquals(4, timer.getCount());
+    }
+
+    @Test
+    public void testPollReusesConnection() throws Exception {
+        this.poller.poll();
+        this.poller.poll();
+
+        Mockito.verify(this.mockConnectionFactory).createConnection();
+        Mockito.verify(this.mockConnection, Mockito.never()).close();
+    }
+
+    @Test
+    public void testPollNoQueues() throws Exception {
+        this.queueStatsMap.clear();
+
+        this.poller.poll();
+
+        Mockito.verify(this.mockConnection, Mockito.never())
+                .queryNames(Mockito.any(ObjectName.class), Mockito.any(QueryExp.class));
+    }
+
+    @Test
+    public void testPollQueueRemovedDuringPoll() throws Exception {
+        this.poller.setLog(this.mockLogger);
+
+        Mockito.when(this.mockConnection.getAttributes(Mockito.eq(this.queue1OName), Mockito.any(String[].class)))
+                .thenThrow(new InstanceNotFoundException("x-inf-exc-x"));
+
+        this.poller.poll();
+
+        Mockito.verify(this.mockLogger).debug("mbean no longer exists: oname={}", this.queue1OName);
+        assertEquals(22L, this.queueStatsMap.get("x-queue2-x").getQueueSize());
+    }
+
+    @Test
+    public void testPollIOExceptionClosesConnection() throws Exception {
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.when(this.mockConnection.queryNames(this.queuePattern, null)).thenThrow(ioExc);
+
+        try {
+            this.poller.poll();
+            fail("missing expected exception");
+        } catch ( IOException caught ) {
+            assertSame(ioExc, caught);
+        }
+
+        Mockito.verify(this.mockConnection).close();
+
+        // Next poll must establish a new connection.
+        Mockito.doReturn(new HashSet<ObjectName>()).when(this.mockConnection).queryNames(this.queuePattern, null);
+        this.poller.poll();
+
+        Mockito.verify(this.mockConnectionFactory, Mockito.times(2)).createConnection();
+    }
+
+    @Test(expected = IOException.class)
+    public void testPollWithoutConnectionFactory() throws Exception {
+        BulkBrokerStatsJmxAttributePoller unconfigured =
+                new BulkBrokerStatsJmxAttributePoller(new BrokerStatsPolledObjectList(this.resultStorage),
+                        this.resultStorage);
+
+        unconfigured.poll();
+    }
+
+    @Test
+    public void testShutdownClosesConnection() throws Exception {
+        this.poller.setLog(this.mockLogger);
+        this.poller.poll();
+
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.doThrow(ioExc).when(this.mockConnection).close();
+
+        this.poller.shutdown();
+
+        Mockito.verify(this.mockConnection).close();
+        Mockito.verify(this.mockLogger).debug("failed to close mbean access connection", ioExc);
+    }
+
+    protected ObjectName queueOName(String queueName) throws Exception {
+        return new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x,destinationType=Queue," +
+                "destinationName=" + queueName);
+    }
+
+    protected AttributeList attributes(Object... namesAndValues) {
+        AttributeList result = new AttributeList();
+
+        for ( int cur = 0; cur < namesAndValues.length; cur += 2 ) {
+            result.add(new Attribute((String) namesAndValues[cur], namesAndValues[cur + 1]));
+        }
+
+        return result;
+    }
+}
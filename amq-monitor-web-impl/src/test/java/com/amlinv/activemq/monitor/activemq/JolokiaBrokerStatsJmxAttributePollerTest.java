@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.codahale.metrics.Timer;
+import org.jolokia.client.J4pClient;
+import org.jolokia.client.exception.J4pBulkRemoteException;
+import org.jolokia.client.exception.J4pConnectException;
+import org.jolokia.client.exception.J4pRemoteException;
+import org.jolokia.client.request.J4pReadRequest;
+import org.jolokia.client.request.J4pReadResponse;
+import org.json.simple.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.Assert.*;
+
+public class JolokiaBrokerStatsJmxAttributePollerTest {
+
+    private JolokiaBrokerStatsJmxAttributePoller poller;
+
+    private BrokerStatsPackage resultStorage;
+    private ConcurrentSkipListMap<String, ActiveMQQueueJmxStats> queueStatsMap;
+
+    private J4pClient mockClient;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.queueStatsMap = new ConcurrentSkipListMap<>();
+        this.queueStatsMap.put("x-queue1-x", new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x"));
+        this.queueStatsMap.put("x-queue2-x", new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x"));
+        this.resultStorage = new BrokerStatsPackage(new ActiveMQBrokerStats("x-broker-x"), this.queueStatsMap);
+
+        this.mockClient = Mockito.mock(J4pClient.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.poller = new JolokiaBrokerStatsJmxAttributePoller(new BrokerStatsPolledObjectList(this.resultStorage),
+                this.resultStorage, this.mockClient);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.poller.getLog());
+        assertNotSame(this.mockLogger, this.poller.getLog());
+
+        this.poller.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.poller.getLog());
+    }
+
+    @Test
+    public void testGetClient() throws Exception {
+        assertSame(this.mockClient, this.poller.getClient());
+    }
+
+    @Test
+    public void testPoll() throws Exception {
+        J4pReadRequest brokerRequest =
+                new J4pReadRequest("org.apache.activemq:type=Broker,brokerName=x-broker-x", "TotalMessageCount",
+                        "Uptime");
+        J4pReadRequest queueRequest = new J4pReadRequest(
+                "org.apache.activemq:type=Broker,brokerName=x-broker-x,destinationType=Queue,destinationName=*",
+                "QueueSize", "MemoryPercentUsage");
+
+        JSONObject brokerValue = new JSONObject();
+        brokerValue.put("TotalMessageCount", 101L);
+        brokerValue.put("Uptime", "x-uptime-x");
+
+        JSONObject queueValue = new JSONObject();
+        queueValue.put(this.queueOName("x-queue1-x"), this.jsonAttributes("QueueSize", 11L, "MemoryPercentUsage", 7L));
+        queueValue.put(this.queueOName("x-queue2-x"), this.jsonAttributes("QueueSize", 22L));
+        queueValue.put(this.queueOName("x-queue3-x"), this.jsonAttributes("QueueSize", 33L));
+
+        Mockito.doReturn(Arrays.asList(this.readResponse(brokerRequest, brokerValue),
+                this.readResponse(queueRequest, queueValue))).when(this.mockClient).execute(Mockito.anyList());
+
+        this.poller.poll();
+
+        assertEquals(101L, this.resultStorage.getBrokerStats().getTotalMessageCount());
+        assertEquals("x-uptime-x", this.resultStorage.getBrokerStats().getUptime());
+        assertEquals(11L, this.queueStatsMap.get("x-queue1-x").getQueueSize());
+        assertEquals(7, this.queueStatsMap.get("x-queue1-x").getMemoryPercentUsage());
+        assertEquals(22L, this.queueStatsMap.get("x-queue2-x").getQueueSize());
+        assertFalse(this.queueStatsMap.containsKey("x-queue3-x"));
+
+        // Both reads must be sent in one bulk request.
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.mockClient).execute(captor.capture());
+        assertEquals(2, captor.getValue().size());
+    }
+
+    @Test
+    public void testPollNoQueues() throws Exception {
+        this.queueStatsMap.clear();
+
+        J4pReadRequest brokerRequest =
+                new J4pReadRequest("org.apache.activemq:type=Broker,brokerName=x-broker-x", "TotalMessageCount",
+                        "Uptime");
+        JSONObject brokerValue = new JSONObject();
+        brokerValue.put("TotalMessageCount", 101L);
+
+        Mockito.doReturn(Arrays.asList(this.readResponse(brokerRequest, brokerValue)))
+                .when(this.mockClient).execute(Mockito.anyList());
+
+        this.poller.poll();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.mockClient).execute(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(101L, this.resultStorage.getBrokerStats().getTotalMessageCount());
+    }
+
+    @Test
+    public void testPollTimesRoundTrip() throws Exception {
+        Timer timer = new Timer();
+        this.poller.setRoundTripTimer(timer);
+        this.queueStatsMap.clear();
+
+        J4pReadRequest brokerRequest =
+                new J4pReadRequest("org.apache.activemq:type=Broker,brokerName=x-broker-x", "TotalMessageCount");
+        Mockito.doReturn(Arrays.asList(this.readResponse(brokerRequest, new JSONObject())))
+                .when(this.mockClient).execute(Mockito.anyList());
+
+        this.poller.poll();
+
+        assertEquals(1, timer.getCount());
+    }
+
+    @Test
+    public void testPollPartialFailure() throws Exception {
+        this.poller.setLog(this.mockLogger);
+
+        J4pReadRequest brokerRequest =
+                new J4pReadRequest("org.apache.activemq:type=Broker,brokerName=x-broker-x", "TotalMessageCount",
+                        "Uptime");
+        JSONObject brokerValue = new JSONObject();
+        brokerValue.put("TotalMessageCount", 101L);
+
+        J4pRemoteException remoteExc = new J4pRemoteException(null, "x-error-x",
+                "javax.management.InstanceNotFoundException", 404, null, null);
+
+        Mockito.doThrow(new J4pBulkRemoteException(Arrays.asList(this.readResponse(brokerRequest, brokerValue),
+                remoteExc))).when(this.mockClient).execute(Mockito.anyList());
+
+        this.poller.poll();
+
+        assertEquals(101L, this.resultStorage.getBrokerStats().getTotalMessageCount());
+        Mockito.verify(this.mockLogger).debug("jolokia queue read found no queues: broker={}", "x-broker-x");
+    }
+
+    @Test
+    public void testPollQueueReadFailure() throws Exception {
+        J4pReadRequest brokerRequest =
+                new J4pReadRequest("org.apache.activemq:type=Broker,brokerName=x-broker-x", "TotalMessageCount");
+        J4pRemoteException remoteExc = new J4pRemoteException(null, "x-error-x", "java.lang.SecurityException",
+                403, null, null);
+
+        Mockito.doThrow(new J4pBulkRemoteException(Arrays.asList(
+                this.readResponse(brokerRequest, new JSONObject()), remoteExc)))
+                .when(this.mockClient).execute(Mockito.anyList());
+
+        try {
+            this.poller.poll();
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("jolokia read failed: broker=x-broker-x; status=403; error-type=java.lang.SecurityException",
+                    ioExc.getMessage());
+            assertSame(remoteExc, ioExc.getCause());
+        }
+    }
+
+    @Test
+    public void testPollBrokerReadFailure() throws Exception {
+        J4pReadRequest queueRequest = new J4pReadRequest(this.queueOName("x-queue-x"), "QueueSize");
+        J4pRemoteException remoteExc = new J4pRemoteException(null, "x-error-x",
+                "javax.management.InstanceNotFoundException", 404, null, null);
+
+        Mockito.doThrow(new J4pBulkRemoteException(Arrays.asList(remoteExc,
+                this.readResponse(queueRequest, new JSONObject()))))
+                .when(this.mockClient).execute(Mockito.anyList());
+
+        // Not found is only expected of the queue read.
+        try {
+            this.poller.poll();
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("jolokia read failed: broker=x-broker-x; status=404; " +
+                    "error-type=javax.management.InstanceNotFoundException", ioExc.getMessage());
+            assertSame(remoteExc, ioExc.getCause());
+        }
+    }
+
+    @Test
+    public void testPollConnectFailure() throws Exception {
+        J4pConnectException connectExc = new J4pConnectException("x-connect-exc-x", null);
+        Mockito.doThrow(connectExc).when(this.mockClient).execute(Mockito.anyList());
+        Mockito.when(this.mockClient.getUri()).thenReturn(new URI("http://x-host-x:8161/api/jolokia"));
+
+        try {
+            this.poller.poll();
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("jolokia bulk read failed: http://x-host-x:8161/api/jolokia", ioExc.getMessage());
+            assertSame(connectExc, ioExc.getCause());
+        }
+    }
+
+    protected String queueOName(String queueName) {
+        return "org.apache.activemq:brokerName=x-broker-x,destinationName=" + queueName +
+                ",destinationType=Queue,type=Broker";
+    }
+
+    protected JSONObject jsonAttributes(Object... namesAndValues) {
+        JSONObject result = new JSONObject();
+
+        for ( int cur = 0; cur < namesAndValues.length; cur += 2 ) {
+            result.put(namesAndValues[cur], namesAndValues[cur + 1]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a read response as the Jolokia client would on receipt of the given value.  The constructor is not
+     * public, so reflection is needed.
+     */
+    protected J4pReadResponse readResponse(J4pReadRequest request, JSONObject value) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("value", value);
+        json.put("status", 200L);
+        json.put("timestamp", 0L);
+
+        Constructor<J4pReadResponse> constructor =
+                J4pReadResponse.class.getDeclaredConstructor(J4pReadRequest.class, JSONObject.class);
+        constructor.setAccessible(true);
+
+        return constructor.newInstance(request, json);
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+import com.amlinv.activemq.topo.discovery.MBeanDestinationDiscoverer;
+import com.amlinv.activemq.topo.registry.DestinationRegistry;
+import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationFilter;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NotificationQueueDiscovererTest {
+
+    private NotificationQueueDiscoverer discoverer;
+
+    private MBeanAccessConnectionFactory mockConnectionFactory;
+    private MBeanAccessConnection mockConnection;
+    private MBeanAccessConnection mockConnection2;
+    private DestinationRegistry mockQueueRegistry;
+    private MBeanDestinationDiscoverer mockReconciliationDiscoverer;
+    private ScheduledExecutorService mockExecutor;
+    private ScheduledFuture mockFuture;
+    private Logger mockLogger;
+    private QueueHostTracker queueHostTracker;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockConnectionFactory = Mockito.mock(MBeanAccessConnectionFactory.class);
+        this.mockConnection = Mockito.mock(MBeanAccessConnection.class);
+        this.mockConnection2 = Mockito.mock(MBeanAccessConnection.class);
+        this.mockQueueRegistry = Mockito.mock(DestinationRegistry.class);
+        this.mockReconciliationDiscoverer = Mockito.mock(MBeanDestinationDiscoverer.class);
+        this.mockExecutor = Mockito.mock(ScheduledExecutorService.class);
+        this.mockFuture = Mockito.mock(ScheduledFuture.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+        this.queueHostTracker = new QueueHostTracker();
+
+        Mockito.when(this.mockConnectionFactory.createConnection())
+                .thenReturn(this.mockConnection, this.mockConnection2);
+        Mockito.when(this.mockExecutor.scheduleWithFixedDelay(Mockito.any(Runnable.class), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(this.mockFuture);
+
+        this.discoverer = new NotificationQueueDiscoverer("x-broker-x", this.mockConnectionFactory,
+                this.mockQueueRegistry);
+        this.discoverer.setReconciliationDiscoverer(this.mockReconciliationDiscoverer);
+        this.discoverer.setExecutor(this.mockExecutor);
+        this.discoverer.setLog(this.mockLogger);
+        this.discoverer.setQueueHostTracker(this.queueHostTracker);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        NotificationQueueDiscoverer other =
+                new NotificationQueueDiscoverer("x-broker-x", this.mockConnectionFactory, this.mockQueueRegistry);
+
+        assertNotNull(other.getLog());
+        assertNotSame(this.mockLogger, other.getLog());
+
+        other.setLog(this.mockLogger);
+        assertSame(this.mockLogger, other.getLog());
+    }
+
+    @Test
+    public void testGetSetProperties() throws Exception {
+        assertEquals("x-broker-x", this.discoverer.getBrokerName());
+        assertSame(this.mockReconciliationDiscoverer, this.discoverer.getReconciliationDiscoverer());
+        assertSame(this.mockExecutor, this.discoverer.getExecutor());
+        assertEquals(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL,
+                this.discoverer.getReconciliationInterval());
+
+        this.discoverer.setReconciliationInterval(1300L);
+        assertEquals(1300L, this.discoverer.getReconciliationInterval());
+
+        assertSame(this.queueHostTracker, this.discoverer.getQueueHostTracker());
+        assertNotNull(new NotificationQueueDiscoverer("x-broker-x", this.mockConnectionFactory,
+                this.mockQueueRegistry).getQueueHostTracker());
+    }
+
+    @Test
+    public void testStartSubscribesAndReconciles() throws Exception {
+        this.discoverer.setReconciliationInterval(1300L);
+        this.discoverer.start();
+
+        Runnable task = this.captureReconciliationTask(1300L);
+        task.run();
+
+        Mockito.verify(this.mockConnection).addNotificationListener(Mockito.eq(MBeanServerDelegate.DELEGATE_NAME),
+                Mockito.same(this.discoverer), Mockito.any(NotificationFilter.class), Mockito.isNull());
+        Mockito.verify(this.mockReconciliationDiscoverer).pollOnce();
+    }
+
+    @Test
+    public void testStartTwice() throws Exception {
+        this.discoverer.start();
+        this.discoverer.start();
+
+        Mockito.verify(this.mockExecutor).scheduleWithFixedDelay(Mockito.any(Runnable.class), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class));
+    }
+
+    @Test
+    public void testStartAfterStop() throws Exception {
+        this.discoverer.stop();
+        this.discoverer.start();
+
+        Mockito.verifyZeroInteractions(this.mockExecutor);
+    }
+
+    @Test
+    public void testReconcileKeepsLiveSubscription() throws Exception {
+        this.discoverer.start();
+        Runnable task = this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL);
+
+        task.run();
+        task.run();
+
+        Mockito.verify(this.mockConnectionFactory).createConnection();
+        Mockito.verify(this.mockConnection).queryNames(MBeanServerDelegate.DELEGATE_NAME, null);
+        Mockito.verify(this.mockReconciliationDiscoverer, Mockito.times(2)).pollOnce();
+    }
+
+    @Test
+    public void testReconcileResubscribesAfterConnectionFailure() throws Exception {
+        this.discoverer.start();
+        Runnable task = this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL);
+
+        task.run();
+
+        Mockito.when(this.mockConnection.queryNames(Mockito.any(ObjectName.class), Mockito.any(QueryExp.class)))
+                .thenThrow(new IOException("x-io-exc-x"));
+        task.run();
+
+        Mockito.verify(this.mockConnection).close();
+        Mockito.verify(this.mockConnection2).addNotificationListener(Mockito.eq(MBeanServerDelegate.DELEGATE_NAME),
+                Mockito.same(this.discoverer), Mockito.any(NotificationFilter.class), Mockito.isNull());
+        Mockito.verify(this.mockLogger)
+                .info("mbean registration subscription lost; re-subscribing: broker={}", "x-broker-x");
+    }
+
+    @Test
+    public void testReconcileSubscribeFailure() throws Exception {
+        InstanceNotFoundException infExc = new InstanceNotFoundException("x-inf-exc-x");
+        Mockito.doThrow(infExc).when(this.mockConnection).addNotificationListener(Mockito.any(ObjectName.class),
+                Mockito.any(NotificationQueueDiscoverer.class), Mockito.any(NotificationFilter.class),
+                Mockito.isNull());
+
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        Mockito.verify(this.mockConnection).close();
+        Mockito.verify(this.mockLogger)
+                .warn("failed to subscribe to mbean registration notifications: broker={}", "x-broker-x", infExc);
+
+        // The full listing still runs.
+        Mockito.verify(this.mockReconciliationDiscoverer).pollOnce();
+    }
+
+    @Test
+    public void testReconcileDiscovererFailure() throws Exception {
+        Exception exc = new Exception("x-exc-x");
+        Mockito.doThrow(exc).when(this.mockReconciliationDiscoverer).pollOnce();
+
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        Mockito.verify(this.mockLogger).warn("queue reconciliation failed: broker={}", "x-broker-x", exc);
+    }
+
+    @Test
+    public void testReconcileRefreshesHostedQueues() throws Exception {
+        this.queueHostTracker.addHost("x-queue-old-x", "x-broker-x");
+        Mockito.when(this.mockConnection.queryNames(this.queuePattern(), null))
+                .thenReturn(Collections.singleton(this.queueOName("x-broker-x", "x-queue-x")));
+
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        assertTrue(this.queueHostTracker.isHosted("x-queue-x", "x-broker-x"));
+        assertFalse(this.queueHostTracker.isHosted("x-queue-old-x", "x-broker-x"));
+    }
+
+    @Test
+    public void testReconcileListHostedQueuesFailure() throws Exception {
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.when(this.mockConnection.queryNames(this.queuePattern(), null)).thenThrow(ioExc);
+
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        Mockito.verify(this.mockLogger).warn("failed to list the queues hosted by broker: broker={}", "x-broker-x",
+                ioExc);
+        Mockito.verify(this.mockReconciliationDiscoverer).pollOnce();
+    }
+
+    @Test
+    public void testReconcileWithoutDiscoverer() throws Exception {
+        this.discoverer.setReconciliationDiscoverer(null);
+
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        Mockito.verify(this.mockConnection).addNotificationListener(Mockito.eq(MBeanServerDelegate.DELEGATE_NAME),
+                Mockito.same(this.discoverer), Mockito.any(NotificationFilter.class), Mockito.isNull());
+    }
+
+    @Test
+    public void testQueueRegistered() throws Exception {
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.REGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue-x")), null);
+
+        Mockito.verify(this.mockQueueRegistry).putIfAbsent("x-queue-x", new DestinationState("x-queue-x", "x-broker-x"));
+    }
+
+    @Test
+    public void testQueueUnregistered() throws Exception {
+        Mockito.when(this.mockQueueRegistry.get("x-queue-x")).thenReturn(new DestinationState("x-queue-x", "x-broker-x"));
+
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.UNREGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue-x")),
+                null);
+
+        Mockito.verify(this.mockQueueRegistry).remove("x-queue-x");
+    }
+
+    @Test
+    public void testQueueUnregisteredKeepsQueueOfOtherBroker() throws Exception {
+        this.queueHostTracker.addHost("x-queue1-x", "x-broker2-x");
+        Mockito.when(this.mockQueueRegistry.get("x-queue1-x"))
+                .thenReturn(new DestinationState("x-queue1-x", "x-broker-x"));
+        Mockito.when(this.mockQueueRegistry.get("x-queue2-x")).thenReturn(new DestinationState("x-queue2-x"));
+
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.UNREGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue1-x")),
+                null);
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.UNREGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue2-x")),
+                null);
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.UNREGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue3-x")),
+                null);
+
+        Mockito.verify(this.mockQueueRegistry, Mockito.never()).remove(Mockito.anyString());
+    }
+
+    @Test
+    public void testQueueUnregisteredFromAllBrokers() throws Exception {
+        NotificationQueueDiscoverer discoverer2 =
+                new NotificationQueueDiscoverer("x-broker2-x", this.mockConnectionFactory, this.mockQueueRegistry);
+        discoverer2.setQueueHostTracker(this.queueHostTracker);
+
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.REGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue-x")), null);
+        discoverer2.handleNotification(this.registrationNotification(
+                MBeanServerNotification.REGISTRATION_NOTIFICATION, this.queueOName("x-broker2-x", "x-queue-x")), null);
+
+        // Registered under the first broker to discover it.
+        Mockito.when(this.mockQueueRegistry.get("x-queue-x"))
+                .thenReturn(new DestinationState("x-queue-x", "x-broker-x"));
+
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.UNREGISTRATION_NOTIFICATION, this.queueOName("x-broker-x", "x-queue-x")),
+                null);
+        Mockito.verify(this.mockQueueRegistry, Mockito.never()).remove(Mockito.anyString());
+
+        discoverer2.handleNotification(this.registrationNotification(
+                MBeanServerNotification.UNREGISTRATION_NOTIFICATION, this.queueOName("x-broker2-x", "x-queue-x")),
+                null);
+        Mockito.verify(this.mockQueueRegistry).remove("x-queue-x");
+    }
+
+    @Test
+    public void testIgnoresNonQueueMBeans() throws Exception {
+        ObjectName consumerOName = new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x," +
+                "destinationType=Queue,destinationName=x-queue-x,endpoint=Consumer,clientId=x-client-x");
+        ObjectName topicOName = new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x," +
+                "destinationType=Topic,destinationName=x-topic-x");
+
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.REGISTRATION_NOTIFICATION, consumerOName), null);
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.REGISTRATION_NOTIFICATION, topicOName), null);
+        this.discoverer.handleNotification(this.registrationNotification(
+                MBeanServerNotification.REGISTRATION_NOTIFICATION, this.queueOName("x-broker2-x", "x-queue-x")), null);
+        this.discoverer.handleNotification(new Notification("x-type-x", "x-source-x", 1L), null);
+
+        Mockito.verifyZeroInteractions(this.mockQueueRegistry);
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        this.discoverer.stop();
+
+        Mockito.verify(this.mockFuture).cancel(false);
+        Mockito.verify(this.mockConnection).removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME,
+                this.discoverer);
+        Mockito.verify(this.mockConnection).close();
+    }
+
+    @Test
+    public void testStopRemovesHostedQueues() throws Exception {
+        this.queueHostTracker.addHost("x-queue-x", "x-broker-x");
+
+        this.discoverer.stop();
+
+        assertFalse(this.queueHostTracker.isHosted("x-queue-x", "x-broker-x"));
+    }
+
+    @Test
+    public void testStopRemoveListenerFailure() throws Exception {
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.doThrow(ioExc).when(this.mockConnection).removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME,
+                this.discoverer);
+
+        this.discoverer.start();
+        this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL).run();
+
+        this.discoverer.stop();
+
+        Mockito.verify(this.mockLogger).debug("failed to remove mbean registration listener: broker={}", "x-broker-x",
+                ioExc);
+        Mockito.verify(this.mockConnection).close();
+    }
+
+    @Test
+    public void testReconcileAfterStop() throws Exception {
+        this.discoverer.start();
+        Runnable task = this.captureReconciliationTask(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL);
+
+        this.discoverer.stop();
+        task.run();
+
+        Mockito.verify(this.mockConnectionFactory, Mockito.never()).createConnection();
+    }
+
+    protected Runnable captureReconciliationTask(long interval) {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockExecutor).scheduleWithFixedDelay(captor.capture(), Mockito.eq(0L),
+                Mockito.eq(interval), Mockito.eq(TimeUnit.MILLISECONDS));
+
+        return captor.getValue();
+    }
+
+    protected ObjectName queuePattern() throws Exception {
+        return new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x,destinationType=Queue," +
+                "destinationName=*");
+    }
+
+    protected ObjectName queueOName(String brokerName, String queueName) throws Exception {
+        return new ObjectName("org.apache.activemq:type=Broker,brokerName=" + brokerName +
+                ",destinationType=Queue,destinationName=" + queueName);
+    }
+
+    protected MBeanServerNotification registrationNotification(String type, ObjectName oname) {
+        return new MBeanServerNotification(type, MBeanServerDelegate.DELEGATE_NAME, 1L, oname);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.activemq;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class QueueHostTrackerTest {
+
+    private QueueHostTracker tracker;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.tracker = new QueueHostTracker();
+    }
+
+    @Test
+    public void testAddRemoveHost() throws Exception {
+        this.tracker.addHost("x-queue-x", "x-broker1-x");
+        this.tracker.addHost("x-queue-x", "x-broker2-x");
+
+        assertTrue(this.tracker.isHosted("x-queue-x", "x-broker1-x"));
+        assertTrue(this.tracker.removeHost("x-queue-x", "x-broker1-x"));
+        assertFalse(this.tracker.isHosted("x-queue-x", "x-broker1-x"));
+
+        assertFalse(this.tracker.removeHost("x-queue-x", "x-broker2-x"));
+        assertFalse(this.tracker.isHosted("x-queue-x", "x-broker2-x"));
+
+        // Removal of an unknown host is harmless.
+        assertFalse(this.tracker.removeHost("x-queue-x", "x-broker3-x"));
+    }
+
+    @Test
+    public void testSetHostedQueues() throws Exception {
+        this.tracker.addHost("x-queue1-x", "x-broker1-x");
+        this.tracker.addHost("x-queue1-x", "x-broker2-x");
+
+        this.tracker.setHostedQueues("x-broker1-x", new HashSet<>(Arrays.asList("x-queue2-x", "x-queue3-x")));
+
+        assertFalse(this.tracker.isHosted("x-queue1-x", "x-broker1-x"));
+        assertTrue(this.tracker.isHosted("x-queue1-x", "x-broker2-x"));
+        assertTrue(this.tracker.isHosted("x-queue2-x", "x-broker1-x"));
+        assertTrue(this.tracker.isHosted("x-queue3-x", "x-broker1-x"));
+    }
+
+    @Test
+    public void testRemoveBroker() throws Exception {
+        this.tracker.addHost("x-queue1-x", "x-broker1-x");
+        this.tracker.addHost("x-queue2-x", "x-broker1-x");
+        this.tracker.addHost("x-queue2-x", "x-broker2-x");
+
+        this.tracker.removeBroker("x-broker1-x");
+        this.tracker.removeBroker("x-unknown-broker-x");
+
+        assertFalse(this.tracker.isHosted("x-queue1-x", "x-broker1-x"));
+        assertFalse(this.tracker.isHosted("x-queue2-x", "x-broker1-x"));
+        assertTrue(this.tracker.isHosted("x-queue2-x", "x-broker2-x"));
+        assertFalse(this.tracker.removeHost("x-queue1-x", "x-broker2-x"));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompositeActiveMQBrokerPollerListenerTest {
+
+    private CompositeActiveMQBrokerPollerListener listener;
+
+    private ActiveMQBrokerPollerListener mockListener1;
+    private ActiveMQBrokerPollerListener mockListener2;
+    private BrokerStatsPackage mockBrokerStatsPackage;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockListener1 = Mockito.mock(ActiveMQBrokerPollerListener.class);
+        this.mockListener2 = Mockito.mock(ActiveMQBrokerPollerListener.class);
+        this.mockBrokerStatsPackage = Mockito.mock(BrokerStatsPackage.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.listener = new CompositeActiveMQBrokerPollerListener(Arrays.asList(this.mockListener1,
+                this.mockListener2));
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.listener.getLog());
+        assertNotSame(this.mockLogger, this.listener.getLog());
+
+        this.listener.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.listener.getLog());
+    }
+
+    @Test
+    public void testGetListeners() throws Exception {
+        assertEquals(Arrays.asList(this.mockListener1, this.mockListener2), this.listener.getListeners());
+    }
+
+    @Test
+    public void testOnBrokerPollComplete() throws Exception {
+        this.listener.onBrokerPollComplete(this.mockBrokerStatsPackage);
+
+        Mockito.verify(this.mockListener1).onBrokerPollComplete(this.mockBrokerStatsPackage);
+        Mockito.verify(this.mockListener2).onBrokerPollComplete(this.mockBrokerStatsPackage);
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteListenerFailure() throws Exception {
+        this.listener.setLog(this.mockLogger);
+
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.doThrow(rtExc).when(this.mockListener1).onBrokerPollComplete(this.mockBrokerStatsPackage);
+
+        this.listener.onBrokerPollComplete(this.mockBrokerStatsPackage);
+
+        Mockito.verify(this.mockListener2).onBrokerPollComplete(this.mockBrokerStatsPackage);
+        Mockito.verify(this.mockLogger).warn("broker poller listener failed: listener={}", this.mockListener1, rtExc);
+    }
+}
@@ -18,6 +18,7 @@ package com.amlinv.activemq.monitor.activemq.impl;
 
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller;
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.activemq.BrokerStatsJmxAttributePollerFactory;
 import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +35,7 @@ public class DefaultActiveMQBrokerPollerFactoryTest {
 
     private MBeanAccessConnectionFactory mockMBeanAccessConnectionFactory;
     private ActiveMQBrokerPollerListener mockListener;
+    private BrokerStatsJmxAttributePollerFactory mockJmxPollerFactory;
 
     @Before
     public void setupTest() throws Exception {
@@ -41,6 +43,7 @@ public class DefaultActiveMQBrokerPollerFactoryTest {
 
         this.mockMBeanAccessConnectionFactory = Mockito.mock(MBeanAccessConnectionFactory.class);
         this.mockListener = Mockito.mock(ActiveMQBrokerPollerListener.class);
+        this.mockJmxPollerFactory = Mockito.mock(BrokerStatsJmxAttributePollerFactory.class);
     }
 
     @Test
@@ -50,4 +53,22 @@ public class DefaultActiveMQBrokerPollerFactoryTest {
 
         assertNotNull(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetSetJmxPollerFactory() throws Exception {
+        assertNull(this.factory.getJmxPollerFactory());
+
+        this.factory.setJmxPollerFactory(this.mockJmxPollerFactory);
+        assertSame(this.mockJmxPollerFactory, this.factory.getJmxPollerFactory());
+    }
+
+    @Test
+    public void testCreatePollerWithJmxPollerFactory() throws Exception {
+        this.factory.setJmxPollerFactory(this.mockJmxPollerFactory);
+
+        ActiveMQBrokerPoller result =
+                this.factory.createPoller("x-broker-x", this.mockMBeanAccessConnectionFactory, this.mockListener);
+
+        assertSame(this.mockJmxPollerFactory, result.getJmxPollerFactory());
+    }
+}
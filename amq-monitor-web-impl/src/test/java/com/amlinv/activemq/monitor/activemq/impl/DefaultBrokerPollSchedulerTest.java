@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.activemq.BrokerPollTimingStats;
+import com.amlinv.activemq.stats.StatsClock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DefaultBrokerPollSchedulerTest {
+
+    private DefaultBrokerPollScheduler scheduler;
+
+    private ScheduledExecutorService mockExecutor;
+    private ScheduledFuture mockFuture;
+    private StatsClock mockStatsClock;
+    private Runnable mockPollTask;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.scheduler = new DefaultBrokerPollScheduler();
+
+        this.mockExecutor = Mockito.mock(ScheduledExecutorService.class);
+        this.mockFuture = Mockito.mock(ScheduledFuture.class);
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        this.mockPollTask = Mockito.mock(Runnable.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        Mockito.when(this.mockExecutor.scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(this.mockFuture);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.scheduler.getLog());
+        assertNotSame(this.mockLogger, this.scheduler.getLog());
+
+        this.scheduler.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.scheduler.getLog());
+    }
+
+    @Test
+    public void testGetSetMaxConcurrentPolls() throws Exception {
+        assertEquals(Runtime.getRuntime().availableProcessors(), this.scheduler.getMaxConcurrentPolls());
+
+        this.scheduler.setMaxConcurrentPolls(7);
+        assertEquals(7, this.scheduler.getMaxConcurrentPolls());
+    }
+
+    @Test
+    public void testGetSetStatsClock() throws Exception {
+        assertNotNull(this.scheduler.getStatsClock());
+        assertNotSame(this.mockStatsClock, this.scheduler.getStatsClock());
+
+        this.scheduler.setStatsClock(this.mockStatsClock);
+        assertSame(this.mockStatsClock, this.scheduler.getStatsClock());
+    }
+
+    @Test
+    public void testGetSetExecutor() throws Exception {
+        assertNull(this.scheduler.getExecutor());
+
+        this.scheduler.setExecutor(this.mockExecutor);
+        assertSame(this.mockExecutor, this.scheduler.getExecutor());
+    }
+
+    @Test
+    public void testSchedulePollingStaggersInitialDelay() throws Exception {
+        this.scheduler.setExecutor(this.mockExecutor);
+        this.scheduler.setMaxConcurrentPolls(4);
+
+        ScheduledFuture<?> result = this.scheduler.schedulePolling("x-broker1-x", this.mockPollTask, 1000L);
+        this.scheduler.schedulePolling("x-broker2-x", this.mockPollTask, 1000L);
+        this.scheduler.schedulePolling("x-broker3-x", this.mockPollTask, 1000L);
+        this.scheduler.schedulePolling("x-broker4-x", this.mockPollTask, 1000L);
+        this.scheduler.schedulePolling("x-broker5-x", this.mockPollTask, 1000L);
+
+        assertSame(this.mockFuture, result);
+
+        Mockito.verify(this.mockExecutor, Mockito.times(2))
+                .scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.eq(0L), Mockito.eq(1000L),
+                        Mockito.eq(TimeUnit.MILLISECONDS));
+        Mockito.verify(this.mockExecutor)
+                .scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.eq(250L), Mockito.eq(1000L),
+                        Mockito.eq(TimeUnit.MILLISECONDS));
+        Mockito.verify(this.mockExecutor)
+                .scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.eq(500L), Mockito.eq(1000L),
+                        Mockito.eq(TimeUnit.MILLISECONDS));
+        Mockito.verify(this.mockExecutor)
+                .scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.eq(750L), Mockito.eq(1000L),
+                        Mockito.eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPollTimingAndSkippedPoll() throws Exception {
+        this.scheduler.setExecutor(this.mockExecutor);
+        this.scheduler.setStatsClock(this.mockStatsClock);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1000L);
+        Runnable timedTask = this.scheduleAndCaptureTask("x-broker-x", 1000L);
+
+        //
+        // First poll: 20ms late, takes 30ms.
+        //
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1020L, 1050L);
+        timedTask.run();
+
+        //
+        // Second poll is so late it should be skipped.
+        //
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(3100L);
+        timedTask.run();
+
+        //
+        // Third poll: 5ms late, takes 10ms.
+        //
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(3005L, 3015L);
+        timedTask.run();
+
+        Mockito.verify(this.mockPollTask, Mockito.times(2)).run();
+
+        List<BrokerPollTimingStats> result = this.scheduler.getPollTimingStats();
+        assertEquals(1, result.size());
+
+        BrokerPollTimingStats stats = result.get(0);
+        assertEquals("x-broker-x", stats.getBrokerName());
+        assertEquals(1000L, stats.getPollingInterval());
+        assertEquals(2L, stats.getPollCount());
+        assertEquals(1L, stats.getSkippedPollCount());
+        assertEquals(5L, stats.getLastDrift());
+        assertEquals(20L, stats.getMaxDrift());
+        assertEquals(10L, stats.getLastPollDuration());
+    }
+
+    @Test
+    public void testPollExceptionDoesNotPropagate() throws Exception {
+        this.scheduler.setExecutor(this.mockExecutor);
+        this.scheduler.setStatsClock(this.mockStatsClock);
+        this.scheduler.setLog(this.mockLogger);
+
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.doThrow(rtExc).when(this.mockPollTask).run();
+
+        Runnable timedTask = this.scheduleAndCaptureTask("x-broker-x", 1000L);
+        timedTask.run();
+
+        Mockito.verify(this.mockLogger)
+                .warn("broker poll failed with unexpected exception: broker={}", "x-broker-x", rtExc);
+        assertEquals(1L, this.scheduler.getPollTimingStats().get(0).getPollCount());
+    }
+
+    @Test
+    public void testGetPollTimingStatsDropsCancelledSchedules() throws Exception {
+        this.scheduler.setExecutor(this.mockExecutor);
+
+        this.scheduler.schedulePolling("x-broker-x", this.mockPollTask, 1000L);
+        assertEquals(1, this.scheduler.getPollTimingStats().size());
+
+        Mockito.when(this.mockFuture.isDone()).thenReturn(true);
+        assertEquals(0, this.scheduler.getPollTimingStats().size());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        this.scheduler.setExecutor(this.mockExecutor);
+        this.scheduler.schedulePolling("x-broker-x", this.mockPollTask, 1000L);
+
+        this.scheduler.shutdown();
+
+        Mockito.verify(this.mockExecutor).shutdown();
+        assertEquals(0, this.scheduler.getPollTimingStats().size());
+    }
+
+    @Test
+    public void testShutdownBeforeSchedule() throws Exception {
+        this.scheduler.shutdown();
+
+        assertNull(this.scheduler.getExecutor());
+    }
+
+    @Test
+    public void testCreateDefaultExecutor() throws Exception {
+        this.scheduler.setMaxConcurrentPolls(1);
+
+        ScheduledFuture<?> future = this.scheduler.schedulePolling("x-broker-x", this.mockPollTask, 60000L);
+
+        try {
+            assertNotNull(this.scheduler.getExecutor());
+            assertFalse(future.isDone());
+        } finally {
+            this.scheduler.shutdown();
+        }
+    }
+
+    protected Runnable scheduleAndCaptureTask(String brokerName, long interval) {
+        this.scheduler.schedulePolling(brokerName, this.mockPollTask, interval);
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockExecutor).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+                Mockito.eq(interval), Mockito.eq(TimeUnit.MILLISECONDS));
+
+        return captor.getValue();
+    }
+}
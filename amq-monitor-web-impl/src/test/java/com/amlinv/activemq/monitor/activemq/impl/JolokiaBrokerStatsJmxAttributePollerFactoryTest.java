@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.activemq.BrokerStatsJmxAttributePoller;
+import com.amlinv.activemq.monitor.activemq.JolokiaBrokerStatsJmxAttributePoller;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import org.jolokia.client.J4pClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JolokiaBrokerStatsJmxAttributePollerFactoryTest {
+
+    private JolokiaBrokerStatsJmxAttributePollerFactory factory;
+
+    private List<Object> polledObjects;
+    private BrokerStatsPackage statsPackage;
+    private J4pClient mockClient;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.factory = new JolokiaBrokerStatsJmxAttributePollerFactory("http://x-host-x:8161/api/jolokia");
+
+        this.statsPackage = Mockito.mock(BrokerStatsPackage.class);
+        this.mockClient = Mockito.mock(J4pClient.class);
+        this.polledObjects = new LinkedList<>();
+    }
+
+    @Test
+    public void testGetJolokiaUrl() throws Exception {
+        assertEquals("http://x-host-x:8161/api/jolokia", this.factory.getJolokiaUrl());
+    }
+
+    @Test
+    public void testGetSetClient() throws Exception {
+        J4pClient defaultClient = this.factory.getClient();
+        assertNotNull(defaultClient);
+        assertEquals("http://x-host-x:8161/api/jolokia", defaultClient.getUri().toString());
+        assertSame(defaultClient, this.factory.getClient());
+
+        this.factory.setClient(this.mockClient);
+        assertSame(this.mockClient, this.factory.getClient());
+    }
+
+    @Test
+    public void testCreatePoller() throws Exception {
+        this.factory.setClient(this.mockClient);
+
+        BrokerStatsJmxAttributePoller poller = this.factory.createPoller(this.polledObjects, this.statsPackage);
+
+        assertTrue(poller instanceof JolokiaBrokerStatsJmxAttributePoller);
+        assertSame(this.mockClient, ((JolokiaBrokerStatsJmxAttributePoller) poller).getClient());
+        assertSame(this.statsPackage, poller.getResultStorage());
+    }
+}
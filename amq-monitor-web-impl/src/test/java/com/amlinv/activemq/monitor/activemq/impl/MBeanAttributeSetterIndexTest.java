@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.activemq.impl;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class MBeanAttributeSetterIndexTest {
+
+    private MBeanAttributeSetterIndex queueIndex;
+    private MBeanAttributeSetterIndex brokerIndex;
+
+    private ActiveMQQueueJmxStats queueStats;
+    private ActiveMQBrokerStats brokerStats;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.queueIndex = new MBeanAttributeSetterIndex(ActiveMQQueueJmxStats.class);
+        this.brokerIndex = new MBeanAttributeSetterIndex(ActiveMQBrokerStats.class);
+
+        this.queueStats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue-x");
+        this.brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        this.mockLogger = Mockito.mock(Logger.class);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.queueIndex.getLog());
+        assertNotSame(this.mockLogger, this.queueIndex.getLog());
+
+        this.queueIndex.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.queueIndex.getLog());
+    }
+
+    @Test
+    public void testGetAttributeNames() throws Exception {
+        assertEquals(new HashSet<>(Arrays.asList("QueueSize", "EnqueueCount", "DequeueCount", "ConsumerCount",
+                        "ProducerCount", "CursorPercentUsage", "MemoryPercentUsage", "InFlightCount")),
+                new HashSet<>(Arrays.asList(this.queueIndex.getAttributeNames())));
+    }
+
+    @Test
+    public void testApplyNumericAttributes() throws Exception {
+        assertTrue(this.queueIndex.applyAttribute(this.queueStats, "QueueSize", 13L));
+        assertTrue(this.queueIndex.applyAttribute(this.queueStats, "EnqueueCount", 17));
+        assertTrue(this.queueIndex.applyAttribute(this.queueStats, "MemoryPercentUsage", 23L));
+
+        assertEquals(13L, this.queueStats.getQueueSize());
+        assertEquals(17L, this.queueStats.getEnqueueCount());
+        assertEquals(23, this.queueStats.getMemoryPercentUsage());
+    }
+
+    @Test
+    public void testApplyStringAttribute() throws Exception {
+        assertTrue(this.brokerIndex.applyAttribute(this.brokerStats, "Uptime", "x-uptime-x"));
+
+        assertEquals("x-uptime-x", this.brokerStats.getUptime());
+    }
+
+    @Test
+    public void testApplyUnknownAttribute() throws Exception {
+        assertFalse(this.queueIndex.applyAttribute(this.queueStats, "x-unknown-x", 1L));
+    }
+
+    @Test
+    public void testApplyNullValue() throws Exception {
+        assertFalse(this.queueIndex.applyAttribute(this.queueStats, "QueueSize", null));
+    }
+
+    @Test
+    public void testApplyUnconvertibleValue() throws Exception {
+        this.queueIndex.setLog(this.mockLogger);
+
+        assertFalse(this.queueIndex.applyAttribute(this.queueStats, "QueueSize", "x-not-a-number-x"));
+
+        Mockito.verify(this.mockLogger).debug(Mockito.eq(
+                        "unable to convert attribute value: attribute={}; value-type={}; setter={}"),
+                Mockito.eq("QueueSize"), Mockito.eq("java.lang.String"), Mockito.anyObject());
+    }
+}
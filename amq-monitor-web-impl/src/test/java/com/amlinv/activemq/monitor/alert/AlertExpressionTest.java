@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlertExpressionTest {
+
+    @Test
+    public void testParseSingleCondition() throws Exception {
+        AlertExpression expression = AlertExpression.parse("memoryPercentUsage > 90");
+
+        assertEquals("memoryPercentUsage > 90", expression.getText());
+        assertEquals(0L, expression.getDuration());
+        assertEquals(1, expression.getConditions().size());
+
+        AlertCondition condition = expression.getConditions().get(0);
+        assertEquals(AlertField.MEMORY_PERCENT_USAGE, condition.getField());
+        assertEquals(AlertOperator.GT, condition.getOperator());
+        assertEquals(90.0, condition.getThreshold(), 0.0);
+        assertFalse(condition.isRateOfChange());
+    }
+
+    @Test
+    public void testParseMultipleConditionsWithDuration() throws Exception {
+        AlertExpression expression = AlertExpression.parse("dequeueRate1Minute == 0 AND numConsumers>0 for 5m");
+
+        assertEquals(300000L, expression.getDuration());
+        assertEquals(2, expression.getConditions().size());
+        assertEquals(AlertField.DEQUEUE_RATE_1_MINUTE, expression.getConditions().get(0).getField());
+        assertEquals(AlertOperator.EQ, expression.getConditions().get(0).getOperator());
+        assertEquals(AlertField.NUM_CONSUMERS, expression.getConditions().get(1).getField());
+        assertEquals(AlertOperator.GT, expression.getConditions().get(1).getOperator());
+    }
+
+    @Test
+    public void testParseRateOfChange() throws Exception {
+        AlertExpression expression = AlertExpression.parse("rate( queueSize ) >= -2.5");
+
+        AlertCondition condition = expression.getConditions().get(0);
+        assertEquals(AlertField.QUEUE_SIZE, condition.getField());
+        assertEquals(AlertOperator.GE, condition.getOperator());
+        assertEquals(-2.5, condition.getThreshold(), 0.0);
+        assertTrue(condition.isRateOfChange());
+        assertEquals("rate(queueSize)", condition.getValueName());
+    }
+
+    @Test
+    public void testParseDurations() throws Exception {
+        assertEquals(250L, AlertExpression.parse("queueSize > 1 for 250ms").getDuration());
+        assertEquals(30000L, AlertExpression.parse("queueSize > 1 for 30s").getDuration());
+        assertEquals(120000L, AlertExpression.parse("queueSize > 1 for 2m").getDuration());
+        assertEquals(7200000L, AlertExpression.parse("queueSize > 1 for 2h").getDuration());
+    }
+
+    @Test
+    public void testParseInvalid() throws Exception {
+        this.assertInvalid(null, "missing alert expression");
+        this.assertInvalid("queueSize >", "invalid alert condition: condition=queueSize >; expression=queueSize >");
+        this.assertInvalid("xUnknownX > 1", "unknown alert field: field=xUnknownX; expression=xUnknownX > 1");
+        this.assertInvalid("queueSize > 1 for 5d",
+                "invalid alert duration: duration=5d; expression=queueSize > 1 for 5d");
+        this.assertInvalid("queueSize > 1 for 5m for 6m", "invalid alert expression: queueSize > 1 for 5m for 6m");
+    }
+
+    protected void assertInvalid(String text, String message) {
+        try {
+            AlertExpression.parse(text);
+            fail("missing expected exception");
+        } catch ( IllegalArgumentException iaExc ) {
+            assertEquals(message, iaExc.getMessage());
+        }
+    }
+}
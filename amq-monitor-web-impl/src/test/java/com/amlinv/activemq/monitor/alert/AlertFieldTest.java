@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlertFieldTest {
+
+    @Test
+    public void testFromPropertyName() throws Exception {
+        for ( AlertField oneField : AlertField.values() ) {
+            assertSame(oneField, AlertField.fromPropertyName(oneField.getPropertyName()));
+        }
+
+        assertNull(AlertField.fromPropertyName("x-unknown-x"));
+    }
+
+    @Test
+    public void testGetValue() throws Exception {
+        ActiveMQQueueJmxStats stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue-x");
+        stats.setQueueSize(1);
+        stats.setEnqueueCount(2);
+        stats.setDequeueCount(3);
+        stats.setNumConsumers(4);
+        stats.setNumProducers(5);
+        stats.setCursorPercentUsage(6);
+        stats.setMemoryPercentUsage(7);
+        stats.setInflightCount(8);
+
+        assertEquals(1.0, AlertField.QUEUE_SIZE.getValue(stats), 0.0);
+        assertEquals(2.0, AlertField.ENQUEUE_COUNT.getValue(stats), 0.0);
+        assertEquals(3.0, AlertField.DEQUEUE_COUNT.getValue(stats), 0.0);
+        assertEquals(4.0, AlertField.NUM_CONSUMERS.getValue(stats), 0.0);
+        assertEquals(5.0, AlertField.NUM_PRODUCERS.getValue(stats), 0.0);
+        assertEquals(6.0, AlertField.CURSOR_PERCENT_USAGE.getValue(stats), 0.0);
+        assertEquals(7.0, AlertField.MEMORY_PERCENT_USAGE.getValue(stats), 0.0);
+        assertEquals(8.0, AlertField.INFLIGHT_COUNT.getValue(stats), 0.0);
+    }
+
+    @Test
+    public void testGetAggregateValue() throws Exception {
+        ActiveMQQueueStats stats = new ActiveMQQueueStats("x-broker-x", "x-queue-x");
+        stats.setEnqueueRate1Minute(1.5);
+        stats.setEnqueueRate1Hour(2.5);
+        stats.setEnqueueRate1Day(3.5);
+        stats.setDequeueRate1Minute(4.5);
+        stats.setDequeueRate1Hour(5.5);
+        stats.setDequeueRate1Day(6.5);
+
+        assertEquals(1.5, AlertField.ENQUEUE_RATE_1_MINUTE.getValue(stats), 0.0);
+        assertEquals(2.5, AlertField.ENQUEUE_RATE_1_HOUR.getValue(stats), 0.0);
+        assertEquals(3.5, AlertField.ENQUEUE_RATE_1_DAY.getValue(stats), 0.0);
+        assertEquals(4.5, AlertField.DEQUEUE_RATE_1_MINUTE.getValue(stats), 0.0);
+        assertEquals(5.5, AlertField.DEQUEUE_RATE_1_HOUR.getValue(stats), 0.0);
+        assertEquals(6.5, AlertField.DEQUEUE_RATE_1_DAY.getValue(stats), 0.0);
+
+        assertTrue(AlertField.DEQUEUE_RATE_1_MINUTE.isAggregateOnly());
+        assertFalse(AlertField.QUEUE_SIZE.isAggregateOnly());
+    }
+
+    @Test
+    public void testGetBrokerValue() throws Exception {
+        ActiveMQBrokerStats stats = new ActiveMQBrokerStats("x-broker-x");
+        stats.setMemoryPercentUsage(1);
+        stats.setStorePercentUsage(2);
+        stats.setMemoryLimit(3);
+        stats.setAverageMessageSize(4);
+        stats.setCurrentConnectionsCount(5);
+        stats.setTotalConsumerCount(6);
+        stats.setTotalMessageCount(7);
+        stats.setTotalEnqueueCount(8);
+        stats.setTotalDequeueCount(9);
+
+        assertEquals(1.0, AlertField.MEMORY_PERCENT_USAGE.getValue(stats), 0.0);
+        assertEquals(2.0, AlertField.STORE_PERCENT_USAGE.getValue(stats), 0.0);
+        assertEquals(3.0, AlertField.MEMORY_LIMIT.getValue(stats), 0.0);
+        assertEquals(4.0, AlertField.AVERAGE_MESSAGE_SIZE.getValue(stats), 0.0);
+        assertEquals(5.0, AlertField.CURRENT_CONNECTIONS_COUNT.getValue(stats), 0.0);
+        assertEquals(6.0, AlertField.TOTAL_CONSUMER_COUNT.getValue(stats), 0.0);
+        assertEquals(7.0, AlertField.TOTAL_MESSAGE_COUNT.getValue(stats), 0.0);
+        assertEquals(8.0, AlertField.TOTAL_ENQUEUE_COUNT.getValue(stats), 0.0);
+        assertEquals(9.0, AlertField.TOTAL_DEQUEUE_COUNT.getValue(stats), 0.0);
+
+        assertTrue(AlertField.MEMORY_PERCENT_USAGE.isBrokerField());
+        assertTrue(AlertField.MEMORY_PERCENT_USAGE.isQueueField());
+        assertTrue(AlertField.STORE_PERCENT_USAGE.isBrokerField());
+        assertFalse(AlertField.STORE_PERCENT_USAGE.isQueueField());
+        assertFalse(AlertField.QUEUE_SIZE.isBrokerField());
+    }
+
+    @Test
+    public void testGetValueOfWrongStatistics() throws Exception {
+        try {
+            AlertField.QUEUE_SIZE.getValue(new ActiveMQBrokerStats("x-broker-x"));
+            fail("missing expected exception");
+        } catch ( IllegalStateException isExc ) {
+            assertEquals("not a broker field: field=queueSize", isExc.getMessage());
+        }
+
+        try {
+            AlertField.STORE_PERCENT_USAGE.getValue(new ActiveMQQueueJmxStats("x-broker-x", "x-queue-x"));
+            fail("missing expected exception");
+        } catch ( IllegalStateException isExc ) {
+            assertEquals("not a queue field: field=storePercentUsage", isExc.getMessage());
+        }
+    }
+}
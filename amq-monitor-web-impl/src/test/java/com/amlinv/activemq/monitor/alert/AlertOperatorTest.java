@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlertOperatorTest {
+
+    @Test
+    public void testFromSymbol() throws Exception {
+        for ( AlertOperator oneOperator : AlertOperator.values() ) {
+            assertSame(oneOperator, AlertOperator.fromSymbol(oneOperator.getSymbol()));
+        }
+
+        assertNull(AlertOperator.fromSymbol("=<"));
+    }
+
+    @Test
+    public void testTest() throws Exception {
+        assertTrue(AlertOperator.GT.test(2.0, 1.0));
+        assertFalse(AlertOperator.GT.test(1.0, 1.0));
+        assertTrue(AlertOperator.GE.test(1.0, 1.0));
+        assertFalse(AlertOperator.GE.test(0.0, 1.0));
+        assertTrue(AlertOperator.LT.test(0.0, 1.0));
+        assertFalse(AlertOperator.LT.test(1.0, 1.0));
+        assertTrue(AlertOperator.LE.test(1.0, 1.0));
+        assertFalse(AlertOperator.LE.test(2.0, 1.0));
+        assertTrue(AlertOperator.EQ.test(1.0, 1.0));
+        assertFalse(AlertOperator.EQ.test(2.0, 1.0));
+        assertTrue(AlertOperator.NE.test(2.0, 1.0));
+        assertFalse(AlertOperator.NE.test(1.0, 1.0));
+    }
+}
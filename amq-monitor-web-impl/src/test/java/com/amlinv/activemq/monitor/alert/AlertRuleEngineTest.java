@@ -0,0 +1,374 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.topo.registry.model.BrokerInfo;
+import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class AlertRuleEngineTest {
+
+    private AlertRuleEngine engine;
+
+    private QueueStatisticsRegistry mockQueueStatisticsRegistry;
+    private AlertListener mockAlertListener;
+    private StatsClock mockStatsClock;
+    private Logger mockLogger;
+
+    private Map<String, ActiveMQQueueJmxStats> queueStatsMap;
+    private BrokerStatsPackage brokerStatsPackage;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.engine = new AlertRuleEngine();
+
+        this.mockQueueStatisticsRegistry = Mockito.mock(QueueStatisticsRegistry.class);
+        this.mockAlertListener = Mockito.mock(AlertListener.class);
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.queueStatsMap = new TreeMap<>();
+        this.queueStatsMap.put("x-queue1-x", new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x"));
+        this.queueStatsMap.put("x-queue2-x", new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x"));
+        this.brokerStatsPackage = new BrokerStatsPackage(new ActiveMQBrokerStats("x-broker-x"), this.queueStatsMap);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.engine.getLog());
+        assertNotSame(this.mockLogger, this.engine.getLog());
+
+        this.engine.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.engine.getLog());
+    }
+
+    @Test
+    public void testGetSetRules() throws Exception {
+        List<AlertRule> rules = Arrays.asList(new AlertRule("x-rule-x", "*", "queueSize > 1", false));
+
+        assertTrue(this.engine.getRules().isEmpty());
+
+        this.engine.setRules(rules);
+        assertEquals(rules, this.engine.getRules());
+    }
+
+    @Test
+    public void testSetInvalidRulesRetainsPriorRules() throws Exception {
+        List<AlertRule> rules = Arrays.asList(new AlertRule("x-rule-x", "*", "queueSize > 1", false));
+        this.engine.setRules(rules);
+
+        try {
+            this.engine.setRules(Arrays.asList(new AlertRule("x-rule2-x", "*", "x-invalid-x", false)));
+            fail("missing expected exception");
+        } catch ( IllegalArgumentException iaExc ) {
+            assertEquals(rules, this.engine.getRules());
+        }
+    }
+
+    @Test
+    public void testGetSetQueueStatisticsRegistry() throws Exception {
+        assertNull(this.engine.getQueueStatisticsRegistry());
+
+        this.engine.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+        assertSame(this.mockQueueStatisticsRegistry, this.engine.getQueueStatisticsRegistry());
+    }
+
+    @Test
+    public void testGetSetAlertListener() throws Exception {
+        assertNull(this.engine.getAlertListener());
+
+        this.engine.setAlertListener(this.mockAlertListener);
+        assertSame(this.mockAlertListener, this.engine.getAlertListener());
+    }
+
+    @Test
+    public void testGetSetStatsClock() throws Exception {
+        assertNotNull(this.engine.getStatsClock());
+        assertNotSame(this.mockStatsClock, this.engine.getStatsClock());
+
+        this.engine.setStatsClock(this.mockStatsClock);
+        assertSame(this.mockStatsClock, this.engine.getStatsClock());
+    }
+
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNotNull(this.engine.getMetricRegistry());
+        assertNotSame(metricRegistry, this.engine.getMetricRegistry());
+
+        this.engine.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, this.engine.getMetricRegistry());
+    }
+
+    @Test
+    public void testBrokerRuleFires() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "x-queue1-x", "queueSize > 10", false));
+        this.queueStatsMap.get("x-queue1-x").setQueueSize(11);
+        this.queueStatsMap.get("x-queue2-x").setQueueSize(11);
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ArgumentCaptor<AlertEvent> captor = ArgumentCaptor.forClass(AlertEvent.class);
+        Mockito.verify(this.mockAlertListener).onAlert(captor.capture());
+        assertEquals(AlertEventType.FIRING, captor.getValue().getType());
+        assertEquals("x-broker-x", captor.getValue().getBrokerName());
+        assertEquals("x-queue1-x", captor.getValue().getQueueName());
+
+        Mockito.verify(this.mockLogger).info("alert {}: rule={}; broker={}; queue={}; values={}",
+                AlertEventType.FIRING, "x-rule-x", "x-broker-x", "x-queue1-x", captor.getValue().getValues());
+    }
+
+    @Test
+    public void testAggregateRuleFires() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "x-queue2-x", "dequeueRate1Minute == 0 and numConsumers > 0",
+                true));
+
+        ActiveMQQueueStats aggregateStats = new ActiveMQQueueStats(null, "x-queue2-x");
+        aggregateStats.setNumConsumers(1);
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueStats("x-queue2-x")).thenReturn(aggregateStats);
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ArgumentCaptor<AlertEvent> captor = ArgumentCaptor.forClass(AlertEvent.class);
+        Mockito.verify(this.mockAlertListener).onAlert(captor.capture());
+        assertNull(captor.getValue().getBrokerName());
+        assertEquals("x-queue2-x", captor.getValue().getQueueName());
+
+        // Aggregated statistics are only read for queues with matching aggregate rules.
+        Mockito.verify(this.mockQueueStatisticsRegistry, Mockito.never()).getQueueStats("x-queue1-x");
+    }
+
+    @Test
+    public void testAggregateRuleEvaluatedOncePerCycle() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "x-queue1-x", "rate(enqueueCount) > 0", true));
+
+        ActiveMQQueueStats aggregateStats = new ActiveMQQueueStats(null, "x-queue1-x");
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueStats("x-queue1-x")).thenReturn(aggregateStats);
+
+        Map<String, ActiveMQQueueJmxStats> otherQueueStatsMap = new TreeMap<>();
+        otherQueueStatsMap.put("x-queue1-x", new ActiveMQQueueJmxStats("x-broker2-x", "x-queue1-x"));
+        BrokerStatsPackage otherBrokerStatsPackage =
+                new BrokerStatsPackage(new ActiveMQBrokerStats("x-broker2-x"), otherQueueStatsMap);
+
+        // First cycle: the first broker's poll evaluates the rule; the second broker's poll moments later does not.
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+        aggregateStats.setEnqueueCount(10);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1001L);
+        this.engine.onBrokerPollComplete(otherBrokerStatsPackage);
+
+        Mockito.verify(this.mockQueueStatisticsRegistry, Mockito.times(1)).getQueueStats("x-queue1-x");
+        Mockito.verifyZeroInteractions(this.mockAlertListener);
+
+        // Second cycle: the rate is measured over the full cycle.
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(6000L);
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(6001L);
+        this.engine.onBrokerPollComplete(otherBrokerStatsPackage);
+
+        Mockito.verify(this.mockQueueStatisticsRegistry, Mockito.times(2)).getQueueStats("x-queue1-x");
+
+        ArgumentCaptor<AlertEvent> captor = ArgumentCaptor.forClass(AlertEvent.class);
+        Mockito.verify(this.mockAlertListener).onAlert(captor.capture());
+        assertEquals(2.0, captor.getValue().getValues().get("rate(enqueueCount)"), 0.0);
+    }
+
+    @Test
+    public void testAggregateCycleAfterBrokerRemoved() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "x-queue1-x", "queueSize >= 0", true));
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueStats("x-queue1-x"))
+                .thenReturn(new ActiveMQQueueStats(null, "x-queue1-x"));
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+        this.engine.getBrokerRegistryListener().onRemoveEntry("x-address-x",
+                new BrokerInfo("x-broker-id-x", "x-broker-x", "x-url-x"));
+        this.engine.getQueueRegistryListener().onRemoveEntry("x-queue1-x", new DestinationState("x-queue1-x"));
+
+        // The queue starts a new cycle once it is polled again.
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verify(this.mockQueueStatisticsRegistry, Mockito.times(2)).getQueueStats("x-queue1-x");
+    }
+
+    @Test
+    public void testBrokerLevelRuleFires() throws Exception {
+        AlertRule rule = new AlertRule("x-rule-x", "*", "memoryPercentUsage > 90", false);
+        rule.setBrokerLevel(true);
+        this.setupEngine(rule);
+        this.brokerStatsPackage.getBrokerStats().setMemoryPercentUsage(91);
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ArgumentCaptor<AlertEvent> captor = ArgumentCaptor.forClass(AlertEvent.class);
+        Mockito.verify(this.mockAlertListener).onAlert(captor.capture());
+        assertEquals(AlertEventType.FIRING, captor.getValue().getType());
+        assertEquals("x-broker-x", captor.getValue().getBrokerName());
+        assertNull(captor.getValue().getQueueName());
+        assertEquals(91.0, captor.getValue().getValues().get("memoryPercentUsage"), 0.0);
+
+        assertEquals(1, this.engine.getActiveAlerts().size());
+    }
+
+    @Test
+    public void testBrokerRemovedResolvesAlerts() throws Exception {
+        AlertRule brokerLevelRule = new AlertRule("x-rule2-x", "*", "memoryPercentUsage >= 0", false);
+        brokerLevelRule.setBrokerLevel(true);
+        this.setupEngine(new AlertRule("x-rule-x", "x-queue1-x", "queueSize >= 0", false), brokerLevelRule);
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+        assertEquals(2, this.engine.getActiveAlerts().size());
+
+        this.engine.getBrokerRegistryListener().onPutEntry("x-address-x",
+                new BrokerInfo("x-broker-id-x", "x-broker-x", "x-url-x"));
+        this.engine.getBrokerRegistryListener().onReplaceEntry("x-address-x",
+                new BrokerInfo("x-broker-id-x", "x-broker-x", "x-url-x"),
+                new BrokerInfo("x-broker-id-x", "x-broker-x", "x-url2-x"));
+        assertEquals(2, this.engine.getActiveAlerts().size());
+
+        this.engine.getBrokerRegistryListener().onRemoveEntry("x-address-x",
+                new BrokerInfo("x-broker-id-x", "x-broker-x", "x-url-x"));
+
+        ArgumentCaptor<AlertEvent> captor = ArgumentCaptor.forClass(AlertEvent.class);
+        Mockito.verify(this.mockAlertListener, Mockito.times(4)).onAlert(captor.capture());
+        assertEquals(AlertEventType.RESOLVED, captor.getAllValues().get(2).getType());
+        assertEquals(AlertEventType.RESOLVED, captor.getAllValues().get(3).getType());
+
+        assertTrue(this.engine.getActiveAlerts().isEmpty());
+    }
+
+    @Test
+    public void testAggregateRuleWithoutStats() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "*", "queueSize >= 0", true));
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verifyZeroInteractions(this.mockAlertListener);
+    }
+
+    @Test
+    public void testAggregateRuleWithoutRegistry() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "*", "queueSize >= 0", true));
+        this.engine.setQueueStatisticsRegistry(null);
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verifyZeroInteractions(this.mockAlertListener);
+    }
+
+    @Test
+    public void testNoRules() throws Exception {
+        this.setupEngine();
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verifyZeroInteractions(this.mockStatsClock, this.mockQueueStatisticsRegistry, this.mockAlertListener);
+    }
+
+    @Test
+    public void testWithoutAlertListener() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "*", "queueSize >= 0", false));
+        this.engine.setAlertListener(null);
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        assertEquals(2, this.engine.getActiveAlerts().size());
+    }
+
+    @Test
+    public void testGetActiveAlerts() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "x-queue1-x", "queueSize >= 0", false),
+                new AlertRule("x-rule2-x", "x-queue1-x", "queueSize >= 0", true));
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueStats("x-queue1-x"))
+                .thenReturn(new ActiveMQQueueStats(null, "x-queue1-x"));
+
+        assertTrue(this.engine.getActiveAlerts().isEmpty());
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        List<AlertEvent> result = this.engine.getActiveAlerts();
+        assertEquals(2, result.size());
+        assertEquals("x-rule-x", result.get(0).getRuleName());
+        assertEquals("x-rule2-x", result.get(1).getRuleName());
+    }
+
+    @Test
+    public void testEvaluationMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.setupEngine(new AlertRule("x-rule-x", "*", "queueSize > 10", false));
+        this.engine.setMetricRegistry(metricRegistry);
+
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        assertEquals(1, metricRegistry.timer("com.amlinv.activemq.monitor.alert.AlertRuleEngine.evaluation")
+                .getCount());
+    }
+
+    @Test
+    public void testQueueRemovedResolvesAlerts() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "*", "queueSize >= 0", false));
+        this.engine.onBrokerPollComplete(this.brokerStatsPackage);
+
+        this.engine.getQueueRegistryListener().onRemoveEntry("x-queue1-x", new DestinationState("x-queue1-x"));
+
+        ArgumentCaptor<AlertEvent> captor = ArgumentCaptor.forClass(AlertEvent.class);
+        Mockito.verify(this.mockAlertListener, Mockito.times(3)).onAlert(captor.capture());
+        assertEquals(AlertEventType.RESOLVED, captor.getValue().getType());
+        assertEquals("x-queue1-x", captor.getValue().getQueueName());
+
+        assertEquals(1, this.engine.getActiveAlerts().size());
+    }
+
+    @Test
+    public void testQueueRegistryListenerIgnoresPutAndReplace() throws Exception {
+        this.setupEngine(new AlertRule("x-rule-x", "*", "queueSize >= 0", false));
+
+        this.engine.getQueueRegistryListener().onPutEntry("x-queue1-x", new DestinationState("x-queue1-x"));
+        this.engine.getQueueRegistryListener().onReplaceEntry("x-queue1-x", new DestinationState("x-queue1-x"),
+                new DestinationState("x-queue1-x"));
+
+        Mockito.verifyZeroInteractions(this.mockAlertListener);
+    }
+
+    protected void setupEngine(AlertRule... rules) {
+        this.engine.setRules(rules.length == 0 ? Collections.<AlertRule>emptyList() : Arrays.asList(rules));
+        this.engine.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+        this.engine.setAlertListener(this.mockAlertListener);
+        this.engine.setStatsClock(this.mockStatsClock);
+        this.engine.setLog(this.mockLogger);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1000L);
+    }
+}
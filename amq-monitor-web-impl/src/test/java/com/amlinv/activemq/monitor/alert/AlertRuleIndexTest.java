@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class AlertRuleIndexTest {
+
+    private CompiledAlertRule exactRule;
+    private CompiledAlertRule prefixRule;
+    private CompiledAlertRule allRule;
+    private CompiledAlertRule patternRule;
+
+    private AlertRuleIndex index;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.exactRule = this.compile("x-exact-x", "orders.in");
+        this.prefixRule = this.compile("x-prefix-x", "orders.*");
+        this.allRule = this.compile("x-all-x", "*");
+        this.patternRule = this.compile("x-pattern-x", "*.dlq.*");
+
+        this.index = new AlertRuleIndex(Arrays.asList(this.allRule, this.patternRule, this.prefixRule,
+                this.exactRule));
+    }
+
+    @Test
+    public void testGetRules() throws Exception {
+        assertEquals(Arrays.asList(this.allRule, this.patternRule, this.prefixRule, this.exactRule),
+                this.index.getRules());
+    }
+
+    @Test
+    public void testGetMatchingRules() throws Exception {
+        assertEquals(Arrays.asList(this.allRule, this.prefixRule, this.exactRule),
+                this.index.getMatchingRules("orders.in"));
+        assertEquals(Arrays.asList(this.allRule, this.prefixRule), this.index.getMatchingRules("orders.out"));
+        assertEquals(Arrays.asList(this.allRule, this.patternRule, this.prefixRule),
+                this.index.getMatchingRules("orders.dlq.in"));
+        assertEquals(Arrays.asList(this.allRule), this.index.getMatchingRules("billing"));
+    }
+
+    @Test
+    public void testPatternRuleQuotesLiterals() throws Exception {
+        AlertRuleIndex patternIndex = new AlertRuleIndex(Arrays.asList(this.compile("x-rule-x", "a.b*c")));
+
+        assertEquals(1, patternIndex.getMatchingRules("a.b-x-c").size());
+        assertEquals(0, patternIndex.getMatchingRules("aXb-x-c").size());
+        assertEquals(0, patternIndex.getMatchingRules("a.b-x-cd").size());
+    }
+
+    @Test
+    public void testGetMatchingRulesCached() throws Exception {
+        assertSame(this.index.getMatchingRules("orders.in"), this.index.getMatchingRules("orders.in"));
+    }
+
+    @Test
+    public void testEvictQueue() throws Exception {
+        Object first = this.index.getMatchingRules("orders.in");
+
+        this.index.evictQueue("orders.in");
+
+        assertNotSame(first, this.index.getMatchingRules("orders.in"));
+        assertEquals(first, this.index.getMatchingRules("orders.in"));
+    }
+
+    @Test
+    public void testEmptyIndex() throws Exception {
+        AlertRuleIndex emptyIndex = new AlertRuleIndex(Collections.<CompiledAlertRule>emptyList());
+
+        assertTrue(emptyIndex.getMatchingRules("orders.in").isEmpty());
+    }
+
+    protected CompiledAlertRule compile(String name, String queuePattern) {
+        return new CompiledAlertRule(new AlertRule(name, queuePattern, "queueSize > 0", false));
+    }
+}
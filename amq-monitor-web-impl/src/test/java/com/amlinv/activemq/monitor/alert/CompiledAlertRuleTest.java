@@ -0,0 +1,310 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.alert;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompiledAlertRuleTest {
+
+    private ActiveMQQueueJmxStats queueStats;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.queueStats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue-x");
+    }
+
+    @Test
+    public void testGetRuleAndExpression() throws Exception {
+        AlertRule rule = new AlertRule("x-rule-x", "*", "queueSize > 10", false);
+        CompiledAlertRule compiledRule = new CompiledAlertRule(rule);
+
+        assertSame(rule, compiledRule.getRule());
+        assertEquals("queueSize > 10", compiledRule.getExpression().getText());
+    }
+
+    @Test
+    public void testInvalidRules() throws Exception {
+        this.assertInvalid(new AlertRule(null, "*", "queueSize > 10", false),
+                "alert rule requires a name and queue pattern: rule=null");
+        this.assertInvalid(new AlertRule("x-rule-x", null, "queueSize > 10", false),
+                "alert rule requires a name and queue pattern: rule=x-rule-x");
+        this.assertInvalid(new AlertRule("x-rule-x", "*", "dequeueRate1Minute == 0", false),
+                "field is only available to aggregate alert rules: rule=x-rule-x; field=dequeueRate1Minute");
+        this.assertInvalid(new AlertRule("x-rule-x", "*", "storePercentUsage > 90", true),
+                "field is only available to broker-level alert rules: rule=x-rule-x; field=storePercentUsage");
+        this.assertInvalid(this.brokerLevelRule("queueSize > 10"),
+                "field is not available to broker-level alert rules: rule=x-rule-x; field=queueSize");
+
+        AlertRule aggregateBrokerLevelRule = this.brokerLevelRule("memoryPercentUsage > 90");
+        aggregateBrokerLevelRule.setAggregate(true);
+        this.assertInvalid(aggregateBrokerLevelRule, "broker-level alert rule cannot be aggregate: rule=x-rule-x");
+    }
+
+    @Test
+    public void testFireImmediatelyAndResolve() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10");
+
+        this.queueStats.setQueueSize(5);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 11L));
+
+        this.queueStats.setQueueSize(11);
+        AlertEvent firing = rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 2000L, 12L);
+        assertEquals(AlertEventType.FIRING, firing.getType());
+        assertEquals("x-rule-x", firing.getRuleName());
+        assertEquals("queueSize > 10", firing.getExpression());
+        assertEquals("x-broker-x", firing.getBrokerName());
+        assertEquals("x-queue-x", firing.getQueueName());
+        assertEquals(11.0, firing.getValues().get("queueSize"), 0.0);
+        assertEquals(12L, firing.getTimestamp());
+
+        // Still firing; no new event.
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 3000L, 13L));
+
+        this.queueStats.setQueueSize(3);
+        AlertEvent resolved = rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 4000L, 14L);
+        assertEquals(AlertEventType.RESOLVED, resolved.getType());
+        assertEquals(3.0, resolved.getValues().get("queueSize"), 0.0);
+    }
+
+    @Test
+    public void testFireAfterDuration() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10 for 5s");
+        this.queueStats.setQueueSize(11);
+
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L));
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 5999L, 0L));
+        assertEquals(AlertEventType.FIRING,
+                rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 6000L, 0L).getType());
+    }
+
+    @Test
+    public void testDurationRestartsWhenConditionBreaks() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10 for 5s");
+
+        this.queueStats.setQueueSize(11);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L));
+
+        this.queueStats.setQueueSize(1);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 4000L, 0L));
+
+        this.queueStats.setQueueSize(11);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 6000L, 0L));
+        assertNotNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 11000L, 0L));
+    }
+
+    @Test
+    public void testStatePerBroker() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10");
+        ActiveMQQueueJmxStats otherBrokerStats = new ActiveMQQueueJmxStats("x-broker2-x", "x-queue-x");
+
+        this.queueStats.setQueueSize(11);
+        assertNotNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L));
+        assertNull(rule.evaluate("x-broker2-x", "x-queue-x", otherBrokerStats, 1000L, 0L));
+
+        otherBrokerStats.setQueueSize(12);
+        assertNotNull(rule.evaluate("x-broker2-x", "x-queue-x", otherBrokerStats, 2000L, 0L));
+    }
+
+    @Test
+    public void testRateOfChange() throws Exception {
+        CompiledAlertRule rule = this.compile("rate(queueSize) > 10");
+
+        // No rate on the first sample.
+        this.queueStats.setQueueSize(100);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L));
+
+        // 10 per second; not above the threshold.
+        this.queueStats.setQueueSize(130);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 4000L, 0L));
+
+        // 20 per second.
+        this.queueStats.setQueueSize(190);
+        AlertEvent firing = rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 7000L, 0L);
+        assertEquals(AlertEventType.FIRING, firing.getType());
+        assertEquals(20.0, firing.getValues().get("rate(queueSize)"), 0.0);
+
+        // Same time; no rate.
+        assertEquals(AlertEventType.RESOLVED,
+                rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 7000L, 0L).getType());
+    }
+
+    @Test
+    public void testRateTrackedWhenEarlierConditionFails() throws Exception {
+        CompiledAlertRule rule = this.compile("numConsumers > 0 and rate(queueSize) > 10");
+
+        this.queueStats.setQueueSize(100);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L));
+
+        this.queueStats.setQueueSize(200);
+        assertNull(rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 2000L, 0L));
+
+        this.queueStats.setNumConsumers(1);
+        this.queueStats.setQueueSize(300);
+        AlertEvent firing = rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 3000L, 0L);
+        assertEquals(100.0, firing.getValues().get("rate(queueSize)"), 0.0);
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        CompiledAlertRule rule = new CompiledAlertRule(new AlertRule("x-rule-x", "*",
+                "dequeueRate1Minute == 0 and numConsumers > 0", true));
+
+        ActiveMQQueueStats aggregateStats = new ActiveMQQueueStats(null, "x-queue-x");
+        aggregateStats.setNumConsumers(2);
+
+        AlertEvent firing = rule.evaluate(null, "x-queue-x", aggregateStats, 1000L, 0L);
+        assertEquals(AlertEventType.FIRING, firing.getType());
+        assertNull(firing.getBrokerName());
+        assertEquals(0.0, firing.getValues().get("dequeueRate1Minute"), 0.0);
+        assertEquals(2.0, firing.getValues().get("numConsumers"), 0.0);
+    }
+
+    @Test
+    public void testCollectActiveAlerts() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10");
+        this.queueStats.setQueueSize(11);
+        AlertEvent firing = rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L);
+
+        ActiveMQQueueJmxStats otherQueueStats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x");
+        rule.evaluate("x-broker-x", "x-queue2-x", otherQueueStats, 1000L, 0L);
+
+        List<AlertEvent> result = new ArrayList<>();
+        rule.collectActiveAlerts(result);
+
+        assertEquals(1, result.size());
+        assertSame(firing, result.get(0));
+    }
+
+    @Test
+    public void testRemoveQueue() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10");
+        this.queueStats.setQueueSize(11);
+        rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L);
+
+        List<AlertEvent> resolved = rule.removeQueue("x-queue-x", 17L);
+
+        assertEquals(1, resolved.size());
+        assertEquals(AlertEventType.RESOLVED, resolved.get(0).getType());
+        assertEquals("x-broker-x", resolved.get(0).getBrokerName());
+        assertEquals(17L, resolved.get(0).getTimestamp());
+
+        List<AlertEvent> active = new ArrayList<>();
+        rule.collectActiveAlerts(active);
+        assertTrue(active.isEmpty());
+
+        assertTrue(rule.removeQueue("x-queue-x", 18L).isEmpty());
+    }
+
+    @Test
+    public void testRemoveQueueAggregate() throws Exception {
+        CompiledAlertRule rule = new CompiledAlertRule(new AlertRule("x-rule-x", "*", "queueSize > 10", true));
+        this.queueStats.setQueueSize(11);
+        rule.evaluate(null, "x-queue-x", this.queueStats, 1000L, 0L);
+
+        List<AlertEvent> resolved = rule.removeQueue("x-queue-x", 17L);
+
+        assertEquals(1, resolved.size());
+        assertNull(resolved.get(0).getBrokerName());
+    }
+
+    @Test
+    public void testEvaluateBroker() throws Exception {
+        CompiledAlertRule rule = new CompiledAlertRule(this.brokerLevelRule("memoryPercentUsage > 90"));
+        ActiveMQBrokerStats brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        ActiveMQBrokerStats otherBrokerStats = new ActiveMQBrokerStats("x-broker2-x");
+
+        brokerStats.setMemoryPercentUsage(91);
+        AlertEvent firing = rule.evaluateBroker("x-broker-x", brokerStats, 1000L, 0L);
+        assertEquals(AlertEventType.FIRING, firing.getType());
+        assertEquals("x-broker-x", firing.getBrokerName());
+        assertNull(firing.getQueueName());
+        assertEquals(91.0, firing.getValues().get("memoryPercentUsage"), 0.0);
+
+        assertNull(rule.evaluateBroker("x-broker2-x", otherBrokerStats, 1000L, 0L));
+
+        brokerStats.setMemoryPercentUsage(50);
+        assertEquals(AlertEventType.RESOLVED, rule.evaluateBroker("x-broker-x", brokerStats, 2000L, 0L).getType());
+    }
+
+    @Test
+    public void testRemoveBroker() throws Exception {
+        CompiledAlertRule rule = this.compile("queueSize > 10");
+        ActiveMQQueueJmxStats otherBrokerStats = new ActiveMQQueueJmxStats("x-broker2-x", "x-queue-x");
+        otherBrokerStats.setQueueSize(11);
+        this.queueStats.setQueueSize(11);
+        rule.evaluate("x-broker-x", "x-queue-x", this.queueStats, 1000L, 0L);
+        rule.evaluate("x-broker2-x", "x-queue-x", otherBrokerStats, 1000L, 0L);
+
+        List<AlertEvent> resolved = rule.removeBroker("x-broker-x", 17L);
+
+        assertEquals(1, resolved.size());
+        assertEquals(AlertEventType.RESOLVED, resolved.get(0).getType());
+        assertEquals("x-broker-x", resolved.get(0).getBrokerName());
+        assertEquals("x-queue-x", resolved.get(0).getQueueName());
+
+        List<AlertEvent> active = new ArrayList<>();
+        rule.collectActiveAlerts(active);
+        assertEquals(1, active.size());
+        assertEquals("x-broker2-x", active.get(0).getBrokerName());
+
+        assertTrue(rule.removeBroker("x-broker-x", 18L).isEmpty());
+    }
+
+    @Test
+    public void testRemoveBrokerLevel() throws Exception {
+        CompiledAlertRule rule = new CompiledAlertRule(this.brokerLevelRule("memoryPercentUsage > 90"));
+        ActiveMQBrokerStats brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        brokerStats.setMemoryPercentUsage(91);
+        rule.evaluateBroker("x-broker-x", brokerStats, 1000L, 0L);
+
+        List<AlertEvent> resolved = rule.removeBroker("x-broker-x", 17L);
+
+        assertEquals(1, resolved.size());
+        assertEquals("x-broker-x", resolved.get(0).getBrokerName());
+        assertNull(resolved.get(0).getQueueName());
+    }
+
+    protected CompiledAlertRule compile(String expression) {
+        return new CompiledAlertRule(new AlertRule("x-rule-x", "*", expression, false));
+    }
+
+    protected void assertInvalid(AlertRule rule, String message) {
+        try {
+            new CompiledAlertRule(rule);
+            fail("missing expected exception");
+        } catch ( IllegalArgumentException iaExc ) {
+            assertEquals(message, iaExc.getMessage());
+        }
+    }
+
+    protected AlertRule brokerLevelRule(String expression) {
+        AlertRule result = new AlertRule("x-rule-x", "*", expression, false);
+        result.setBrokerLevel(true);
+
+        return result;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MBeanAccessConnectionPoolTest {
+
+    private MBeanAccessConnectionPool pool;
+
+    private MBeanAccessConnectionFactory mockDelegate;
+    private MBeanAccessConnection mockConnection;
+    private ScheduledExecutorService mockExecutor;
+    private ScheduledFuture mockFuture;
+    private StatsClock mockStatsClock;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.pool = new MBeanAccessConnectionPool();
+
+        this.mockDelegate = Mockito.mock(MBeanAccessConnectionFactory.class);
+        this.mockConnection = Mockito.mock(MBeanAccessConnection.class);
+        this.mockExecutor = Mockito.mock(ScheduledExecutorService.class);
+        this.mockFuture = Mockito.mock(ScheduledFuture.class);
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        Mockito.when(this.mockDelegate.createConnection()).thenReturn(this.mockConnection);
+        Mockito.when(this.mockExecutor.scheduleWithFixedDelay(Mockito.any(Runnable.class), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(this.mockFuture);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.pool.getLog());
+        assertNotSame(this.mockLogger, this.pool.getLog());
+
+        this.pool.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.pool.getLog());
+    }
+
+    @Test
+    public void testGetSetProperties() throws Exception {
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_LOCATION,
+                this.pool.getMaxConnectionsPerLocation());
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_BORROW_TIMEOUT, this.pool.getBorrowTimeout());
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_VALIDATION_INTERVAL, this.pool.getValidationInterval());
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_MAX_IDLE_TIME, this.pool.getMaxIdleTime());
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_EVICTION_INTERVAL, this.pool.getEvictionInterval());
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_INITIAL_RECONNECT_DELAY, this.pool.getInitialReconnectDelay());
+        assertEquals(MBeanAccessConnectionPool.DEFAULT_MAX_RECONNECT_DELAY, this.pool.getMaxReconnectDelay());
+        assertNotNull(this.pool.getStatsClock());
+        assertNull(this.pool.getExecutor());
+
+        this.pool.setMaxConnectionsPerLocation(3);
+        this.pool.setBorrowTimeout(5L);
+        this.pool.setValidationInterval(7L);
+        this.pool.setMaxIdleTime(11L);
+        this.pool.setEvictionInterval(13L);
+        this.pool.setInitialReconnectDelay(17L);
+        this.pool.setMaxReconnectDelay(19L);
+        this.pool.setStatsClock(this.mockStatsClock);
+        this.pool.setExecutor(this.mockExecutor);
+
+        assertEquals(3, this.pool.getMaxConnectionsPerLocation());
+        assertEquals(5L, this.pool.getBorrowTimeout());
+        assertEquals(7L, this.pool.getValidationInterval());
+        assertEquals(11L, this.pool.getMaxIdleTime());
+        assertEquals(13L, this.pool.getEvictionInterval());
+        assertEquals(17L, this.pool.getInitialReconnectDelay());
+        assertEquals(19L, this.pool.getMaxReconnectDelay());
+        assertSame(this.mockStatsClock, this.pool.getStatsClock());
+        assertSame(this.mockExecutor, this.pool.getExecutor());
+    }
+
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNotNull(this.pool.getMetricRegistry());
+        assertNotSame(metricRegistry, this.pool.getMetricRegistry());
+
+        this.pool.setMetricRegistry(metricRegistry);
+
+        assertSame(metricRegistry, this.pool.getMetricRegistry());
+        assertSame(this.pool.getConnectMeter(), metricRegistry.getMeters().get(
+                "com.amlinv.activemq.monitor.jmx.MBeanAccessConnectionPool.connect"));
+        assertSame(this.pool.getConnectFailureMeter(), metricRegistry.getMeters().get(
+                "com.amlinv.activemq.monitor.jmx.MBeanAccessConnectionPool.connectFailure"));
+        assertSame(this.pool.getValidationFailureMeter(), metricRegistry.getMeters().get(
+                "com.amlinv.activemq.monitor.jmx.MBeanAccessConnectionPool.validationFailure"));
+        assertSame(this.pool.getEvictionMeter(), metricRegistry.getMeters().get(
+                "com.amlinv.activemq.monitor.jmx.MBeanAccessConnectionPool.eviction"));
+    }
+
+    @Test
+    public void testGetOrCreateConnectionFactory() throws Exception {
+        assertNull(this.pool.getConnectionFactory("x-location-x"));
+
+        PooledMBeanAccessConnectionFactory created =
+                this.pool.getOrCreateConnectionFactory("x-location-x", this.mockDelegate);
+
+        assertEquals("x-location-x", created.getLocation());
+        assertSame(this.mockDelegate, created.getDelegate());
+        assertSame(created, this.pool.getConnectionFactory("x-location-x"));
+        assertSame(created, this.pool.getOrCreateConnectionFactory("x-location-x",
+                Mockito.mock(MBeanAccessConnectionFactory.class)));
+    }
+
+    @Test
+    public void testStartSchedulesEviction() throws Exception {
+        this.pool.setExecutor(this.mockExecutor);
+        this.pool.setEvictionInterval(1300L);
+
+        this.pool.start();
+        this.pool.start();
+
+        Mockito.verify(this.mockExecutor).scheduleWithFixedDelay(Mockito.any(Runnable.class), Mockito.eq(1300L),
+                Mockito.eq(1300L), Mockito.eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testStartCreatesExecutor() throws Exception {
+        this.pool.start();
+
+        ScheduledExecutorService createdExecutor = this.pool.getExecutor();
+        assertNotNull(createdExecutor);
+
+        // The executor created by the pool is shut down with it, and a new one is created on restart.
+        this.pool.shutdown();
+
+        assertTrue(createdExecutor.isShutdown());
+        assertNull(this.pool.getExecutor());
+
+        this.pool.start();
+
+        assertNotNull(this.pool.getExecutor());
+        assertNotSame(createdExecutor, this.pool.getExecutor());
+
+        this.pool.shutdown();
+    }
+
+    @Test
+    public void testShutdownLeavesSuppliedExecutor() throws Exception {
+        ScheduledFuture mockFuture = Mockito.mock(ScheduledFuture.class);
+        Mockito.when(this.mockExecutor.scheduleWithFixedDelay(Mockito.any(Runnable.class), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(mockFuture);
+        this.pool.setExecutor(this.mockExecutor);
+
+        this.pool.start();
+        this.pool.shutdown();
+
+        Mockito.verify(mockFuture).cancel(false);
+        Mockito.verify(this.mockExecutor, Mockito.never()).shutdown();
+        assertSame(this.mockExecutor, this.pool.getExecutor());
+    }
+
+    @Test
+    public void testEvictionTask() throws Exception {
+        this.pool.setExecutor(this.mockExecutor);
+        this.pool.setStatsClock(this.mockStatsClock);
+        this.pool.setMaxIdleTime(1000L);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L);
+        PooledMBeanAccessConnectionFactory factory =
+                this.pool.getOrCreateConnectionFactory("x-location-x", this.mockDelegate);
+        factory.createConnection().close();
+
+        this.pool.start();
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockExecutor).scheduleWithFixedDelay(captor.capture(), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class));
+
+        // Not yet idle long enough.
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(6000L);
+        captor.getValue().run();
+        assertEquals(1, factory.getIdleCount());
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(6001L);
+        captor.getValue().run();
+        assertEquals(0, factory.getIdleCount());
+        assertEquals(0, factory.getOpenCount());
+        assertEquals(1L, this.pool.getEvictionMeter().getCount());
+        Mockito.verify(this.mockConnection).close();
+    }
+
+    @Test
+    public void testEvictionTaskFailure() throws Exception {
+        this.pool.setLog(this.mockLogger);
+        this.pool.setExecutor(this.mockExecutor);
+        this.pool.setStatsClock(this.mockStatsClock);
+
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenThrow(rtExc);
+
+        this.pool.start();
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockExecutor).scheduleWithFixedDelay(captor.capture(), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.any(TimeUnit.class));
+
+        captor.getValue().run();
+
+        Mockito.verify(this.mockLogger).warn("eviction of idle jmx connections failed", rtExc);
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        this.pool.setExecutor(this.mockExecutor);
+        this.pool.start();
+
+        PooledMBeanAccessConnectionFactory factory =
+                this.pool.getOrCreateConnectionFactory("x-location-x", this.mockDelegate);
+        factory.createConnection().close();
+
+        this.pool.shutdown();
+
+        Mockito.verify(this.mockFuture).cancel(false);
+        Mockito.verify(this.mockConnection).close();
+        assertEquals(0, factory.getOpenCount());
+    }
+}
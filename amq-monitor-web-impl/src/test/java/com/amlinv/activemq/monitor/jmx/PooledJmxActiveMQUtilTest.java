@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class PooledJmxActiveMQUtilTest {
+
+    private PooledJmxActiveMQUtil util;
+
+    private MBeanAccessConnectionPool pool;
+    private MBeanAccessConnectionFactory mockLocationFactory;
+    private MBeanAccessConnection mockConnection;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.pool = new MBeanAccessConnectionPool();
+        this.mockLocationFactory = Mockito.mock(MBeanAccessConnectionFactory.class);
+        this.mockConnection = Mockito.mock(MBeanAccessConnection.class);
+
+        Mockito.when(this.mockLocationFactory.createConnection()).thenReturn(this.mockConnection);
+
+        this.util = Mockito.spy(new PooledJmxActiveMQUtil(this.pool));
+        Mockito.doReturn(this.mockLocationFactory).when(this.util).createLocationConnectionFactory("x-location-x");
+    }
+
+    @Test
+    public void testGetConnectionPool() throws Exception {
+        assertSame(this.pool, this.util.getConnectionPool());
+    }
+
+    @Test
+    public void testGetLocationConnectionFactory() throws Exception {
+        MBeanAccessConnectionFactory first = this.util.getLocationConnectionFactory("x-location-x");
+        MBeanAccessConnectionFactory second = this.util.getLocationConnectionFactory("x-location-x");
+
+        assertTrue(first instanceof PooledMBeanAccessConnectionFactory);
+        assertSame(this.mockLocationFactory, ( (PooledMBeanAccessConnectionFactory) first ).getDelegate());
+        assertSame(first, second);
+        assertSame(first, this.pool.getConnectionFactory("x-location-x"));
+
+        // The actual connection factory is only created once per location.
+        Mockito.verify(this.util).createLocationConnectionFactory("x-location-x");
+    }
+
+    @Test
+    public void testQueryBrokerNames() throws Exception {
+        Mockito.when(this.mockConnection.queryNames(new ObjectName("org.apache.activemq:type=Broker,brokerName=*"),
+                null)).thenReturn(new HashSet<>(Arrays.asList(
+                        new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker2-x"),
+                        new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker1-x"))));
+
+        assertArrayEquals(new String[] { "x-broker1-x", "x-broker2-x" }, this.util.queryBrokerNames("x-location-x"));
+    }
+
+    @Test
+    public void testQueryQueueNamesSharesConnection() throws Exception {
+        ObjectName pattern = new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x," +
+                "destinationType=Queue,destinationName=*");
+        Mockito.when(this.mockConnection.queryNames(pattern, null)).thenReturn(new HashSet<>(Arrays.asList(
+                new ObjectName("org.apache.activemq:type=Broker,brokerName=x-broker-x,destinationType=Queue," +
+                        "destinationName=x-queue1-x"))));
+
+        assertArrayEquals(new String[] { "x-queue1-x" },
+                this.util.queryQueueNames("x-location-x", "x-broker-x", "*"));
+        assertArrayEquals(new String[] { "x-queue1-x" },
+                this.util.queryQueueNames("x-location-x", "x-broker-x", "*"));
+
+        // Both queries use the one pooled connection, which remains open.
+        Mockito.verify(this.mockLocationFactory).createConnection();
+        Mockito.verify(this.mockConnection, Mockito.never()).close();
+        assertEquals(1, this.pool.getConnectionFactory("x-location-x").getIdleCount());
+    }
+
+    @Test
+    public void testQueryFailureDiscardsConnection() throws Exception {
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.when(this.mockConnection.queryNames(Mockito.any(ObjectName.class), Mockito.isNull(QueryExp.class)))
+                .thenThrow(ioExc);
+
+        try {
+            this.util.queryBrokerNames("x-location-x");
+            fail("missing expected exception");
+        } catch ( IOException caught ) {
+            assertSame(ioExc, caught);
+        }
+
+        Mockito.verify(this.mockConnection).close();
+        assertEquals(0, this.pool.getConnectionFactory("x-location-x").getOpenCount());
+    }
+}
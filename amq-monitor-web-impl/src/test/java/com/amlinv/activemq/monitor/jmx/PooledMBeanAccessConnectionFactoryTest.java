@@ -0,0 +1,318 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import javax.management.MBeanServerDelegate;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PooledMBeanAccessConnectionFactoryTest {
+
+    private PooledMBeanAccessConnectionFactory factory;
+
+    private MBeanAccessConnectionPool pool;
+    private MBeanAccessConnectionFactory mockDelegate;
+    private MBeanAccessConnection mockConnection1;
+    private MBeanAccessConnection mockConnection2;
+    private StatsClock mockStatsClock;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockDelegate = Mockito.mock(MBeanAccessConnectionFactory.class);
+        this.mockConnection1 = Mockito.mock(MBeanAccessConnection.class);
+        this.mockConnection2 = Mockito.mock(MBeanAccessConnection.class);
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        Mockito.when(this.mockDelegate.createConnection()).thenReturn(this.mockConnection1, this.mockConnection2);
+        Mockito.when(this.mockDelegate.getTargetDescription()).thenReturn("x-target-x");
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1000L);
+
+        this.pool = new MBeanAccessConnectionPool();
+        this.pool.setStatsClock(this.mockStatsClock);
+        this.pool.setMaxConnectionsPerLocation(2);
+        this.pool.setBorrowTimeout(100L);
+
+        this.factory = new PooledMBeanAccessConnectionFactory("x-location-x", this.mockDelegate, this.pool);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.factory.getLog());
+        assertNotSame(this.mockLogger, this.factory.getLog());
+
+        this.factory.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.factory.getLog());
+    }
+
+    @Test
+    public void testGetTargetDescription() throws Exception {
+        assertEquals("x-target-x", this.factory.getTargetDescription());
+    }
+
+    @Test
+    public void testReuseReturnedConnection() throws Exception {
+        PooledMBeanAccessConnection first = (PooledMBeanAccessConnection) this.factory.createConnection();
+        assertSame(this.mockConnection1, first.getDelegate());
+        first.close();
+
+        PooledMBeanAccessConnection second = (PooledMBeanAccessConnection) this.factory.createConnection();
+        assertSame(this.mockConnection1, second.getDelegate());
+
+        Mockito.verify(this.mockDelegate).createConnection();
+        Mockito.verify(this.mockConnection1, Mockito.never()).close();
+        assertEquals(1, this.factory.getOpenCount());
+        assertEquals(1L, this.pool.getConnectMeter().getCount());
+    }
+
+    @Test
+    public void testConcurrentBorrowsOpenSeparateConnections() throws Exception {
+        PooledMBeanAccessConnection first = (PooledMBeanAccessConnection) this.factory.createConnection();
+        PooledMBeanAccessConnection second = (PooledMBeanAccessConnection) this.factory.createConnection();
+
+        assertSame(this.mockConnection1, first.getDelegate());
+        assertSame(this.mockConnection2, second.getDelegate());
+        assertEquals(2, this.factory.getOpenCount());
+        assertEquals(0, this.factory.getIdleCount());
+    }
+
+    @Test
+    public void testBorrowTimeoutAtLimit() throws Exception {
+        this.factory.createConnection();
+        this.factory.createConnection();
+
+        try {
+            this.factory.createConnection();
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("timed out waiting for a pooled jmx connection: location=x-location-x; open-count=2",
+                    ioExc.getMessage());
+        }
+    }
+
+    @Test
+    public void testBorrowWaitsForReturn() throws Exception {
+        this.pool.setBorrowTimeout(10000L);
+
+        final MBeanAccessConnection first = this.factory.createConnection();
+        this.factory.createConnection();
+
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicReference<MBeanAccessConnection> borrowed = new AtomicReference<>();
+        Thread borrower = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    waiting.countDown();
+                    borrowed.set(factory.createConnection());
+                } catch ( IOException ioExc ) {
+                    throw new RuntimeException(ioExc);
+                }
+            }
+        };
+        borrower.start();
+
+        assertTrue(waiting.await(1, TimeUnit.SECONDS));
+        first.close();
+        borrower.join(5000);
+
+        assertSame(this.mockConnection1, ( (PooledMBeanAccessConnection) borrowed.get() ).getDelegate());
+    }
+
+    @Test
+    public void testFailedConnectionDiscarded() throws Exception {
+        MBeanAccessConnection first = this.factory.createConnection();
+        Mockito.when(this.mockConnection1.queryNames(Mockito.any(ObjectName.class), Mockito.any(QueryExp.class)))
+                .thenThrow(new IOException("x-io-exc-x"));
+
+        try {
+            first.queryNames(null, null);
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("x-io-exc-x", ioExc.getMessage());
+        }
+
+        first.close();
+
+        Mockito.verify(this.mockConnection1).close();
+        assertEquals(0, this.factory.getOpenCount());
+
+        PooledMBeanAccessConnection second = (PooledMBeanAccessConnection) this.factory.createConnection();
+        assertSame(this.mockConnection2, second.getDelegate());
+    }
+
+    @Test
+    public void testStaleIdleConnectionValidated() throws Exception {
+        this.pool.setValidationInterval(500L);
+
+        this.factory.createConnection().close();
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1500L);
+        PooledMBeanAccessConnection reused = (PooledMBeanAccessConnection) this.factory.createConnection();
+
+        assertSame(this.mockConnection1, reused.getDelegate());
+        Mockito.verify(this.mockConnection1).queryNames(MBeanServerDelegate.DELEGATE_NAME, null);
+    }
+
+    @Test
+    public void testRecentIdleConnectionNotValidated() throws Exception {
+        this.pool.setValidationInterval(500L);
+
+        this.factory.createConnection().close();
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1499L);
+        this.factory.createConnection();
+
+        Mockito.verify(this.mockConnection1, Mockito.never())
+                .queryNames(Mockito.any(ObjectName.class), Mockito.any(QueryExp.class));
+    }
+
+    @Test
+    public void testStaleIdleConnectionFailsValidation() throws Exception {
+        this.pool.setValidationInterval(500L);
+        Mockito.when(this.mockConnection1.queryNames(MBeanServerDelegate.DELEGATE_NAME, null))
+                .thenThrow(new IOException("x-io-exc-x"));
+
+        this.factory.createConnection().close();
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1500L);
+        PooledMBeanAccessConnection replacement = (PooledMBeanAccessConnection) this.factory.createConnection();
+
+        assertSame(this.mockConnection2, replacement.getDelegate());
+        Mockito.verify(this.mockConnection1).close();
+        assertEquals(1, this.factory.getOpenCount());
+        assertEquals(1L, this.pool.getValidationFailureMeter().getCount());
+    }
+
+    @Test
+    public void testReconnectBackoff() throws Exception {
+        this.factory.setLog(this.mockLogger);
+        this.pool.setInitialReconnectDelay(100L);
+        this.pool.setMaxReconnectDelay(300L);
+
+        IOException connectExc = new IOException("x-connect-exc-x");
+        Mockito.when(this.mockDelegate.createConnection()).thenThrow(connectExc);
+
+        this.assertConnectFails("x-connect-exc-x");
+        Mockito.verify(this.mockLogger).info("jmx connection failed; suspending connection attempts: " +
+                "location={}; delay-ms={}", "x-location-x", 100L);
+
+        // Suspended: fails without an attempt.
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1099L);
+        this.assertConnectFails("jmx connection attempts suspended after failure: location=x-location-x; " +
+                "retry-in-ms=1");
+        Mockito.verify(this.mockDelegate, Mockito.times(1)).createConnection();
+
+        // Delay doubles with each consecutive failure, up to the maximum.
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1100L);
+        this.assertConnectFails("x-connect-exc-x");
+        Mockito.verify(this.mockLogger).info("jmx connection failed; suspending connection attempts: " +
+                "location={}; delay-ms={}", "x-location-x", 200L);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1300L);
+        this.assertConnectFails("x-connect-exc-x");
+        Mockito.verify(this.mockLogger).info("jmx connection failed; suspending connection attempts: " +
+                "location={}; delay-ms={}", "x-location-x", 300L);
+
+        assertEquals(0, this.factory.getOpenCount());
+        assertEquals(3L, this.pool.getConnectFailureMeter().getCount());
+
+        // Success resets the delay.
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1600L);
+        Mockito.doReturn(this.mockConnection1).when(this.mockDelegate).createConnection();
+        assertNotNull(this.factory.createConnection());
+
+        Mockito.doThrow(connectExc).when(this.mockDelegate).createConnection();
+        this.assertConnectFails("x-connect-exc-x");
+        Mockito.verify(this.mockLogger, Mockito.times(2)).info("jmx connection failed; suspending connection " +
+                "attempts: location={}; delay-ms={}", "x-location-x", 100L);
+    }
+
+    @Test
+    public void testEvictIdle() throws Exception {
+        MBeanAccessConnection first = this.factory.createConnection();
+        MBeanAccessConnection second = this.factory.createConnection();
+
+        first.close();
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(2000L);
+        second.close();
+
+        this.factory.evictIdle(1500L);
+
+        Mockito.verify(this.mockConnection1).close();
+        Mockito.verify(this.mockConnection2, Mockito.never()).close();
+        assertEquals(1, this.factory.getIdleCount());
+        assertEquals(1, this.factory.getOpenCount());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        MBeanAccessConnection inUse = this.factory.createConnection();
+        this.factory.createConnection().close();
+
+        this.factory.shutdown();
+
+        Mockito.verify(this.mockConnection2).close();
+        Mockito.verify(this.mockConnection1, Mockito.never()).close();
+
+        // Connections in use are closed on return.
+        inUse.close();
+        Mockito.verify(this.mockConnection1).close();
+        assertEquals(0, this.factory.getOpenCount());
+
+        this.assertConnectFails("jmx connection pool is shut down: location=x-location-x");
+    }
+
+    @Test
+    public void testCloseFailureLogged() throws Exception {
+        this.factory.setLog(this.mockLogger);
+
+        IOException closeExc = new IOException("x-close-exc-x");
+        Mockito.doThrow(closeExc).when(this.mockConnection1).close();
+
+        this.factory.createConnection().close();
+        this.factory.shutdown();
+
+        Mockito.verify(this.mockLogger).debug("failed to close jmx connection: location={}", "x-location-x",
+                closeExc);
+    }
+
+    protected void assertConnectFails(String expectedMessage) {
+        try {
+            this.factory.createConnection();
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals(expectedMessage, ioExc.getMessage());
+        }
+    }
+}
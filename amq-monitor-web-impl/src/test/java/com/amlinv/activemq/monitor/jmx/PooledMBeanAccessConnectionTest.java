@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.jmx;
+
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.management.AttributeList;
+import javax.management.MBeanInfo;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PooledMBeanAccessConnectionTest {
+
+    private PooledMBeanAccessConnection connection;
+
+    private MBeanAccessConnection mockDelegate;
+    private PooledMBeanAccessConnectionFactory mockPool;
+    private NotificationListener mockListener;
+    private NotificationFilter mockFilter;
+
+    private ObjectName oname;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockDelegate = Mockito.mock(MBeanAccessConnection.class);
+        this.mockPool = Mockito.mock(PooledMBeanAccessConnectionFactory.class);
+        this.mockListener = Mockito.mock(NotificationListener.class);
+        this.mockFilter = Mockito.mock(NotificationFilter.class);
+
+        this.oname = new ObjectName("x-domain-x:type=x-type-x");
+
+        this.connection = new PooledMBeanAccessConnection(this.mockDelegate, this.mockPool);
+    }
+
+    @Test
+    public void testGetDelegate() throws Exception {
+        assertSame(this.mockDelegate, this.connection.getDelegate());
+    }
+
+    @Test
+    public void testConnectDoesNotReconnect() throws Exception {
+        this.connection.connect();
+
+        Mockito.verify(this.mockDelegate, Mockito.never()).connect();
+    }
+
+    @Test
+    public void testDelegatesCalls() throws Exception {
+        AttributeList attributeList = new AttributeList();
+        Set<ObjectName> names = Collections.singleton(this.oname);
+        MBeanInfo mBeanInfo = Mockito.mock(MBeanInfo.class);
+        String[] attributeNames = new String[] { "x-att-x" };
+
+        Mockito.when(this.mockDelegate.getAttribute(this.oname, "x-att-x")).thenReturn("x-value-x");
+        Mockito.when(this.mockDelegate.getAttributes(this.oname, attributeNames)).thenReturn(attributeList);
+        Mockito.when(this.mockDelegate.queryNames(this.oname, null)).thenReturn(names);
+        Mockito.when(this.mockDelegate.getMBeanInfo(this.oname)).thenReturn(mBeanInfo);
+
+        assertEquals("x-value-x", this.connection.getAttribute(this.oname, "x-att-x"));
+        assertSame(attributeList, this.connection.getAttributes(this.oname, attributeNames));
+        assertSame(names, this.connection.queryNames(this.oname, null));
+        assertSame(mBeanInfo, this.connection.getMBeanInfo(this.oname));
+
+        this.connection.addNotificationListener(this.oname, this.mockListener, this.mockFilter, "x-handback-x");
+        this.connection.removeNotificationListener(this.oname, this.mockListener);
+
+        Mockito.verify(this.mockDelegate).addNotificationListener(this.oname, this.mockListener, this.mockFilter,
+                "x-handback-x");
+        Mockito.verify(this.mockDelegate).removeNotificationListener(this.oname, this.mockListener);
+        assertFalse(this.connection.isFailed());
+    }
+
+    @Test
+    public void testCloseReturnsToPool() throws Exception {
+        this.connection.close();
+        this.connection.close();
+
+        Mockito.verify(this.mockPool).release(this.mockDelegate, false);
+        Mockito.verify(this.mockDelegate, Mockito.never()).close();
+    }
+
+    @Test
+    public void testIOExceptionMarksFailed() throws Exception {
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.when(this.mockDelegate.getAttribute(this.oname, "x-att-x")).thenThrow(ioExc);
+
+        try {
+            this.connection.getAttribute(this.oname, "x-att-x");
+            fail("missing expected exception");
+        } catch ( IOException caught ) {
+            assertSame(ioExc, caught);
+        }
+
+        assertTrue(this.connection.isFailed());
+
+        this.connection.close();
+        Mockito.verify(this.mockPool).release(this.mockDelegate, true);
+    }
+
+    @Test
+    public void testIOExceptionMarksFailedOnEachCall() throws Exception {
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.when(this.mockDelegate.getAttributes(Mockito.any(ObjectName.class), Mockito.any(String[].class)))
+                .thenThrow(ioExc);
+        Mockito.when(this.mockDelegate.queryNames(this.oname, null)).thenThrow(ioExc);
+        Mockito.when(this.mockDelegate.getMBeanInfo(this.oname)).thenThrow(ioExc);
+        Mockito.doThrow(ioExc).when(this.mockDelegate).addNotificationListener(this.oname, this.mockListener, null,
+                null);
+        Mockito.doThrow(ioExc).when(this.mockDelegate).removeNotificationListener(this.oname, this.mockListener);
+
+        int failures = 0;
+        try {
+            new PooledMBeanAccessConnection(this.mockDelegate, this.mockPool).getAttributes(this.oname, null);
+        } catch ( IOException caught ) {
+            failures++;
+        }
+        try {
+            new PooledMBeanAccessConnection(this.mockDelegate, this.mockPool).queryNames(this.oname, null);
+        } catch ( IOException caught ) {
+            failures++;
+        }
+        try {
+            new PooledMBeanAccessConnection(this.mockDelegate, this.mockPool).getMBeanInfo(this.oname);
+        } catch ( IOException caught ) {
+            failures++;
+        }
+        try {
+            new PooledMBeanAccessConnection(this.mockDelegate, this.mockPool)
+                    .addNotificationListener(this.oname, this.mockListener, null, null);
+        } catch ( IOException caught ) {
+            failures++;
+        }
+
+        PooledMBeanAccessConnection last = new PooledMBeanAccessConnection(this.mockDelegate, this.mockPool);
+        try {
+            last.removeNotificationListener(this.oname, this.mockListener);
+        } catch ( IOException caught ) {
+            failures++;
+        }
+
+        assertEquals(5, failures);
+        assertTrue(last.isFailed());
+    }
+
+    @Test
+    public void testUseAfterClose() throws Exception {
+        this.connection.close();
+
+        try {
+            this.connection.queryNames(this.oname, null);
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("pooled jmx connection was already returned to the pool", ioExc.getMessage());
+        }
+
+        Mockito.verifyZeroInteractions(this.mockDelegate);
+    }
+}
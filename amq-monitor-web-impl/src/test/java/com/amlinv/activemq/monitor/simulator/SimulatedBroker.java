@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.activemq.stats.StatsClock;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Simulated ActiveMQ broker.  The totals are summed over the broker's queues on each read, as the real broker does.
+ */
+public class SimulatedBroker implements SimulatedBrokerMBean {
+    public static final long AVERAGE_MESSAGE_SIZE = 1024;
+    public static final long MEMORY_LIMIT = 1024L * 1024L * 1024L;
+
+    private final String brokerName;
+    private final StatsClock statsClock;
+    private final long startTime;
+
+    private final ConcurrentMap<String, SimulatedQueue> queues = new ConcurrentHashMap<>();
+
+    public SimulatedBroker(String brokerName, StatsClock statsClock) {
+        this.brokerName = brokerName;
+        this.statsClock = statsClock;
+        this.startTime = statsClock.getStatsStopWatchTime();
+    }
+
+    public Collection<SimulatedQueue> getQueues() {
+        return queues.values();
+    }
+
+    public SimulatedQueue getQueue(String queueName) {
+        return this.queues.get(queueName);
+    }
+
+    protected void addQueue(SimulatedQueue queue) {
+        this.queues.put(queue.getName(), queue);
+    }
+
+    protected SimulatedQueue removeQueue(String queueName) {
+        return this.queues.remove(queueName);
+    }
+
+    @Override
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    @Override
+    public long getAverageMessageSize() {
+        return AVERAGE_MESSAGE_SIZE;
+    }
+
+    @Override
+    public String getUptime() {
+        return ( this.getUptimeMillis() / 1000 ) + " seconds";
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return this.statsClock.getStatsStopWatchTime() - this.startTime;
+    }
+
+    @Override
+    public long getMemoryLimit() {
+        return MEMORY_LIMIT;
+    }
+
+    @Override
+    public int getMemoryPercentUsage() {
+        return (int) Math.min(100, this.getTotalMessageCount() * AVERAGE_MESSAGE_SIZE * 100 / MEMORY_LIMIT);
+    }
+
+    @Override
+    public int getStorePercentUsage() {
+        return 0;
+    }
+
+    @Override
+    public long getCurrentConnectionsCount() {
+        long result = 0;
+        for ( SimulatedQueue oneQueue : this.queues.values() ) {
+            result += oneQueue.getConsumerCount() + oneQueue.getProducerCount();
+        }
+
+        return result;
+    }
+
+    @Override
+    public long getTotalConsumerCount() {
+        long result = 0;
+        for ( SimulatedQueue oneQueue : this.queues.values() ) {
+            result += oneQueue.getConsumerCount();
+        }
+
+        return result;
+    }
+
+    @Override
+    public long getTotalMessageCount() {
+        long result = 0;
+        for ( SimulatedQueue oneQueue : this.queues.values() ) {
+            result += oneQueue.getQueueSize();
+        }
+
+        return result;
+    }
+
+    @Override
+    public long getTotalEnqueueCount() {
+        long result = 0;
+        for ( SimulatedQueue oneQueue : this.queues.values() ) {
+            result += oneQueue.getEnqueueCount();
+        }
+
+        return result;
+    }
+
+    @Override
+    public long getTotalDequeueCount() {
+        long result = 0;
+        for ( SimulatedQueue oneQueue : this.queues.values() ) {
+            result += oneQueue.getDequeueCount();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Fleet of simulated ActiveMQ brokers for load-testing the monitor without real brokers.  Each broker is given its
+ * own in-process MBean server holding a broker MBean and its queue MBeans under the same object names as ActiveMQ
+ * uses, and is reached through a connection factory which adds a configurable latency to every call.
+ *
+ * Queue statistics evolve with the stats clock at rates drawn, from the configured seed, around the configured mean
+ * rates, so a given configuration always produces the same fleet.
+ */
+public class SimulatedBrokerFleet {
+    private static final Logger DEFAULT_LOGGER = LoggerFactory.getLogger(SimulatedBrokerFleet.class);
+
+    public static final String BROKER_ONAME_PREFIX = "org.apache.activemq:type=Broker,brokerName=";
+    public static final String BROKER_NAME_PREFIX = "sim-broker-";
+    public static final String QUEUE_NAME_PREFIX = "sim-queue-";
+
+    private Logger log = DEFAULT_LOGGER;
+
+    private int brokerCount = 1;
+    private int queuesPerBroker = 10;
+    private double meanEnqueueRate = 100.0;
+    private double meanDequeueRate = 90.0;
+    private long maxInitialQueueSize = 1000;
+    private int maxConsumersPerQueue = 5;
+    private int maxProducersPerQueue = 3;
+    private long latencyMicros = 0;
+    private long seed = 0;
+    private StatsClock statsClock = new SystemStatsClock();
+
+    private Random random;
+    private final Map<String, SimulatedBrokerInstance> brokers = new ConcurrentSkipListMap<>();
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public void setLog(Logger log) {
+        this.log = log;
+    }
+
+    public int getBrokerCount() {
+        return brokerCount;
+    }
+
+    public void setBrokerCount(int brokerCount) {
+        this.brokerCount = brokerCount;
+    }
+
+    public int getQueuesPerBroker() {
+        return queuesPerBroker;
+    }
+
+    public void setQueuesPerBroker(int queuesPerBroker) {
+        this.queuesPerBroker = queuesPerBroker;
+    }
+
+    public double getMeanEnqueueRate() {
+        return meanEnqueueRate;
+    }
+
+    /**
+     * @param meanEnqueueRate mean, over all queues, of the messages enqueued per second on each queue.
+     */
+    public void setMeanEnqueueRate(double meanEnqueueRate) {
+        this.meanEnqueueRate = meanEnqueueRate;
+    }
+
+    public double getMeanDequeueRate() {
+        return meanDequeueRate;
+    }
+
+    /**
+     * @param meanDequeueRate mean, over all queues, of the messages dequeued per second on each queue.
+     */
+    public void setMeanDequeueRate(double meanDequeueRate) {
+        this.meanDequeueRate = meanDequeueRate;
+    }
+
+    public long getMaxInitialQueueSize() {
+        return maxInitialQueueSize;
+    }
+
+    public void setMaxInitialQueueSize(long maxInitialQueueSize) {
+        this.maxInitialQueueSize = maxInitialQueueSize;
+    }
+
+    public int getMaxConsumersPerQueue() {
+        return maxConsumersPerQueue;
+    }
+
+    public void setMaxConsumersPerQueue(int maxConsumersPerQueue) {
+        this.maxConsumersPerQueue = maxConsumersPerQueue;
+    }
+
+    public int getMaxProducersPerQueue() {
+        return maxProducersPerQueue;
+    }
+
+    public void setMaxProducersPerQueue(int maxProducersPerQueue) {
+        this.maxProducersPerQueue = maxProducersPerQueue;
+    }
+
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /**
+     * @param latencyMicros artificial latency, in microseconds, added to every call on a simulated connection.
+     */
+    public void setLatencyMicros(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public StatsClock getStatsClock() {
+        return statsClock;
+    }
+
+    public void setStatsClock(StatsClock statsClock) {
+        this.statsClock = statsClock;
+    }
+
+    /**
+     * Create the MBean servers of the configured number of brokers and register their broker and queue MBeans.
+     *
+     * @throws JMException on failure to register an MBean.
+     */
+    public void start() throws JMException {
+        synchronized ( this.brokers ) {
+            this.random = new Random(this.seed);
+
+            for ( int cur = 0; cur < this.brokerCount; cur++ ) {
+                String brokerName = String.format("%s%03d", BROKER_NAME_PREFIX, cur);
+                SimulatedBrokerInstance instance = this.createBroker(brokerName);
+
+                for ( int queueNum = 0; queueNum < this.queuesPerBroker; queueNum++ ) {
+                    this.registerQueue(instance, String.format("%s%05d", QUEUE_NAME_PREFIX, queueNum));
+                }
+
+                this.brokers.put(brokerName, instance);
+            }
+        }
+
+        this.log.info("started simulated broker fleet: broker-count={}; queues-per-broker={}; latency-micros={}",
+                this.brokerCount, this.queuesPerBroker, this.latencyMicros);
+    }
+
+    /**
+     * Unregister the MBeans of all of the brokers of the fleet.  The MBean servers are not tracked by the
+     * MBeanServerFactory, so nothing else holds on to them.
+     */
+    public void stop() {
+        synchronized ( this.brokers ) {
+            for ( SimulatedBrokerInstance oneInstance : this.brokers.values() ) {
+                this.unregisterAll(oneInstance.mBeanServer);
+            }
+
+            this.brokers.clear();
+        }
+    }
+
+    public List<String> getBrokerNames() {
+        return Collections.unmodifiableList(new ArrayList<>(this.brokers.keySet()));
+    }
+
+    public SimulatedBroker getBroker(String brokerName) {
+        SimulatedBrokerInstance instance = this.brokers.get(brokerName);
+        if ( instance == null ) {
+            return null;
+        }
+
+        return instance.broker;
+    }
+
+    /**
+     * @param brokerName name of the broker.
+     * @return factory of connections to the named broker, or null if the fleet has no such broker.
+     */
+    public MBeanAccessConnectionFactory getConnectionFactory(String brokerName) {
+        SimulatedBrokerInstance instance = this.brokers.get(brokerName);
+        if ( instance == null ) {
+            return null;
+        }
+
+        return instance.connectionFactory;
+    }
+
+    /**
+     * Add a queue to a running broker, as when a client first sends to it.
+     *
+     * @throws JMException on failure to register the queue MBean.
+     */
+    public SimulatedQueue addQueue(String brokerName, String queueName) throws JMException {
+        synchronized ( this.brokers ) {
+            SimulatedBrokerInstance instance = this.getRequiredInstance(brokerName);
+
+            return this.registerQueue(instance, queueName);
+        }
+    }
+
+    /**
+     * Remove a queue from a running broker, as when it is deleted by an administrator.
+     *
+     * @return true if the queue existed; false otherwise.
+     * @throws JMException on failure to unregister the queue MBean.
+     */
+    public boolean removeQueue(String brokerName, String queueName) throws JMException {
+        synchronized ( this.brokers ) {
+            SimulatedBrokerInstance instance = this.getRequiredInstance(brokerName);
+
+            if ( instance.broker.removeQueue(queueName) == null ) {
+                return false;
+            }
+
+            try {
+                instance.mBeanServer.unregisterMBean(this.queueObjectName(brokerName, queueName));
+            } catch ( InstanceNotFoundException infExc ) {
+                this.log.debug("simulated queue mbean already removed: broker={}; queue={}", brokerName, queueName);
+            }
+
+            return true;
+        }
+    }
+
+    public ObjectName brokerObjectName(String brokerName) throws MalformedObjectNameException {
+        return new ObjectName(BROKER_ONAME_PREFIX + brokerName);
+    }
+
+    public ObjectName queueObjectName(String brokerName, String queueName) throws MalformedObjectNameException {
+        return new ObjectName(BROKER_ONAME_PREFIX + brokerName + ",destinationType=Queue,destinationName=" +
+                queueName);
+    }
+
+    protected SimulatedBrokerInstance createBroker(String brokerName) throws JMException {
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        SimulatedBroker broker = new SimulatedBroker(brokerName, this.statsClock);
+
+        mBeanServer.registerMBean(broker, this.brokerObjectName(brokerName));
+
+        return new SimulatedBrokerInstance(broker, mBeanServer,
+                new SimulatedMBeanAccessConnectionFactory(brokerName, mBeanServer, this.latencyMicros));
+    }
+
+    protected SimulatedQueue registerQueue(SimulatedBrokerInstance instance, String queueName) throws JMException {
+        SimulatedQueue queue = new SimulatedQueue(queueName, this.statsClock,
+                this.nextLong(this.maxInitialQueueSize),
+                this.nextRate(this.meanEnqueueRate),
+                this.nextRate(this.meanDequeueRate),
+                this.random.nextInt(this.maxConsumersPerQueue + 1),
+                this.random.nextInt(this.maxProducersPerQueue + 1));
+
+        instance.mBeanServer.registerMBean(queue,
+                this.queueObjectName(instance.broker.getBrokerName(), queueName));
+        instance.broker.addQueue(queue);
+
+        return queue;
+    }
+
+    protected void unregisterAll(MBeanServer mBeanServer) {
+        try {
+            for ( ObjectName oneOName : mBeanServer.queryNames(new ObjectName("org.apache.activemq:*"), null) ) {
+                try {
+                    mBeanServer.unregisterMBean(oneOName);
+                } catch ( JMException jmExc ) {
+                    this.log.debug("failed to unregister simulated mbean: oname={}", oneOName, jmExc);
+                }
+            }
+        } catch ( MalformedObjectNameException monExc ) {
+            throw new IllegalStateException("invalid simulated mbean pattern", monExc);
+        }
+    }
+
+    protected SimulatedBrokerInstance getRequiredInstance(String brokerName) {
+        SimulatedBrokerInstance instance = this.brokers.get(brokerName);
+        if ( instance == null ) {
+            throw new IllegalArgumentException("unknown simulated broker: " + brokerName);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Draw a rate uniformly from half to one-and-a-half times the given mean.
+     */
+    protected double nextRate(double mean) {
+        return mean * ( 0.5 + this.random.nextDouble() );
+    }
+
+    protected long nextLong(long bound) {
+        if ( bound <= 0 ) {
+            return 0;
+        }
+
+        return (long) ( this.random.nextDouble() * bound );
+    }
+
+    protected static class SimulatedBrokerInstance {
+        private final SimulatedBroker broker;
+        private final MBeanServer mBeanServer;
+        private final SimulatedMBeanAccessConnectionFactory connectionFactory;
+
+        public SimulatedBrokerInstance(SimulatedBroker broker, MBeanServer mBeanServer,
+                                       SimulatedMBeanAccessConnectionFactory connectionFactory) {
+            this.broker = broker;
+            this.mBeanServer = mBeanServer;
+            this.connectionFactory = connectionFactory;
+        }
+    }
+}
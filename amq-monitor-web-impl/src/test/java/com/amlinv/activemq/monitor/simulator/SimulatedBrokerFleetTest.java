@@ -0,0 +1,272 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SimulatedBrokerFleetTest {
+
+    private SimulatedBrokerFleet fleet;
+
+    private StatsClock mockStatsClock;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1000L);
+
+        this.fleet = new SimulatedBrokerFleet();
+        this.fleet.setBrokerCount(2);
+        this.fleet.setQueuesPerBroker(3);
+        this.fleet.setSeed(13L);
+        this.fleet.setStatsClock(this.mockStatsClock);
+    }
+
+    @After
+    public void cleanupTest() throws Exception {
+        this.fleet.stop();
+    }
+
+    @Test
+    public void testGetSetProperties() throws Exception {
+        assertEquals(2, this.fleet.getBrokerCount());
+        assertEquals(3, this.fleet.getQueuesPerBroker());
+        assertEquals(13L, this.fleet.getSeed());
+        assertSame(this.mockStatsClock, this.fleet.getStatsClock());
+
+        this.fleet.setLatencyMicros(17L);
+        this.fleet.setMeanEnqueueRate(19.0);
+        this.fleet.setMeanDequeueRate(23.0);
+        this.fleet.setMaxInitialQueueSize(29L);
+        this.fleet.setMaxConsumersPerQueue(31);
+        this.fleet.setMaxProducersPerQueue(37);
+
+        assertEquals(17L, this.fleet.getLatencyMicros());
+        assertEquals(19.0, this.fleet.getMeanEnqueueRate(), 0.0);
+        assertEquals(23.0, this.fleet.getMeanDequeueRate(), 0.0);
+        assertEquals(29L, this.fleet.getMaxInitialQueueSize());
+        assertEquals(31, this.fleet.getMaxConsumersPerQueue());
+        assertEquals(37, this.fleet.getMaxProducersPerQueue());
+    }
+
+    @Test
+    public void testStartRegistersMBeans() throws Exception {
+        this.fleet.start();
+
+        assertEquals(Arrays.asList("sim-broker-000", "sim-broker-001"), this.fleet.getBrokerNames());
+
+        MBeanAccessConnection connection = this.fleet.getConnectionFactory("sim-broker-001").createConnection();
+        Set<ObjectName> queueNames = connection.queryNames(
+                new ObjectName("org.apache.activemq:type=Broker,brokerName=sim-broker-001,destinationType=Queue,*"),
+                null);
+
+        assertEquals(3, queueNames.size());
+        assertTrue(queueNames.contains(this.fleet.queueObjectName("sim-broker-001", "sim-queue-00002")));
+        assertEquals("sim-broker-001",
+                connection.getAttribute(this.fleet.brokerObjectName("sim-broker-001"), "BrokerName"));
+    }
+
+    @Test
+    public void testAttributesEvolveWithClock() throws Exception {
+        this.fleet.setMaxInitialQueueSize(0);
+        this.fleet.setMeanEnqueueRate(100.0);
+        this.fleet.setMeanDequeueRate(0.0);
+        this.fleet.start();
+
+        MBeanAccessConnection connection = this.fleet.getConnectionFactory("sim-broker-000").createConnection();
+        ObjectName queueOName = this.fleet.queueObjectName("sim-broker-000", "sim-queue-00000");
+        String[] names = new String[] { "QueueSize", "EnqueueCount", "DequeueCount" };
+
+        AttributeList initial = connection.getAttributes(queueOName, names);
+        assertEquals(0L, this.attributeValue(initial, "EnqueueCount"));
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(11000L);
+
+        AttributeList later = connection.getAttributes(queueOName, names);
+        long enqueueCount = (Long) this.attributeValue(later, "EnqueueCount");
+
+        // 10 seconds at a rate between half and one-and-a-half times the mean.
+        assertTrue(enqueueCount >= 500L && enqueueCount <= 1500L);
+        assertEquals(0L, this.attributeValue(later, "DequeueCount"));
+        assertEquals(enqueueCount, this.attributeValue(later, "QueueSize"));
+    }
+
+    @Test
+    public void testQueueSizeNeverNegative() throws Exception {
+        SimulatedQueue queue = new SimulatedQueue("x-queue-x", this.mockStatsClock, 5L, 0.0, 100.0, 1L, 1L);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(61000L);
+
+        assertEquals(0L, queue.getQueueSize());
+        assertEquals(5L, queue.getDequeueCount());
+        assertEquals(0L, queue.getInFlightCount());
+    }
+
+    @Test
+    public void testBrokerTotals() throws Exception {
+        this.fleet.start();
+
+        SimulatedBroker broker = this.fleet.getBroker("sim-broker-000");
+
+        long totalConsumers = 0;
+        long totalMessages = 0;
+        for ( SimulatedQueue oneQueue : broker.getQueues() ) {
+            totalConsumers += oneQueue.getConsumerCount();
+            totalMessages += oneQueue.getQueueSize();
+        }
+
+        assertEquals(totalConsumers, broker.getTotalConsumerCount());
+        assertEquals(totalMessages, broker.getTotalMessageCount());
+        assertEquals(0L, broker.getUptimeMillis());
+        assertEquals("0 seconds", broker.getUptime());
+    }
+
+    @Test
+    public void testSameSeedSameFleet() throws Exception {
+        this.fleet.start();
+
+        SimulatedBrokerFleet other = new SimulatedBrokerFleet();
+        other.setBrokerCount(2);
+        other.setQueuesPerBroker(3);
+        other.setSeed(13L);
+        other.setStatsClock(this.mockStatsClock);
+        other.start();
+
+        try {
+            assertEquals(this.fleet.getBroker("sim-broker-001").getQueue("sim-queue-00001").getQueueSize(),
+                    other.getBroker("sim-broker-001").getQueue("sim-queue-00001").getQueueSize());
+        } finally {
+            other.stop();
+        }
+    }
+
+    @Test
+    public void testAddRemoveQueue() throws Exception {
+        this.fleet.start();
+
+        SimulatedQueue added = this.fleet.addQueue("sim-broker-000", "x-queue-x");
+        assertSame(added, this.fleet.getBroker("sim-broker-000").getQueue("x-queue-x"));
+
+        MBeanAccessConnection connection = this.fleet.getConnectionFactory("sim-broker-000").createConnection();
+        ObjectName queueOName = this.fleet.queueObjectName("sim-broker-000", "x-queue-x");
+        assertEquals("x-queue-x", connection.getAttribute(queueOName, "Name"));
+
+        assertTrue(this.fleet.removeQueue("sim-broker-000", "x-queue-x"));
+        assertFalse(this.fleet.removeQueue("sim-broker-000", "x-queue-x"));
+        assertTrue(connection.queryNames(queueOName, null).isEmpty());
+    }
+
+    @Test
+    public void testAddQueueUnknownBroker() throws Exception {
+        this.fleet.start();
+
+        try {
+            this.fleet.addQueue("x-broker-x", "x-queue-x");
+            fail("missing expected exception");
+        } catch ( IllegalArgumentException iaExc ) {
+            assertEquals("unknown simulated broker: x-broker-x", iaExc.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetConnectionFactoryUnknownBroker() throws Exception {
+        this.fleet.start();
+
+        assertNull(this.fleet.getConnectionFactory("x-broker-x"));
+        assertNull(this.fleet.getBroker("x-broker-x"));
+    }
+
+    @Test
+    public void testConnectionFactory() throws Exception {
+        this.fleet.start();
+
+        SimulatedMBeanAccessConnectionFactory factory =
+                (SimulatedMBeanAccessConnectionFactory) this.fleet.getConnectionFactory("sim-broker-000");
+
+        assertEquals("simulated-broker:sim-broker-000", factory.getTargetDescription());
+        assertEquals(0L, factory.getConnectionCount());
+
+        factory.createConnection();
+        assertEquals(1L, factory.getConnectionCount());
+    }
+
+    @Test
+    public void testClosedConnection() throws Exception {
+        this.fleet.start();
+
+        MBeanAccessConnectionFactory factory = this.fleet.getConnectionFactory("sim-broker-000");
+        SimulatedMBeanAccessConnection connection = (SimulatedMBeanAccessConnection) factory.createConnection();
+
+        connection.close();
+        assertTrue(connection.isClosed());
+
+        try {
+            connection.queryNames(null, null);
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("simulated connection is closed", ioExc.getMessage());
+        }
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        this.fleet.setLatencyMicros(20000L);
+        this.fleet.start();
+
+        MBeanAccessConnection connection = this.fleet.getConnectionFactory("sim-broker-000").createConnection();
+
+        long startTime = System.nanoTime();
+        connection.getMBeanInfo(this.fleet.brokerObjectName("sim-broker-000"));
+        long elapsedMicros = ( System.nanoTime() - startTime ) / 1000L;
+
+        assertTrue(elapsedMicros >= 20000L);
+    }
+
+    @Test
+    public void testStopReleasesBrokers() throws Exception {
+        this.fleet.start();
+        this.fleet.stop();
+
+        assertTrue(this.fleet.getBrokerNames().isEmpty());
+    }
+
+    protected Object attributeValue(AttributeList attributeList, String name) {
+        for ( Attribute oneAttribute : attributeList.asList() ) {
+            if ( oneAttribute.getName().equals(name) ) {
+                return oneAttribute.getValue();
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+/**
+ * Management interface of a simulated ActiveMQ broker; the attributes are those polled by the monitor.
+ */
+public interface SimulatedBrokerMBean {
+    String getBrokerName();
+
+    long getAverageMessageSize();
+
+    String getUptime();
+
+    long getUptimeMillis();
+
+    long getMemoryLimit();
+
+    int getMemoryPercentUsage();
+
+    int getStorePercentUsage();
+
+    long getCurrentConnectionsCount();
+
+    long getTotalConsumerCount();
+
+    long getTotalMessageCount();
+
+    long getTotalEnqueueCount();
+
+    long getTotalDequeueCount();
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller;
+import com.amlinv.activemq.monitor.activemq.BrokerPollScheduler;
+import com.amlinv.activemq.monitor.activemq.BrokerPollTimingStats;
+import com.amlinv.activemq.monitor.activemq.impl.BulkBrokerStatsJmxAttributePollerFactory;
+import com.amlinv.activemq.monitor.web.MonitorWebsocketBrokerStatsFeed;
+import com.amlinv.activemq.monitor.web.MonitorWebsocketRegistry;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.topo.discovery.MBeanDestinationDiscoverer;
+import com.amlinv.activemq.topo.registry.DestinationRegistry;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test of the monitor end to end against a simulated broker fleet: queue discovery, bulk polling of every broker,
+ * and aggregation of the results by the websocket feed.  The fleet size is set with the system properties
+ * sim.brokers, sim.queues and sim.latencyMicros, for example -Dsim.brokers=100 -Dsim.queues=5000.
+ */
+public class SimulatedFleetPollingIT {
+    private static final Logger LOG = LoggerFactory.getLogger(SimulatedFleetPollingIT.class);
+
+    private static final int POLL_ROUNDS = 3;
+
+    private SimulatedBrokerFleet fleet;
+
+    private DestinationRegistry queueRegistry;
+    private QueueStatisticsRegistry queueStatisticsRegistry;
+    private MonitorWebsocketBrokerStatsFeed feed;
+    private MetricRegistry metricRegistry;
+    private CapturingPollScheduler pollScheduler;
+    private List<ActiveMQBrokerPoller> pollers;
+
+    @Before
+    public void setupTest() throws Exception {
+        // Fixed clock so the simulated statistics do not change between the polls and the assertions; advanced one
+        // minute once the fleet is started so the counts are non-zero.
+        StatsClock mockStatsClock = Mockito.mock(StatsClock.class);
+        Mockito.when(mockStatsClock.getStatsStopWatchTime()).thenReturn(0L);
+
+        this.fleet = new SimulatedBrokerFleet();
+        this.fleet.setBrokerCount(Integer.getInteger("sim.brokers", 10));
+        this.fleet.setQueuesPerBroker(Integer.getInteger("sim.queues", 500));
+        this.fleet.setLatencyMicros(Long.getLong("sim.latencyMicros", 100L));
+        this.fleet.setStatsClock(mockStatsClock);
+        this.fleet.start();
+        Mockito.when(mockStatsClock.getStatsStopWatchTime()).thenReturn(60000L);
+
+        this.metricRegistry = new MetricRegistry();
+
+        this.queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.queueStatisticsRegistry.setMetricRegistry(this.metricRegistry);
+
+        this.feed = new MonitorWebsocketBrokerStatsFeed();
+        this.feed.setWebsocketRegistry(new MonitorWebsocketRegistry());
+        this.feed.setQueueStatisticsRegistry(this.queueStatisticsRegistry);
+        this.feed.setQueueStatsDeltaMode(true);
+        this.feed.setMetricRegistry(this.metricRegistry);
+
+        this.queueRegistry = new DestinationRegistry();
+        this.queueRegistry.addListener(this.feed.getQueueRegistryListener());
+        this.queueRegistry.addListener(this.queueStatisticsRegistry.getQueueRegistryListener());
+
+        this.pollScheduler = new CapturingPollScheduler();
+        this.pollers = new LinkedList<>();
+    }
+
+    @After
+    public void cleanupTest() throws Exception {
+        for ( ActiveMQBrokerPoller onePoller : this.pollers ) {
+            onePoller.stop();
+        }
+
+        this.fleet.stop();
+    }
+
+    @Test
+    public void testPollFleet() throws Exception {
+        long discoveryStart = System.nanoTime();
+        for ( String oneBrokerName : this.fleet.getBrokerNames() ) {
+            MBeanDestinationDiscoverer discoverer = new MBeanDestinationDiscoverer("Queue",
+                    this.fleet.getConnectionFactory(oneBrokerName).getTargetDescription());
+            discoverer.setmBeanAccessConnectionFactory(this.fleet.getConnectionFactory(oneBrokerName));
+            discoverer.setBrokerName(oneBrokerName);
+            discoverer.setRegistry(this.queueRegistry);
+
+            discoverer.pollOnce();
+        }
+        long discoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - discoveryStart);
+
+        assertEquals(this.fleet.getQueuesPerBroker(), this.queueRegistry.keys().size());
+
+        for ( String oneBrokerName : this.fleet.getBrokerNames() ) {
+            ActiveMQBrokerPoller poller = new ActiveMQBrokerPoller(oneBrokerName,
+                    this.fleet.getConnectionFactory(oneBrokerName), this.feed);
+            poller.setQueueRegistry(this.queueRegistry);
+            poller.setJmxPollerFactory(new BulkBrokerStatsJmxAttributePollerFactory());
+            poller.setScheduler(this.pollScheduler);
+            poller.setMetricRegistry(this.metricRegistry);
+            poller.start();
+
+            this.pollers.add(poller);
+        }
+
+        long pollStart = System.nanoTime();
+        for ( int round = 0; round < POLL_ROUNDS; round++ ) {
+            this.pollScheduler.runAll();
+        }
+        long pollMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pollStart);
+
+        this.validateAggregatedStats();
+        this.logResults(discoveryMillis, pollMillis);
+    }
+
+    /**
+     * Each queue exists on every broker, so the aggregated size of each queue is the sum over the brokers.
+     */
+    protected void validateAggregatedStats() {
+        String queueName = String.format("%s%05d", SimulatedBrokerFleet.QUEUE_NAME_PREFIX, 0);
+
+        long expectedQueueSize = 0;
+        for ( String oneBrokerName : this.fleet.getBrokerNames() ) {
+            expectedQueueSize += this.fleet.getBroker(oneBrokerName).getQueue(queueName).getQueueSize();
+        }
+
+        ActiveMQQueueStats aggregated = this.queueStatisticsRegistry.getQueueStats(queueName);
+        assertNotNull(aggregated);
+        assertEquals(expectedQueueSize, aggregated.getQueueSize());
+        assertEquals(this.fleet.getQueuesPerBroker(), this.queueStatisticsRegistry.getQueueStats().size());
+
+        for ( String oneBrokerName : this.fleet.getBrokerNames() ) {
+            Timer pollTimer = this.metricRegistry.getTimers().get(
+                    MetricRegistry.name(ActiveMQBrokerPoller.class, oneBrokerName, "poll"));
+            assertEquals(POLL_ROUNDS, pollTimer.getCount());
+        }
+    }
+
+    protected void logResults(long discoveryMillis, long pollMillis) {
+        List<String> timerNames = new ArrayList<>(this.metricRegistry.getTimers().keySet());
+        Collections.sort(timerNames);
+
+        LOG.info("simulated fleet: brokers={}; queues-per-broker={}; latency-micros={}; discovery-ms={}; " +
+                        "poll-rounds={}; poll-ms={}", this.fleet.getBrokerCount(), this.fleet.getQueuesPerBroker(),
+                this.fleet.getLatencyMicros(), discoveryMillis, POLL_ROUNDS, pollMillis);
+
+        for ( String oneTimerName : timerNames ) {
+            Timer timer = this.metricRegistry.getTimers().get(oneTimerName);
+            Snapshot snapshot = timer.getSnapshot();
+
+            LOG.info("timer {}: count={}; median-ms={}; p99-ms={}", oneTimerName, timer.getCount(),
+                    snapshot.getMedian() / 1000000.0, snapshot.get99thPercentile() / 1000000.0);
+        }
+    }
+
+    /**
+     * Poll scheduler which runs the polls on demand, on the test thread, instead of on a timer.
+     */
+    protected static class CapturingPollScheduler implements BrokerPollScheduler {
+        private final List<Runnable> pollTasks = new LinkedList<>();
+
+        @Override
+        public ScheduledFuture<?> schedulePolling(String brokerName, Runnable pollTask, long pollingInterval) {
+            this.pollTasks.add(pollTask);
+
+            return Mockito.mock(ScheduledFuture.class);
+        }
+
+        @Override
+        public List<BrokerPollTimingStats> getPollTimingStats() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void shutdown() {
+            this.pollTasks.clear();
+        }
+
+        public void runAll() {
+            for ( Runnable onePollTask : this.pollTasks ) {
+                onePollTask.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.InstanceNotFoundException;
+import javax.management.IntrospectionException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MBean access connection to an in-process MBean server.  Each call is delayed by the configured latency to stand in
+ * for the network round trip to a remote broker.
+ */
+public class SimulatedMBeanAccessConnection implements MBeanAccessConnection {
+    private final MBeanServer mBeanServer;
+    private final long latencyMicros;
+
+    private volatile boolean closed = false;
+
+    public SimulatedMBeanAccessConnection(MBeanServer mBeanServer, long latencyMicros) {
+        this.mBeanServer = mBeanServer;
+        this.latencyMicros = latencyMicros;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        this.simulateRoundTrip();
+    }
+
+    @Override
+    public Object getAttribute(ObjectName name, String att)
+            throws MBeanException, AttributeNotFoundException, InstanceNotFoundException, ReflectionException,
+            IOException {
+
+        this.simulateRoundTrip();
+        return this.mBeanServer.getAttribute(name, att);
+    }
+
+    @Override
+    public AttributeList getAttributes(ObjectName name, String[] atts)
+            throws InstanceNotFoundException, ReflectionException, IOException {
+
+        this.simulateRoundTrip();
+        return this.mBeanServer.getAttributes(name, atts);
+    }
+
+    @Override
+    public Set<ObjectName> queryNames(ObjectName pattern, QueryExp query) throws IOException {
+        this.simulateRoundTrip();
+        return this.mBeanServer.queryNames(pattern, query);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo(ObjectName name)
+            throws IOException, IntrospectionException, InstanceNotFoundException, ReflectionException {
+
+        this.simulateRoundTrip();
+        return this.mBeanServer.getMBeanInfo(name);
+    }
+
+    @Override
+    public void addNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter,
+                                        Object handback) throws InstanceNotFoundException, IOException {
+
+        this.simulateRoundTrip();
+        this.mBeanServer.addNotificationListener(name, listener, filter, handback);
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, NotificationListener listener)
+            throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+
+        this.simulateRoundTrip();
+        this.mBeanServer.removeNotificationListener(name, listener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+    }
+
+    /**
+     * Wait out the simulated latency, and fail as a remote connection would once closed.
+     */
+    protected void simulateRoundTrip() throws IOException {
+        if ( this.closed ) {
+            throw new IOException("simulated connection is closed");
+        }
+
+        if ( this.latencyMicros > 0 ) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(this.latencyMicros));
+        }
+    }
+}
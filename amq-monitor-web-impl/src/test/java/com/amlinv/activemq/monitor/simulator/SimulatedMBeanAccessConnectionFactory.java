@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.jmxutil.connection.MBeanAccessConnection;
+import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+
+import javax.management.MBeanServer;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factory of connections to the in-process MBean server of one simulated broker.
+ */
+public class SimulatedMBeanAccessConnectionFactory implements MBeanAccessConnectionFactory {
+    private final String brokerName;
+    private final MBeanServer mBeanServer;
+    private final long latencyMicros;
+
+    private final AtomicLong connectionCount = new AtomicLong(0);
+
+    public SimulatedMBeanAccessConnectionFactory(String brokerName, MBeanServer mBeanServer, long latencyMicros) {
+        this.brokerName = brokerName;
+        this.mBeanServer = mBeanServer;
+        this.latencyMicros = latencyMicros;
+    }
+
+    /**
+     * @return number of connections created by this factory; used to verify connection reuse under load.
+     */
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    @Override
+    public MBeanAccessConnection createConnection() throws IOException {
+        this.connectionCount.incrementAndGet();
+
+        SimulatedMBeanAccessConnection result = new SimulatedMBeanAccessConnection(this.mBeanServer,
+                this.latencyMicros);
+        result.connect();
+
+        return result;
+    }
+
+    @Override
+    public String getTargetDescription() {
+        return "simulated-broker:" + this.brokerName;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+import com.amlinv.activemq.stats.StatsClock;
+
+/**
+ * Simulated ActiveMQ queue with steady enqueue and dequeue rates.  The counts are computed from the time elapsed
+ * since the queue was created, so reading the attributes never contends with other readers and the values evolve
+ * deterministically with the clock.
+ */
+public class SimulatedQueue implements SimulatedQueueMBean {
+    public static final long MESSAGES_PER_CURSOR_PERCENT = 100;
+    public static final long MESSAGES_PER_MEMORY_PERCENT = 1000;
+
+    private final String name;
+    private final StatsClock statsClock;
+    private final long startTime;
+
+    private final long initialQueueSize;
+    private final double enqueueRate;
+    private final double dequeueRate;
+    private final long consumerCount;
+    private final long producerCount;
+
+    /**
+     * @param name name of the queue.
+     * @param statsClock clock from which the elapsed time is measured.
+     * @param initialQueueSize number of messages on the queue at creation.
+     * @param enqueueRate messages enqueued per second.
+     * @param dequeueRate messages dequeued per second; the queue size never drops below zero.
+     * @param consumerCount number of consumers reported.
+     * @param producerCount number of producers reported.
+     */
+    public SimulatedQueue(String name, StatsClock statsClock, long initialQueueSize, double enqueueRate,
+                          double dequeueRate, long consumerCount, long producerCount) {
+
+        this.name = name;
+        this.statsClock = statsClock;
+        this.startTime = statsClock.getStatsStopWatchTime();
+        this.initialQueueSize = initialQueueSize;
+        this.enqueueRate = enqueueRate;
+        this.dequeueRate = dequeueRate;
+        this.consumerCount = consumerCount;
+        this.producerCount = producerCount;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getQueueSize() {
+        long elapsed = this.getElapsedTime();
+
+        return this.calculateQueueSize(this.calculateEnqueueCount(elapsed), this.calculateDequeueCount(elapsed));
+    }
+
+    @Override
+    public long getEnqueueCount() {
+        return this.calculateEnqueueCount(this.getElapsedTime());
+    }
+
+    @Override
+    public long getDequeueCount() {
+        return this.calculateDequeueCount(this.getElapsedTime());
+    }
+
+    @Override
+    public long getConsumerCount() {
+        return consumerCount;
+    }
+
+    @Override
+    public long getProducerCount() {
+        return producerCount;
+    }
+
+    @Override
+    public int getCursorPercentUsage() {
+        return (int) Math.min(100, this.getQueueSize() / MESSAGES_PER_CURSOR_PERCENT);
+    }
+
+    @Override
+    public int getMemoryPercentUsage() {
+        return (int) Math.min(100, this.getQueueSize() / MESSAGES_PER_MEMORY_PERCENT);
+    }
+
+    @Override
+    public long getInFlightCount() {
+        return Math.min(this.consumerCount, this.getQueueSize());
+    }
+
+    protected long getElapsedTime() {
+        return this.statsClock.getStatsStopWatchTime() - this.startTime;
+    }
+
+    protected long calculateEnqueueCount(long elapsed) {
+        return (long) ( this.enqueueRate * elapsed / 1000.0 );
+    }
+
+    /**
+     * Messages can only be dequeued once enqueued, so the dequeue count is limited by the messages available.
+     */
+    protected long calculateDequeueCount(long elapsed) {
+        long dequeued = (long) ( this.dequeueRate * elapsed / 1000.0 );
+
+        return Math.min(dequeued, this.initialQueueSize + this.calculateEnqueueCount(elapsed));
+    }
+
+    protected long calculateQueueSize(long enqueueCount, long dequeueCount) {
+        return this.initialQueueSize + enqueueCount - dequeueCount;
+    }
+}
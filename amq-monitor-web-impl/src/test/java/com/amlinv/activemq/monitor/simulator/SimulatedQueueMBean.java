@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.simulator;
+
+/**
+ * Management interface of a simulated ActiveMQ queue; the attributes are those polled by the monitor.
+ */
+public interface SimulatedQueueMBean {
+    String getName();
+
+    long getQueueSize();
+
+    long getEnqueueCount();
+
+    long getDequeueCount();
+
+    long getConsumerCount();
+
+    long getProducerCount();
+
+    int getCursorPercentUsage();
+
+    int getMemoryPercentUsage();
+
+    long getInFlightCount();
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.servlets.MetricsServlet;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletContext;
+
+import static org.junit.Assert.*;
+
+public class MetricRegistryServletContextPublisherTest {
+
+    private MetricRegistryServletContextPublisher publisher;
+
+    private MetricRegistry metricRegistry;
+    private ServletContext mockServletContext;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.publisher = new MetricRegistryServletContextPublisher();
+
+        this.metricRegistry = new MetricRegistry();
+        this.mockServletContext = Mockito.mock(ServletContext.class);
+    }
+
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        assertNull(this.publisher.getMetricRegistry());
+
+        this.publisher.setMetricRegistry(this.metricRegistry);
+        assertSame(this.metricRegistry, this.publisher.getMetricRegistry());
+    }
+
+    @Test
+    public void testSetServletContext() throws Exception {
+        this.publisher.setMetricRegistry(this.metricRegistry);
+
+        this.publisher.setServletContext(this.mockServletContext);
+
+        Mockito.verify(this.mockServletContext).setAttribute(MetricsServlet.METRICS_REGISTRY, this.metricRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.monitor.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.ws.rs.core.Response;
+
+import static org.junit.Assert.*;
+
+public class MonitorMetricsControllerTest {
+
+    private MonitorMetricsController controller;
+
+    private PrometheusMetricsFeed mockPrometheusMetricsFeed;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.controller = new MonitorMetricsController();
+
+        this.mockPrometheusMetricsFeed = Mockito.mock(PrometheusMetricsFeed.class);
+    }
+
+    @Test
+    public void testGetSetPrometheusMetricsFeed() throws Exception {
+        assertNull(this.controller.getPrometheusMetricsFeed());
+
+        this.controller.setPrometheusMetricsFeed(this.mockPrometheusMetricsFeed);
+        assertSame(this.mockPrometheusMetricsFeed, this.controller.getPrometheusMetricsFeed());
+    }
+
+    @Test
+    public void testGetMetrics() throws Exception {
+        byte[] exposition = "x-exposition-x".getBytes("UTF-8");
+        Mockito.when(this.mockPrometheusMetricsFeed.getExposition()).thenReturn(exposition);
+        this.controller.setPrometheusMetricsFeed(this.mockPrometheusMetricsFeed);
+
+        Response response = this.controller.getMetrics();
+
+        assertEquals(200, response.getStatus());
+        assertSame(exposition, response.getEntity());
+    }
+
+    @Test
+    public void testGetMetricsNoFeed() throws Exception {
+        assertEquals(404, this.controller.getMetrics().getStatus());
+    }
+}
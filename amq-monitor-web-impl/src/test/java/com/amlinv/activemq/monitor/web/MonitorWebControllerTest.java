@@ -18,6 +18,24 @@ package com.amlinv.activemq.monitor.web;
 
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPoller;
 import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerFactory;
+import com.amlinv.activemq.monitor.activemq.ActiveMQBrokerPollerListener;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitBreaker;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitState;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitStatus;
+import com.amlinv.activemq.monitor.activemq.BrokerPollScheduler;
+import com.amlinv.activemq.monitor.activemq.BrokerPollTimingStats;
+import com.amlinv.activemq.monitor.activemq.NotificationQueueDiscoverer;
+import com.amlinv.activemq.monitor.activemq.impl.JolokiaBrokerStatsJmxAttributePollerFactory;
+import com.amlinv.activemq.monitor.alert.AlertEvent;
+import com.amlinv.activemq.monitor.alert.AlertRuleEngine;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.persistence.StatisticsStore;
+import com.amlinv.activemq.persistence.StoredQueueStats;
+import com.amlinv.activemq.persistence.StoredStatsRollup;
+import com.amlinv.activemq.stats.QueueRankEntry;
+import com.amlinv.activemq.stats.QueueRankingMetric;
+import com.amlinv.activemq.stats.QueueStatisticsHistorySeries;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
 import com.amlinv.activemq.topo.jmxutil.polling.JmxActiveMQUtil2;
 import com.amlinv.activemq.topo.registry.BrokerRegistry;
 import com.amlinv.activemq.topo.registry.BrokerRegistryListener;
@@ -26,17 +44,24 @@ import com.amlinv.activemq.topo.registry.model.BrokerInfo;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
 import com.amlinv.jmxutil.connection.MBeanAccessConnection;
 import com.amlinv.jmxutil.connection.MBeanAccessConnectionFactory;
+import com.codahale.metrics.MetricRegistry;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 
+import javax.management.MBeanServerDelegate;
+import javax.management.NotificationFilter;
 import javax.ws.rs.core.Response;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -57,6 +82,10 @@ public class MonitorWebControllerTest {
     private MBeanAccessConnectionFactory mockMBeanAccessConnectionFactory;
     private MBeanAccessConnection mockMBeanAccessConnection;
     private JmxActiveMQUtil2 mockJmxActiveMQUtil;
+    private BrokerPollScheduler mockBrokerPollScheduler;
+    private QueueStatisticsRegistry mockQueueStatisticsRegistry;
+    private ActiveMQBrokerPollerListener mockBrokerPollerListener;
+    private StatisticsStore mockStatisticsStore;
 
     @Before
     public void setupTest() throws Exception {
@@ -72,6 +101,10 @@ public class MonitorWebControllerTest {
         this.mockMBeanAccessConnectionFactory = Mockito.mock(MBeanAccessConnectionFactory.class);
         this.mockMBeanAccessConnection = Mockito.mock(MBeanAccessConnection.class);
         this.mockJmxActiveMQUtil = Mockito.mock(JmxActiveMQUtil2.class);
+        this.mockBrokerPollScheduler = Mockito.mock(BrokerPollScheduler.class);
+        this.mockQueueStatisticsRegistry = Mockito.mock(QueueStatisticsRegistry.class);
+        this.mockBrokerPollerListener = Mockito.mock(ActiveMQBrokerPollerListener.class);
+        this.mockStatisticsStore = Mockito.mock(StatisticsStore.class);
 
         Mockito.when(this.mockJmxActiveMQUtil.queryQueueNames("x-location1-x", "x-broker1-x", "*"))
                 .thenReturn(new String[]{"x-queue-discovered1-x", "x-queue-discovered2-x"});
@@ -142,6 +175,47 @@ public class MonitorWebControllerTest {
         assertFalse(this.webController.isAutoDiscoverQueues());
     }
 
+    @Test
+    public void testIsSetNotificationQueueDiscovery() throws Exception {
+        assertFalse(this.webController.isNotificationQueueDiscovery());
+
+        this.webController.setNotificationQueueDiscovery(true);
+        assertTrue(this.webController.isNotificationQueueDiscovery());
+    }
+
+    @Test
+    public void testGetSetQueueReconciliationInterval() throws Exception {
+        assertEquals(NotificationQueueDiscoverer.DEFAULT_RECONCILIATION_INTERVAL,
+                this.webController.getQueueReconciliationInterval());
+
+        this.webController.setQueueReconciliationInterval(1300L);
+        assertEquals(1300L, this.webController.getQueueReconciliationInterval());
+    }
+
+    @Test
+    public void testGetSetCircuitFailureThreshold() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_FAILURE_THRESHOLD, this.webController.getCircuitFailureThreshold());
+
+        this.webController.setCircuitFailureThreshold(7);
+        assertEquals(7, this.webController.getCircuitFailureThreshold());
+    }
+
+    @Test
+    public void testGetSetCircuitInitialBackoff() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_INITIAL_BACKOFF, this.webController.getCircuitInitialBackoff());
+
+        this.webController.setCircuitInitialBackoff(1100L);
+        assertEquals(1100L, this.webController.getCircuitInitialBackoff());
+    }
+
+    @Test
+    public void testGetSetCircuitMaxBackoff() throws Exception {
+        assertEquals(BrokerCircuitBreaker.DEFAULT_MAX_BACKOFF, this.webController.getCircuitMaxBackoff());
+
+        this.webController.setCircuitMaxBackoff(1700L);
+        assertEquals(1700L, this.webController.getCircuitMaxBackoff());
+    }
+
     @Test
     public void testGetSetActiveMQBrokerPollerFactory() throws Exception {
         assertNotNull(this.webController.getBrokerPollerFactory());
@@ -160,6 +234,15 @@ public class MonitorWebControllerTest {
         assertSame(this.mockJmxActiveMQUtil, this.webController.getJmxActiveMQUtil());
     }
 
+    @Test
+    public void testGetSetBrokerPollScheduler() throws Exception {
+        assertNotNull(this.webController.getBrokerPollScheduler());
+        assertNotSame(this.mockBrokerPollScheduler, this.webController.getBrokerPollScheduler());
+
+        this.webController.setBrokerPollScheduler(this.mockBrokerPollScheduler);
+        assertSame(this.mockBrokerPollScheduler, this.webController.getBrokerPollScheduler());
+    }
+
     @Test
     public void testInitWithAutoStart() throws Exception {
         this.prepareWebController();
@@ -170,6 +253,7 @@ public class MonitorWebControllerTest {
 
         Mockito.verify(this.mockLogger).info("Initializing monitor web controller");
         Mockito.verify(this.mockLogger).info("Starting monitoring now");
+        Mockito.verify(this.mockBrokerPoller).setScheduler(this.mockBrokerPollScheduler);
         Mockito.verify(this.mockBrokerPoller).start();
     }
 
@@ -194,6 +278,214 @@ public class MonitorWebControllerTest {
         this.webController.shutdown();
 
         Mockito.verify(this.mockBrokerPoller).stop();
+        Mockito.verify(this.mockBrokerPollScheduler).shutdown();
+    }
+
+    @Test
+    public void testGetSetQueueStatisticsRegistry() throws Exception {
+        assertNull(this.webController.getQueueStatisticsRegistry());
+
+        this.webController.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+        assertSame(this.mockQueueStatisticsRegistry, this.webController.getQueueStatisticsRegistry());
+    }
+
+    @Test
+    public void testGetSetBrokerPollerListener() throws Exception {
+        assertNull(this.webController.getBrokerPollerListener());
+
+        this.webController.setBrokerPollerListener(this.mockBrokerPollerListener);
+        assertSame(this.mockBrokerPollerListener, this.webController.getBrokerPollerListener());
+    }
+
+    @Test
+    public void testGetSetStatisticsStore() throws Exception {
+        assertNull(this.webController.getStatisticsStore());
+
+        this.webController.setStatisticsStore(this.mockStatisticsStore);
+        assertSame(this.mockStatisticsStore, this.webController.getStatisticsStore());
+    }
+
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNull(this.webController.getMetricRegistry());
+
+        this.webController.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, this.webController.getMetricRegistry());
+    }
+
+    @Test
+    public void testGetStoredQueueStats() throws Exception {
+        List<StoredQueueStats> stored = Arrays.asList(new StoredQueueStats("x-broker1-x", "x-queue1-x", 1500L));
+        Mockito.when(this.mockStatisticsStore.scanQueueStats("x-queue1-x", 1000L, 2000L)).thenReturn(stored);
+        this.webController.setStatisticsStore(this.mockStatisticsStore);
+
+        Response response = this.webController.getStoredQueueStats("x-queue1-x", 1000L, 2000L);
+
+        assertEquals(200, response.getStatus());
+        assertSame(stored, response.getEntity());
+    }
+
+    @Test
+    public void testGetStoredQueueStatsNoStore() throws Exception {
+        Response response = this.webController.getStoredQueueStats("x-queue1-x", 0L, Long.MAX_VALUE);
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testGetTopQueues() throws Exception {
+        List<QueueRankEntry> top = Arrays.asList(new QueueRankEntry("x-queue1-x", 3.0));
+        Mockito.when(this.mockQueueStatisticsRegistry.getTopQueues(QueueRankingMetric.ENQUEUE_RATE, 5))
+                .thenReturn(top);
+        this.webController.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+
+        Response response = this.webController.getTopQueues("enqueueRate", 5);
+
+        assertEquals(200, response.getStatus());
+        assertSame(top, response.getEntity());
+    }
+
+    @Test
+    public void testGetTopQueuesInvalidRequest() throws Exception {
+        this.webController.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+
+        assertEquals(400, this.webController.getTopQueues("x-unknown-metric-x", 5).getStatus());
+        assertEquals(400, this.webController.getTopQueues("queueSize", 0).getStatus());
+    }
+
+    @Test
+    public void testGetTopQueuesNoRegistry() throws Exception {
+        Response response = this.webController.getTopQueues("queueSize", 5);
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testGetQueueStatsRollup() throws Exception {
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> rollups = Collections.emptyList();
+        Mockito.when(this.mockStatisticsStore.scanQueueStatsRollup("x-queue1-x", 1000L, 2000L, 3600000L))
+                .thenReturn(rollups);
+        this.webController.setStatisticsStore(this.mockStatisticsStore);
+
+        Response response = this.webController.getQueueStatsRollup("x-queue1-x", 1000L, 2000L, 3600000L);
+
+        assertEquals(200, response.getStatus());
+        assertSame(rollups, response.getEntity());
+    }
+
+    @Test
+    public void testGetQueueStatsRollupNoStore() throws Exception {
+        Response response = this.webController.getQueueStatsRollup("x-queue1-x", 0L, Long.MAX_VALUE, 0L);
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testGetQueueHistory() throws Exception {
+        Map<String, QueueStatisticsHistorySeries> history =
+                Collections.singletonMap("x-broker1-x", new QueueStatisticsHistorySeries(1));
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueHistory("x-queue1-x", 1234L)).thenReturn(history);
+        this.webController.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+
+        Response response = this.webController.getQueueHistory("x-queue1-x", 1234L);
+
+        assertEquals(200, response.getStatus());
+        assertSame(history, response.getEntity());
+    }
+
+    @Test
+    public void testGetQueueHistoryUnknownQueue() throws Exception {
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueHistory("x-queue1-x", 0L)).thenReturn(null);
+        this.webController.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+
+        Response response = this.webController.getQueueHistory("x-queue1-x", 0L);
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testGetQueueHistoryNoRegistry() throws Exception {
+        Response response = this.webController.getQueueHistory("x-queue1-x", 0L);
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testListBrokerPollTiming() throws Exception {
+        this.prepareWebController();
+
+        List<BrokerPollTimingStats> timingStats =
+                Arrays.asList(new BrokerPollTimingStats("x-broker1-x", 3000L));
+        Mockito.when(this.mockBrokerPollScheduler.getPollTimingStats()).thenReturn(timingStats);
+
+        assertSame(timingStats, this.webController.listBrokerPollTiming());
+    }
+
+    @Test
+    public void testGetSetAlertRuleEngine() throws Exception {
+        AlertRuleEngine alertRuleEngine = new AlertRuleEngine();
+
+        assertNull(this.webController.getAlertRuleEngine());
+
+        this.webController.setAlertRuleEngine(alertRuleEngine);
+        assertSame(alertRuleEngine, this.webController.getAlertRuleEngine());
+    }
+
+    @Test
+    public void testListActiveAlerts() throws Exception {
+        AlertRuleEngine mockAlertRuleEngine = Mockito.mock(AlertRuleEngine.class);
+        List<AlertEvent> alerts = new LinkedList<>();
+        Mockito.when(mockAlertRuleEngine.getActiveAlerts()).thenReturn(alerts);
+
+        assertTrue(this.webController.listActiveAlerts().isEmpty());
+
+        this.webController.setAlertRuleEngine(mockAlertRuleEngine);
+        assertSame(alerts, this.webController.listActiveAlerts());
+    }
+
+    @Test
+    public void testListBrokerCircuitState() throws Exception {
+        this.prepareWebController();
+
+        Mockito.when(this.mockBrokerPollerFactory
+                .createPoller("x-broker1-x", this.mockMBeanAccessConnectionFactory, this.mockFeed))
+                .thenReturn(this.mockBrokerPoller);
+        BrokerCircuitBreaker circuitBreaker = new BrokerCircuitBreaker("x-broker1-x");
+        Mockito.when(this.mockBrokerPoller.getCircuitBreaker()).thenReturn(circuitBreaker);
+
+        this.webController.addBroker("x-broker1-x", "x-location1-x");
+
+        List<BrokerCircuitStatus> result = this.webController.listBrokerCircuitState();
+
+        assertEquals(1, result.size());
+        assertEquals("x-broker1-x", result.get(0).getBrokerName());
+        assertEquals(BrokerCircuitState.CLOSED, result.get(0).getState());
+    }
+
+    @Test
+    public void testAddBrokerConfiguresCircuitBreaker() throws Exception {
+        this.prepareWebController();
+        this.webController.setCircuitFailureThreshold(7);
+        this.webController.setCircuitInitialBackoff(1100L);
+        this.webController.setCircuitMaxBackoff(1700L);
+
+        Mockito.when(this.mockBrokerPollerFactory
+                .createPoller("x-broker1-x", this.mockMBeanAccessConnectionFactory, this.mockFeed))
+                .thenReturn(this.mockBrokerPoller);
+
+        this.webController.addBroker("x-broker1-x", "x-location1-x");
+
+        ArgumentCaptor<BrokerCircuitBreaker> captor = ArgumentCaptor.forClass(BrokerCircuitBreaker.class);
+        Mockito.verify(this.mockBrokerPoller).setCircuitBreaker(captor.capture());
+
+        BrokerCircuitBreaker circuitBreaker = captor.getValue();
+        assertEquals("x-broker1-x", circuitBreaker.getBrokerName());
+        assertEquals(7, circuitBreaker.getFailureThreshold());
+        assertEquals(1100L, circuitBreaker.getInitialBackoff());
+        assertEquals(1700L, circuitBreaker.getMaxBackoff());
+        assertSame(this.mockFeed, circuitBreaker.getListener());
     }
 
     @Test
@@ -220,6 +512,36 @@ public class MonitorWebControllerTest {
                 this.matchBrokerInfo("unknown-broker-id", "x-broker1-x", "unknown-broker-url"));
     }
 
+    @Test
+    public void testAddBrokerWithPollerListener() throws Exception {
+        this.prepareWebController();
+        this.webController.setBrokerPollerListener(this.mockBrokerPollerListener);
+
+        Mockito.when(this.mockBrokerPollerFactory
+                .createPoller("x-broker1-x", this.mockMBeanAccessConnectionFactory, this.mockBrokerPollerListener))
+                .thenReturn(this.mockBrokerPoller);
+
+        this.webController.addBroker("x-broker1-x", "x-location1-x");
+
+        Mockito.verify(this.mockBrokerPollerFactory)
+                .createPoller("x-broker1-x", this.mockMBeanAccessConnectionFactory, this.mockBrokerPollerListener);
+    }
+
+    @Test
+    public void testAddBrokerWithMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.prepareWebController();
+        this.webController.setMetricRegistry(metricRegistry);
+
+        Mockito.when(this.mockBrokerPollerFactory
+                .createPoller("x-broker1-x", this.mockMBeanAccessConnectionFactory, this.mockFeed))
+                .thenReturn(this.mockBrokerPoller);
+
+        this.webController.addBroker("x-broker1-x", "x-location1-x");
+
+        Mockito.verify(this.mockBrokerPoller).setMetricRegistry(metricRegistry);
+    }
+
     @Test
     public void testAddBrokerWildcard() throws Exception {
         this.prepareWebController();
@@ -271,6 +593,75 @@ public class MonitorWebControllerTest {
         Mockito.verify(this.mockBrokerPoller).start();
     }
 
+    @Test
+    public void testAddBrokerNotificationQueueDiscovery() throws Exception {
+        this.prepareWebController();
+        this.webController.setNotificationQueueDiscovery(true);
+
+        this.webController.addBroker("x-broker1-x", "x-location1-x");
+
+        // Subscription happens on the discoverer executor.
+        Mockito.verify(this.mockMBeanAccessConnection, Mockito.timeout(1000)).addNotificationListener(
+                Mockito.eq(MBeanServerDelegate.DELEGATE_NAME), Mockito.any(NotificationQueueDiscoverer.class),
+                Mockito.any(NotificationFilter.class), Mockito.isNull());
+
+        this.webController.shutdown();
+
+        Mockito.verify(this.mockMBeanAccessConnection).removeNotificationListener(
+                Mockito.eq(MBeanServerDelegate.DELEGATE_NAME), Mockito.any(NotificationQueueDiscoverer.class));
+
+        // The reconciliation discoverer also connects through the same factory.
+        Mockito.verify(this.mockMBeanAccessConnection, Mockito.atLeastOnce()).close();
+    }
+
+    @Test
+    public void testAddBrokerWildcardNoBrokers() throws Exception {
+        this.prepareWebController();
+
+        Mockito.when(this.mockJmxActiveMQUtil.queryBrokerNames("x-location1-x")).thenReturn(new String[0]);
+
+        try {
+            this.webController.addBroker("*", "x-location1-x");
+            fail("missing expected exception");
+        } catch (Exception actualExc) {
+            assertEquals("unable to locate broker at x-location1-x", actualExc.getMessage());
+        }
+    }
+
+    @Test
+    public void testAddJolokiaBroker() throws Exception {
+        this.prepareWebController();
+
+        Mockito.when(this.mockBrokerPollerFactory.createPoller("x-broker1-x", null, this.mockFeed))
+                .thenReturn(this.mockBrokerPoller);
+
+        String result = this.webController.addBroker("x-broker1-x", "jolokia:http://x-host-x:8161/api/jolokia");
+
+        assertEquals("jolokia:http://x-host-x:8161/api/jolokia = x-broker1-x", result);
+
+        ArgumentCaptor<JolokiaBrokerStatsJmxAttributePollerFactory> captor =
+                ArgumentCaptor.forClass(JolokiaBrokerStatsJmxAttributePollerFactory.class);
+        Mockito.verify(this.mockBrokerPoller).setJmxPollerFactory(captor.capture());
+        assertEquals("http://x-host-x:8161/api/jolokia", captor.getValue().getJolokiaUrl());
+
+        Mockito.verify(this.mockJmxActiveMQUtil, Mockito.never()).getLocationConnectionFactory(Mockito.anyString());
+        Mockito.verify(this.mockLogger).info("queue auto-discovery is not supported for jolokia address {}",
+                "jolokia:http://x-host-x:8161/api/jolokia");
+    }
+
+    @Test
+    public void testAddJolokiaBrokerWildcard() throws Exception {
+        this.prepareWebController();
+
+        try {
+            this.webController.addBroker("*", "jolokia:http://x-host-x:8161/api/jolokia");
+            fail("missing expected exception");
+        } catch (Exception actualExc) {
+            assertEquals("broker name is required for jolokia address jolokia:http://x-host-x:8161/api/jolokia",
+                    actualExc.getMessage());
+        }
+    }
+
     @Test
     public void testAddTwoBrokersOneLocation() throws Exception {
         this.prepareWebController();
@@ -290,7 +681,8 @@ public class MonitorWebControllerTest {
     public void testAddQueueAllLocations() throws Exception {
         this.prepareWebController();
         Mockito.when(this.mockBrokerRegistry.keys())
-                .thenReturn(new HashSet<>(Arrays.asList("x-location1-x", "x-location2-x")));
+                .thenReturn(new HashSet<>(Arrays.asList("x-location1-x", "x-location2-x",
+                        "jolokia:http://x-host-x:8161/api/jolokia")));
         Mockito.when(this.mockJmxActiveMQUtil.queryBrokerNames("x-location1-x"))
                 .thenReturn(new String[] { "x-broker1-x" });
         Mockito.when(this.mockJmxActiveMQUtil.queryBrokerNames("x-location2-x"))
@@ -322,6 +714,29 @@ public class MonitorWebControllerTest {
         Mockito.verify(this.mockBrokerPoller).stop();
     }
 
+    @Test
+    public void testRemoveBrokerStopsNotificationQueueDiscovery() throws Exception {
+        this.prepareWebController();
+        this.webController.setNotificationQueueDiscovery(true);
+
+        this.webController.addBroker("x-broker1-x", "x-location1-x");
+        Mockito.verify(this.mockMBeanAccessConnection, Mockito.timeout(1000)).addNotificationListener(
+                Mockito.eq(MBeanServerDelegate.DELEGATE_NAME), Mockito.any(NotificationQueueDiscoverer.class),
+                Mockito.any(NotificationFilter.class), Mockito.isNull());
+
+        this.webController.removeBrokerForm("x-location1-x");
+
+        Mockito.verify(this.mockMBeanAccessConnection).removeNotificationListener(
+                Mockito.eq(MBeanServerDelegate.DELEGATE_NAME), Mockito.any(NotificationQueueDiscoverer.class));
+        Mockito.verify(this.mockMBeanAccessConnection, Mockito.atLeastOnce()).close();
+
+        // No longer known, so not stopped again on shutdown.
+        this.webController.shutdown();
+
+        Mockito.verify(this.mockMBeanAccessConnection).removeNotificationListener(
+                Mockito.eq(MBeanServerDelegate.DELEGATE_NAME), Mockito.any(NotificationQueueDiscoverer.class));
+    }
+
     @Test
     public void testRemoveBrokerFormNonExistentBroker() throws Exception {
         this.prepareWebController();
@@ -471,6 +886,7 @@ public class MonitorWebControllerTest {
         this.webController.setWebsocketBrokerStatsFeed(this.mockFeed);
         this.webController.setBrokerPollerFactory(this.mockBrokerPollerFactory);
         this.webController.setJmxActiveMQUtil(this.mockJmxActiveMQUtil);
+        this.webController.setBrokerPollScheduler(this.mockBrokerPollScheduler);
     }
 
     protected BrokerInfo matchBrokerInfo(final String brokerId, final String brokerName, final String brokerUrl) {
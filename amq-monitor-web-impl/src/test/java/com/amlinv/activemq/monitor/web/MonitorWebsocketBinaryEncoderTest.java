@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class MonitorWebsocketBinaryEncoderTest {
+
+    @Test
+    public void testEncodeFrame() throws Exception {
+        byte[] result = MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", this.parse("{\"x-field-x\": 1}"));
+
+        assertArrayEquals(this.expectedFrame(7, 1, 19, "x-field-x", 3, 2), result);
+    }
+
+    @Test
+    public void testEncodeRepeatedFieldNames() throws Exception {
+        byte[] result = MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x",
+                this.parse("{\"a\": {\"x\": 1}, \"b\": {\"x\": 2}}"));
+
+        // Names are indexed in order of first use: action, data, a, x, b.
+        assertArrayEquals(this.expectedFrame(7, 2, 3, "a", 7, 1, 3, "x", 3, 2, 3, "b", 7, 1, 6, 3, 4), result);
+    }
+
+    @Test
+    public void testEncodeIntegers() throws Exception {
+        byte[] result = MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", this.parse("[0, -1, 1, 300]"));
+
+        assertArrayEquals(this.expectedFrame(6, 4, 3, 0, 3, 1, 3, 2, 3, 0xD8, 0x04), result);
+    }
+
+    @Test
+    public void testEncodeDoubles() throws Exception {
+        byte[] result = MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x",
+                this.parse("[1.5, 123456789012345678901234]"));
+
+        // Integers too large for a long are encoded as doubles.
+        long bigBits = Double.doubleToLongBits(123456789012345678901234.0);
+        assertArrayEquals(this.expectedFrame(6, 2, 4, 0x3F, 0xF8, 0, 0, 0, 0, 0, 0, 4,
+                (int) ( bigBits >>> 56 ), (int) ( bigBits >>> 48 ), (int) ( bigBits >>> 40 ),
+                (int) ( bigBits >>> 32 ), (int) ( bigBits >>> 24 ), (int) ( bigBits >>> 16 ),
+                (int) ( bigBits >>> 8 ), (int) bigBits), result);
+    }
+
+    @Test
+    public void testEncodeOtherValues() throws Exception {
+        byte[] result = MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x",
+                this.parse("[null, true, false, \"\u00e9\"]"));
+
+        assertArrayEquals(this.expectedFrame(6, 4, 0, 2, 1, 5, 2, 0xC3, 0xA9), result);
+    }
+
+    @Test
+    public void testEncodeLongString() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for ( int cur = 0; cur < 200; cur++ ) {
+            value.append('x');
+        }
+
+        byte[] result = MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", this.parse("\"" + value + "\""));
+
+        // Lengths of 128 or more take more than one byte.
+        assertArrayEquals(this.expectedFrame(5, 0xC8, 0x01, value.toString()), result);
+    }
+
+    @Test
+    public void testEncodeNumbersOfTree() throws Exception {
+        JsonArray data = new JsonArray();
+        data.add(new JsonPrimitive(300L));
+        data.add(new JsonPrimitive(-1));
+        data.add(new JsonPrimitive(1.5));
+        data.add(new JsonPrimitive(300.0));
+
+        // Numbers built from statistics are encoded by their type, the same as the numbers of their JSON text.
+        assertArrayEquals(MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", this.parse("[300, -1, 1.5, 300.0]")),
+                MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", data));
+    }
+
+    @Test
+    public void testEncodeNullData() throws Exception {
+        assertArrayEquals(this.expectedFrame(0), MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", null));
+        assertArrayEquals(this.expectedFrame(7, 0),
+                MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", new JsonObject()));
+    }
+
+    protected JsonElement parse(String json) {
+        return new JsonParser().parse(json);
+    }
+
+    /**
+     * Build the expected encoding of a frame with action x-action-x and the data given as bytes and strings.
+     */
+    protected byte[] expectedFrame(Object... dataParts) throws Exception {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        this.appendParts(result, 1, 7, 2, 13, "action", 5, 10, "x-action-x", 9, "data");
+        this.appendParts(result, dataParts);
+
+        return result.toByteArray();
+    }
+
+    protected void appendParts(ByteArrayOutputStream buffer, Object... parts) throws Exception {
+        for ( Object onePart : parts ) {
+            if ( onePart instanceof String ) {
+                buffer.write(((String) onePart).getBytes(Charset.forName("UTF-8")));
+            } else {
+                buffer.write((Integer) onePart);
+            }
+        }
+    }
+}
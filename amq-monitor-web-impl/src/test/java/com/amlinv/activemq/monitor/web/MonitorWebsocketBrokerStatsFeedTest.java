@@ -16,21 +16,36 @@
 
 package com.amlinv.activemq.monitor.web;
 
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitState;
+import com.amlinv.activemq.monitor.activemq.BrokerCircuitStatus;
+import com.amlinv.activemq.monitor.alert.AlertEvent;
+import com.amlinv.activemq.monitor.alert.AlertEventType;
 import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
 import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
 import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
 import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.stats.QueueStatisticsSnapshot;
 import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.codahale.metrics.MetricRegistry;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.*;
@@ -68,6 +83,9 @@ public class MonitorWebsocketBrokerStatsFeedTest {
         this.brokerStatsPackage = new BrokerStatsPackage(this.testBrokerStats, this.testQueueStats);
 
         Mockito.when(this.mockWebsocketRegistry.values()).thenReturn(Arrays.asList(this.mockMonitorWebsocket));
+        Mockito.when(this.mockMonitorWebsocket.getSubscription()).thenReturn(MonitorWebsocketSubscription.ALL);
+        Mockito.when(this.mockQueueStatisticsRegistry.updateSnapshot()).thenReturn(new QueueStatisticsSnapshot(0,
+                Collections.<String, ActiveMQQueueStats>emptyMap(), Collections.<String>emptySet()));
     }
 
     @Test
@@ -100,6 +118,17 @@ public class MonitorWebsocketBrokerStatsFeedTest {
         assertSame(this.mockLogger, this.feed.getLog());
     }
 
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNotNull(this.feed.getMetricRegistry());
+        assertNotSame(metricRegistry, this.feed.getMetricRegistry());
+
+        this.feed.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, this.feed.getMetricRegistry());
+    }
+
     @Test
     public void testInit() throws Exception {
         this.feed.init();
@@ -114,23 +143,718 @@ public class MonitorWebsocketBrokerStatsFeedTest {
 
         this.feed.onBrokerPollComplete(this.brokerStatsPackage);
 
-        ArgumentCaptor<String> jsonCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
 
-        Mockito.verify(this.mockMonitorWebsocket)
-                .fireMonitorEventNB(Mockito.eq("brokerStats"), jsonCaptor.capture());
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor.capture(), Mockito.eq("x-broker-x"));
 
-        String json = jsonCaptor.getValue();
+        assertEquals("brokerStats", frameCaptor.getValue().getAction());
+        String json = frameCaptor.getValue().getText();
         log.info(json);
         assertTrue(json.matches("(?s).*\"brokerStats\".*\"brokerName\"[\\s]*:[\\s]*\"x-broker-x\".*"));
         assertTrue(json.matches("(?s).*\"brokerStats\".*\"totalMessageCount\"[\\s]*:[\\s]*112211.*"));
         assertTrue(json.matches("(?s).*\"queueStats\".*\"queueName\"[\\s]*:[\\s]*\"x-queue-x\".*"));
     }
 
+    @Test
+    public void testOnBrokerCircuitStateChange() throws Exception {
+        this.setupFeed();
+
+        this.feed.onBrokerCircuitStateChange(
+                new BrokerCircuitStatus("x-broker-x", BrokerCircuitState.OPEN, 3, 5000L, 4500L));
+
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor.capture(), Mockito.eq("x-broker-x"));
+
+        assertEquals("brokerCircuitState", frameCaptor.getValue().getAction());
+        String json = frameCaptor.getValue().getText();
+        assertTrue(json.matches("(?s).*\"state\"[\\s]*:[\\s]*\"OPEN\".*"));
+        assertTrue(json.matches("(?s).*\"consecutiveFailures\"[\\s]*:[\\s]*3.*"));
+        assertTrue(json.matches("(?s).*\"retryDelay\"[\\s]*:[\\s]*4500.*"));
+    }
+
+    @Test
+    public void testOnAlert() throws Exception {
+        this.setupFeed();
+
+        Map<String, Double> values = new HashMap<>();
+        values.put("queueSize", 11.0);
+        this.feed.onAlert(new AlertEvent(AlertEventType.FIRING, "x-rule-x", "queueSize > 10", "x-broker-x",
+                "x-queue-x", values, 1300L));
+
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor.capture(), Mockito.eq((String) null));
+
+        assertEquals("alert", frameCaptor.getValue().getAction());
+        String json = frameCaptor.getValue().getText();
+        assertTrue(json.matches("(?s).*\"type\"[\\s]*:[\\s]*\"FIRING\".*"));
+        assertTrue(json.matches("(?s).*\"ruleName\"[\\s]*:[\\s]*\"x-rule-x\".*"));
+        assertTrue(json.matches("(?s).*\"queueSize\"[\\s]*:[\\s]*11\\.0.*"));
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.setupFeed();
+        this.feed.setMetricRegistry(metricRegistry);
+
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor.capture(), Mockito.eq("x-broker-x"));
+
+        assertEquals(1, metricRegistry.timer(
+                "com.amlinv.activemq.monitor.web.MonitorWebsocketBrokerStatsFeed.brokerStats.serialization").getCount());
+        assertEquals(1, metricRegistry.timer(
+                "com.amlinv.activemq.monitor.web.MonitorWebsocketBrokerStatsFeed.queueStats.serialization").getCount());
+        assertEquals(frameCaptor.getValue().getText().length(), metricRegistry.histogram(
+                "com.amlinv.activemq.monitor.web.MonitorWebsocketBrokerStatsFeed.brokerStats.payloadSize")
+                .getSnapshot().getMax());
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteSharesFrame() throws Exception {
+        MonitorWebsocket mockMonitorWebsocket2 = Mockito.mock(MonitorWebsocket.class);
+        Mockito.when(mockMonitorWebsocket2.getSubscription()).thenReturn(MonitorWebsocketSubscription.ALL);
+        Mockito.when(this.mockWebsocketRegistry.values())
+                .thenReturn(Arrays.asList(this.mockMonitorWebsocket, mockMonitorWebsocket2));
+        this.setupFeed();
+
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor1 = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor2 = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor1.capture(), Mockito.eq("x-broker-x"));
+        Mockito.verify(mockMonitorWebsocket2).fireMonitorFrameNB(frameCaptor2.capture(), Mockito.eq("x-broker-x"));
+
+        assertSame(frameCaptor1.getValue(), frameCaptor2.getValue());
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteQueueStatsIncremental() throws Exception {
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+
+        ActiveMQQueueJmxStats queue1Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x");
+        ActiveMQQueueJmxStats queue2Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x");
+        queue1Stats.setQueueSize(11);
+        queue2Stats.setQueueSize(22);
+        this.testQueueStats.put("x-queue1-x", queue1Stats);
+        this.testQueueStats.put("x-queue2-x", queue2Stats);
+
+        String firstJson = this.feed.prepareQueueStatsJson();
+        assertEquals("{}", firstJson);
+
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        String secondJson = this.feed.prepareQueueStatsJson();
+
+        // Same content as serializing the full map at once.
+        assertEquals(new Gson().toJson(queueStatisticsRegistry.getQueueStats()), secondJson);
+
+        // No changes: the cached string is reused.
+        assertSame(secondJson, this.feed.prepareQueueStatsJson());
+
+        // Remove one queue and update the other.
+        DestinationRegistryListener statsRegistryListener = queueStatisticsRegistry.getQueueRegistryListener();
+        statsRegistryListener.onRemoveEntry("x-queue1-x", new DestinationState("x-queue1-x"));
+        queue2Stats.setQueueSize(33);
+        queueStatisticsRegistry.onUpdatedStats(queue2Stats);
+
+        String thirdJson = this.feed.prepareQueueStatsJson();
+        assertFalse(thirdJson.contains("x-queue1-x"));
+        assertTrue(thirdJson.matches("(?s).*\"queueSize\"[\\s]*:[\\s]*33.*"));
+        assertEquals(new Gson().toJson(queueStatisticsRegistry.getQueueStats()), thirdJson);
+    }
+
+    @Test
+    public void testGetSetQueueStatsDeltaMode() throws Exception {
+        assertFalse(this.feed.isQueueStatsDeltaMode());
+
+        this.feed.setQueueStatsDeltaMode(true);
+        assertTrue(this.feed.isQueueStatsDeltaMode());
+    }
+
+    @Test
+    public void testGetSetTopQueuesLimit() throws Exception {
+        assertEquals(0, this.feed.getTopQueuesLimit());
+
+        this.feed.setTopQueuesLimit(13);
+        assertEquals(13, this.feed.getTopQueuesLimit());
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteTopQueues() throws Exception {
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+        this.feed.setTopQueuesLimit(1);
+
+        ActiveMQQueueJmxStats queue1Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x");
+        ActiveMQQueueJmxStats queue2Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x");
+        queue1Stats.setQueueSize(11);
+        queue2Stats.setQueueSize(22);
+        this.testQueueStats.put("x-queue1-x", queue1Stats);
+        this.testQueueStats.put("x-queue2-x", queue2Stats);
+
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        List<MonitorWebsocketFrame> topQueuesFrames = this.captureFrames("topQueues");
+        assertEquals(1, topQueuesFrames.size());
+
+        JsonObject topQueues = new Gson().fromJson(topQueuesFrames.get(0).getText(), JsonObject.class)
+                .getAsJsonObject("data");
+        assertEquals(1, topQueues.getAsJsonArray("queueSize").size());
+        assertEquals("x-queue2-x",
+                topQueues.getAsJsonArray("queueSize").get(0).getAsJsonObject().get("queueName").getAsString());
+        assertTrue(topQueues.has("backlogGrowth"));
+
+        // Unchanged rankings are not sent again.
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        assertEquals(1, this.captureFrames("topQueues").size());
+    }
+
+    @Test
+    public void testGetClientListener() throws Exception {
+        assertNotNull(this.feed.getClientListener());
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteDeltaMode() throws Exception {
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+        this.feed.setQueueStatsDeltaMode(true);
+
+        ActiveMQQueueJmxStats queue1Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x");
+        ActiveMQQueueJmxStats queue2Stats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x");
+        queue1Stats.setQueueSize(11);
+        queue2Stats.setQueueSize(22);
+        this.testQueueStats.put("x-queue1-x", queue1Stats);
+        this.testQueueStats.put("x-queue2-x", queue2Stats);
+
+        // First update: all fields of both queues.
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        JsonObject delta = this.captureDelta(1);
+        assertEquals(1, delta.get("seq").getAsLong());
+        assertEquals(11, delta.getAsJsonObject("changed").getAsJsonObject("x-queue1-x").get("queueSize").getAsLong());
+        assertEquals("x-queue2-x",
+                delta.getAsJsonObject("changed").getAsJsonObject("x-queue2-x").get("queueName").getAsString());
+
+        // Second update: only the changed field of the changed queue.
+        queue2Stats.setQueueSize(33);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        delta = this.captureDelta(2);
+        assertEquals(2, delta.get("seq").getAsLong());
+        assertEquals(1, delta.getAsJsonObject("changed").entrySet().size());
+        JsonObject queue2Delta = delta.getAsJsonObject("changed").getAsJsonObject("x-queue2-x");
+        assertEquals(1, queue2Delta.entrySet().size());
+        assertEquals(33, queue2Delta.get("queueSize").getAsLong());
+        assertEquals(0, delta.getAsJsonArray("removed").size());
+
+        // Removal.
+        DestinationRegistryListener statsRegistryListener = queueStatisticsRegistry.getQueueRegistryListener();
+        statsRegistryListener.onRemoveEntry("x-queue1-x", new DestinationState("x-queue1-x"));
+        delta = this.feed.prepareQueueStatsDelta();
+        assertEquals(3, delta.get("seq").getAsLong());
+        assertEquals(0, delta.getAsJsonObject("changed").entrySet().size());
+        assertEquals(1, delta.getAsJsonArray("removed").size());
+        assertEquals("x-queue1-x", delta.getAsJsonArray("removed").get(0).getAsString());
+
+        // Nothing changed.
+        assertNull(this.feed.prepareQueueStatsDelta());
+
+        // Snapshot matches the latest sequence number and contains the full statistics.
+        JsonObject snapshot = new Gson().fromJson(this.feed.prepareQueueStatsSnapshotJson(), JsonObject.class);
+        assertEquals(3, snapshot.get("seq").getAsLong());
+        assertEquals(1, snapshot.getAsJsonObject("queues").entrySet().size());
+        assertEquals(33, snapshot.getAsJsonObject("queues").getAsJsonObject("x-queue2-x").get("queueSize").getAsLong());
+    }
+
+    @Test
+    public void testClientListenerOpenSendsSnapshotInDeltaMode() throws Exception {
+        this.setupFeed();
+        this.feed.setQueueStatsDeltaMode(true);
+
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+
+        this.verifyClientFrames("queueStatsSnapshot", "{\"seq\":0,\"queues\":{}}");
+    }
+
+    @Test
+    public void testSnapshotMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.setupFeed();
+        this.feed.setMetricRegistry(metricRegistry);
+        this.feed.setQueueStatsDeltaMode(true);
+
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+
+        assertEquals(1, metricRegistry.timer(
+                "com.amlinv.activemq.monitor.web.MonitorWebsocketBrokerStatsFeed.queueStatsSnapshot.serialization")
+                .getCount());
+        assertEquals("{\"seq\":0,\"queues\":{}}".length(), metricRegistry.histogram(
+                "com.amlinv.activemq.monitor.web.MonitorWebsocketBrokerStatsFeed.queueStatsSnapshot.payloadSize")
+                .getSnapshot().getMax());
+    }
+
+    @Test
+    public void testClientListenerOpenNoDeltaMode() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+
+        Mockito.verifyZeroInteractions(this.mockMonitorWebsocket);
+    }
+
+    @Test
+    public void testClientListenerResync() throws Exception {
+        this.setupFeed();
+        this.feed.setQueueStatsDeltaMode(true);
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket, "{\"action\": \"queueStatsResync\"}");
+
+        this.verifyClientFrames("queueStatsSnapshot", "{\"seq\":0,\"queues\":{}}");
+    }
+
+    @Test
+    public void testClientListenerResyncNoDeltaMode() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket, "{\"action\": \"queueStatsResync\"}");
+
+        Mockito.verifyZeroInteractions(this.mockMonitorWebsocket);
+        Mockito.verify(this.mockLogger).debug("ignoring queue stats resync request; delta mode is disabled");
+    }
+
+    @Test
+    public void testClientListenerUnrecognizedMessage() throws Exception {
+        this.setupFeed();
+        this.feed.setQueueStatsDeltaMode(true);
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket, "{\"action\": \"x-action-x\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket, "[1, 2]");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket, "{x-not-json-x");
+
+        Mockito.verifyZeroInteractions(this.mockMonitorWebsocket);
+        Mockito.verify(this.mockLogger).debug(Mockito.eq("ignoring unrecognized client message: msg={}"),
+                Mockito.eq("{x-not-json-x"), Mockito.any(Exception.class));
+    }
+
+    @Test
+    public void testClientListenerSubscribe() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket, "{\"action\": \"subscribe\", " +
+                "\"queues\": [\"orders.*\"], \"events\": [\"queueStats\", \"brokerStats\"]}");
+
+        Mockito.verify(this.mockMonitorWebsocket).setSubscription(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Arrays.asList("brokerStats", "queueStats")));
+
+        // Not in delta mode, so no snapshot.
+        this.verifyClientFrames("queueStatsSnapshot");
+    }
+
+    @Test
+    public void testClientListenerSubscribeInvalid() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"subscribe\", \"queues\": \"orders.*\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"subscribe\", \"brokers\": [{}]}");
+
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.never())
+                .setSubscription(Mockito.any(MonitorWebsocketSubscription.class));
+        Mockito.verify(this.mockLogger, Mockito.times(2)).debug(
+                Mockito.eq("ignoring invalid client subscription: msg={}"), Mockito.any(), Mockito.any(Exception.class));
+    }
+
+    @Test
+    public void testClientListenerSubscribeDeltaModeSendsFilteredSnapshot() throws Exception {
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+        this.feed.setQueueStatsDeltaMode(true);
+
+        this.addQueueStats("orders.in", 11);
+        this.addQueueStats("billing", 22);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.when(this.mockMonitorWebsocket.getSubscription()).thenReturn(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"subscribe\", \"queues\": [\"orders.*\"]}");
+
+        List<MonitorWebsocketFrame> snapshotFrames = this.captureFrames("queueStatsSnapshot");
+        assertEquals(1, snapshotFrames.size());
+
+        JsonObject snapshot = new Gson().fromJson(snapshotFrames.get(0).getText(), JsonObject.class)
+                .getAsJsonObject("data");
+        assertEquals(1, snapshot.get("seq").getAsLong());
+        assertEquals(1, snapshot.getAsJsonObject("queues").entrySet().size());
+        assertTrue(snapshot.getAsJsonObject("queues").has("orders.in"));
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteSubscriptionGroups() throws Exception {
+        MonitorWebsocketSubscription ordersSubscription = new MonitorWebsocketSubscription(Arrays.asList("orders.*"),
+                Collections.<String>emptySet(), Collections.<String>emptySet());
+        MonitorWebsocket ordersWebsocket1 = this.mockWebsocket(ordersSubscription);
+        MonitorWebsocket ordersWebsocket2 = this.mockWebsocket(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+        Mockito.when(this.mockWebsocketRegistry.values())
+                .thenReturn(Arrays.asList(ordersWebsocket1, this.mockMonitorWebsocket, ordersWebsocket2));
+
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+
+        this.addQueueStats("orders.in", 11);
+        this.addQueueStats("billing", 22);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        // Clients with identical subscriptions share the frames.
+        Map<String, MonitorWebsocketFrame> orders1Frames = this.captureFramesByAction(ordersWebsocket1);
+        Map<String, MonitorWebsocketFrame> orders2Frames = this.captureFramesByAction(ordersWebsocket2);
+        Map<String, MonitorWebsocketFrame> allFrames = this.captureFramesByAction(this.mockMonitorWebsocket);
+
+        assertSame(orders1Frames.get("queueStats"), orders2Frames.get("queueStats"));
+        assertSame(orders1Frames.get("brokerStats"), orders2Frames.get("brokerStats"));
+        assertNotSame(orders1Frames.get("queueStats"), allFrames.get("queueStats"));
+
+        JsonObject ordersQueueStats = this.frameData(orders1Frames.get("queueStats"));
+        assertEquals(1, ordersQueueStats.entrySet().size());
+        assertTrue(ordersQueueStats.has("orders.in"));
+        assertEquals(2, this.frameData(allFrames.get("queueStats")).entrySet().size());
+
+        JsonObject ordersBrokerStats = this.frameData(orders1Frames.get("brokerStats"));
+        assertEquals(1, ordersBrokerStats.getAsJsonObject("queueStats").entrySet().size());
+        assertEquals("x-broker-x",
+                ordersBrokerStats.getAsJsonObject("brokerStats").get("brokerName").getAsString());
+        assertEquals(2, this.frameData(allFrames.get("brokerStats")).getAsJsonObject("queueStats").entrySet().size());
+    }
+
+    @Test
+    public void testBinaryFramesEncodedFromData() throws Exception {
+        MonitorWebsocket ordersWebsocket = this.mockWebsocket(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+        Mockito.when(this.mockWebsocketRegistry.values())
+                .thenReturn(Arrays.asList(ordersWebsocket, this.mockMonitorWebsocket));
+
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+        this.feed.setTopQueuesLimit(2);
+
+        this.addQueueStats("orders.in", 11);
+        this.addQueueStats("billing", 22);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        this.feed.setQueueStatsDeltaMode(true);
+
+        // Like the poller, reuse the package for the next poll; the frames of the prior poll may not be encoded yet.
+        this.addQueueStats("orders.in", 12);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        this.feed.getQueueRegistryListener().onPutEntry("orders.out", new DestinationState("orders.out"));
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+
+        // Every frame's binary encoding, built from its data, matches the encoding of its text.
+        List<MonitorWebsocketFrame> frames = new ArrayList<>();
+        for ( MonitorWebsocket oneWebsocket : Arrays.asList(ordersWebsocket, this.mockMonitorWebsocket) ) {
+            ArgumentCaptor<MonitorWebsocketFrame> frameCaptor =
+                    ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+            Mockito.verify(oneWebsocket, Mockito.atLeastOnce())
+                    .fireMonitorFrameNB(frameCaptor.capture(), Mockito.anyString());
+            frames.addAll(frameCaptor.getAllValues());
+        }
+
+        List<String> actions = new ArrayList<>();
+        for ( MonitorWebsocketFrame oneFrame : frames ) {
+            actions.add(oneFrame.getAction());
+
+            assertEquals(oneFrame.getAction(), ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame(
+                    oneFrame.getAction(), new JsonParser().parse(oneFrame.getText()).getAsJsonObject().get("data"))),
+                    oneFrame.getBinary());
+        }
+
+        assertTrue(actions.containsAll(Arrays.asList("brokerStats", "queueStats", "queueStatsDelta", "topQueues",
+                "queueAdded", "queueStatsSnapshot")));
+    }
+
+    @Test
+    public void testQueueStatsBinaryBeforeAndAfterChange() throws Exception {
+        MonitorWebsocket ordersWebsocket = this.mockWebsocket(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+        Mockito.when(this.mockWebsocketRegistry.values())
+                .thenReturn(Arrays.asList(ordersWebsocket, this.mockMonitorWebsocket));
+
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(new QueueStatisticsRegistry());
+
+        this.addQueueStats("orders.in", 11);
+        this.addQueueStats("billing", 22);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        // Encoded from the cached trees while they match the frames, and from the frames' text once they change.
+        MonitorWebsocketFrame allFrame = this.captureFramesByAction(this.mockMonitorWebsocket).get("queueStats");
+        MonitorWebsocketFrame ordersFrame = this.captureFramesByAction(ordersWebsocket).get("queueStats");
+        this.assertBinaryMatchesText(allFrame);
+
+        this.addQueueStats("orders.in", 12);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        this.assertBinaryMatchesText(ordersFrame);
+        assertEquals(11L, this.frameData(ordersFrame).getAsJsonObject("orders.in").get("queueSize").getAsLong());
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteDeltaModeSubscription() throws Exception {
+        MonitorWebsocket ordersWebsocket = this.mockWebsocket(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+        Mockito.when(this.mockWebsocketRegistry.values()).thenReturn(Arrays.asList(ordersWebsocket));
+
+        QueueStatisticsRegistry queueStatisticsRegistry = new QueueStatisticsRegistry();
+        this.setupFeed();
+        this.feed.setQueueStatisticsRegistry(queueStatisticsRegistry);
+        this.feed.setQueueStatsDeltaMode(true);
+
+        this.addQueueStats("orders.in", 11);
+        this.addQueueStats("billing", 22);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        JsonObject delta = this.frameData(this.captureFramesByAction(ordersWebsocket).get("queueStatsDelta"));
+        assertEquals(1, delta.get("seq").getAsLong());
+        assertEquals(1, delta.getAsJsonObject("changed").entrySet().size());
+        assertTrue(delta.getAsJsonObject("changed").has("orders.in"));
+    }
+
+    @Test
+    public void testFilterQueueStatsDelta() throws Exception {
+        JsonObject delta = new Gson().fromJson("{\"seq\":7,\"changed\":{\"orders.in\":{\"queueSize\":1}," +
+                "\"billing\":{\"queueSize\":2}},\"removed\":[\"orders.out\",\"billing.dlq\"]}", JsonObject.class);
+
+        JsonObject result = this.feed.filterQueueStatsDelta(delta, new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+
+        assertEquals("{\"seq\":7,\"changed\":{\"orders.in\":{\"queueSize\":1}},\"removed\":[\"orders.out\"]}",
+                new Gson().toJson(result));
+    }
+
+    @Test
+    public void testBrokerAndEventSubscription() throws Exception {
+        Mockito.when(this.mockMonitorWebsocket.getSubscription()).thenReturn(new MonitorWebsocketSubscription(
+                Collections.<String>emptySet(), Arrays.asList("x-broker2-x"),
+                Arrays.asList("brokerStats", "brokerCircuitState")));
+        this.setupFeed();
+
+        // Another broker's statistics, and an event type not subscribed.
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        this.feed.onBrokerCircuitStateChange(
+                new BrokerCircuitStatus("x-broker-x", BrokerCircuitState.OPEN, 3, 5000L, 4500L));
+
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.never())
+                .fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.anyString());
+
+        this.feed.onBrokerCircuitStateChange(
+                new BrokerCircuitStatus("x-broker2-x", BrokerCircuitState.OPEN, 3, 5000L, 4500L));
+
+        Mockito.verify(this.mockMonitorWebsocket)
+                .fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.eq("x-broker2-x"));
+    }
+
+    @Test
+    public void testRegistryListenerQueueSubscription() throws Exception {
+        Mockito.when(this.mockMonitorWebsocket.getSubscription()).thenReturn(new MonitorWebsocketSubscription(
+                Arrays.asList("orders.*"), Collections.<String>emptySet(), Collections.<String>emptySet()));
+        this.setupFeed();
+
+        DestinationRegistryListener registryListener = this.feed.getQueueRegistryListener();
+        registryListener.onPutEntry("billing", new DestinationState("billing"));
+        registryListener.onRemoveEntry("billing", new DestinationState("billing"));
+
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.never())
+                .fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.anyString());
+
+        registryListener.onPutEntry("orders.in", new DestinationState("orders.in"));
+
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor.capture(), Mockito.eq((String) null));
+        assertEquals("queueAdded", frameCaptor.getValue().getAction());
+    }
+
+    @Test
+    public void testGetSetMinClientUpdateInterval() throws Exception {
+        assertEquals(0L, this.feed.getMinClientUpdateInterval());
+
+        this.feed.setMinClientUpdateInterval(3000L);
+        assertEquals(3000L, this.feed.getMinClientUpdateInterval());
+    }
+
+    @Test
+    public void testGetSetMaxClientUpdateInterval() throws Exception {
+        assertEquals(300000L, this.feed.getMaxClientUpdateInterval());
+
+        this.feed.setMaxClientUpdateInterval(60000L);
+        assertEquals(60000L, this.feed.getMaxClientUpdateInterval());
+    }
+
+    @Test
+    public void testClientListenerSetUpdateInterval() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": 15000}");
+
+        Mockito.verify(this.mockMonitorWebsocket).setUpdateInterval(15000L);
+        this.verifyClientFrames("updateInterval", "{\"interval\":15000}");
+    }
+
+    @Test
+    public void testClientListenerSetUpdateIntervalLimited() throws Exception {
+        this.setupFeed();
+        this.feed.setMinClientUpdateInterval(3000L);
+        this.feed.setMaxClientUpdateInterval(60000L);
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": 0}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": 900000}");
+
+        InOrder inOrder = Mockito.inOrder(this.mockMonitorWebsocket);
+        inOrder.verify(this.mockMonitorWebsocket).setUpdateInterval(3000L);
+        inOrder.verify(this.mockMonitorWebsocket).setUpdateInterval(60000L);
+        this.verifyClientFrames("updateInterval", "{\"interval\":3000}", "{\"interval\":60000}");
+    }
+
+    @Test
+    public void testClientListenerSetUpdateIntervalInvalid() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": \"x-interval-x\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": -1}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": [1000]}");
+
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.never()).setUpdateInterval(Mockito.anyLong());
+        Mockito.verify(this.mockLogger, Mockito.times(4)).debug(
+                Mockito.eq("ignoring invalid client update interval: msg={}"), Mockito.any(JsonObject.class));
+    }
+
+    @Test
+    public void testClientListenerUpdateIntervalSendFailure() throws Exception {
+        this.setupFeed();
+
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.doThrow(rtExc).when(this.mockMonitorWebsocket)
+                .fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.isNull(String.class));
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setUpdateInterval\", \"interval\": 15000}");
+
+        Mockito.verify(this.mockLogger).info("error attempting to send update interval to listener", rtExc);
+    }
+
+    @Test
+    public void testClientListenerOpenAppliesMinUpdateInterval() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.never()).setUpdateInterval(Mockito.anyLong());
+
+        this.feed.setMinClientUpdateInterval(3000L);
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+        Mockito.verify(this.mockMonitorWebsocket).setUpdateInterval(3000L);
+    }
+
+    @Test
+    public void testGetSetBinaryEncodingAllowed() throws Exception {
+        assertTrue(this.feed.isBinaryEncodingAllowed());
+
+        this.feed.setBinaryEncodingAllowed(false);
+        assertFalse(this.feed.isBinaryEncodingAllowed());
+    }
+
+    @Test
+    public void testClientListenerSetEncoding() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\", \"encoding\": \"binary\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\", \"encoding\": \"json\"}");
+
+        InOrder inOrder = Mockito.inOrder(this.mockMonitorWebsocket);
+        inOrder.verify(this.mockMonitorWebsocket).setBinaryEncoding(true);
+        inOrder.verify(this.mockMonitorWebsocket).setBinaryEncoding(false);
+        this.verifyClientFrames("encoding", "{\"encoding\":\"binary\"}", "{\"encoding\":\"json\"}");
+    }
+
+    @Test
+    public void testClientListenerSetEncodingBinaryNotAllowed() throws Exception {
+        this.setupFeed();
+        this.feed.setBinaryEncodingAllowed(false);
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\", \"encoding\": \"binary\"}");
+
+        Mockito.verify(this.mockMonitorWebsocket).setBinaryEncoding(false);
+        this.verifyClientFrames("encoding", "{\"encoding\":\"json\"}");
+    }
+
+    @Test
+    public void testClientListenerSetEncodingInvalid() throws Exception {
+        this.setupFeed();
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\", \"encoding\": \"x-encoding-x\"}");
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\", \"encoding\": [\"binary\"]}");
+
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.never()).setBinaryEncoding(Mockito.anyBoolean());
+        Mockito.verify(this.mockLogger, Mockito.times(3)).debug(
+                Mockito.eq("ignoring invalid client encoding: msg={}"), Mockito.any(JsonObject.class));
+    }
+
+    @Test
+    public void testClientListenerEncodingSendFailure() throws Exception {
+        this.setupFeed();
+
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.doThrow(rtExc).when(this.mockMonitorWebsocket)
+                .fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.isNull(String.class));
+
+        this.feed.getClientListener().onClientMessage(this.mockMonitorWebsocket,
+                "{\"action\": \"setEncoding\", \"encoding\": \"binary\"}");
+
+        Mockito.verify(this.mockLogger).info("error attempting to send encoding to listener", rtExc);
+    }
+
+    @Test
+    public void testClientListenerSnapshotSendFailure() throws Exception {
+        this.setupFeed();
+        this.feed.setQueueStatsDeltaMode(true);
+
+        RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
+        Mockito.doThrow(rtExc).when(this.mockMonitorWebsocket)
+                .fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.isNull(String.class));
+
+        this.feed.getClientListener().onClientOpen(this.mockMonitorWebsocket);
+
+        Mockito.verify(this.mockLogger).info("error attempting to send queue stats snapshot to listener", rtExc);
+    }
+
     @Test
     public void testOnBrokerPollCompleteExceptionDuringFireNotification() throws Exception {
         RuntimeException rtExc = new RuntimeException("x-rt-exc-x");
         Mockito.doThrow(rtExc).when(this.mockMonitorWebsocket)
-                .fireMonitorEventNB(Mockito.eq("brokerStats"), Mockito.anyString());
+.fireMonitorFrameNB(Mockito.any(MonitorWebsocketFrame.class), Mockito.eq("x-broker-x"));
 
         setupFeed();
 
@@ -146,7 +870,7 @@ public class MonitorWebsocketBrokerStatsFeedTest {
         DestinationRegistryListener listener = this.feed.getQueueRegistryListener();
         listener.onPutEntry("x-queue-x", new DestinationState("x-queue-x"));
 
-        Mockito.verify(this.mockMonitorWebsocket).fireMonitorEventNB("queueAdded", "\"x-queue-x\"");
+        this.verifyFrame("queueAdded", "\"x-queue-x\"");
     }
 
     @Test
@@ -156,7 +880,7 @@ public class MonitorWebsocketBrokerStatsFeedTest {
         DestinationRegistryListener listener = this.feed.getQueueRegistryListener();
         listener.onRemoveEntry("x-queue-x", new DestinationState("x-queue-x"));
 
-        Mockito.verify(this.mockMonitorWebsocket).fireMonitorEventNB("queueRemoved", "\"x-queue-x\"");
+        this.verifyFrame("queueRemoved", "\"x-queue-x\"");
     }
 
     @Test
@@ -169,6 +893,98 @@ public class MonitorWebsocketBrokerStatsFeedTest {
         Mockito.verifyZeroInteractions(this.mockMonitorWebsocket);
     }
 
+    protected JsonObject captureDelta(int count) {
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.times(count)).fireMonitorFrameNB(frameCaptor.capture(),
+                Mockito.eq(""));
+
+        MonitorWebsocketFrame frame = frameCaptor.getValue();
+        assertEquals("queueStatsDelta", frame.getAction());
+        assertTrue(frame instanceof MonitorWebsocketQueueStatsDeltaFrame);
+
+        return new Gson().fromJson(frame.getText(), JsonObject.class).getAsJsonObject("data");
+    }
+
+    protected void verifyFrame(String action, String content) {
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket).fireMonitorFrameNB(frameCaptor.capture(), Mockito.eq((String) null));
+
+        assertEquals(action, frameCaptor.getValue().getAction());
+        assertEquals(new MonitorWebsocketFrame(action, content).getText(), frameCaptor.getValue().getText());
+    }
+
+    protected List<MonitorWebsocketFrame> captureFrames(String action) throws Exception {
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.atLeastOnce())
+                .fireMonitorFrameNB(frameCaptor.capture(), Mockito.anyString());
+
+        List<MonitorWebsocketFrame> result = new ArrayList<>();
+        for ( MonitorWebsocketFrame oneFrame : frameCaptor.getAllValues() ) {
+            if ( action.equals(oneFrame.getAction()) ) {
+                result.add(oneFrame);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Verify the frames of the given action sent to the client alone, without conflation, have the given contents.
+     */
+    protected void verifyClientFrames(String action, String... contents) {
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(this.mockMonitorWebsocket, Mockito.atLeast(0))
+                .fireMonitorFrameNB(frameCaptor.capture(), Mockito.isNull(String.class));
+
+        List<String> actual = new ArrayList<>();
+        for ( MonitorWebsocketFrame oneFrame : frameCaptor.getAllValues() ) {
+            if ( action.equals(oneFrame.getAction()) ) {
+                actual.add(oneFrame.getText());
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        for ( String oneContent : contents ) {
+            expected.add(new MonitorWebsocketFrame(action, oneContent).getText());
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    protected MonitorWebsocket mockWebsocket(MonitorWebsocketSubscription subscription) {
+        MonitorWebsocket result = Mockito.mock(MonitorWebsocket.class);
+        Mockito.when(result.getSubscription()).thenReturn(subscription);
+
+        return result;
+    }
+
+    protected void addQueueStats(String queueName, long queueSize) {
+        ActiveMQQueueJmxStats queueStats = new ActiveMQQueueJmxStats("x-broker-x", queueName);
+        queueStats.setQueueSize(queueSize);
+        this.testQueueStats.put(queueName, queueStats);
+    }
+
+    protected Map<String, MonitorWebsocketFrame> captureFramesByAction(MonitorWebsocket websocket) {
+        ArgumentCaptor<MonitorWebsocketFrame> frameCaptor = ArgumentCaptor.forClass(MonitorWebsocketFrame.class);
+        Mockito.verify(websocket, Mockito.atLeastOnce()).fireMonitorFrameNB(frameCaptor.capture(), Mockito.anyString());
+
+        Map<String, MonitorWebsocketFrame> result = new HashMap<>();
+        for ( MonitorWebsocketFrame oneFrame : frameCaptor.getAllValues() ) {
+            result.put(oneFrame.getAction(), oneFrame);
+        }
+
+        return result;
+    }
+
+    protected void assertBinaryMatchesText(MonitorWebsocketFrame frame) {
+        assertEquals(ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame(frame.getAction(),
+                new JsonParser().parse(frame.getText()).getAsJsonObject().get("data"))), frame.getBinary());
+    }
+
+    protected JsonObject frameData(MonitorWebsocketFrame frame) {
+        return new Gson().fromJson(frame.getText(), JsonObject.class).getAsJsonObject("data");
+    }
+
     protected void setupFeed() {
         this.feed.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
         this.feed.setWebsocketRegistry(this.mockWebsocketRegistry);
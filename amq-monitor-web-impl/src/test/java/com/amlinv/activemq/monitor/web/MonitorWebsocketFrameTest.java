@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.web;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MonitorWebsocketFrameTest {
+
+    @Test
+    public void testFrame() throws Exception {
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "{\"x-field-x\": 1}");
+
+        assertEquals("x-action-x", frame.getAction());
+        assertEquals("{\"action\": \"x-action-x\", \"data\": {\"x-field-x\": 1}}", frame.getText());
+    }
+
+    @Test
+    public void testConflate() throws Exception {
+        MonitorWebsocketFrame pending = new MonitorWebsocketFrame("x-action-x", "x-content1-x");
+        MonitorWebsocketFrame newer = new MonitorWebsocketFrame("x-action-x", "x-content2-x");
+
+        assertSame(newer, pending.conflate(newer));
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "{\"x-field-x\": 1}");
+
+        ByteBuffer binary = frame.getBinary();
+        assertTrue(binary.isReadOnly());
+        assertEquals(ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x",
+                new JsonParser().parse("{\"x-field-x\": 1}"))), binary);
+
+        // Each call returns a new buffer over the same encoding.
+        binary.get();
+        assertNotSame(binary, frame.getBinary());
+        assertEquals(0, frame.getBinary().position());
+    }
+
+    @Test
+    public void testBinaryFromTree() throws Exception {
+        JsonObject data = new JsonObject();
+        data.addProperty("x-field-x", 1L);
+
+        // The tree is encoded as given; the content is not parsed.
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "x-not-json-x", data);
+
+        assertEquals("{\"action\": \"x-action-x\", \"data\": x-not-json-x}", frame.getText());
+        assertEquals(ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", data)),
+                frame.getBinary());
+    }
+
+    @Test
+    public void testBinaryFromObject() throws Exception {
+        TestData data = new TestData();
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "x-not-json-x", data);
+
+        assertEquals(ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x",
+                new JsonParser().parse("{\"count\": 3, \"rate\": 1.5, \"name\": \"x-name-x\"}"))),
+                frame.getBinary());
+    }
+
+    @Test
+    public void testBinaryFromTreeSupplier() throws Exception {
+        final JsonObject data = new JsonObject();
+        data.addProperty("x-field-x", 1L);
+        final int[] calls = new int[1];
+
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "x-not-json-x",
+                new MonitorWebsocketFrame.DataTreeSupplier() {
+                    @Override
+                    public JsonElement getDataTree() {
+                        calls[0]++;
+                        return data;
+                    }
+                });
+
+        // Only called for the binary encoding, once.
+        assertEquals("{\"action\": \"x-action-x\", \"data\": x-not-json-x}", frame.getText());
+        assertEquals(0, calls[0]);
+
+        assertEquals(ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x", data)),
+                frame.getBinary());
+        frame.getBinary();
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testBinaryFromTreeSupplierWithoutTree() throws Exception {
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "{\"x-field-x\": 1}",
+                new MonitorWebsocketFrame.DataTreeSupplier() {
+                    @Override
+                    public JsonElement getDataTree() {
+                        return null;
+                    }
+                });
+
+        assertEquals(ByteBuffer.wrap(MonitorWebsocketBinaryEncoder.encodeFrame("x-action-x",
+                new JsonParser().parse("{\"x-field-x\": 1}"))), frame.getBinary());
+    }
+
+    protected static class TestData {
+        private long count = 3;
+        private double rate = 1.5;
+        private String name = "x-name-x";
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonitorWebsocketQueueStatsDeltaFrameTest {
+
+    @Test
+    public void testFrame() throws Exception {
+        JsonObject delta = this.parse("{\"seq\":7,\"changed\":{\"x-queue-x\":{\"queueSize\":1}},\"removed\":[]}");
+        MonitorWebsocketQueueStatsDeltaFrame frame = new MonitorWebsocketQueueStatsDeltaFrame(delta);
+
+        assertSame(delta, frame.getDelta());
+        assertEquals("queueStatsDelta", frame.getAction());
+        assertEquals(new MonitorWebsocketFrame("queueStatsDelta", new Gson().toJson(delta)).getText(), frame.getText());
+    }
+
+    @Test
+    public void testConflate() throws Exception {
+        String olderJson = "{\"seq\":7,\"changed\":{\"x-queue1-x\":{\"queueSize\":1,\"enqueueCount\":2}," +
+                "\"x-queue2-x\":{\"queueSize\":3}},\"removed\":[\"x-queue3-x\",\"x-queue4-x\"]}";
+        String newerJson = "{\"seq\":8,\"changed\":{\"x-queue1-x\":{\"queueSize\":5}," +
+                "\"x-queue3-x\":{\"queueSize\":6}},\"removed\":[\"x-queue2-x\"]}";
+
+        MonitorWebsocketQueueStatsDeltaFrame older = new MonitorWebsocketQueueStatsDeltaFrame(this.parse(olderJson));
+        MonitorWebsocketQueueStatsDeltaFrame newer = new MonitorWebsocketQueueStatsDeltaFrame(this.parse(newerJson));
+
+        MonitorWebsocketFrame result = older.conflate(newer);
+
+        // Fields overlaid, changes to removed queues dropped, and removals of queues added again dropped.
+        assertEquals("{\"baseSeq\":6,\"seq\":8,\"changed\":{\"x-queue1-x\":{\"queueSize\":5,\"enqueueCount\":2}," +
+                "\"x-queue3-x\":{\"queueSize\":6}},\"removed\":[\"x-queue4-x\",\"x-queue2-x\"]}",
+                new Gson().toJson(((MonitorWebsocketQueueStatsDeltaFrame) result).getDelta()));
+
+        // Deltas are shared by clients, so must not be modified.
+        assertEquals(this.parse(olderJson), older.getDelta());
+        assertEquals(this.parse(newerJson), newer.getDelta());
+    }
+
+    @Test
+    public void testConflateKeepsLowestBaseSeq() throws Exception {
+        MonitorWebsocketFrame result = new MonitorWebsocketQueueStatsDeltaFrame(this.parse(
+                "{\"seq\":7,\"changed\":{},\"removed\":[]}"))
+                .conflate(new MonitorWebsocketQueueStatsDeltaFrame(this.parse(
+                        "{\"seq\":8,\"changed\":{},\"removed\":[]}")))
+                .conflate(new MonitorWebsocketQueueStatsDeltaFrame(this.parse(
+                        "{\"seq\":9,\"changed\":{},\"removed\":[]}")));
+
+        JsonObject delta = ((MonitorWebsocketQueueStatsDeltaFrame) result).getDelta();
+        assertEquals(6, MonitorWebsocketQueueStatsDeltaFrame.getBaseSeq(delta));
+        assertEquals(9, delta.get("seq").getAsLong());
+    }
+
+    @Test
+    public void testConflateWithOtherFrame() throws Exception {
+        MonitorWebsocketQueueStatsDeltaFrame delta =
+                new MonitorWebsocketQueueStatsDeltaFrame(this.parse("{\"seq\":7,\"changed\":{},\"removed\":[]}"));
+        MonitorWebsocketFrame other = new MonitorWebsocketFrame("queueStatsDelta", "x-content-x");
+
+        assertSame(other, delta.conflate(other));
+    }
+
+    @Test
+    public void testGetBaseSeq() throws Exception {
+        assertEquals(6, MonitorWebsocketQueueStatsDeltaFrame.getBaseSeq(this.parse("{\"seq\":7}")));
+        assertEquals(3, MonitorWebsocketQueueStatsDeltaFrame.getBaseSeq(this.parse("{\"baseSeq\":3,\"seq\":7}")));
+    }
+
+    protected JsonObject parse(String json) {
+        return new Gson().fromJson(json, JsonObject.class);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.monitor.web;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonitorWebsocketSendQueueTest {
+
+    private MonitorWebsocketSendQueue<String> sendQueue;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.sendQueue = new MonitorWebsocketSendQueue<>(2);
+    }
+
+    @Test
+    public void testOfferPollInOrder() throws Exception {
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer(null, "x-msg1-x"));
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer("x-key-x", "x-msg2-x"));
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer(null, "x-msg3-x"));
+        assertEquals(3, this.sendQueue.size());
+
+        assertEquals("x-msg1-x", this.sendQueue.poll());
+        assertEquals("x-msg2-x", this.sendQueue.poll());
+        assertEquals("x-msg3-x", this.sendQueue.poll());
+        assertNull(this.sendQueue.poll());
+    }
+
+    @Test
+    public void testConflateInPlace() throws Exception {
+        this.sendQueue.offer("x-key1-x", "x-msg1-x");
+        this.sendQueue.offer(null, "x-msg2-x");
+        this.sendQueue.offer("x-key2-x", "x-msg3-x");
+
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.CONFLATED, this.sendQueue.offer("x-key1-x", "x-msg4-x"));
+        assertEquals(3, this.sendQueue.size());
+        assertEquals(1, this.sendQueue.getConflatedCount());
+
+        assertEquals("x-msg4-x", this.sendQueue.poll());
+        assertEquals("x-msg2-x", this.sendQueue.poll());
+        assertEquals("x-msg3-x", this.sendQueue.poll());
+
+        // Once sent, the key starts a new entry.
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer("x-key1-x", "x-msg5-x"));
+    }
+
+    @Test
+    public void testRejectUnconflatedOverLimit() throws Exception {
+        this.sendQueue.offer(null, "x-msg1-x");
+        this.sendQueue.offer(null, "x-msg2-x");
+
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.REJECTED, this.sendQueue.offer(null, "x-msg3-x"));
+
+        // Keyed messages are bounded by the number of keys instead.
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer("x-key-x", "x-msg4-x"));
+
+        this.sendQueue.poll();
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer(null, "x-msg5-x"));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        this.sendQueue.offer(null, "x-msg1-x");
+        this.sendQueue.offer(null, "x-msg2-x");
+        this.sendQueue.offer("x-key-x", "x-msg3-x");
+
+        this.sendQueue.clear();
+
+        assertEquals(0, this.sendQueue.size());
+        assertNull(this.sendQueue.poll());
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer(null, "x-msg4-x"));
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.QUEUED, this.sendQueue.offer("x-key-x", "x-msg5-x"));
+    }
+
+    @Test
+    public void testOfferWithConflater() throws Exception {
+        MonitorWebsocketSendQueue<String> combiningQueue = new MonitorWebsocketSendQueue<>(2,
+                new MonitorWebsocketSendQueue.Conflater<String>() {
+                    @Override
+                    public String conflate(String pending, String newer) {
+                        return pending + "+" + newer;
+                    }
+                });
+
+        combiningQueue.offer("x-key-x", "x-msg1-x");
+        assertEquals(MonitorWebsocketSendQueue.OfferResult.CONFLATED, combiningQueue.offer("x-key-x", "x-msg2-x"));
+        assertEquals(1, combiningQueue.size());
+        assertEquals("x-msg1-x+x-msg2-x", combiningQueue.poll());
+    }
+}
@@ -17,11 +17,14 @@
 package com.amlinv.activemq.monitor.web;
 
 import com.amlinv.javasched.Scheduler;
+import com.codahale.metrics.MetricRegistry;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 import static org.junit.Assert.*;
 
 /**
@@ -40,16 +43,27 @@ public class MonitorWebsocketStaticInjectorTest {
     private Scheduler origScheduler;
     private Scheduler mockScheduler;
 
+    private MonitorWebsocketClientListener origClientListener;
+    private MonitorWebsocketClientListener mockClientListener;
+
+    private MetricRegistry origMetricRegistry;
+
+    private ScheduledExecutorService origThrottleExecutor;
+
     @Before
     public void setupTest() throws Exception {
         this.injector = new MonitorWebsocketStaticInjector();
 
         this.mockRegistry = Mockito.mock(MonitorWebsocketRegistry.class);
         this.mockScheduler = Mockito.mock(Scheduler.class);
+        this.mockClientListener = Mockito.mock(MonitorWebsocketClientListener.class);
 
         this.origRegistry = MonitorWebsocket.getRegistry();
         this.origSendTimeout = MonitorWebsocket.getSendTimeout();
         this.origScheduler = MonitorWebsocket.getScheduler();
+        this.origClientListener = MonitorWebsocket.getClientListener();
+        this.origMetricRegistry = MonitorWebsocket.getMetricRegistry();
+        this.origThrottleExecutor = MonitorWebsocket.getThrottleExecutor();
     }
 
     @After
@@ -57,6 +71,9 @@ public class MonitorWebsocketStaticInjectorTest {
         MonitorWebsocket.setRegistry(this.origRegistry);
         MonitorWebsocket.setSendTimeout(this.origSendTimeout);
         MonitorWebsocket.setScheduler(this.origScheduler);
+        MonitorWebsocket.setClientListener(this.origClientListener);
+        MonitorWebsocket.setMetricRegistry(this.origMetricRegistry);
+        MonitorWebsocket.setThrottleExecutor(this.origThrottleExecutor);
     }
 
     @Test
@@ -86,4 +103,35 @@ public class MonitorWebsocketStaticInjectorTest {
         assertSame(this.mockScheduler, this.injector.getScheduler());
         assertSame(MonitorWebsocket.getScheduler(), this.injector.getScheduler());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetSetClientListener() throws Exception {
+        assertSame(MonitorWebsocket.getClientListener(), this.injector.getClientListener());
+
+        this.injector.setClientListener(this.mockClientListener);
+        assertSame(this.mockClientListener, this.injector.getClientListener());
+        assertSame(MonitorWebsocket.getClientListener(), this.injector.getClientListener());
+    }
+
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertSame(MonitorWebsocket.getMetricRegistry(), this.injector.getMetricRegistry());
+
+        this.injector.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, this.injector.getMetricRegistry());
+        assertSame(MonitorWebsocket.getMetricRegistry(), this.injector.getMetricRegistry());
+    }
+
+    @Test
+    public void testGetSetThrottleExecutor() throws Exception {
+        ScheduledExecutorService mockExecutor = Mockito.mock(ScheduledExecutorService.class);
+
+        assertSame(MonitorWebsocket.getThrottleExecutor(), this.injector.getThrottleExecutor());
+
+        this.injector.setThrottleExecutor(mockExecutor);
+        assertSame(mockExecutor, this.injector.getThrottleExecutor());
+        assertSame(MonitorWebsocket.getThrottleExecutor(), this.injector.getThrottleExecutor());
+    }
+}
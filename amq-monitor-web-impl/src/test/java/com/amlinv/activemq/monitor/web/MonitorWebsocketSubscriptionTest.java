@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.monitor.web;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MonitorWebsocketSubscriptionTest {
+
+    private static final List<String> NONE = Collections.emptyList();
+
+    @Test
+    public void testGetters() throws Exception {
+        MonitorWebsocketSubscription subscription = new MonitorWebsocketSubscription(
+                Arrays.asList("x-queue2-x", "x-queue1-x"), Arrays.asList("x-broker-x"), Arrays.asList("queueStats"));
+
+        assertEquals(Arrays.asList("x-queue1-x", "x-queue2-x"),
+                Arrays.asList(subscription.getQueuePatterns().toArray()));
+        assertEquals(Collections.singleton("x-broker-x"), subscription.getBrokerNames());
+        assertEquals(Collections.singleton("queueStats"), subscription.getEventTypes());
+        assertEquals("queues=[x-queue1-x, x-queue2-x]; brokers=[x-broker-x]; events=[queueStats]",
+                subscription.toString());
+    }
+
+    @Test
+    public void testAllMatchesEverything() throws Exception {
+        MonitorWebsocketSubscription all = MonitorWebsocketSubscription.ALL;
+
+        assertTrue(all.isAllQueues());
+        assertTrue(all.matchesEvent("x-action-x"));
+        assertTrue(all.matchesBroker("x-broker-x"));
+        assertTrue(all.matchesBroker(null));
+        assertTrue(all.matchesQueue("x-queue-x"));
+    }
+
+    @Test
+    public void testMatchesQueue() throws Exception {
+        MonitorWebsocketSubscription subscription =
+                new MonitorWebsocketSubscription(Arrays.asList("orders.*", "billing", "*.dlq"), NONE, NONE);
+
+        assertFalse(subscription.isAllQueues());
+        assertTrue(subscription.matchesQueue("orders.in"));
+        assertTrue(subscription.matchesQueue("billing"));
+        assertTrue(subscription.matchesQueue("shipping.dlq"));
+        assertFalse(subscription.matchesQueue("billing.in"));
+        assertFalse(subscription.matchesQueue("ordersXin"));
+    }
+
+    @Test
+    public void testWildcardPatternMatchesAllQueues() throws Exception {
+        MonitorWebsocketSubscription subscription =
+                new MonitorWebsocketSubscription(Arrays.asList("orders.*", "*"), NONE, NONE);
+
+        assertTrue(subscription.isAllQueues());
+        assertTrue(subscription.matchesQueue("x-queue-x"));
+    }
+
+    @Test
+    public void testMatchesBroker() throws Exception {
+        MonitorWebsocketSubscription subscription =
+                new MonitorWebsocketSubscription(NONE, Arrays.asList("x-broker1-x"), NONE);
+
+        assertTrue(subscription.matchesBroker("x-broker1-x"));
+        assertFalse(subscription.matchesBroker("x-broker2-x"));
+
+        // Content not specific to a broker.
+        assertTrue(subscription.matchesBroker(null));
+    }
+
+    @Test
+    public void testMatchesEvent() throws Exception {
+        MonitorWebsocketSubscription subscription =
+                new MonitorWebsocketSubscription(NONE, NONE, Arrays.asList("brokerStats", "alert"));
+
+        assertTrue(subscription.matchesEvent("brokerStats"));
+        assertTrue(subscription.matchesEvent("alert"));
+        assertFalse(subscription.matchesEvent("queueStats"));
+    }
+
+    @Test
+    public void testEqualsHashCode() throws Exception {
+        MonitorWebsocketSubscription subscription = new MonitorWebsocketSubscription(
+                Arrays.asList("x-queue1-x", "x-queue2-x"), Arrays.asList("x-broker-x"), NONE);
+        MonitorWebsocketSubscription same = new MonitorWebsocketSubscription(
+                Arrays.asList("x-queue2-x", "x-queue1-x", "x-queue1-x"), Arrays.asList("x-broker-x"), NONE);
+
+        assertTrue(subscription.equals(subscription));
+        assertTrue(subscription.equals(same));
+        assertEquals(subscription.hashCode(), same.hashCode());
+        assertEquals(MonitorWebsocketSubscription.ALL, new MonitorWebsocketSubscription(NONE, NONE, NONE));
+
+        assertFalse(subscription.equals(new MonitorWebsocketSubscription(
+                Arrays.asList("x-queue1-x", "x-queue2-x"), NONE, NONE)));
+        assertFalse(subscription.equals(new MonitorWebsocketSubscription(
+                Arrays.asList("x-queue1-x", "x-queue2-x"), Arrays.asList("x-broker-x"), Arrays.asList("alert"))));
+        assertFalse(subscription.equals("x-queue1-x"));
+    }
+}
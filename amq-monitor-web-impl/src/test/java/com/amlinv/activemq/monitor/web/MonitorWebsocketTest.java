@@ -16,13 +16,20 @@
 
 package com.amlinv.activemq.monitor.web;
 
+import com.amlinv.activemq.stats.StatsClock;
+import com.amlinv.activemq.stats.SystemStatsClock;
 import com.amlinv.javasched.Scheduler;
 import com.amlinv.javasched.Step;
 import com.amlinv.javasched.process.StepListSchedulerProcess;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 
@@ -31,6 +38,12 @@ import javax.websocket.RemoteEndpoint;
 import javax.websocket.Session;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -49,6 +62,16 @@ public class MonitorWebsocketTest {
     private Scheduler origScheduler;
     private Scheduler mockScheduler;
 
+    private MonitorWebsocketClientListener origClientListener;
+    private MonitorWebsocketClientListener mockClientListener;
+
+    private MetricRegistry origMetricRegistry;
+
+    private ScheduledExecutorService origThrottleExecutor;
+    private ScheduledExecutorService mockThrottleExecutor;
+    private ScheduledFuture mockReleaseFuture;
+    private StatsClock mockStatsClock;
+
     private Session mockSession;
     private CloseReason mockReason;
     private RemoteEndpoint.Async mockAsyncRemote;
@@ -62,9 +85,13 @@ public class MonitorWebsocketTest {
         this.origRegistry = MonitorWebsocket.getRegistry();
         this.origSendTimeout = MonitorWebsocket.getSendTimeout();
         this.origScheduler = MonitorWebsocket.getScheduler();
+        this.origClientListener = MonitorWebsocket.getClientListener();
+        this.origMetricRegistry = MonitorWebsocket.getMetricRegistry();
+        this.origThrottleExecutor = MonitorWebsocket.getThrottleExecutor();
 
         this.mockRegistry = Mockito.mock(MonitorWebsocketRegistry.class);
         this.mockScheduler = Mockito.mock(Scheduler.class);
+        this.mockClientListener = Mockito.mock(MonitorWebsocketClientListener.class);
 
         this.mockSession = Mockito.mock(Session.class);
         this.mockReason = Mockito.mock(CloseReason.class);
@@ -74,9 +101,15 @@ public class MonitorWebsocketTest {
 
         this.mockLogger = Mockito.mock(Logger.class);
 
+        this.mockThrottleExecutor = Mockito.mock(ScheduledExecutorService.class);
+        this.mockReleaseFuture = Mockito.mock(ScheduledFuture.class);
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+
         Mockito.when(this.mockSession.getId()).thenReturn("x-sess-id-x");
         Mockito.when(this.mockSession.getAsyncRemote()).thenReturn(this.mockAsyncRemote);
         Mockito.when(this.mockSession.getBasicRemote()).thenReturn(this.mockBasic);
+        Mockito.doReturn(this.mockReleaseFuture).when(this.mockThrottleExecutor)
+                .schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.eq(TimeUnit.MILLISECONDS));
     }
 
     @After
@@ -84,6 +117,9 @@ public class MonitorWebsocketTest {
         MonitorWebsocket.setRegistry(this.origRegistry);
         MonitorWebsocket.setSendTimeout(this.origSendTimeout);
         MonitorWebsocket.setScheduler(this.origScheduler);
+        MonitorWebsocket.setClientListener(this.origClientListener);
+        MonitorWebsocket.setMetricRegistry(this.origMetricRegistry);
+        MonitorWebsocket.setThrottleExecutor(this.origThrottleExecutor);
     }
 
     @Test
@@ -110,6 +146,24 @@ public class MonitorWebsocketTest {
         assertSame(this.mockScheduler, MonitorWebsocket.getScheduler());
     }
 
+    @Test
+    public void testGetSetClientListener() throws Exception {
+        assertNull(MonitorWebsocket.getClientListener());
+
+        MonitorWebsocket.setClientListener(this.mockClientListener);
+        assertSame(this.mockClientListener, MonitorWebsocket.getClientListener());
+    }
+
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNull(MonitorWebsocket.getMetricRegistry());
+
+        MonitorWebsocket.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, MonitorWebsocket.getMetricRegistry());
+    }
+
     @Test
     public void testGetSetLog() throws Exception {
         this.prepareMonitorWebsocket(false);
@@ -166,6 +220,26 @@ public class MonitorWebsocketTest {
         Mockito.verify(this.mockAsyncRemote).setSendTimeout(MonitorWebsocket.DEFAULT_SEND_TIMEOUT);
     }
 
+    @Test
+    public void testOnOpenNotifiesClientListener() throws Exception {
+        this.prepareMonitorWebsocket(true);
+        MonitorWebsocket.setClientListener(this.mockClientListener);
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+
+        Mockito.verify(this.mockClientListener).onClientOpen(this.monitorWebsocket);
+    }
+
+    @Test
+    public void testOnMessageNotifiesClientListener() throws Exception {
+        this.prepareMonitorWebsocket(true);
+        MonitorWebsocket.setClientListener(this.mockClientListener);
+
+        this.monitorWebsocket.onMessage("x-client-msg-x", this.mockSession);
+
+        Mockito.verify(this.mockClientListener).onClientMessage(this.monitorWebsocket, "x-client-msg-x");
+    }
+
     @Test
     public void testOnMessage() throws Exception {
         this.prepareMonitorWebsocket(true);
@@ -189,6 +263,101 @@ public class MonitorWebsocketTest {
         Mockito.verify(this.mockBasic).sendText("{\"action\": \"x-action-x\", \"data\": x-content-x}");
     }
 
+    @Test
+    public void testSessionMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        MonitorWebsocket.setMetricRegistry(metricRegistry);
+        this.prepareMonitorWebsocket(true);
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-content-x");
+
+        Gauge backlog = metricRegistry.getGauges()
+                .get("com.amlinv.activemq.monitor.web.MonitorWebsocket.x-sess-id-x.backlog");
+        assertEquals(1, backlog.getValue());
+
+        this.captureStep().execute();
+
+        assertEquals(0, backlog.getValue());
+        assertSame(metricRegistry.timer("com.amlinv.activemq.monitor.web.MonitorWebsocket.x-sess-id-x.send"),
+                this.monitorWebsocket.getSendTimer());
+        assertEquals(1, this.monitorWebsocket.getSendTimer().getCount());
+
+        this.monitorWebsocket.onClose(this.mockSession, this.mockReason);
+
+        assertTrue(metricRegistry.getMetrics().isEmpty());
+    }
+
+    @Test
+    public void testSendTimerWithoutMetricRegistry() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-content-x");
+        this.captureStep().execute();
+
+        assertEquals(1, this.monitorWebsocket.getSendTimer().getCount());
+    }
+
+    @Test
+    public void testFireMonitorFrameNB() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "x-content-x");
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.fireMonitorFrameNB(frame, null);
+
+        this.captureStep().execute();
+
+        // The frame's text is sent as-is, without copying.
+        ArgumentCaptor<String> textCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(this.mockBasic).sendText(textCaptor.capture());
+        assertSame(frame.getText(), textCaptor.getValue());
+    }
+
+    @Test
+    public void testGetSetBinaryEncoding() throws Exception {
+        this.prepareMonitorWebsocket(false);
+
+        assertFalse(this.monitorWebsocket.isBinaryEncoding());
+
+        this.monitorWebsocket.setBinaryEncoding(true);
+        assertTrue(this.monitorWebsocket.isBinaryEncoding());
+    }
+
+    @Test
+    public void testFireMonitorFrameNBBinaryEncoding() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "{\"x-field-x\": 1}");
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.setBinaryEncoding(true);
+        this.monitorWebsocket.fireMonitorFrameNB(frame, null);
+
+        this.captureStep().execute();
+
+        Mockito.verify(this.mockBasic).sendBinary(frame.getBinary());
+        Mockito.verify(this.mockBasic, Mockito.never()).sendText(Mockito.anyString());
+    }
+
+    @Test
+    public void testBinaryEncodingAppliesToPendingFrames() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        MonitorWebsocketFrame frame = new MonitorWebsocketFrame("x-action-x", "{\"x-field-x\": 1}");
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.fireMonitorFrameNB(frame, "x-key-x");
+        this.monitorWebsocket.setBinaryEncoding(true);
+
+        this.captureStep().execute();
+
+        Mockito.verify(this.mockBasic).sendBinary(Mockito.any(ByteBuffer.class));
+        Mockito.verify(this.mockBasic, Mockito.never()).sendText(Mockito.anyString());
+    }
+
     @Test
     public void testFireMonitorEventNBWithoutSession() throws Exception {
         this.prepareMonitorWebsocket(true);
@@ -198,13 +367,242 @@ public class MonitorWebsocketTest {
     }
 
     @Test
-    public void testFireMonitorEventNBOnFullBacklog() throws Exception {
+    public void testGetSetSubscription() throws Exception {
+        this.prepareMonitorWebsocket(false);
+
+        MonitorWebsocketSubscription subscription = new MonitorWebsocketSubscription(Arrays.asList("x-queue-x"),
+                Collections.<String>emptySet(), Collections.<String>emptySet());
+
+        assertSame(MonitorWebsocketSubscription.ALL, this.monitorWebsocket.getSubscription());
+
+        this.monitorWebsocket.setSubscription(subscription);
+        assertSame(subscription, this.monitorWebsocket.getSubscription());
+    }
+
+    @Test
+    public void testGetSetThrottleExecutor() throws Exception {
+        MonitorWebsocket.setThrottleExecutor(null);
+        assertNull(MonitorWebsocket.getThrottleExecutor());
+
+        MonitorWebsocket.setThrottleExecutor(this.mockThrottleExecutor);
+        assertSame(this.mockThrottleExecutor, MonitorWebsocket.getThrottleExecutor());
+    }
+
+    @Test
+    public void testGetSetUpdateInterval() throws Exception {
+        this.prepareMonitorWebsocket(false);
+
+        assertEquals(0L, this.monitorWebsocket.getUpdateInterval());
+
+        this.monitorWebsocket.setUpdateInterval(15000L);
+        assertEquals(15000L, this.monitorWebsocket.getUpdateInterval());
+    }
+
+    @Test
+    public void testGetSetStatsClock() throws Exception {
+        this.prepareMonitorWebsocket(false);
+
+        assertTrue(this.monitorWebsocket.getStatsClock() instanceof SystemStatsClock);
+
+        this.monitorWebsocket.setStatsClock(this.mockStatsClock);
+        assertSame(this.mockStatsClock, this.monitorWebsocket.getStatsClock());
+    }
+
+    @Test
+    public void testThrottledUpdates() throws Exception {
+        this.prepareThrottledWebsocket(1000L);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 5100L, 5200L, 6000L);
+
+        // First update is sent immediately; later ones within the interval are held, keeping only the latest.
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content1-x");
+        this.captureStep().execute();
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content2-x");
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content3-x");
+
+        // Events without a key are never held.
+        this.monitorWebsocket.fireMonitorEventNB("x-other-action-x", "x-other-content-x");
+
+        ArgumentCaptor<Runnable> releaseCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockThrottleExecutor)
+                .schedule(releaseCaptor.capture(), Mockito.eq(900L), Mockito.eq(TimeUnit.MILLISECONDS));
+
+        releaseCaptor.getValue().run();
+
+        ArgumentCaptor<Step> stepCaptor = ArgumentCaptor.forClass(Step.class);
+        Mockito.verify(this.mockSendProcess, Mockito.times(3)).addStep(stepCaptor.capture());
+        for ( Step oneStep : stepCaptor.getAllValues() ) {
+            oneStep.execute();
+        }
+
+        InOrder inOrder = Mockito.inOrder(this.mockBasic);
+        inOrder.verify(this.mockBasic).sendText(new MonitorWebsocketFrame("x-action-x", "x-content1-x").getText());
+        inOrder.verify(this.mockBasic)
+                .sendText(new MonitorWebsocketFrame("x-other-action-x", "x-other-content-x").getText());
+        inOrder.verify(this.mockBasic).sendText(new MonitorWebsocketFrame("x-action-x", "x-content3-x").getText());
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testThrottledDeltasMerged() throws Exception {
+        this.prepareThrottledWebsocket(1000L);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 5100L, 5200L, 6000L);
+
+        // First delta is sent immediately; later ones within the interval are held and merged, not dropped.
+        this.monitorWebsocket.fireMonitorFrameNB(this.deltaFrame(1, "x-queue1-x"), "");
+        this.captureStep().execute();
+        this.monitorWebsocket.fireMonitorFrameNB(this.deltaFrame(2, "x-queue2-x"), "");
+        this.monitorWebsocket.fireMonitorFrameNB(this.deltaFrame(3, "x-queue3-x"), "");
+
+        ArgumentCaptor<Runnable> releaseCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.mockThrottleExecutor)
+                .schedule(releaseCaptor.capture(), Mockito.eq(900L), Mockito.eq(TimeUnit.MILLISECONDS));
+
+        releaseCaptor.getValue().run();
+
+        ArgumentCaptor<Step> stepCaptor = ArgumentCaptor.forClass(Step.class);
+        Mockito.verify(this.mockSendProcess, Mockito.times(2)).addStep(stepCaptor.capture());
+        stepCaptor.getValue().execute();
+
+        // The merged delta applies to the sequence number of the delta already sent, so the client sees no gap.
+        InOrder inOrder = Mockito.inOrder(this.mockBasic);
+        inOrder.verify(this.mockBasic).sendText(this.deltaFrame(1, "x-queue1-x").getText());
+        inOrder.verify(this.mockBasic).sendText(new MonitorWebsocketFrame("queueStatsDelta",
+                "{\"baseSeq\":1,\"seq\":3,\"changed\":{\"x-queue2-x\":{\"queueSize\":2}," +
+                        "\"x-queue3-x\":{\"queueSize\":3}},\"removed\":[]}").getText());
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testThrottledUpdatesAfterInterval() throws Exception {
+        this.prepareThrottledWebsocket(1000L);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 6000L);
+
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content1-x");
+        this.captureStep().execute();
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content2-x");
+
+        Mockito.verify(this.mockSendProcess, Mockito.times(2)).addStep(Mockito.any(Step.class));
+        Mockito.verifyZeroInteractions(this.mockThrottleExecutor);
+    }
+
+    @Test
+    public void testUpdateIntervalWithoutThrottleExecutor() throws Exception {
+        this.prepareThrottledWebsocket(1000L);
+        MonitorWebsocket.setThrottleExecutor(null);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 5100L);
+
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key1-x", "x-content1-x");
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key2-x", "x-content2-x");
+
+        Mockito.verify(this.mockSendProcess, Mockito.times(2)).addStep(Mockito.any(Step.class));
+    }
+
+    @Test
+    public void testDisableThrottlingReleasesHeldUpdates() throws Exception {
+        this.prepareThrottledWebsocket(1000L);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 5100L, 5200L);
+
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content1-x");
+        this.captureStep().execute();
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content2-x");
+        Mockito.verify(this.mockSendProcess, Mockito.times(1)).addStep(Mockito.any(Step.class));
+
+        this.monitorWebsocket.setUpdateInterval(0);
+
+        Mockito.verify(this.mockReleaseFuture).cancel(false);
+        Mockito.verify(this.mockSendProcess, Mockito.times(2)).addStep(Mockito.any(Step.class));
+    }
+
+    @Test
+    public void testOnCloseDiscardsHeldUpdates() throws Exception {
+        this.prepareThrottledWebsocket(1000L);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 5100L);
+
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content1-x");
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content2-x");
+
+        this.monitorWebsocket.onClose(this.mockSession, this.mockReason);
+
+        Mockito.verify(this.mockReleaseFuture).cancel(false);
+
+        // A release racing with the close sends nothing.
+        this.monitorWebsocket.releaseHeldUpdates();
+        Mockito.verify(this.mockSendProcess, Mockito.times(1)).addStep(Mockito.any(Step.class));
+    }
+
+    @Test
+    public void testGetSetSendQueue() throws Exception {
+        this.prepareMonitorWebsocket(false);
+
+        MonitorWebsocketSendQueue<MonitorWebsocketFrame> sendQueue = new MonitorWebsocketSendQueue<>(1);
+
+        assertNotNull(this.monitorWebsocket.getSendQueue());
+        assertNotSame(sendQueue, this.monitorWebsocket.getSendQueue());
+
+        this.monitorWebsocket.setSendQueue(sendQueue);
+        assertSame(sendQueue, this.monitorWebsocket.getSendQueue());
+    }
+
+    @Test
+    public void testFireMonitorEventNBConflated() throws Exception {
         this.prepareMonitorWebsocket(true);
 
-        Mockito.when(this.mockSendProcess.getPendingStepCount()).thenReturn((int) MonitorWebsocket.MAX_MSG_BACKLOG);
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content1-x");
+        this.monitorWebsocket.fireMonitorEventNB("x-other-action-x", "x-other-content-x");
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content2-x");
+
+        ArgumentCaptor<Step> stepCaptor = ArgumentCaptor.forClass(Step.class);
+        Mockito.verify(this.mockSendProcess, Mockito.times(2)).addStep(stepCaptor.capture());
+
+        for ( Step oneStep : stepCaptor.getAllValues() ) {
+            oneStep.execute();
+        }
+
+        InOrder inOrder = Mockito.inOrder(this.mockBasic);
+        inOrder.verify(this.mockBasic).sendText("{\"action\": \"x-action-x\", \"data\": x-content2-x}");
+        inOrder.verify(this.mockBasic).sendText("{\"action\": \"x-other-action-x\", \"data\": x-other-content-x}");
+        Mockito.verify(this.mockBasic, Mockito.never())
+                .sendText("{\"action\": \"x-action-x\", \"data\": x-content1-x}");
+    }
+
+    @Test
+    public void testFireMonitorFrameNBMergesPendingDeltas() throws Exception {
+        this.prepareMonitorWebsocket(true);
 
         this.monitorWebsocket.onOpen(this.mockSession);
-        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-content-x");
+        this.monitorWebsocket.fireMonitorFrameNB(this.deltaFrame(1, "x-queue1-x"), "");
+        this.monitorWebsocket.fireMonitorFrameNB(this.deltaFrame(2, "x-queue2-x"), "");
+
+        // One send step for the single, merged, pending delta.
+        this.captureStep().execute();
+
+        Mockito.verify(this.mockBasic).sendText(new MonitorWebsocketFrame("queueStatsDelta",
+                "{\"baseSeq\":0,\"seq\":2,\"changed\":{\"x-queue1-x\":{\"queueSize\":1}," +
+                        "\"x-queue2-x\":{\"queueSize\":2}},\"removed\":[]}").getText());
+    }
+
+    @Test
+    public void testFireMonitorEventNBConflatedNeverFull() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        for ( int cur = 0; cur <= MonitorWebsocket.MAX_MSG_BACKLOG; cur++ ) {
+            this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-key-x", "x-content-x");
+        }
+
+        Mockito.verify(this.mockSession, Mockito.never()).close();
+        assertEquals(1, this.monitorWebsocket.getSendQueue().size());
+    }
+
+    @Test
+    public void testFireMonitorEventNBOnFullBacklog() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        for ( int cur = 0; cur <= MonitorWebsocket.MAX_MSG_BACKLOG; cur++ ) {
+            this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-content-x");
+        }
 
         Mockito.verify(this.mockLogger).info("websocket backlog is full; aborting connection: sessionId={}",
                 "x-sess-id-x");
@@ -251,6 +649,21 @@ public class MonitorWebsocketTest {
         Mockito.verify(this.mockSession).close();
     }
 
+    @Test
+    public void testSendStepOnEmptyQueue() throws Exception {
+        this.prepareMonitorWebsocket(true);
+
+        this.monitorWebsocket.onOpen(this.mockSession);
+        this.monitorWebsocket.fireMonitorEventNB("x-action-x", "x-content-x");
+
+        Step step = this.captureStep();
+        this.monitorWebsocket.getSendQueue().clear();
+
+        step.execute();
+
+        Mockito.verifyZeroInteractions(this.mockBasic);
+    }
+
     @Test
     public void testIsBlockingStep() throws Exception {
         this.prepareMonitorWebsocket(true);
@@ -275,6 +688,15 @@ public class MonitorWebsocketTest {
         }
     }
 
+    protected void prepareThrottledWebsocket(long updateInterval) throws Exception {
+        this.prepareMonitorWebsocket(true);
+        MonitorWebsocket.setThrottleExecutor(this.mockThrottleExecutor);
+
+        this.monitorWebsocket.setStatsClock(this.mockStatsClock);
+        this.monitorWebsocket.setUpdateInterval(updateInterval);
+        this.monitorWebsocket.onOpen(this.mockSession);
+    }
+
     protected Step captureStep() {
         ArgumentCaptor<Step> stepCaptor = ArgumentCaptor.forClass(Step.class);
 
@@ -285,4 +707,18 @@ public class MonitorWebsocketTest {
 
         return step;
     }
-}
\ No newline at end of file
+
+    protected MonitorWebsocketQueueStatsDeltaFrame deltaFrame(long seq, String queueName) {
+        JsonObject queueStats = new JsonObject();
+        queueStats.addProperty("queueSize", seq);
+        JsonObject changed = new JsonObject();
+        changed.add(queueName, queueStats);
+
+        JsonObject delta = new JsonObject();
+        delta.addProperty("seq", seq);
+        delta.add("changed", changed);
+        delta.add("removed", new JsonArray());
+
+        return new MonitorWebsocketQueueStatsDeltaFrame(delta);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.monitor.web;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.ActiveMQQueueStats;
+import com.amlinv.activemq.stats.QueueStatisticsRegistry;
+import com.amlinv.activemq.topo.registry.BrokerRegistryListener;
+import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
+import com.amlinv.activemq.topo.registry.model.BrokerInfo;
+import com.amlinv.activemq.topo.registry.model.DestinationState;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PrometheusMetricsFeedTest {
+
+    private PrometheusMetricsFeed feed;
+
+    private QueueStatisticsRegistry mockQueueStatisticsRegistry;
+
+    private ActiveMQBrokerStats brokerStats;
+    private ActiveMQQueueJmxStats queueStats;
+    private ActiveMQQueueStats queueTotalStats;
+    private BrokerStatsPackage brokerStatsPackage;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.feed = new PrometheusMetricsFeed();
+
+        this.mockQueueStatisticsRegistry = Mockito.mock(QueueStatisticsRegistry.class);
+
+        this.brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        this.brokerStats.setTotalMessageCount(13L);
+        this.brokerStats.setTotalEnqueueCount(17L);
+
+        this.queueStats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue-x");
+        this.queueStats.setQueueSize(19L);
+        this.queueStats.setInflightCount(23L);
+
+        this.queueTotalStats = new ActiveMQQueueStats("totals", "x-queue-x");
+        this.queueTotalStats.setQueueSize(29L);
+        this.queueTotalStats.setEnqueueRate1Minute(1.5);
+
+        Map<String, ActiveMQQueueJmxStats> queueStatsMap = new TreeMap<>();
+        queueStatsMap.put("x-queue-x", this.queueStats);
+        this.brokerStatsPackage = new BrokerStatsPackage(this.brokerStats, queueStatsMap);
+
+        Mockito.when(this.mockQueueStatisticsRegistry.getQueueStats("x-queue-x")).thenReturn(this.queueTotalStats);
+    }
+
+    @Test
+    public void testGetSetQueueStatisticsRegistry() throws Exception {
+        assertNull(this.feed.getQueueStatisticsRegistry());
+
+        this.feed.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+        assertSame(this.mockQueueStatisticsRegistry, this.feed.getQueueStatisticsRegistry());
+    }
+
+    @Test
+    public void testGetExpositionEmpty() throws Exception {
+        String exposition = this.getExpositionText();
+
+        assertTrue(exposition.contains("# TYPE activemq_broker_messages gauge\n"));
+        assertTrue(exposition.contains("# TYPE activemq_queue_enqueued_messages_total counter\n"));
+        assertFalse(exposition.contains("x-broker-x"));
+    }
+
+    @Test
+    public void testOnBrokerPollComplete() throws Exception {
+        this.feed.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        String exposition = this.getExpositionText();
+        assertTrue(exposition.contains("activemq_broker_messages{broker=\"x-broker-x\"} 13\n"));
+        assertTrue(exposition.contains("activemq_broker_enqueued_messages_total{broker=\"x-broker-x\"} 17\n"));
+        assertTrue(exposition.contains("activemq_queue_size{broker=\"x-broker-x\",queue=\"x-queue-x\"} 19\n"));
+        assertTrue(exposition.contains(
+                "activemq_queue_inflight_messages{broker=\"x-broker-x\",queue=\"x-queue-x\"} 23\n"));
+        assertTrue(exposition.contains("activemq_queue_total_size{queue=\"x-queue-x\"} 29\n"));
+        assertTrue(exposition.contains("activemq_queue_enqueue_rate_1m{queue=\"x-queue-x\"} 1.5\n"));
+
+        // Series of one family follow its header.
+        int headerPos = exposition.indexOf("# TYPE activemq_queue_size gauge\n");
+        int seriesPos = exposition.indexOf("activemq_queue_size{");
+        int nextHeaderPos = exposition.indexOf("# HELP", headerPos + 1);
+        assertTrue(( headerPos < seriesPos ) && ( seriesPos < nextHeaderPos ));
+    }
+
+    @Test
+    public void testGetExpositionCached() throws Exception {
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        byte[] first = this.feed.getExposition();
+        assertSame(first, this.feed.getExposition());
+
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        assertNotSame(first, this.feed.getExposition());
+    }
+
+    @Test
+    public void testMultipleBrokersGroupedByFamily() throws Exception {
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ActiveMQBrokerStats otherBrokerStats = new ActiveMQBrokerStats("x-broker2-x");
+        otherBrokerStats.setTotalMessageCount(31L);
+        this.feed.onBrokerPollComplete(new BrokerStatsPackage(otherBrokerStats,
+                new TreeMap<String, ActiveMQQueueJmxStats>()));
+
+        String exposition = this.getExpositionText();
+        assertTrue(exposition.contains("activemq_broker_messages{broker=\"x-broker-x\"} 13\n" +
+                "activemq_broker_messages{broker=\"x-broker2-x\"} 31\n"));
+    }
+
+    @Test
+    public void testQueueRemovedFromBroker() throws Exception {
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+        this.feed.onBrokerPollComplete(new BrokerStatsPackage(this.brokerStats,
+                new TreeMap<String, ActiveMQQueueJmxStats>()));
+
+        assertFalse(this.getExpositionText().contains("queue=\"x-queue-x\""));
+    }
+
+    @Test
+    public void testQueueRegistryRemove() throws Exception {
+        this.feed.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        DestinationRegistryListener listener = this.feed.getQueueRegistryListener();
+        listener.onPutEntry("x-queue-x", new DestinationState("x-queue-x"));
+        listener.onReplaceEntry("x-queue-x", new DestinationState("x-queue-x"), new DestinationState("x-queue-x"));
+        assertTrue(this.getExpositionText().contains("queue=\"x-queue-x\""));
+
+        listener.onRemoveEntry("x-queue-x", new DestinationState("x-queue-x"));
+        assertFalse(this.getExpositionText().contains("queue=\"x-queue-x\""));
+    }
+
+    @Test
+    public void testBrokerRegistryRemove() throws Exception {
+        this.feed.setQueueStatisticsRegistry(this.mockQueueStatisticsRegistry);
+        this.feed.onBrokerPollComplete(this.brokerStatsPackage);
+
+        ActiveMQQueueJmxStats otherQueueStats = new ActiveMQQueueJmxStats("x-broker2-x", "x-queue-x");
+        Map<String, ActiveMQQueueJmxStats> otherQueueStatsMap = new TreeMap<>();
+        otherQueueStatsMap.put("x-queue-x", otherQueueStats);
+        this.feed.onBrokerPollComplete(new BrokerStatsPackage(new ActiveMQBrokerStats("x-broker2-x"),
+                otherQueueStatsMap));
+
+        BrokerRegistryListener listener = this.feed.getBrokerRegistryListener();
+        BrokerInfo brokerInfo = new BrokerInfo("x-broker-id-x", "x-broker-x", "x-broker-url-x");
+        listener.onPutEntry("x-location-x", brokerInfo);
+        listener.onReplaceEntry("x-location-x", brokerInfo, brokerInfo);
+        assertTrue(this.getExpositionText().contains("broker=\"x-broker-x\""));
+
+        listener.onRemoveEntry("x-location-x", brokerInfo);
+
+        // The queue's totals remain while another broker reports it.
+        String exposition = this.getExpositionText();
+        assertFalse(exposition.contains("broker=\"x-broker-x\""));
+        assertTrue(exposition.contains("activemq_queue_size{broker=\"x-broker2-x\",queue=\"x-queue-x\"} 0\n"));
+        assertTrue(exposition.contains("activemq_queue_total_size{queue=\"x-queue-x\"} 29\n"));
+
+        listener.onRemoveEntry("x-location2-x", new BrokerInfo("x-broker-id2-x", "x-broker2-x", "x-broker-url2-x"));
+
+        exposition = this.getExpositionText();
+        assertFalse(exposition.contains("broker=\"x-broker2-x\""));
+        assertFalse(exposition.contains("queue=\"x-queue-x\""));
+    }
+
+    @Test
+    public void testEscapeLabelValue() throws Exception {
+        assertEquals("x-plain-x", PrometheusMetricsFeed.escapeLabelValue("x-plain-x"));
+        assertEquals("a\\\\b\\\"c\\nd", PrometheusMetricsFeed.escapeLabelValue("a\\b\"c\nd"));
+        assertEquals("", PrometheusMetricsFeed.escapeLabelValue(null));
+    }
+
+    @Test
+    public void testFormatValue() throws Exception {
+        assertEquals("7", PrometheusMetricsFeed.formatValue(7L));
+        assertEquals("0.25", PrometheusMetricsFeed.formatValue(0.25));
+        assertEquals("NaN", PrometheusMetricsFeed.formatValue(Double.NaN));
+        assertEquals("+Inf", PrometheusMetricsFeed.formatValue(Double.POSITIVE_INFINITY));
+        assertEquals("-Inf", PrometheusMetricsFeed.formatValue(Double.NEGATIVE_INFINITY));
+    }
+
+    protected String getExpositionText() {
+        return new String(this.feed.getExposition(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.monitor.model.BrokerStatsPackage;
+import com.amlinv.activemq.stats.StatsClock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class StatisticsStorePollerListenerTest {
+
+    private StatisticsStorePollerListener listener;
+
+    private StatisticsStore mockStatisticsStore;
+    private StatsClock mockStatsClock;
+    private Logger mockLogger;
+
+    private ActiveMQBrokerStats brokerStats;
+    private ActiveMQQueueJmxStats queueStats1;
+    private ActiveMQQueueJmxStats queueStats2;
+    private BrokerStatsPackage brokerStatsPackage;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockStatisticsStore = Mockito.mock(StatisticsStore.class);
+        this.mockStatsClock = Mockito.mock(StatsClock.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.listener = new StatisticsStorePollerListener(this.mockStatisticsStore);
+        this.listener.setStatsClock(this.mockStatsClock);
+
+        this.brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        this.queueStats1 = new ActiveMQQueueJmxStats("x-broker-x", "x-queue1-x");
+        this.queueStats2 = new ActiveMQQueueJmxStats("x-broker-x", "x-queue2-x");
+
+        Map<String, ActiveMQQueueJmxStats> queueStatsMap = new TreeMap<>();
+        queueStatsMap.put("x-queue1-x", this.queueStats1);
+        queueStatsMap.put("x-queue2-x", this.queueStats2);
+        this.brokerStatsPackage = new BrokerStatsPackage(this.brokerStats, queueStatsMap);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.listener.getLog());
+        assertNotSame(this.mockLogger, this.listener.getLog());
+
+        this.listener.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.listener.getLog());
+    }
+
+    @Test
+    public void testGetSetProperties() throws Exception {
+        assertSame(this.mockStatisticsStore, this.listener.getStatisticsStore());
+        assertSame(this.mockStatsClock, this.listener.getStatsClock());
+        assertEquals(StatisticsStorePollerListener.DEFAULT_STORE_INTERVAL, this.listener.getStoreInterval());
+
+        this.listener.setStoreInterval(1234L);
+        assertEquals(1234L, this.listener.getStoreInterval());
+    }
+
+    @Test
+    public void testOnBrokerPollComplete() throws Exception {
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1000L);
+
+        this.listener.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verify(this.mockStatisticsStore).storeBrokerStats(Mockito.anyLong(), Mockito.same(this.brokerStats));
+        Mockito.verify(this.mockStatisticsStore).storeQueueStats(Mockito.anyLong(), Mockito.same(this.queueStats1));
+        Mockito.verify(this.mockStatisticsStore).storeQueueStats(Mockito.anyLong(), Mockito.same(this.queueStats2));
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteRateLimited() throws Exception {
+        this.listener.setStoreInterval(1000L);
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(1000L, 1999L, 2000L);
+
+        this.listener.onBrokerPollComplete(this.brokerStatsPackage);
+        this.listener.onBrokerPollComplete(this.brokerStatsPackage);
+        this.listener.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verify(this.mockStatisticsStore, Mockito.times(2))
+                .storeBrokerStats(Mockito.anyLong(), Mockito.same(this.brokerStats));
+    }
+
+    @Test
+    public void testOnBrokerPollCompleteStoreFailure() throws Exception {
+        this.listener.setLog(this.mockLogger);
+
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.doThrow(ioExc).when(this.mockStatisticsStore)
+                .storeBrokerStats(Mockito.anyLong(), Mockito.any(ActiveMQBrokerStats.class));
+
+        this.listener.onBrokerPollComplete(this.brokerStatsPackage);
+
+        Mockito.verify(this.mockLogger).warn("failed to store broker statistics: broker={}", "x-broker-x", ioExc);
+    }
+}
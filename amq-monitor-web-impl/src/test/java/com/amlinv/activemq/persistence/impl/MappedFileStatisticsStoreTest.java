@@ -0,0 +1,520 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence.impl;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.persistence.StoredBrokerStats;
+import com.amlinv.activemq.persistence.StoredQueueStats;
+import com.amlinv.activemq.persistence.StoredStatsRollup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedFileStatisticsStoreTest {
+
+    private MappedFileStatisticsStore store;
+
+    private File directory;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.directory = File.createTempFile("amq-monitor-web-impl-test", ".dir");
+        this.directory.delete();
+
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        this.store = this.createStore();
+    }
+
+    @After
+    public void cleanupTest() throws Exception {
+        this.store.close();
+
+        File[] files = this.directory.listFiles();
+        if ( files != null ) {
+            for ( File oneFile : files ) {
+                oneFile.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        MappedFileStatisticsStore other = new MappedFileStatisticsStore(this.directory);
+
+        assertNotNull(other.getLog());
+        assertNotSame(this.mockLogger, other.getLog());
+
+        other.setLog(this.mockLogger);
+        assertSame(this.mockLogger, other.getLog());
+    }
+
+    @Test
+    public void testGetSetSegmentSize() throws Exception {
+        MappedFileStatisticsStore other = new MappedFileStatisticsStore(this.directory.getPath());
+
+        assertEquals(this.directory, other.getDirectory());
+        assertEquals(MappedFileStatisticsStore.DEFAULT_SEGMENT_SIZE, other.getSegmentSize());
+        assertEquals(MappedFileStatisticsStore.DEFAULT_MAX_SEGMENTS, other.getMaxSegments());
+        assertEquals(0L, other.getRetentionTime());
+        assertEquals(0L, other.getRollupInterval());
+
+        other.setSegmentSize(1024);
+        other.setMaxSegments(3);
+        other.setRetentionTime(5000L);
+        other.setRollupInterval(60000L);
+
+        assertEquals(1024, other.getSegmentSize());
+        assertEquals(3, other.getMaxSegments());
+        assertEquals(5000L, other.getRetentionTime());
+        assertEquals(60000L, other.getRollupInterval());
+    }
+
+    @Test
+    public void testStoreAndScanQueueStats() throws Exception {
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue2-x", 22L));
+        this.store.storeQueueStats(2000L, this.createQueueStats("x-broker2-x", "x-queue1-x", 33L));
+        this.store.storeQueueStats(3000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 44L));
+
+        List<StoredQueueStats> result = this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE);
+
+        assertEquals(3, result.size());
+        this.assertQueueStats(result.get(0), 1000L, "x-broker1-x", "x-queue1-x", 11L);
+        this.assertQueueStats(result.get(1), 2000L, "x-broker2-x", "x-queue1-x", 33L);
+        this.assertQueueStats(result.get(2), 3000L, "x-broker1-x", "x-queue1-x", 44L);
+
+        result = this.store.scanQueueStats("x-queue1-x", 1500L, 2500L);
+        assertEquals(1, result.size());
+        this.assertQueueStats(result.get(0), 2000L, "x-broker2-x", "x-queue1-x", 33L);
+
+        assertTrue(this.store.scanQueueStats("x-unknown-x", 0L, Long.MAX_VALUE).isEmpty());
+        assertTrue(this.store.scanQueueStats("x-queue1-x", 3001L, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testStoreDuringScan() throws Exception {
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+
+        final List<Long> visited = new ArrayList<>();
+        this.store.scanRecords(MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", 0L, Long.MAX_VALUE,
+                new MappedFileStatisticsStore.RecordVisitor() {
+                    @Override
+                    public void onRecord(long timestamp, int aggregate, String brokerName, long[] values) {
+                        visited.add(values[0]);
+
+                        // Stored from another thread, which must not wait for the scan to complete.
+                        Thread storeThread = new Thread() {
+                            @Override
+                            public void run() {
+                                try {
+                                    store.storeQueueStats(2000L, createQueueStats("x-broker1-x", "x-queue1-x", 22L));
+                                } catch ( IOException ioExc ) {
+                                    throw new RuntimeException(ioExc);
+                                }
+                            }
+                        };
+                        storeThread.start();
+
+                        try {
+                            storeThread.join();
+                        } catch ( InterruptedException intExc ) {
+                            throw new RuntimeException(intExc);
+                        }
+                    }
+                });
+
+        // The record stored during the scan is not part of it.
+        assertEquals(Arrays.asList(11L), visited);
+        assertEquals(2, this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testStoreAndScanBrokerStats() throws Exception {
+        ActiveMQBrokerStats brokerStats = new ActiveMQBrokerStats("x-broker1-x");
+        brokerStats.setAverageMessageSize(1L);
+        brokerStats.setUptimeMillis(2L);
+        brokerStats.setMemoryLimit(3L);
+        brokerStats.setMemoryPercentUsage(4);
+        brokerStats.setStorePercentUsage(5);
+        brokerStats.setCurrentConnectionsCount(6L);
+        brokerStats.setTotalConsumerCount(7L);
+        brokerStats.setTotalMessageCount(8L);
+        brokerStats.setTotalEnqueueCount(9L);
+        brokerStats.setTotalDequeueCount(10L);
+
+        this.store.storeBrokerStats(1000L, brokerStats);
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+
+        List<StoredBrokerStats> result = this.store.scanBrokerStats("x-broker1-x", 0L, Long.MAX_VALUE);
+
+        assertEquals(1, result.size());
+        StoredBrokerStats stored = result.get(0);
+        assertEquals(1000L, stored.getTimestamp());
+        assertEquals("x-broker1-x", stored.getBrokerName());
+        assertEquals(1L, stored.getAverageMessageSize());
+        assertEquals(2L, stored.getUptimeMillis());
+        assertEquals(3L, stored.getMemoryLimit());
+        assertEquals(4L, stored.getMemoryPercentUsage());
+        assertEquals(5L, stored.getStorePercentUsage());
+        assertEquals(6L, stored.getCurrentConnectionsCount());
+        assertEquals(7L, stored.getTotalConsumerCount());
+        assertEquals(8L, stored.getTotalMessageCount());
+        assertEquals(9L, stored.getTotalEnqueueCount());
+        assertEquals(10L, stored.getTotalDequeueCount());
+
+        assertTrue(this.store.scanBrokerStats("x-unknown-x", 0L, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testTimestampNeverGoesBackwards() throws Exception {
+        this.store.storeQueueStats(2000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 22L));
+
+        List<StoredQueueStats> result = this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE);
+
+        assertEquals(2, result.size());
+        assertEquals(2000L, result.get(1).getTimestamp());
+    }
+
+    @Test
+    public void testSegmentRollover() throws Exception {
+        for ( int cur = 0; cur < 10; cur++ ) {
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue1-x", cur));
+        }
+
+        // Four records per segment.
+        assertEquals(3, this.store.getSegmentCount());
+
+        List<StoredQueueStats> result = this.store.scanQueueStats("x-queue1-x", 1003L, 1008L);
+        assertEquals(6, result.size());
+        for ( int cur = 0; cur < 6; cur++ ) {
+            assertEquals(1003L + cur, result.get(cur).getTimestamp());
+            assertEquals(3L + cur, result.get(cur).getQueueSize());
+        }
+    }
+
+    @Test
+    public void testRemoveExcessSegments() throws Exception {
+        this.store.setMaxSegments(2);
+
+        for ( int cur = 0; cur < 10; cur++ ) {
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue1-x", cur));
+        }
+
+        assertEquals(2, this.store.getSegmentCount());
+
+        List<StoredQueueStats> result = this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE);
+        assertEquals(6, result.size());
+        assertEquals(1004L, result.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testRemoveSegmentsBeforeRetentionTime() throws Exception {
+        this.store.setLog(this.mockLogger);
+        this.store.setMaxSegments(2);
+        this.store.setRetentionTime(1000L);
+
+        for ( int cur = 0; cur < 9; cur++ ) {
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue1-x", cur));
+        }
+
+        assertEquals(2, this.store.getSegmentCount());
+        Mockito.verify(this.mockLogger).warn(Mockito.eq("removing statistics segment before its retention time: " +
+                "file={}; max-segments={}; segment-size={}; retention-time={}"), Mockito.any(File.class),
+                Mockito.eq(2), Mockito.anyInt(), Mockito.eq(1000L));
+    }
+
+    @Test
+    public void testRemoveExpiredSegments() throws Exception {
+        this.store.setLog(this.mockLogger);
+        this.store.setRetentionTime(4L);
+
+        for ( int cur = 0; cur < 9; cur++ ) {
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue1-x", cur));
+        }
+
+        // Segments of 1000-1003 and 1004-1007 and 1008; the first ends before 1008 - 4.
+        assertEquals(2, this.store.getSegmentCount());
+        assertEquals(1004L, this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE).get(0).getTimestamp());
+        Mockito.verify(this.mockLogger, Mockito.never()).warn(Mockito.startsWith("removing statistics segment"),
+                Mockito.<Object>anyVararg());
+    }
+
+    @Test
+    public void testScanQueueStatsRollup() throws Exception {
+        this.store.setRollupInterval(60000L);
+
+        this.store.storeRecord(60000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_MIN, "x-queue1-x", "x-broker1-x", new long[] { 1L });
+        this.store.storeRecord(60000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_MAX, "x-queue1-x", "x-broker1-x", new long[] { 9L });
+        this.store.storeRecord(60000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_AVG, "x-queue1-x", "x-broker1-x", new long[] { 5L });
+        this.store.storeRecord(60000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_LAST, "x-queue1-x", "x-broker1-x", new long[] { 7L });
+
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> result =
+                this.store.scanQueueStatsRollup("x-queue1-x", 0L, Long.MAX_VALUE, 0L);
+
+        assertEquals(1, result.size());
+        StoredStatsRollup<ActiveMQQueueJmxStats> rollup = result.get(0);
+        assertEquals("x-broker1-x", rollup.getBrokerName());
+        assertEquals(60000L, rollup.getTimestamp());
+        assertEquals(60000L, rollup.getInterval());
+        assertEquals("x-queue1-x", rollup.getMin().getQueueName());
+        assertEquals(1L, rollup.getMin().getQueueSize());
+        assertEquals(9L, rollup.getMax().getQueueSize());
+        assertEquals(5L, rollup.getAvg().getQueueSize());
+        assertEquals(7L, rollup.getLast().getQueueSize());
+
+        // Aggregate records are not raw samples.
+        assertTrue(this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testScanQueueStatsRollupFlushedMidInterval() throws Exception {
+        this.store.setRollupInterval(60000L);
+
+        StatisticsRollupTier tier = new StatisticsRollupTier(this.store);
+        tier.addSample(60000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", "x-broker1-x",
+                new long[] { 10L });
+        tier.flush();
+
+        // Restarted within the same interval.
+        tier = new StatisticsRollupTier(this.store);
+        tier.addSample(80000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", "x-broker1-x",
+                new long[] { 2L });
+        tier.addSample(90000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", "x-broker1-x",
+                new long[] { 3L });
+        tier.addSample(100000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", "x-broker1-x",
+                new long[] { 1L });
+        tier.flush();
+
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> result =
+                this.store.scanQueueStatsRollup("x-queue1-x", 0L, Long.MAX_VALUE, 0L);
+
+        assertEquals(1, result.size());
+        StoredStatsRollup<ActiveMQQueueJmxStats> rollup = result.get(0);
+        assertEquals(60000L, rollup.getTimestamp());
+        assertEquals(1L, rollup.getMin().getQueueSize());
+        assertEquals(10L, rollup.getMax().getQueueSize());
+        assertEquals(4L, rollup.getAvg().getQueueSize());
+        assertEquals(1L, rollup.getLast().getQueueSize());
+    }
+
+    @Test
+    public void testScanQueueStatsRollupOfSamples() throws Exception {
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker2-x", "x-queue1-x", 22L));
+
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> result =
+                this.store.scanQueueStatsRollup("x-queue1-x", 0L, Long.MAX_VALUE, 0L);
+
+        assertEquals(2, result.size());
+        assertEquals("x-broker1-x", result.get(0).getBrokerName());
+        assertEquals(0L, result.get(0).getInterval());
+        assertEquals(11L, result.get(0).getMin().getQueueSize());
+        assertSame(result.get(0).getMin(), result.get(0).getLast());
+        assertEquals(22L, result.get(1).getAvg().getQueueSize());
+    }
+
+    @Test
+    public void testScanBrokerStatsRollup() throws Exception {
+        this.store.setRollupInterval(60000L);
+
+        for ( int aggregate = MappedFileStatisticsStore.AGGREGATE_MIN;
+              aggregate <= MappedFileStatisticsStore.AGGREGATE_LAST; aggregate++ ) {
+
+            this.store.storeRecord(60000L, MappedFileStatisticsStore.RECORD_TYPE_BROKER, aggregate, "x-broker1-x",
+                    "x-broker1-x", new long[] { 0L, 0L, 0L, 0L, 0L, 0L, 0L, aggregate });
+        }
+
+        List<StoredStatsRollup<ActiveMQBrokerStats>> result =
+                this.store.scanBrokerStatsRollup("x-broker1-x", 0L, Long.MAX_VALUE, 0L);
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getMin().getTotalMessageCount());
+        assertEquals(2L, result.get(0).getMax().getTotalMessageCount());
+        assertEquals(3L, result.get(0).getAvg().getTotalMessageCount());
+        assertEquals(4L, result.get(0).getLast().getTotalMessageCount());
+    }
+
+    @Test
+    public void testSurvivesRestart() throws Exception {
+        for ( int cur = 0; cur < 6; cur++ ) {
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue1-x", cur));
+        }
+        this.store.close();
+
+        this.store = this.createStore();
+
+        List<StoredQueueStats> result = this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE);
+        assertEquals(6, result.size());
+        this.assertQueueStats(result.get(5), 1005L, "x-broker1-x", "x-queue1-x", 5L);
+
+        // New records continue after the existing ones, and new names are numbered after the existing ones.
+        this.store.storeQueueStats(900L, this.createQueueStats("x-broker1-x", "x-queue2-x", 77L));
+        this.store.flush();
+
+        assertEquals(2, this.store.getSegmentCount());
+        result = this.store.scanQueueStats("x-queue2-x", 0L, Long.MAX_VALUE);
+        assertEquals(1, result.size());
+        this.assertQueueStats(result.get(0), 1005L, "x-broker1-x", "x-queue2-x", 77L);
+        assertEquals(6, this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testScanIndexedByName() throws Exception {
+        this.store.close();
+        this.store = new MappedFileStatisticsStore(this.directory);
+        this.store.open();
+
+        for ( int cur = 0; cur < 50; cur++ ) {
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue1-x", cur));
+            this.store.storeQueueStats(1000L + cur, this.createQueueStats("x-broker1-x", "x-queue2-x", 100L + cur));
+        }
+
+        // Broker and queue records of the same name are told apart by type.
+        this.store.storeBrokerStats(1050L, new ActiveMQBrokerStats("x-queue1-x"));
+
+        List<StoredQueueStats> result = this.store.scanQueueStats("x-queue2-x", 1010L, 1039L);
+        assertEquals(30, result.size());
+        this.assertQueueStats(result.get(0), 1010L, "x-broker1-x", "x-queue2-x", 110L);
+        this.assertQueueStats(result.get(29), 1039L, "x-broker1-x", "x-queue2-x", 139L);
+
+        assertEquals(50, this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE).size());
+        assertEquals(1, this.store.scanBrokerStats("x-queue1-x", 0L, Long.MAX_VALUE).size());
+
+        // The index is rebuilt on open and kept as records are added to the same segment.
+        this.store.close();
+        this.store = new MappedFileStatisticsStore(this.directory);
+        this.store.open();
+
+        this.store.storeQueueStats(1060L, this.createQueueStats("x-broker1-x", "x-queue2-x", 160L));
+
+        assertEquals(1, this.store.getSegmentCount());
+        result = this.store.scanQueueStats("x-queue2-x", 1045L, Long.MAX_VALUE);
+        assertEquals(6, result.size());
+        this.assertQueueStats(result.get(4), 1049L, "x-broker1-x", "x-queue2-x", 149L);
+        this.assertQueueStats(result.get(5), 1060L, "x-broker1-x", "x-queue2-x", 160L);
+    }
+
+    @Test
+    public void testTruncatedNamesFile() throws Exception {
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+        this.store.close();
+
+        File namesFile = new File(this.directory, MappedFileStatisticsStore.NAMES_FILE);
+        long validLength = namesFile.length();
+        try ( RandomAccessFile file = new RandomAccessFile(namesFile, "rw") ) {
+            file.seek(validLength);
+            file.writeShort(20);
+            file.write('x');
+        }
+
+        this.store = new MappedFileStatisticsStore(this.directory);
+        this.store.setLog(this.mockLogger);
+        this.store.open();
+
+        assertEquals(validLength, namesFile.length());
+        Mockito.verify(this.mockLogger).warn("truncating incomplete name entry in statistics store: file={}",
+                namesFile);
+        assertEquals(1, this.store.scanQueueStats("x-queue1-x", 0L, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testIgnoreInvalidSegment() throws Exception {
+        this.store.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+        this.store.close();
+
+        File invalidFile = new File(this.directory, "stats-x-invalid-x.seg");
+        try ( RandomAccessFile file = new RandomAccessFile(invalidFile, "rw") ) {
+            file.setLength(128);
+        }
+
+        this.store = new MappedFileStatisticsStore(this.directory);
+        this.store.setLog(this.mockLogger);
+        this.store.open();
+
+        Mockito.verify(this.mockLogger).warn("ignoring statistics segment with invalid name: file={}", invalidFile);
+        assertEquals(1, this.store.getSegmentCount());
+    }
+
+    @Test
+    public void testStoreBeforeOpen() throws Exception {
+        MappedFileStatisticsStore unopened = new MappedFileStatisticsStore(this.directory);
+
+        try {
+            unopened.storeQueueStats(1000L, this.createQueueStats("x-broker1-x", "x-queue1-x", 11L));
+            fail("missing expected exception");
+        } catch ( IOException ioExc ) {
+            assertEquals("statistics store is not open: directory=" + this.directory, ioExc.getMessage());
+        }
+    }
+
+    protected MappedFileStatisticsStore createStore() throws IOException {
+        MappedFileStatisticsStore result = new MappedFileStatisticsStore(this.directory);
+        result.setSegmentSize(MappedFileStatisticsStore.HEADER_SIZE + ( 4 * MappedFileStatisticsStore.RECORD_SIZE ));
+        result.open();
+
+        return result;
+    }
+
+    protected ActiveMQQueueJmxStats createQueueStats(String brokerName, String queueName, long queueSize) {
+        ActiveMQQueueJmxStats result = new ActiveMQQueueJmxStats(brokerName, queueName);
+        result.setQueueSize(queueSize);
+        result.setEnqueueCount(queueSize + 1);
+        result.setDequeueCount(queueSize + 2);
+        result.setNumConsumers(3L);
+        result.setNumProducers(4L);
+        result.setCursorPercentUsage(5);
+        result.setMemoryPercentUsage(6);
+        result.setInflightCount(7L);
+
+        return result;
+    }
+
+    protected void assertQueueStats(StoredQueueStats actual, long timestamp, String brokerName, String queueName,
+                                    long queueSize) {
+
+        assertEquals(timestamp, actual.getTimestamp());
+        assertEquals(brokerName, actual.getBrokerName());
+        assertEquals(queueName, actual.getQueueName());
+        assertEquals(queueSize, actual.getQueueSize());
+        assertEquals(queueSize + 1, actual.getEnqueueCount());
+        assertEquals(queueSize + 2, actual.getDequeueCount());
+        assertEquals(3L, actual.getNumConsumers());
+        assertEquals(4L, actual.getNumProducers());
+        assertEquals(5, actual.getCursorPercentUsage());
+        assertEquals(6, actual.getMemoryPercentUsage());
+        assertEquals(7L, actual.getInflightCount());
+    }
+}
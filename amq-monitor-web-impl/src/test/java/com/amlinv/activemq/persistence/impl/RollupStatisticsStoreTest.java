@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence.impl;
+
+import com.amlinv.activemq.monitor.model.ActiveMQBrokerStats;
+import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
+import com.amlinv.activemq.persistence.StatisticsStore;
+import com.amlinv.activemq.persistence.StoredBrokerStats;
+import com.amlinv.activemq.persistence.StoredQueueStats;
+import com.amlinv.activemq.persistence.StoredStatsRollup;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RollupStatisticsStoreTest {
+
+    private RollupStatisticsStore store;
+
+    private StatisticsStore mockRawStore;
+    private StatisticsRollupTier mockMinuteTier;
+    private StatisticsRollupTier mockHourTier;
+    private MappedFileStatisticsStore mockMinuteStore;
+    private MappedFileStatisticsStore mockHourStore;
+    private Logger mockLogger;
+
+    private ActiveMQBrokerStats brokerStats;
+    private ActiveMQQueueJmxStats queueStats;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockRawStore = Mockito.mock(StatisticsStore.class);
+        this.mockMinuteTier = Mockito.mock(StatisticsRollupTier.class);
+        this.mockHourTier = Mockito.mock(StatisticsRollupTier.class);
+        this.mockMinuteStore = Mockito.mock(MappedFileStatisticsStore.class);
+        this.mockHourStore = Mockito.mock(MappedFileStatisticsStore.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        Mockito.when(this.mockMinuteTier.getInterval()).thenReturn(60000L);
+        Mockito.when(this.mockMinuteTier.getStore()).thenReturn(this.mockMinuteStore);
+        Mockito.when(this.mockHourTier.getInterval()).thenReturn(3600000L);
+        Mockito.when(this.mockHourTier.getStore()).thenReturn(this.mockHourStore);
+
+        this.brokerStats = new ActiveMQBrokerStats("x-broker-x");
+        this.brokerStats.setTotalMessageCount(13L);
+        this.queueStats = new ActiveMQQueueJmxStats("x-broker-x", "x-queue-x");
+        this.queueStats.setQueueSize(17L);
+
+        // Deliberately out of order.
+        this.store = new RollupStatisticsStore(this.mockRawStore, Arrays.asList(this.mockHourTier,
+                this.mockMinuteTier));
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.store.getLog());
+        assertNotSame(this.mockLogger, this.store.getLog());
+
+        this.store.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.store.getLog());
+    }
+
+    @Test
+    public void testGetRawStoreAndTiers() throws Exception {
+        assertSame(this.mockRawStore, this.store.getRawStore());
+        assertEquals(Arrays.asList(this.mockMinuteTier, this.mockHourTier), this.store.getTiers());
+    }
+
+    @Test
+    public void testStoreBrokerStats() throws Exception {
+        this.store.storeBrokerStats(1000L, this.brokerStats);
+
+        Mockito.verify(this.mockRawStore).storeBrokerStats(1000L, this.brokerStats);
+        for ( StatisticsRollupTier oneTier : Arrays.asList(this.mockMinuteTier, this.mockHourTier) ) {
+            Mockito.verify(oneTier).addSample(1000L, MappedFileStatisticsStore.RECORD_TYPE_BROKER, "x-broker-x",
+                    "x-broker-x", MappedFileStatisticsStore.brokerStatsValues(this.brokerStats));
+        }
+    }
+
+    @Test
+    public void testStoreQueueStats() throws Exception {
+        this.store.storeQueueStats(1000L, this.queueStats);
+
+        Mockito.verify(this.mockRawStore).storeQueueStats(1000L, this.queueStats);
+        for ( StatisticsRollupTier oneTier : Arrays.asList(this.mockMinuteTier, this.mockHourTier) ) {
+            Mockito.verify(oneTier).addSample(1000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x",
+                    "x-broker-x", MappedFileStatisticsStore.queueStatsValues(this.queueStats));
+        }
+    }
+
+    @Test
+    public void testScanRawStats() throws Exception {
+        List<StoredQueueStats> queueResult = Collections.emptyList();
+        List<StoredBrokerStats> brokerResult = Collections.emptyList();
+        Mockito.when(this.mockRawStore.scanQueueStats("x-queue-x", 1L, 2L)).thenReturn(queueResult);
+        Mockito.when(this.mockRawStore.scanBrokerStats("x-broker-x", 1L, 2L)).thenReturn(brokerResult);
+
+        assertSame(queueResult, this.store.scanQueueStats("x-queue-x", 1L, 2L));
+        assertSame(brokerResult, this.store.scanBrokerStats("x-broker-x", 1L, 2L));
+    }
+
+    @Test
+    public void testScanQueueStatsRollupSelectsTier() throws Exception {
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> rawResult = Collections.emptyList();
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> minuteResult = Collections.emptyList();
+        List<StoredStatsRollup<ActiveMQQueueJmxStats>> hourResult = Collections.emptyList();
+
+        Mockito.when(this.mockRawStore.scanQueueStatsRollup("x-queue-x", 1L, 2L, 1000L)).thenReturn(rawResult);
+        Mockito.when(this.mockMinuteStore.scanQueueStatsRollup("x-queue-x", 1L, 2L, 600000L))
+                .thenReturn(minuteResult);
+        Mockito.when(this.mockHourStore.scanQueueStatsRollup("x-queue-x", 1L, 2L, 86400000L))
+                .thenReturn(hourResult);
+
+        assertSame(rawResult, this.store.scanQueueStatsRollup("x-queue-x", 1L, 2L, 1000L));
+        assertSame(minuteResult, this.store.scanQueueStatsRollup("x-queue-x", 1L, 2L, 600000L));
+        assertSame(hourResult, this.store.scanQueueStatsRollup("x-queue-x", 1L, 2L, 86400000L));
+    }
+
+    @Test
+    public void testScanBrokerStatsRollupSelectsTier() throws Exception {
+        List<StoredStatsRollup<ActiveMQBrokerStats>> minuteResult = Collections.emptyList();
+        Mockito.when(this.mockMinuteStore.scanBrokerStatsRollup("x-broker-x", 1L, 2L, 60000L))
+                .thenReturn(minuteResult);
+
+        assertSame(minuteResult, this.store.scanBrokerStatsRollup("x-broker-x", 1L, 2L, 60000L));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        this.store.setLog(this.mockLogger);
+
+        IOException ioExc = new IOException("x-io-exc-x");
+        Mockito.doThrow(ioExc).when(this.mockMinuteTier).flush();
+
+        this.store.close();
+
+        Mockito.verify(this.mockHourTier).flush();
+        Mockito.verify(this.mockLogger).warn("failed to flush statistics rollup tier: interval={}", 60000L, ioExc);
+    }
+}
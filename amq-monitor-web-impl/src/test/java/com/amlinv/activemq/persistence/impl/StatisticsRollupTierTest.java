@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.activemq.persistence.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StatisticsRollupTierTest {
+
+    private StatisticsRollupTier tier;
+
+    private MappedFileStatisticsStore mockStore;
+    private Logger mockLogger;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockStore = Mockito.mock(MappedFileStatisticsStore.class);
+        this.mockLogger = Mockito.mock(Logger.class);
+
+        Mockito.when(this.mockStore.getRollupInterval()).thenReturn(1000L);
+
+        this.tier = new StatisticsRollupTier(this.mockStore);
+    }
+
+    @Test
+    public void testGetSetLog() throws Exception {
+        assertNotNull(this.tier.getLog());
+        assertNotSame(this.mockLogger, this.tier.getLog());
+
+        this.tier.setLog(this.mockLogger);
+        assertSame(this.mockLogger, this.tier.getLog());
+    }
+
+    @Test
+    public void testGetStoreAndInterval() throws Exception {
+        assertSame(this.mockStore, this.tier.getStore());
+        assertEquals(1000L, this.tier.getInterval());
+    }
+
+    @Test
+    public void testStoreWithoutRollupInterval() throws Exception {
+        Mockito.when(this.mockStore.getRollupInterval()).thenReturn(0L);
+        Mockito.when(this.mockStore.getDirectory()).thenReturn(new File("x-dir-x"));
+
+        try {
+            new StatisticsRollupTier(this.mockStore);
+            fail("missing expected exception");
+        } catch ( IllegalArgumentException iaExc ) {
+            assertEquals("rollup tier store must have a positive rollup interval: directory=x-dir-x",
+                    iaExc.getMessage());
+        }
+    }
+
+    @Test
+    public void testSummarizeInterval() throws Exception {
+        this.tier.addSample(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 5L, 100L });
+        this.tier.addSample(2400L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 9L, 50L });
+        this.tier.addSample(2800L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 7L, 75L });
+
+        Mockito.verify(this.mockStore, Mockito.never()).storeRecord(Mockito.anyLong(), Mockito.anyInt(),
+                Mockito.anyInt(), Mockito.anyString(), Mockito.anyString(), Mockito.any(long[].class));
+
+        // First sample of the next interval completes the interval.
+        this.tier.addSample(3100L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 1L, 1L });
+
+        this.verifyAggregate(2000L, MappedFileStatisticsStore.AGGREGATE_MIN, 5L, 50L);
+        this.verifyAggregate(2000L, MappedFileStatisticsStore.AGGREGATE_MAX, 9L, 100L);
+        this.verifyAggregate(2000L, MappedFileStatisticsStore.AGGREGATE_AVG, 7L, 75L);
+        this.verifyAggregate(2000L, MappedFileStatisticsStore.AGGREGATE_LAST, 7L, 75L);
+        this.verifyAggregate(2000L, MappedFileStatisticsStore.AGGREGATE_COUNT, 3L);
+    }
+
+    @Test
+    public void testCompleteIntervalsOfOtherQueues() throws Exception {
+        this.tier.addSample(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", "x-broker-x",
+                new long[] { 5L });
+
+        // A sample of another queue in a later interval completes the first queue's interval.
+        this.tier.addSample(3000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue2-x", "x-broker-x",
+                new long[] { 6L });
+
+        Mockito.verify(this.mockStore).storeRecord(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_LAST, "x-queue1-x", "x-broker-x", new long[] { 5L });
+        Mockito.verify(this.mockStore, Mockito.never()).storeRecord(Mockito.anyLong(), Mockito.anyInt(),
+                Mockito.anyInt(), Mockito.eq("x-queue2-x"), Mockito.anyString(), Mockito.any(long[].class));
+    }
+
+    @Test
+    public void testLateSample() throws Exception {
+        this.tier.addSample(3000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker1-x",
+                new long[] { 5L });
+        this.tier.addSample(2900L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker1-x",
+                new long[] { 4L });
+
+        Mockito.verify(this.mockStore, Mockito.never()).storeRecord(Mockito.anyLong(), Mockito.anyInt(),
+                Mockito.anyInt(), Mockito.anyString(), Mockito.anyString(), Mockito.any(long[].class));
+
+        // Both intervals are written on completion, in time order.
+        this.tier.addSample(4000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker1-x",
+                new long[] { 6L });
+
+        InOrder inOrder = Mockito.inOrder(this.mockStore);
+        inOrder.verify(this.mockStore).storeRecord(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_LAST, "x-queue-x", "x-broker1-x", new long[] { 4L });
+        inOrder.verify(this.mockStore).storeRecord(3000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_MIN, "x-queue-x", "x-broker1-x", new long[] { 5L });
+    }
+
+    @Test
+    public void testCompletedIntervalsWrittenInOrder() throws Exception {
+        this.tier.addSample(3000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue1-x", "x-broker-x",
+                new long[] { 3L });
+        this.tier.addSample(3000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue2-x", "x-broker-x",
+                new long[] { 3L });
+        this.tier.addSample(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue3-x", "x-broker-x",
+                new long[] { 2L });
+        this.tier.addSample(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue4-x", "x-broker-x",
+                new long[] { 2L });
+
+        this.tier.flush();
+
+        ArgumentCaptor<Long> timestampCaptor = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(this.mockStore, Mockito.atLeastOnce()).storeRecord(timestampCaptor.capture(),
+                Mockito.anyInt(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(long[].class));
+
+        List<Long> timestamps = timestampCaptor.getAllValues();
+        List<Long> sorted = new ArrayList<>(timestamps);
+        Collections.sort(sorted);
+        assertEquals(sorted, timestamps);
+    }
+
+    @Test
+    public void testSampleOlderThanWrittenIntervalDropped() throws Exception {
+        this.tier.setLog(this.mockLogger);
+
+        this.tier.addSample(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 2L });
+        this.tier.addSample(3000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 3L });
+
+        // 2000 is written; a sample of it still starts another summary, but an older one is dropped.
+        this.tier.addSample(2500L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 25L });
+        this.tier.addSample(1500L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, "x-queue-x", "x-broker-x",
+                new long[] { 15L });
+        this.tier.flush();
+
+        Mockito.verify(this.mockStore).storeRecord(2000L, MappedFileStatisticsStore.RECORD_TYPE_QUEUE,
+                MappedFileStatisticsStore.AGGREGATE_LAST, "x-queue-x", "x-broker-x", new long[] { 25L });
+        Mockito.verify(this.mockStore, Mockito.never()).storeRecord(Mockito.eq(1000L), Mockito.anyInt(),
+                Mockito.anyInt(), Mockito.anyString(), Mockito.anyString(), Mockito.any(long[].class));
+        Mockito.verify(this.mockLogger).warn("dropping sample older than the last interval written: interval={}; " +
+                "timestamp={}; last-written={}; name={}; broker={}", 1000L, 1500L, 2000L, "x-queue-x", "x-broker-x");
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        this.tier.addSample(2000L, MappedFileStatisticsStore.RECORD_TYPE_BROKER, "x-broker-x", "x-broker-x",
+                new long[] { 5L });
+
+        this.tier.flush();
+        this.tier.flush();
+
+        Mockito.verify(this.mockStore).storeRecord(2000L, MappedFileStatisticsStore.RECORD_TYPE_BROKER,
+                MappedFileStatisticsStore.AGGREGATE_AVG, "x-broker-x", "x-broker-x", new long[] { 5L });
+    }
+
+    protected void verifyAggregate(long timestamp, int aggregate, long... values) throws Exception {
+        Mockito.verify(this.mockStore).storeRecord(timestamp, MappedFileStatisticsStore.RECORD_TYPE_QUEUE, aggregate,
+                "x-queue-x", "x-broker-x", values);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueRankEntryTest {
+
+    @Test
+    public void testGetters() throws Exception {
+        QueueRankEntry entry = new QueueRankEntry("x-queue-x", 1.5);
+
+        assertEquals("x-queue-x", entry.getQueueName());
+        assertEquals(1.5, entry.getValue(), 0.0);
+    }
+
+    @Test
+    public void testCompareTo() throws Exception {
+        QueueRankEntry high = new QueueRankEntry("x-queue2-x", 20.0);
+        QueueRankEntry lowA = new QueueRankEntry("x-queue1-x", 10.0);
+        QueueRankEntry lowB = new QueueRankEntry("x-queue3-x", 10.0);
+
+        assertTrue(high.compareTo(lowA) < 0);
+        assertTrue(lowA.compareTo(high) > 0);
+        assertTrue(lowA.compareTo(lowB) < 0);
+        assertEquals(0, lowA.compareTo(new QueueRankEntry("x-queue1-x", 10.0)));
+    }
+
+    @Test
+    public void testEqualsHashCode() throws Exception {
+        QueueRankEntry entry = new QueueRankEntry("x-queue-x", 10.0);
+        QueueRankEntry same = new QueueRankEntry("x-queue-x", 10.0);
+
+        assertTrue(entry.equals(entry));
+        assertTrue(entry.equals(same));
+        assertEquals(entry.hashCode(), same.hashCode());
+        assertFalse(entry.equals(new QueueRankEntry("x-queue-x", 11.0)));
+        assertFalse(entry.equals(new QueueRankEntry("x-other-queue-x", 10.0)));
+        assertFalse(entry.equals("x-queue-x"));
+    }
+}
@@ -21,6 +21,8 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 /**
@@ -30,12 +32,8 @@ public class QueueStatisticsCollectionTest {
 
     private QueueStatisticsCollection collection;
 
-    private ActiveMQQueueStats mockQueueStatsPolled001;
-    private ActiveMQQueueStats mockQueueStatsPolled002;
-    private ActiveMQQueueStats mockQueueStatsTotal001;
-    private ActiveMQQueueStats mockQueueStatsTotal002;
-    private ActiveMQQueueStats mockQueueStatsDup;
-    private ActiveMQQueueStats mockQueueStatsSubtracted;
+    private ActiveMQQueueStats queueStatsPolled001;
+    private ActiveMQQueueStats queueStatsPolled002;
     private StatsClock mockStatsClock;
     private Logger mockLogger;
 
@@ -43,23 +41,10 @@ public class QueueStatisticsCollectionTest {
     public void setupTest() throws Exception {
         this.collection = new QueueStatisticsCollection("x-queue-name-x");
 
-        this.mockQueueStatsPolled001 = Mockito.mock(ActiveMQQueueStats.class);
-        this.mockQueueStatsPolled002 = Mockito.mock(ActiveMQQueueStats.class);
-        this.mockQueueStatsTotal001 = Mockito.mock(ActiveMQQueueStats.class);
-        this.mockQueueStatsTotal002 = Mockito.mock(ActiveMQQueueStats.class);
-        this.mockQueueStatsDup = Mockito.mock(ActiveMQQueueStats.class);
-        this.mockQueueStatsSubtracted = Mockito.mock(ActiveMQQueueStats.class);
+        this.queueStatsPolled001 = this.createQueueStats("x-broker-name-001-x", 1, 37, 47);
+        this.queueStatsPolled002 = this.createQueueStats("x-broker-name-002-x", 10, 12, 20);
         this.mockStatsClock = Mockito.mock(StatsClock.class);
         this.mockLogger = Mockito.mock(Logger.class);
-
-        Mockito.when(this.mockQueueStatsPolled001.getBrokerName()).thenReturn("x-broker-name-001-x");
-        Mockito.when(this.mockQueueStatsPolled002.getBrokerName()).thenReturn("x-broker-name-002-x");
-        Mockito.when(this.mockQueueStatsPolled001.dup("x-broker-name-001-x")).thenReturn(this.mockQueueStatsDup);
-        Mockito.when(this.mockQueueStatsPolled001.dup("totals")).thenReturn(this.mockQueueStatsTotal001);
-        Mockito.when(this.mockQueueStatsPolled002.dup("x-broker-name-002-x")).thenReturn(this.mockQueueStatsTotal002);
-
-        Mockito.when(this.mockQueueStatsPolled001.getCursorPercentUsage()).thenReturn(37);
-        Mockito.when(this.mockQueueStatsPolled001.getMemoryPercentUsage()).thenReturn(47);
     }
 
     @Test
@@ -86,51 +71,103 @@ public class QueueStatisticsCollectionTest {
 
     @Test
     public void testOnUpdatedStats() throws Exception {
-        this.collection.onUpdatedStats(this.mockQueueStatsPolled001);
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
 
         ActiveMQQueueStats result = this.collection.getQueueTotalStats();
 
-        Mockito.verify(this.mockQueueStatsTotal001).copyOut(result);
+        this.assertCounts(result, 1, 37, 47);
+        assertEquals("totals", result.getBrokerName());
+        assertEquals("x-queue-name-x", result.getQueueName());
+    }
+
+    @Test
+    public void testGetSetTopNIndex() throws Exception {
+        QueueTopNIndex index = new QueueTopNIndex();
+
+        assertNull(this.collection.getTopNIndex());
+
+        this.collection.setTopNIndex(index);
+        assertSame(index, this.collection.getTopNIndex());
+    }
+
+    @Test
+    public void testOnUpdatedStatsUpdatesTopNIndex() throws Exception {
+        QueueTopNIndex mockIndex = Mockito.mock(QueueTopNIndex.class);
+        this.collection.setTopNIndex(mockIndex);
+
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
+
+        Mockito.verify(mockIndex).onQueueUpdated(Mockito.eq("x-queue-name-x"), Mockito.eq(1L), Mockito.anyDouble(),
+                Mockito.anyDouble(), Mockito.eq(6L));
+    }
+
+    @Test
+    public void testUpdateAfterRemovedIgnored() throws Exception {
+        QueueTopNIndex mockIndex = Mockito.mock(QueueTopNIndex.class);
+        this.collection.setTopNIndex(mockIndex);
+
+        this.collection.onRemoved();
+        Mockito.verify(mockIndex).removeQueue("x-queue-name-x");
+
+        // An update that was in flight when the queue was removed.
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
+
+        Mockito.verify(mockIndex, Mockito.never()).onQueueUpdated(Mockito.anyString(), Mockito.anyLong(),
+                Mockito.anyDouble(), Mockito.anyDouble(), Mockito.anyLong());
+        assertEquals(0L, this.collection.getQueueTotalStats().getQueueSize());
+    }
+
+    @Test
+    public void testOnUpdatedStatsWithTraceLogging() throws Exception {
+        Mockito.when(this.mockLogger.isTraceEnabled()).thenReturn(true);
+        this.collection.setLog(this.mockLogger);
+
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
+
+        Mockito.verify(this.mockLogger).trace("Have updated stats for queue {}; consumer-count={}", "x-queue-name-x",
+                4L);
     }
 
     @Test
     public void testGetStatsBeforeUpdate() throws Exception {
         ActiveMQQueueStats result = this.collection.getQueueTotalStats();
 
-        Mockito.verify(this.mockQueueStatsTotal001, Mockito.times(0)).copyOut(result);
+        this.assertCounts(result, 0, 0, 0);
     }
 
     @Test
     public void testOnUpdatedStatsTwoBrokers() throws Exception {
-        Mockito.when(this.mockQueueStatsTotal001.addCounts(this.mockQueueStatsPolled002, "totals"))
-                .thenReturn(this.mockQueueStatsTotal002);
-        Mockito.when(this.mockQueueStatsTotal001.getCursorPercentUsage()).thenReturn(10);
-        Mockito.when(this.mockQueueStatsTotal002.getCursorPercentUsage()).thenReturn(12);
-        Mockito.when(this.mockQueueStatsTotal001.getMemoryPercentUsage()).thenReturn(22);
-        Mockito.when(this.mockQueueStatsTotal002.getMemoryPercentUsage()).thenReturn(20);
-
-        this.collection.onUpdatedStats(this.mockQueueStatsPolled001);
-        this.collection.onUpdatedStats(this.mockQueueStatsPolled002);
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
+        this.collection.onUpdatedStats(this.queueStatsPolled002);
 
         ActiveMQQueueStats result = this.collection.getQueueTotalStats();
 
-        Mockito.verify(this.mockQueueStatsTotal001).addCounts(this.mockQueueStatsPolled002, "totals");
-        Mockito.verify(this.mockQueueStatsTotal002).copyOut(result);
+        // Counts are summed; percentages are the highest of any broker.
+        this.assertCounts(result, 11, 37, 47);
     }
 
     @Test
     public void testUpdateSameBrokerTwice() throws Exception {
-        Mockito.when(this.mockQueueStatsPolled001.subtractCounts(this.mockQueueStatsDup))
-                .thenReturn(this.mockQueueStatsSubtracted);
-        Mockito.when(this.mockQueueStatsTotal001.addCounts(this.mockQueueStatsSubtracted, "totals"))
-                .thenReturn(mockQueueStatsTotal002);
-
-        this.collection.onUpdatedStats(this.mockQueueStatsPolled001);
-        this.collection.onUpdatedStats(this.mockQueueStatsPolled001);
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
+        this.collection.onUpdatedStats(this.queueStatsPolled002);
+        this.collection.onUpdatedStats(this.createQueueStats("x-broker-name-001-x", 5, 3, 4));
 
         ActiveMQQueueStats result = this.collection.getQueueTotalStats();
 
-        Mockito.verify(this.mockQueueStatsTotal002).copyOut(result);
+        this.assertCounts(result, 15, 12, 20);
+    }
+
+    @Test
+    public void testCopyOutQueueTotalStats() throws Exception {
+        this.collection.onUpdatedStats(this.queueStatsPolled001);
+
+        ActiveMQQueueStats result = new ActiveMQQueueStats("totals", "x-queue-name-x");
+        this.collection.copyOutQueueTotalStats(result);
+        this.assertCounts(result, 1, 37, 47);
+
+        this.collection.onUpdatedStats(this.queueStatsPolled002);
+        this.collection.copyOutQueueTotalStats(result);
+        this.assertCounts(result, 11, 37, 47);
     }
 
     /**
@@ -254,4 +291,73 @@ public class QueueStatisticsCollectionTest {
         assertEquals(100.0 * ( 3.0 / 60.0 ), this.collection.getQueueTotalStats().getEnqueueRate1Minute(), 0.0000001);
         assertEquals(200.0 * ( 3.0 / 60.0 ), this.collection.getQueueTotalStats().getDequeueRate1Minute(), 0.0000001);
     }
+
+    @Test
+    public void testHistory() throws Exception {
+        QueueStatisticsCollection historyCollection = new QueueStatisticsCollection("x-queue-name-x", 10, 1000);
+        historyCollection.setStatsClock(this.mockStatsClock);
+
+        Mockito.when(this.mockStatsClock.getStatsStopWatchTime()).thenReturn(5000L, 5500L, 6000L, 6000L);
+
+        historyCollection.onUpdatedStats(this.queueStatsPolled001);
+        historyCollection.onUpdatedStats(this.createQueueStats("x-broker-name-001-x", 2, 0, 0));
+        historyCollection.onUpdatedStats(this.createQueueStats("x-broker-name-001-x", 3, 0, 0));
+        historyCollection.onUpdatedStats(this.queueStatsPolled002);
+
+        Map<String, QueueStatisticsHistorySeries> history = historyCollection.getHistory(0);
+
+        assertEquals(2, history.size());
+
+        // Second sample within the interval is dropped.
+        QueueStatisticsHistorySeries broker1Series = history.get("x-broker-name-001-x");
+        assertArrayEquals(new long[] { 1, 3 }, broker1Series.getQueueSize());
+        assertArrayEquals(new long[] { 2, 6 }, broker1Series.getEnqueueCount());
+        assertArrayEquals(new long[] { 3, 9 }, broker1Series.getDequeueCount());
+        assertArrayEquals(new long[] { 4, 12 }, broker1Series.getNumConsumers());
+        assertArrayEquals(new long[] { 6, 18 }, broker1Series.getInflightCount());
+
+        // Timestamps are converted to wall-clock time.
+        long[] timestamps = broker1Series.getTimestamps();
+        assertEquals(1000L, timestamps[1] - timestamps[0]);
+        assertTrue(Math.abs(System.currentTimeMillis() - timestamps[0]) < 60000L);
+
+        assertArrayEquals(new long[] { 10 }, history.get("x-broker-name-002-x").getQueueSize());
+    }
+
+    @Test
+    public void testHistoryDisabled() throws Exception {
+        QueueStatisticsCollection noHistoryCollection = new QueueStatisticsCollection("x-queue-name-x", 0, 1000);
+
+        noHistoryCollection.onUpdatedStats(this.queueStatsPolled001);
+
+        assertEquals(0, noHistoryCollection.getHistory(0).get("x-broker-name-001-x").size());
+    }
+
+    /**
+     * Create queue stats with every count derived from the given base value so totals are easy to verify.
+     */
+    protected ActiveMQQueueStats createQueueStats(String brokerName, long base, int cursorPct, int memoryPct) {
+        ActiveMQQueueStats result = new ActiveMQQueueStats(brokerName, "x-queue-name-x");
+        result.setQueueSize(base);
+        result.setEnqueueCount(base * 2);
+        result.setDequeueCount(base * 3);
+        result.setNumConsumers(base * 4);
+        result.setNumProducers(base * 5);
+        result.setInflightCount(base * 6);
+        result.setCursorPercentUsage(cursorPct);
+        result.setMemoryPercentUsage(memoryPct);
+
+        return result;
+    }
+
+    protected void assertCounts(ActiveMQQueueStats actual, long base, int cursorPct, int memoryPct) {
+        assertEquals(base, actual.getQueueSize());
+        assertEquals(base * 2, actual.getEnqueueCount());
+        assertEquals(base * 3, actual.getDequeueCount());
+        assertEquals(base * 4, actual.getNumConsumers());
+        assertEquals(base * 5, actual.getNumProducers());
+        assertEquals(base * 6, actual.getInflightCount());
+        assertEquals(cursorPct, actual.getCursorPercentUsage());
+        assertEquals(memoryPct, actual.getMemoryPercentUsage());
+    }
 }
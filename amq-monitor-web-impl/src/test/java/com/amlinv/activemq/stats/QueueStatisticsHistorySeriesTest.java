@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueStatisticsHistorySeriesTest {
+
+    @Test
+    public void testSize() throws Exception {
+        QueueStatisticsHistorySeries series = new QueueStatisticsHistorySeries(7);
+
+        assertEquals(7, series.size());
+        assertEquals(7, series.getTimestamps().length);
+        assertEquals(7, series.getQueueSize().length);
+        assertEquals(7, series.getEnqueueCount().length);
+        assertEquals(7, series.getDequeueCount().length);
+        assertEquals(7, series.getNumConsumers().length);
+        assertEquals(7, series.getInflightCount().length);
+    }
+}
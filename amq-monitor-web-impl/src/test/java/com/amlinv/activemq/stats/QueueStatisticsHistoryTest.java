@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueStatisticsHistoryTest {
+
+    private QueueStatisticsHistory history;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.history = new QueueStatisticsHistory(3, 100);
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+        assertEquals(3, this.history.getCapacity());
+        assertEquals(100, this.history.getSampleInterval());
+        assertEquals(0, this.history.size());
+    }
+
+    @Test
+    public void testAddSample() throws Exception {
+        assertTrue(this.history.addSample(1000, 1, 2, 3, 4, 5));
+        assertTrue(this.history.addSample(1100, 11, 12, 13, 14, 15));
+
+        QueueStatisticsHistorySeries series = this.history.getSeries(0, 0);
+
+        assertEquals(2, series.size());
+        assertArrayEquals(new long[] { 1000, 1100 }, series.getTimestamps());
+        assertArrayEquals(new long[] { 1, 11 }, series.getQueueSize());
+        assertArrayEquals(new long[] { 2, 12 }, series.getEnqueueCount());
+        assertArrayEquals(new long[] { 3, 13 }, series.getDequeueCount());
+        assertArrayEquals(new long[] { 4, 14 }, series.getNumConsumers());
+        assertArrayEquals(new long[] { 5, 15 }, series.getInflightCount());
+    }
+
+    @Test
+    public void testSampleWithinIntervalDropped() throws Exception {
+        assertTrue(this.history.addSample(1000, 1, 2, 3, 4, 5));
+        assertFalse(this.history.addSample(1099, 11, 12, 13, 14, 15));
+
+        assertEquals(1, this.history.size());
+        assertArrayEquals(new long[] { 1 }, this.history.getSeries(0, 0).getQueueSize());
+    }
+
+    @Test
+    public void testWrapOverwritesOldest() throws Exception {
+        for ( int cur = 0; cur < 5; cur++ ) {
+            this.history.addSample(1000 + cur * 100, cur, 0, 0, 0, 0);
+        }
+
+        assertEquals(3, this.history.size());
+
+        QueueStatisticsHistorySeries series = this.history.getSeries(0, 0);
+        assertArrayEquals(new long[] { 1200, 1300, 1400 }, series.getTimestamps());
+        assertArrayEquals(new long[] { 2, 3, 4 }, series.getQueueSize());
+    }
+
+    @Test
+    public void testGetSeriesSinceWithOffset() throws Exception {
+        for ( int cur = 0; cur < 5; cur++ ) {
+            this.history.addSample(1000 + cur * 100, cur, 0, 0, 0, 0);
+        }
+
+        QueueStatisticsHistorySeries series = this.history.getSeries(1300, 50000);
+        assertArrayEquals(new long[] { 51300, 51400 }, series.getTimestamps());
+        assertArrayEquals(new long[] { 3, 4 }, series.getQueueSize());
+
+        assertEquals(0, this.history.getSeries(2000, 0).size());
+    }
+
+    @Test
+    public void testZeroCapacity() throws Exception {
+        QueueStatisticsHistory disabled = new QueueStatisticsHistory(0, 100);
+
+        assertFalse(disabled.addSample(1000, 1, 2, 3, 4, 5));
+        assertEquals(0, disabled.getSeries(0, 0).size());
+    }
+}
@@ -19,10 +19,16 @@ package com.amlinv.activemq.stats;
 import com.amlinv.activemq.monitor.model.ActiveMQQueueJmxStats;
 import com.amlinv.activemq.topo.registry.DestinationRegistryListener;
 import com.amlinv.activemq.topo.registry.model.DestinationState;
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -72,6 +78,29 @@ public class QueueStatisticsRegistryTest {
         assertEquals(33, result.get("x-queue-name-x").getDequeueCount());
     }
 
+    @Test
+    public void testGetSetMetricRegistry() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertNotNull(this.registry.getMetricRegistry());
+        assertNotSame(metricRegistry, this.registry.getMetricRegistry());
+
+        this.registry.setMetricRegistry(metricRegistry);
+        assertSame(metricRegistry, this.registry.getMetricRegistry());
+    }
+
+    @Test
+    public void testOnUpdatedStatsAggregationTimer() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        this.registry.setMetricRegistry(metricRegistry);
+
+        this.registry.onUpdatedStats(this.stats);
+        this.registry.onUpdatedStats(this.stats);
+
+        assertEquals(2, metricRegistry.timer("com.amlinv.activemq.stats.QueueStatisticsRegistry.aggregation")
+                .getCount());
+    }
+
     @Test
     public void testRegistryAddQueue() throws Exception {
         this.listener.onPutEntry("x-queue-name-x", new DestinationState("x-queue-name-x"));
@@ -86,9 +115,169 @@ public class QueueStatisticsRegistryTest {
         assertEquals(0, this.registry.getQueueStats().size());
     }
 
+    @Test
+    public void testGetTopQueues() throws Exception {
+        this.stats.setQueueSize(5);
+        this.registry.onUpdatedStats(this.stats);
+
+        ActiveMQQueueJmxStats otherStats = new ActiveMQQueueJmxStats("x-broker-name-x", "x-other-queue-name-x");
+        otherStats.setQueueSize(9);
+        this.registry.onUpdatedStats(otherStats);
+
+        List<QueueRankEntry> result = this.registry.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10);
+
+        assertEquals(2, result.size());
+        assertEquals("x-other-queue-name-x", result.get(0).getQueueName());
+        assertEquals(9.0, result.get(0).getValue(), 0.0);
+        assertEquals("x-queue-name-x", result.get(1).getQueueName());
+    }
+
+    @Test
+    public void testRegistryRemoveQueueRemovesTopQueue() throws Exception {
+        this.registry.onUpdatedStats(this.stats);
+        assertEquals(1, this.registry.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10).size());
+
+        this.listener.onRemoveEntry("x-queue-name-x", new DestinationState("x-queue-name-x"));
+        assertEquals(0, this.registry.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10).size());
+    }
+
+    @Test
+    public void testRegistryQueueReturnsAfterRemove() throws Exception {
+        this.registry.onUpdatedStats(this.stats);
+        this.listener.onRemoveEntry("x-queue-name-x", new DestinationState("x-queue-name-x"));
+
+        this.stats.setQueueSize(7);
+        this.registry.onUpdatedStats(this.stats);
+
+        List<QueueRankEntry> result = this.registry.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10);
+        assertEquals(1, result.size());
+        assertEquals(7.0, result.get(0).getValue(), 0.0);
+    }
+
     @Test
     public void testRegistryReplaceQueue() throws Exception {
         this.listener.onReplaceEntry("x-queue-name-x", new DestinationState("x-queue-name-x"),
                 new DestinationState("x-queue-name-x"));
     }
-}
\ No newline at end of file
+
+    @Test(timeout = 10000)
+    public void testConcurrentUpdatesOfManyQueues() throws Exception {
+        final int numThreads = 4;
+        final int queuesPerThread = 50;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            Future<?>[] futures = new Future<?>[numThreads];
+            for ( int threadNum = 0; threadNum < numThreads; threadNum++ ) {
+                final int base = threadNum * queuesPerThread;
+                futures[threadNum] = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startLatch.await();
+                        } catch ( InterruptedException intExc ) {
+                            throw new RuntimeException(intExc);
+                        }
+
+                        for ( int cur = 0; cur < queuesPerThread; cur++ ) {
+                            ActiveMQQueueJmxStats queueStats =
+                                    new ActiveMQQueueJmxStats("x-broker-name-x", "x-queue-" + (base + cur) + "-x");
+                            queueStats.setEnqueueCount(base + cur);
+
+                            registry.onUpdatedStats(queueStats);
+                            registry.getQueueStats();
+                        }
+                    }
+                });
+            }
+
+            startLatch.countDown();
+            for ( Future<?> oneFuture : futures ) {
+                oneFuture.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, ActiveMQQueueStats> result = this.registry.getQueueStats();
+        assertEquals(numThreads * queuesPerThread, result.size());
+        assertEquals(17, result.get("x-queue-17-x").getEnqueueCount());
+    }
+
+    @Test
+    public void testGetSetHistoryCapacity() throws Exception {
+        assertEquals(QueueStatisticsCollection.DEFAULT_HISTORY_CAPACITY, this.registry.getHistoryCapacity());
+
+        this.registry.setHistoryCapacity(13);
+        assertEquals(13, this.registry.getHistoryCapacity());
+    }
+
+    @Test
+    public void testGetSetHistorySampleInterval() throws Exception {
+        assertEquals(QueueStatisticsCollection.DEFAULT_HISTORY_SAMPLE_INTERVAL,
+                this.registry.getHistorySampleInterval());
+
+        this.registry.setHistorySampleInterval(1717L);
+        assertEquals(1717L, this.registry.getHistorySampleInterval());
+    }
+
+    @Test
+    public void testGetQueueStatsForOneQueue() throws Exception {
+        assertNull(this.registry.getQueueStats("x-queue-name-x"));
+
+        this.registry.onUpdatedStats(this.stats);
+
+        ActiveMQQueueStats queueStats = this.registry.getQueueStats("x-queue-name-x");
+        assertEquals("x-queue-name-x", queueStats.getQueueName());
+        assertEquals(22, queueStats.getEnqueueCount());
+    }
+
+    @Test
+    public void testGetQueueHistory() throws Exception {
+        assertNull(this.registry.getQueueHistory("x-queue-name-x", 0));
+
+        this.registry.onUpdatedStats(this.stats);
+
+        Map<String, QueueStatisticsHistorySeries> history = this.registry.getQueueHistory("x-queue-name-x", 0);
+        assertEquals(1, history.size());
+        assertArrayEquals(new long[] { 22 }, history.get("x-broker-name-x").getEnqueueCount());
+
+        assertEquals(0, this.registry.getQueueHistory("x-queue-name-x", Long.MAX_VALUE).get("x-broker-name-x").size());
+    }
+
+    @Test
+    public void testHistoryDisabled() throws Exception {
+        this.registry.setHistoryCapacity(0);
+        this.registry.onUpdatedStats(this.stats);
+
+        assertEquals(0, this.registry.getQueueHistory("x-queue-name-x", 0).get("x-broker-name-x").size());
+    }
+
+    @Test
+    public void testUpdateSnapshot() throws Exception {
+        QueueStatisticsSnapshot snapshot = this.registry.updateSnapshot();
+        assertEquals(0, snapshot.getVersion());
+        assertTrue(snapshot.isEmpty());
+
+        this.registry.onUpdatedStats(this.stats);
+
+        snapshot = this.registry.updateSnapshot();
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(1, snapshot.getChangedQueueStats().size());
+        assertEquals(22, snapshot.getChangedQueueStats().get("x-queue-name-x").getEnqueueCount());
+        assertTrue(snapshot.getRemovedQueueNames().isEmpty());
+
+        // Nothing changed since the last update.
+        snapshot = this.registry.updateSnapshot();
+        assertEquals(1, snapshot.getVersion());
+        assertTrue(snapshot.isEmpty());
+
+        this.listener.onRemoveEntry("x-queue-name-x", new DestinationState("x-queue-name-x"));
+
+        snapshot = this.registry.updateSnapshot();
+        assertEquals(2, snapshot.getVersion());
+        assertTrue(snapshot.getChangedQueueStats().isEmpty());
+        assertTrue(snapshot.getRemovedQueueNames().contains("x-queue-name-x"));
+    }
+}
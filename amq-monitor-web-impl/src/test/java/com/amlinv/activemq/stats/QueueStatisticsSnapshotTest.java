@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.activemq.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class QueueStatisticsSnapshotTest {
+
+    private Map<String, ActiveMQQueueStats> changedQueueStats;
+    private Set<String> removedQueueNames;
+    private ActiveMQQueueStats queueStats;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.queueStats = new ActiveMQQueueStats("x-broker-x", "x-queue-x");
+        this.changedQueueStats = new HashMap<>();
+        this.removedQueueNames = new HashSet<>();
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+        this.changedQueueStats.put("x-queue-x", this.queueStats);
+        this.removedQueueNames.add("x-removed-queue-x");
+
+        QueueStatisticsSnapshot snapshot =
+                new QueueStatisticsSnapshot(13, this.changedQueueStats, this.removedQueueNames);
+
+        assertEquals(13, snapshot.getVersion());
+        assertSame(this.queueStats, snapshot.getChangedQueueStats().get("x-queue-x"));
+        assertEquals(Collections.singleton("x-removed-queue-x"), snapshot.getRemovedQueueNames());
+        assertFalse(snapshot.isEmpty());
+    }
+
+    @Test
+    public void testIsEmpty() throws Exception {
+        assertTrue(new QueueStatisticsSnapshot(1, this.changedQueueStats, this.removedQueueNames).isEmpty());
+
+        this.removedQueueNames.add("x-removed-queue-x");
+        assertFalse(new QueueStatisticsSnapshot(1, this.changedQueueStats, this.removedQueueNames).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testChangesUnmodifiable() throws Exception {
+        new QueueStatisticsSnapshot(1, this.changedQueueStats, this.removedQueueNames).getChangedQueueStats()
+                .put("x-queue-x", this.queueStats);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 AML Innovation & Consulting LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amlinv.activemq.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueueTopNIndexTest {
+
+    private QueueTopNIndex index;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.index = new QueueTopNIndex();
+    }
+
+    @Test
+    public void testGetTopQueuesEmpty() throws Exception {
+        assertTrue(this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10).isEmpty());
+    }
+
+    @Test
+    public void testRankingByEachMetric() throws Exception {
+        this.index.onQueueUpdated("x-queue1-x", 10, 1.0, 3.0, 7);
+        this.index.onQueueUpdated("x-queue2-x", 30, 2.0, 1.0, 5);
+        this.index.onQueueUpdated("x-queue3-x", 20, 3.0, 2.0, 9);
+
+        assertEquals(Arrays.asList("x-queue2-x", "x-queue3-x", "x-queue1-x"),
+                this.names(this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10)));
+        assertEquals(Arrays.asList("x-queue3-x", "x-queue2-x", "x-queue1-x"),
+                this.names(this.index.getTopQueues(QueueRankingMetric.ENQUEUE_RATE, 10)));
+        assertEquals(Arrays.asList("x-queue1-x", "x-queue3-x", "x-queue2-x"),
+                this.names(this.index.getTopQueues(QueueRankingMetric.DEQUEUE_RATE, 10)));
+        assertEquals(Arrays.asList("x-queue3-x", "x-queue1-x", "x-queue2-x"),
+                this.names(this.index.getTopQueues(QueueRankingMetric.INFLIGHT_COUNT, 10)));
+
+        List<QueueRankEntry> backlog = this.index.getTopQueues(QueueRankingMetric.BACKLOG_GROWTH, 10);
+        assertEquals(Arrays.asList("x-queue2-x", "x-queue3-x", "x-queue1-x"), this.names(backlog));
+        assertEquals(1.0, backlog.get(0).getValue(), 0.0);
+        assertEquals(-2.0, backlog.get(2).getValue(), 0.0);
+    }
+
+    @Test
+    public void testGetTopQueuesLimit() throws Exception {
+        this.index.onQueueUpdated("x-queue1-x", 10, 0.0, 0.0, 0);
+        this.index.onQueueUpdated("x-queue2-x", 30, 0.0, 0.0, 0);
+        this.index.onQueueUpdated("x-queue3-x", 20, 0.0, 0.0, 0);
+
+        assertEquals(Arrays.asList("x-queue2-x", "x-queue3-x"),
+                this.names(this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 2)));
+        assertTrue(this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 0).isEmpty());
+    }
+
+    @Test
+    public void testUpdateMovesQueue() throws Exception {
+        this.index.onQueueUpdated("x-queue1-x", 10, 0.0, 0.0, 0);
+        this.index.onQueueUpdated("x-queue2-x", 20, 0.0, 0.0, 0);
+
+        this.index.onQueueUpdated("x-queue1-x", 40, 0.0, 0.0, 0);
+
+        List<QueueRankEntry> result = this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10);
+        assertEquals(Arrays.asList("x-queue1-x", "x-queue2-x"), this.names(result));
+        assertEquals(40.0, result.get(0).getValue(), 0.0);
+    }
+
+    @Test
+    public void testUnchangedValueKeepsEntry() throws Exception {
+        this.index.onQueueUpdated("x-queue1-x", 10, 0.0, 0.0, 0);
+        QueueRankEntry before = this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 1).get(0);
+
+        this.index.onQueueUpdated("x-queue1-x", 10, 1.0, 0.0, 0);
+
+        assertSame(before, this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 1).get(0));
+        assertEquals(1, this.index.getTopQueues(QueueRankingMetric.ENQUEUE_RATE, 10).size());
+    }
+
+    @Test
+    public void testEqualValuesOrderedByName() throws Exception {
+        this.index.onQueueUpdated("x-queue2-x", 10, 0.0, 0.0, 0);
+        this.index.onQueueUpdated("x-queue1-x", 10, 0.0, 0.0, 0);
+
+        assertEquals(Arrays.asList("x-queue1-x", "x-queue2-x"),
+                this.names(this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10)));
+    }
+
+    @Test
+    public void testRemoveQueue() throws Exception {
+        this.index.onQueueUpdated("x-queue1-x", 10, 1.0, 1.0, 1);
+        this.index.onQueueUpdated("x-queue2-x", 20, 2.0, 2.0, 2);
+
+        this.index.removeQueue("x-queue1-x");
+
+        for ( QueueRankingMetric oneMetric : QueueRankingMetric.values() ) {
+            assertEquals(Arrays.asList("x-queue2-x"), this.names(this.index.getTopQueues(oneMetric, 10)));
+        }
+
+        // Removal of an unknown queue is harmless.
+        this.index.removeQueue("x-unknown-queue-x");
+    }
+
+    @Test
+    public void testUpdateAfterRemoveRanksQueueAnew() throws Exception {
+        this.index.onQueueUpdated("x-queue1-x", 10, 1.0, 1.0, 1);
+        this.index.removeQueue("x-queue1-x");
+        this.index.onQueueUpdated("x-queue1-x", 5, 0.0, 0.0, 0);
+
+        for ( QueueRankingMetric oneMetric : QueueRankingMetric.values() ) {
+            List<QueueRankEntry> result = this.index.getTopQueues(oneMetric, 10);
+            assertEquals(1, result.size());
+            assertEquals("x-queue1-x", result.get(0).getQueueName());
+        }
+
+        assertEquals(5.0, this.index.getTopQueues(QueueRankingMetric.QUEUE_SIZE, 10).get(0).getValue(), 0.0);
+    }
+
+    @Test
+    public void testMetricFromMetricName() throws Exception {
+        for ( QueueRankingMetric oneMetric : QueueRankingMetric.values() ) {
+            assertSame(oneMetric, QueueRankingMetric.fromMetricName(oneMetric.getMetricName()));
+        }
+
+        assertNull(QueueRankingMetric.fromMetricName("x-unknown-metric-x"));
+    }
+
+    protected List<String> names(List<QueueRankEntry> entries) {
+        String[] result = new String[entries.size()];
+
+        for ( int cur = 0; cur < result.length; cur++ ) {
+            result[cur] = entries.get(cur).getQueueName();
+        }
+
+        return Arrays.asList(result);
+    }
+}